@@ -0,0 +1,155 @@
+package bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import sol.FrozenTravelGraph;
+import sol.TravelController;
+import sol.TravelGraph;
+import src.City;
+import src.Transport;
+import src.TransportType;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures getting a network into memory: TravelController.load from CSV
+ * files, building a TravelGraph from rows that are already parsed, and
+ * freezing a TravelGraph into its CSR form. The networks are the same ones
+ * RouteBenchmark searches. The CSV files are written to a temporary
+ * directory once per parameter set and deleted afterwards.
+ */
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx8g")
+public class LoadBenchmark {
+
+    private static final long SEED = 42;
+
+    @Param({"1000", "100000", "1000000", "10000000"})
+    public int edges;
+
+    private Path directory;
+    private String citiesFile;
+    private String transportFile;
+    private List<String> cityNames;
+    private List<Row> rows;
+    private TravelGraph graph;
+
+    /**
+     * Writes the CSV files and keeps the rows in memory once per parameter
+     * set
+     *
+     * @throws IOException if the files cannot be written
+     */
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        NetworkGenerator generator = new NetworkGenerator(
+                Math.max(2, this.edges / 4), this.edges, SEED);
+        this.directory = Files.createTempDirectory("travel-bench");
+        Path cities = this.directory.resolve("cities.csv");
+        Path transport = this.directory.resolve("transport.csv");
+        generator.writeCsv(cities, transport);
+        this.citiesFile = cities.toString();
+        this.transportFile = transport.toString();
+
+        this.cityNames = new ArrayList<>(generator.getCityCount());
+        this.rows = new ArrayList<>(this.edges);
+        generator.generate(this.cityNames::add,
+                (origin, destination, type, price, minutes) -> this.rows.add(
+                        new Row(origin, destination, type, price, minutes)));
+        this.graph = this.buildGraph();
+    }
+
+    /**
+     * Deletes the CSV files
+     *
+     * @throws IOException if the files cannot be deleted
+     */
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(this.directory.resolve("cities.csv"));
+        Files.deleteIfExists(this.directory.resolve("transport.csv"));
+        Files.deleteIfExists(this.directory);
+    }
+
+    @Benchmark
+    public String controllerLoad() {
+        return new TravelController().load(this.citiesFile,
+                this.transportFile);
+    }
+
+    @Benchmark
+    public TravelGraph graphConstruction() {
+        return this.buildGraph();
+    }
+
+    @Benchmark
+    public FrozenTravelGraph freeze() {
+        return this.graph.freeze();
+    }
+
+    /**
+     * Builds a TravelGraph from the kept rows the way load does, looking up
+     * each Transport's cities by name
+     *
+     * @return the graph
+     */
+
+    private TravelGraph buildGraph() {
+        TravelGraph built = new TravelGraph();
+        for (String name : this.cityNames) {
+            built.addVertex(new City(name));
+        }
+        for (Row row : this.rows) {
+            City origin = built.getCityByName(row.origin);
+            City destination = built.getCityByName(row.destination);
+            built.addEdge(origin, new Transport(origin, destination, row.type,
+                    row.price, row.minutes));
+        }
+        return built;
+    }
+
+    /**
+     * The fields of one transport row
+     */
+
+    private static final class Row {
+
+        final String origin;
+        final String destination;
+        final TransportType type;
+        final double price;
+        final double minutes;
+
+        Row(String origin, String destination, TransportType type,
+            double price, double minutes) {
+            this.origin = origin;
+            this.destination = destination;
+            this.type = type;
+            this.price = price;
+            this.minutes = minutes;
+        }
+    }
+}
@@ -0,0 +1,551 @@
+package bench;
+
+import sol.QueryStats;
+import sol.SearchMode;
+import sol.TravelController;
+import src.TravelCSVParser;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * The LoadTest class replays a mix of fast, cheap and direct queries against
+ * one TravelController from many threads at once, the way the REPL's users
+ * would if they shared a server, and reports the throughput and latency
+ * percentiles of each kind of query, along with the mean number of bytes a
+ * query allocates on its thread. Query pairs are drawn from the cities
+ * file with a fixed seed, either from every city or from a smaller set of
+ * popular pairs so the route cache gets hits. The threads first run
+ * unmeasured for a warmup period so the JIT and the preprocessed tables
+ * settle, then run for the measured period.
+ */
+
+public class LoadTest {
+
+    private static final String[] QUERIES = {"fast", "cheap", "direct"};
+
+    private final TravelController controller;
+    private final String[] cities;
+    private final double[] mix;
+    private final int[] pairs;
+    private final Random seeds;
+
+    /**
+     * Constructor for the LoadTest class
+     *
+     * @param controller a controller with a graph loaded
+     * @param cities     the names of the cities to query between
+     * @param mix        the relative weights of fast, cheap and direct
+     *                   queries
+     * @param hotPairs   the number of distinct pairs to query, or 0 to draw
+     *                   every pair afresh from all the cities
+     * @param seed       the seed of the query choices
+     * @throws IllegalArgumentException if there are fewer than two cities,
+     *                                  the mix has a negative weight or only
+     *                                  zeros, or hotPairs is negative
+     */
+
+    public LoadTest(TravelController controller, List<String> cities,
+                    double[] mix, int hotPairs, long seed) {
+        if (cities.size() < 2 || mix.length != QUERIES.length || hotPairs < 0) {
+            throw new IllegalArgumentException("A load test needs at least two "
+                    + "cities, a weight for each of fast, cheap and direct, and "
+                    + "no fewer than zero hot pairs.");
+        }
+        double total = 0;
+        for (double weight : mix) {
+            if (!(weight >= 0)) {
+                throw new IllegalArgumentException("Query weights must not be "
+                        + "negative.");
+            }
+            total += weight;
+        }
+        if (total == 0) {
+            throw new IllegalArgumentException("Query weights must not all be "
+                    + "0.");
+        }
+        this.controller = controller;
+        this.cities = cities.toArray(new String[0]);
+        this.mix = new double[mix.length];
+        for (int q = 0; q < mix.length; q++) {
+            this.mix[q] = mix[q] / total;
+        }
+        this.pairs = hotPairs > 0 ? drawPairs(new Random(seed),
+                this.cities.length, hotPairs) : null;
+        this.seeds = new Random(seed);
+    }
+
+    /**
+     * Loads a graph and runs a load test on it. After the four positional
+     * arguments come any of the options
+     * <pre>
+     *   --mix fast:cheap:direct   relative query weights (default 1:1:1)
+     *   --warmup seconds          unmeasured time before the run (default 5)
+     *   --mode dijkstra|bidirectional|ch|alt
+     *   --pairs count             distinct pairs to query (default 0, all)
+     *   --seed seed               (default 42)
+     *   --stats on|off            collect and print query statistics
+     *                             during the measured run (default off)
+     *   --max-alloc bytes         fail if a kind of query allocates more
+     *                             than this on average (default no limit)
+     * </pre>
+     *
+     * @param args the cities file, the transport file, the number of threads
+     *             and the number of seconds to measure, followed by options
+     * @throws InterruptedException if interrupted while waiting for the
+     *                              threads
+     */
+
+    public static void main(String[] args) throws InterruptedException {
+        if (args.length < 4 || args.length % 2 != 0) {
+            System.out.println(usage());
+            return;
+        }
+        double[] mix = {1, 1, 1};
+        double warmup = 5;
+        SearchMode mode = SearchMode.DIJKSTRA;
+        int pairs = 0;
+        long seed = 42;
+        boolean stats = false;
+        long maxAllocated = Long.MAX_VALUE;
+        int threads;
+        double seconds;
+        try {
+            threads = Integer.parseInt(args[2]);
+            seconds = Double.parseDouble(args[3]);
+            for (int i = 4; i < args.length; i += 2) {
+                String value = args[i + 1];
+                switch (args[i]) {
+                    case "--mix" -> {
+                        String[] weights = value.split(":");
+                        if (weights.length != QUERIES.length) {
+                            throw new IllegalArgumentException("--mix needs "
+                                    + "three weights.");
+                        }
+                        for (int q = 0; q < QUERIES.length; q++) {
+                            mix[q] = Double.parseDouble(weights[q]);
+                        }
+                    }
+                    case "--warmup" -> warmup = Double.parseDouble(value);
+                    case "--mode" -> mode = switch (value) {
+                        case "dijkstra" -> SearchMode.DIJKSTRA;
+                        case "bidirectional" -> SearchMode.BIDIRECTIONAL;
+                        case "ch" -> SearchMode.CONTRACTION_HIERARCHIES;
+                        case "alt" -> SearchMode.ALT;
+                        default -> throw new IllegalArgumentException(
+                                "Unknown search mode: " + value);
+                    };
+                    case "--pairs" -> pairs = Integer.parseInt(value);
+                    case "--seed" -> seed = Long.parseLong(value);
+                    case "--stats" -> stats = switch (value) {
+                        case "on" -> true;
+                        case "off" -> false;
+                        default -> throw new IllegalArgumentException(
+                                "--stats needs on or off.");
+                    };
+                    case "--max-alloc" -> maxAllocated = Long.parseLong(value);
+                    default -> throw new IllegalArgumentException(
+                            "Unknown option: " + args[i]);
+                }
+            }
+            if (threads < 1 || !(seconds > 0) || !(warmup >= 0)) {
+                throw new IllegalArgumentException("Threads and seconds must "
+                        + "be positive and warmup must not be negative.");
+            }
+        } catch (IllegalArgumentException e) {
+            System.out.println(e.getMessage() + "\n" + usage());
+            return;
+        }
+
+        List<String> cities = new ArrayList<>();
+        try {
+            new TravelCSVParser().streamLocations(args[0], cities::add);
+        } catch (IOException e) {
+            System.out.println("Error parsing file: " + args[0]);
+            return;
+        }
+        TravelController controller = new TravelController(mode);
+        long loadStart = System.nanoTime();
+        String loaded = controller.load(args[0], args[1]);
+        System.out.printf("%s (%.1f s, %s)%n", loaded,
+                (System.nanoTime() - loadStart) / 1e9, mode);
+        if (!loaded.startsWith("Successfully")) {
+            return;
+        }
+
+        LoadTest test;
+        try {
+            test = new LoadTest(controller, cities, mix, pairs, seed);
+        } catch (IllegalArgumentException e) {
+            System.out.println(e.getMessage() + "\n" + usage());
+            return;
+        }
+        if (warmup > 0) {
+            test.run(threads, warmup);
+        }
+        if (stats) {
+            controller.setStatsEnabled(true);
+        }
+        Report report = test.run(threads, seconds);
+        System.out.print(report);
+        if (stats) {
+            System.out.printf("%n%s%n", controller.getStats());
+        }
+        for (String query : QUERIES) {
+            long allocated = report.getAllocatedBytes(query);
+            if (allocated > maxAllocated) {
+                System.out.printf("%s queries allocated %d bytes each in %s "
+                        + "mode, over the limit of %d%n", query, allocated,
+                        mode, maxAllocated);
+                System.exit(1);
+            }
+        }
+    }
+
+    /**
+     * Runs queries from a number of threads for a period of time. Each run
+     * draws new queries, so a measured run after a warmup does not just
+     * repeat the warmup's queries out of the route cache
+     *
+     * @param threads the number of threads
+     * @param seconds how long to run for
+     * @return the report of the run
+     * @throws InterruptedException if interrupted while waiting for the
+     *                              threads
+     */
+
+    public Report run(int threads, double seconds) throws InterruptedException {
+        CountDownLatch start = new CountDownLatch(1);
+        Worker[] workers = new Worker[threads];
+        Thread[] running = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            workers[t] = new Worker(new Random(this.seeds.nextLong()), start);
+            running[t] = new Thread(workers[t], "load-test-" + t);
+            running[t].start();
+        }
+        long startTime = System.nanoTime();
+        long deadline = startTime + (long) (seconds * 1e9);
+        for (Worker worker : workers) {
+            worker.deadline = deadline;
+        }
+        start.countDown();
+        for (Thread thread : running) {
+            thread.join();
+        }
+        long elapsed = System.nanoTime() - startTime;
+        for (Worker worker : workers) {
+            if (worker.failure != null) {
+                throw new IllegalStateException("A query failed.",
+                        worker.failure);
+            }
+        }
+
+        Samples[] merged = new Samples[QUERIES.length];
+        long[] allocated = new long[QUERIES.length];
+        for (int q = 0; q < QUERIES.length; q++) {
+            merged[q] = new Samples();
+            for (Worker worker : workers) {
+                merged[q].addAll(worker.samples[q]);
+                allocated[q] = allocated[q] < 0 || worker.allocated[q] < 0 ? -1
+                        : allocated[q] + worker.allocated[q];
+            }
+        }
+        return new Report(threads, elapsed, merged, allocated);
+    }
+
+    /**
+     * Draws the popular pairs a test is limited to
+     *
+     * @param random     a random source seeded with the test's seed
+     * @param cityCount  the number of cities
+     * @param pairCount  the number of pairs
+     * @return the city indexes of the pairs, two per pair
+     */
+
+    private static int[] drawPairs(Random random, int cityCount, int pairCount) {
+        int[] drawn = new int[2 * pairCount];
+        for (int i = 0; i < drawn.length; i++) {
+            drawn[i] = random.nextInt(cityCount);
+        }
+        return drawn;
+    }
+
+    /**
+     * Returns the command line usage of main
+     *
+     * @return the usage message
+     */
+
+    private static String usage() {
+        return "Usage: LoadTest [cities_file] [transport_file] [threads] "
+                + "[seconds] [--mix fast:cheap:direct] [--warmup seconds] "
+                + "[--mode dijkstra|bidirectional|ch|alt] [--pairs count] "
+                + "[--seed seed] [--stats on|off] [--max-alloc bytes]";
+    }
+
+    /**
+     * One thread of a run: picks queries until the deadline, and times each
+     * one and counts the bytes it allocates
+     */
+
+    private final class Worker implements Runnable {
+
+        private final Random random;
+        private final CountDownLatch start;
+        private final Samples[] samples;
+        private final long[] allocated;
+        private volatile long deadline;
+        private Throwable failure;
+
+        Worker(Random random, CountDownLatch start) {
+            this.random = random;
+            this.start = start;
+            this.samples = new Samples[QUERIES.length];
+            for (int q = 0; q < QUERIES.length; q++) {
+                this.samples[q] = new Samples();
+            }
+            this.allocated = new long[QUERIES.length];
+        }
+
+        @Override
+        public void run() {
+            try {
+                this.start.await();
+                String[] cities = LoadTest.this.cities;
+                int[] pairs = LoadTest.this.pairs;
+                long deadline = this.deadline;
+                long now = System.nanoTime();
+                while (now < deadline) {
+                    int query = this.pickQuery();
+                    String source;
+                    String destination;
+                    if (pairs == null) {
+                        source = cities[this.random.nextInt(cities.length)];
+                        destination = cities[this.random.nextInt(cities.length)];
+                    } else {
+                        int pair = 2 * this.random.nextInt(pairs.length / 2);
+                        source = cities[pairs[pair]];
+                        destination = cities[pairs[pair + 1]];
+                    }
+                    long allocatedBefore =
+                            QueryStats.currentThreadAllocatedBytes();
+                    switch (query) {
+                        case 0 -> LoadTest.this.controller.fastestRoute(source,
+                                destination);
+                        case 1 -> LoadTest.this.controller.cheapestRoute(source,
+                                destination);
+                        default -> LoadTest.this.controller.mostDirectRoute(
+                                source, destination);
+                    }
+                    long end = System.nanoTime();
+                    this.allocated[query] = allocatedBefore < 0 ? -1
+                            : this.allocated[query]
+                            + QueryStats.currentThreadAllocatedBytes()
+                            - allocatedBefore;
+                    this.samples[query].add(end - now);
+                    now = end;
+                }
+            } catch (Throwable e) {
+                this.failure = e;
+            }
+        }
+
+        /**
+         * Picks the kind of the next query according to the mix
+         *
+         * @return 0 for fast, 1 for cheap or 2 for direct
+         */
+
+        private int pickQuery() {
+            double draw = this.random.nextDouble();
+            for (int q = 0; q < QUERIES.length - 1; q++) {
+                draw -= LoadTest.this.mix[q];
+                if (draw < 0) {
+                    return q;
+                }
+            }
+            return QUERIES.length - 1;
+        }
+    }
+
+    /**
+     * The latencies of one kind of query, in nanoseconds
+     */
+
+    private static final class Samples {
+
+        private long[] values = new long[1024];
+        private int size;
+
+        void add(long value) {
+            if (this.size == this.values.length) {
+                this.values = Arrays.copyOf(this.values, this.size * 2);
+            }
+            this.values[this.size++] = value;
+        }
+
+        void addAll(Samples other) {
+            if (this.size + other.size > this.values.length) {
+                this.values = Arrays.copyOf(this.values,
+                        Math.max(this.size + other.size, this.size * 2));
+            }
+            System.arraycopy(other.values, 0, this.values, this.size, other.size);
+            this.size += other.size;
+        }
+
+        /**
+         * Sorts the latencies so percentiles can be read off
+         */
+
+        void sort() {
+            Arrays.sort(this.values, 0, this.size);
+        }
+
+        /**
+         * Returns a percentile of the sorted latencies by nearest rank
+         *
+         * @param fraction the percentile as a fraction, such as 0.99
+         * @return the latency in nanoseconds, or 0 if there are none
+         */
+
+        long percentile(double fraction) {
+            if (this.size == 0) {
+                return 0;
+            }
+            int rank = (int) Math.ceil(fraction * this.size);
+            return this.values[Math.max(0, rank - 1)];
+        }
+    }
+
+    /**
+     * The results of a run: the number of queries of each kind, the
+     * throughput, the latency percentiles and the bytes allocated per query
+     */
+
+    public static final class Report {
+
+        private static final double[] PERCENTILES = {0.5, 0.99, 0.999, 1.0};
+
+        private final int threads;
+        private final long elapsedNanos;
+        private final long[] counts;
+        private final long[][] latencies;
+        private final long[] allocated;
+
+        Report(int threads, long elapsedNanos, Samples[] byQuery,
+               long[] allocatedByQuery) {
+            this.threads = threads;
+            this.elapsedNanos = elapsedNanos;
+            Samples all = new Samples();
+            for (Samples samples : byQuery) {
+                all.addAll(samples);
+            }
+            this.counts = new long[QUERIES.length + 1];
+            this.latencies = new long[QUERIES.length + 1][];
+            this.allocated = Arrays.copyOf(allocatedByQuery, QUERIES.length + 1);
+            for (long bytes : allocatedByQuery) {
+                this.allocated[QUERIES.length] = bytes < 0
+                        || this.allocated[QUERIES.length] < 0 ? -1
+                        : this.allocated[QUERIES.length] + bytes;
+            }
+            for (int q = 0; q <= QUERIES.length; q++) {
+                Samples samples = q < QUERIES.length ? byQuery[q] : all;
+                samples.sort();
+                this.counts[q] = samples.size;
+                this.latencies[q] = new long[PERCENTILES.length];
+                for (int p = 0; p < PERCENTILES.length; p++) {
+                    this.latencies[q][p] = samples.percentile(PERCENTILES[p]);
+                }
+            }
+        }
+
+        /**
+         * Returns the number of queries answered per second over all
+         * threads
+         *
+         * @return the throughput
+         */
+
+        public double getThroughput() {
+            return this.counts[QUERIES.length] / (this.elapsedNanos / 1e9);
+        }
+
+        /**
+         * Returns a latency percentile of one kind of query
+         *
+         * @param query    fast, cheap, direct or all
+         * @param fraction one of 0.5, 0.99, 0.999 or 1.0 for the maximum
+         * @return the latency in nanoseconds
+         * @throws IllegalArgumentException if the query or the fraction is
+         *                                  not one of those
+         */
+
+        public long getLatency(String query, double fraction) {
+            int q = query.equals("all") ? QUERIES.length
+                    : Arrays.asList(QUERIES).indexOf(query);
+            int p = Arrays.binarySearch(PERCENTILES, fraction);
+            if (q < 0 || p < 0) {
+                throw new IllegalArgumentException("No latency recorded for "
+                        + query + " at " + fraction);
+            }
+            return this.latencies[q][p];
+        }
+
+        /**
+         * Returns the mean number of bytes one kind of query allocated on
+         * the thread that ran it
+         *
+         * @param query fast, cheap, direct or all
+         * @return the mean allocated bytes, 0 if there were no such
+         * queries, or -1 if the JVM does not count allocations per thread
+         * @throws IllegalArgumentException if the query is not one of those
+         */
+
+        public long getAllocatedBytes(String query) {
+            int q = query.equals("all") ? QUERIES.length
+                    : Arrays.asList(QUERIES).indexOf(query);
+            if (q < 0) {
+                throw new IllegalArgumentException("No allocations recorded "
+                        + "for " + query);
+            }
+            if (this.allocated[q] < 0) {
+                return -1;
+            }
+            return this.counts[q] == 0 ? 0 : this.allocated[q] / this.counts[q];
+        }
+
+        /**
+         * Returns the report as a table with latencies in microseconds and
+         * the mean bytes allocated per query
+         *
+         * @return the table
+         */
+
+        @Override
+        public String toString() {
+            StringBuilder table = new StringBuilder(String.format(
+                    "%d queries on %d threads in %.1f s: %.0f queries/s%n",
+                    this.counts[QUERIES.length], this.threads,
+                    this.elapsedNanos / 1e9, this.getThroughput()));
+            table.append(String.format("%-8s %10s %10s %10s %10s %10s %10s%n",
+                    "query", "count", "p50 us", "p99 us", "p999 us", "max us",
+                    "alloc B"));
+            for (int q = 0; q <= QUERIES.length; q++) {
+                table.append(String.format("%-8s %10d", q < QUERIES.length
+                        ? QUERIES[q] : "all", this.counts[q]));
+                for (long latency : this.latencies[q]) {
+                    table.append(String.format(" %10.1f", latency / 1e3));
+                }
+                long allocated = this.getAllocatedBytes(q < QUERIES.length
+                        ? QUERIES[q] : "all");
+                table.append(allocated < 0 ? String.format(" %10s%n", "n/a")
+                        : String.format(" %10d%n", allocated));
+            }
+            return table.toString();
+        }
+    }
+}
@@ -0,0 +1,694 @@
+package bench;
+
+import sol.TravelGraph;
+import src.City;
+import src.ITransportRowHandler;
+import src.Transport;
+import src.TransportType;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.function.Consumer;
+
+/**
+ * The NetworkGenerator class makes synthetic travel networks of any size
+ * that look like the ones in data/, so the algorithms can be measured on
+ * graphs far larger than the shipped examples. Cities are scattered in
+ * regional clusters over a square map. Buses and trains run to nearby
+ * cities, found through a grid over the map, and planes run anywhere, with
+ * a share of their ends at a set of hub cities. Prices and durations are a
+ * fixed part plus a part that grows with the distance travelled, set per
+ * transport type, times some noise.
+ * <p>
+ * The shape of the network is set with the fluent methods: how out-degrees
+ * are spread over the cities (degrees), the hubs (hubs), the share of each
+ * transport type (mix), the tariffs (tariff) and the noise (noise). The
+ * same settings and seed always give the same network.
+ */
+
+public class NetworkGenerator {
+
+    private static final double MAP_SIZE = 4000.0;
+    private static final int CITIES_PER_REGION = 500;
+    private static final int CITIES_PER_CELL = 8;
+    private static final int CITIES_PER_HUB = 100;
+    private static final TransportType[] TYPES = TransportType.values();
+
+    private final int cityCount;
+    private final long edgeCount;
+    private final long seed;
+    private DegreeDistribution degrees;
+    private double degreeExponent;
+    private int hubCount;
+    private double hubShare;
+    private final double[] mix;
+    private final Map<TransportType, double[]> tariffs;
+    private NoiseDistribution noise;
+    private double noiseSpread;
+
+    /**
+     * How the Transports are spread over the cities they leave from
+     */
+
+    public enum DegreeDistribution {
+
+        /**
+         * Every city has about the same number of outgoing Transports
+         */
+
+        REGULAR,
+
+        /**
+         * Every Transport leaves from a city picked uniformly at random, so
+         * out-degrees follow a Poisson distribution
+         */
+
+        RANDOM,
+
+        /**
+         * The city of rank r is picked with weight 1 / r^exponent, so a few
+         * cities have very many outgoing Transports and most have few
+         */
+
+        POWER_LAW
+    }
+
+    /**
+     * How the price and duration of each Transport are scattered around its
+     * tariff
+     */
+
+    public enum NoiseDistribution {
+
+        /**
+         * A factor drawn uniformly from [1 - spread, 1 + spread]
+         */
+
+        UNIFORM,
+
+        /**
+         * A factor e^x with x drawn from a normal distribution with standard
+         * deviation spread, which gives a long tail of expensive trips
+         */
+
+        LOG_NORMAL
+    }
+
+    /**
+     * Constructor for the NetworkGenerator class. Starts with RANDOM
+     * degrees, one hub for every 100 cities holding half of the plane ends,
+     * a mix of 57% buses, 28% trains and 15% planes, the default tariffs and
+     * uniform noise of 20%
+     *
+     * @param cityCount the number of cities
+     * @param edgeCount the number of Transports
+     * @param seed      the seed of the random choices
+     * @throws IllegalArgumentException if there are fewer than two cities or
+     *                                  a negative number of Transports
+     */
+
+    public NetworkGenerator(int cityCount, long edgeCount, long seed) {
+        if (cityCount < 2 || edgeCount < 0) {
+            throw new IllegalArgumentException("A network needs at least two "
+                    + "cities and no fewer than zero transports.");
+        }
+        this.cityCount = cityCount;
+        this.edgeCount = edgeCount;
+        this.seed = seed;
+        this.degrees = DegreeDistribution.RANDOM;
+        this.degreeExponent = 1.0;
+        this.hubCount = Math.max(1, cityCount / CITIES_PER_HUB);
+        this.hubShare = 0.5;
+        this.mix = new double[TYPES.length];
+        this.mix(0.57, 0.28, 0.15);
+        this.tariffs = new EnumMap<>(TransportType.class);
+        this.tariff(TransportType.BUS, 5, 0.08, 10, 1.0);
+        this.tariff(TransportType.TRAIN, 15, 0.15, 15, 0.6);
+        this.tariff(TransportType.PLANE, 60, 0.1, 90, 0.08);
+        this.noise = NoiseDistribution.UNIFORM;
+        this.noiseSpread = 0.2;
+    }
+
+    /**
+     * Writes a network as a cities CSV and a transport CSV that load can
+     * read. After the four positional arguments come any of the options
+     * <pre>
+     *   --degrees regular|random|powerlaw[:exponent]
+     *   --hubs count:share
+     *   --mix bus:train:plane
+     *   --noise uniform|lognormal:spread
+     *   --tariff type:basePrice:pricePerKm:baseMinutes:minutesPerKm
+     * </pre>
+     *
+     * @param args the city count, the transport count, the seed and the
+     *             directory to write cities.csv and transport.csv to,
+     *             followed by options
+     * @throws IOException if the files cannot be written
+     */
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 4 || args.length % 2 != 0) {
+            System.out.println(usage());
+            return;
+        }
+        NetworkGenerator generator;
+        try {
+            generator = new NetworkGenerator(Integer.parseInt(args[0]),
+                    Long.parseLong(args[1]), Long.parseLong(args[2]));
+            for (int i = 4; i < args.length; i += 2) {
+                generator.option(args[i], args[i + 1].split(":"));
+            }
+        } catch (IllegalArgumentException e) {
+            System.out.println(e.getMessage() + "\n" + usage());
+            return;
+        }
+        Path directory = Paths.get(args[3]);
+        Files.createDirectories(directory);
+        generator.writeCsv(directory.resolve("cities.csv"),
+                directory.resolve("transport.csv"));
+    }
+
+    /**
+     * Returns the name of a city of a generated network
+     *
+     * @param id the number of the city, in [0, cityCount)
+     * @return the city's name
+     */
+
+    public static String cityName(int id) {
+        return "City " + id;
+    }
+
+    /**
+     * Returns the number of cities of the network
+     *
+     * @return the city count
+     */
+
+    public int getCityCount() {
+        return this.cityCount;
+    }
+
+    /**
+     * Sets how the Transports are spread over the cities they leave from
+     *
+     * @param distribution the degree distribution
+     * @return this generator
+     */
+
+    public NetworkGenerator degrees(DegreeDistribution distribution) {
+        this.degrees = distribution;
+        return this;
+    }
+
+    /**
+     * Sets the exponent of the POWER_LAW degree distribution. Larger
+     * exponents put more of the Transports on the top-ranked cities
+     *
+     * @param exponent the exponent
+     * @return this generator
+     * @throws IllegalArgumentException if the exponent is not positive
+     */
+
+    public NetworkGenerator degreeExponent(double exponent) {
+        if (!(exponent > 0)) {
+            throw new IllegalArgumentException("The degree exponent must be "
+                    + "positive.");
+        }
+        this.degreeExponent = exponent;
+        return this;
+    }
+
+    /**
+     * Sets the hubs: cities spread evenly through the ids that a share of
+     * planes leave from and, independently, arrive at
+     *
+     * @param count the number of hubs
+     * @param share the chance that each end of a plane is a hub
+     * @return this generator
+     * @throws IllegalArgumentException if the count is not in [1, cityCount]
+     *                                  or the share is not in [0, 1]
+     */
+
+    public NetworkGenerator hubs(int count, double share) {
+        if (count < 1 || count > this.cityCount || !(share >= 0 && share <= 1)) {
+            throw new IllegalArgumentException("There must be between 1 and "
+                    + this.cityCount + " hubs with a share between 0 and 1.");
+        }
+        this.hubCount = count;
+        this.hubShare = share;
+        return this;
+    }
+
+    /**
+     * Sets the share of each transport type. The weights only need to be
+     * relative to each other
+     *
+     * @param bus   the weight of buses
+     * @param train the weight of trains
+     * @param plane the weight of planes
+     * @return this generator
+     * @throws IllegalArgumentException if a weight is negative or all are 0
+     */
+
+    public NetworkGenerator mix(double bus, double train, double plane) {
+        if (!(bus >= 0 && train >= 0 && plane >= 0 && bus + train + plane > 0)) {
+            throw new IllegalArgumentException("Transport weights must not be "
+                    + "negative and must not all be 0.");
+        }
+        double total = bus + train + plane;
+        this.mix[TransportType.BUS.ordinal()] = bus / total;
+        this.mix[TransportType.TRAIN.ordinal()] = train / total;
+        this.mix[TransportType.PLANE.ordinal()] = plane / total;
+        return this;
+    }
+
+    /**
+     * Sets the tariff of a transport type. Before noise, a trip over a
+     * distance d costs basePrice + pricePerKm * d and takes baseMinutes +
+     * minutesPerKm * d. The map is 4000 km across
+     *
+     * @param type         the transport type
+     * @param basePrice    the price of any trip
+     * @param pricePerKm   the price added for each km
+     * @param baseMinutes  the duration of any trip
+     * @param minutesPerKm the duration added for each km
+     * @return this generator
+     * @throws IllegalArgumentException if a rate is negative
+     */
+
+    public NetworkGenerator tariff(TransportType type, double basePrice,
+                                   double pricePerKm, double baseMinutes,
+                                   double minutesPerKm) {
+        if (!(basePrice >= 0 && pricePerKm >= 0 && baseMinutes >= 0
+                && minutesPerKm >= 0)) {
+            throw new IllegalArgumentException("Tariffs must not be "
+                    + "negative.");
+        }
+        this.tariffs.put(type, new double[]{basePrice, pricePerKm, baseMinutes,
+                minutesPerKm});
+        return this;
+    }
+
+    /**
+     * Sets how prices and durations are scattered around their tariff
+     *
+     * @param distribution the noise distribution
+     * @param spread       the half width of UNIFORM noise or the standard
+     *                     deviation of the exponent of LOG_NORMAL noise; 0
+     *                     for no noise
+     * @return this generator
+     * @throws IllegalArgumentException if the spread is negative, or 1 or
+     *                                  more for UNIFORM noise
+     */
+
+    public NetworkGenerator noise(NoiseDistribution distribution,
+                                  double spread) {
+        if (!(spread >= 0)
+                || distribution == NoiseDistribution.UNIFORM && spread >= 1) {
+            throw new IllegalArgumentException("Noise spread must be at least "
+                    + "0, and below 1 for uniform noise.");
+        }
+        this.noise = distribution;
+        this.noiseSpread = spread;
+        return this;
+    }
+
+    /**
+     * Passes every city name and then every Transport of the network to a
+     * callback, in the same order every time
+     *
+     * @param handleCity      receives the name of every city
+     * @param handleTransport receives the fields of every Transport
+     */
+
+    public void generate(Consumer<String> handleCity,
+                         ITransportRowHandler handleTransport) {
+        Random random = new Random(this.seed);
+        String[] names = new String[this.cityCount];
+        for (int id = 0; id < this.cityCount; id++) {
+            names[id] = cityName(id);
+            handleCity.accept(names[id]);
+        }
+
+        // cities gather around region centers
+        int regions = Math.max(1, this.cityCount / CITIES_PER_REGION);
+        double[] centerX = new double[regions];
+        double[] centerY = new double[regions];
+        for (int r = 0; r < regions; r++) {
+            centerX[r] = random.nextDouble() * MAP_SIZE;
+            centerY[r] = random.nextDouble() * MAP_SIZE;
+        }
+        double spread = MAP_SIZE / Math.sqrt(regions) / 4;
+        double[] x = new double[this.cityCount];
+        double[] y = new double[this.cityCount];
+        for (int id = 0; id < this.cityCount; id++) {
+            int r = random.nextInt(regions);
+            x[id] = clamp(centerX[r] + random.nextGaussian() * spread);
+            y[id] = clamp(centerY[r] + random.nextGaussian() * spread);
+        }
+
+        // a grid over the map with the cities of each cell in one run
+        int side = Math.max(1, (int) Math.sqrt(
+                (double) this.cityCount / CITIES_PER_CELL));
+        int[] cellStart = new int[side * side + 1];
+        int[] cellOf = new int[this.cityCount];
+        for (int id = 0; id < this.cityCount; id++) {
+            cellOf[id] = cell(x[id], side) * side + cell(y[id], side);
+            cellStart[cellOf[id] + 1]++;
+        }
+        for (int c = 0; c < side * side; c++) {
+            cellStart[c + 1] += cellStart[c];
+        }
+        int[] cellCities = new int[this.cityCount];
+        int[] next = cellStart.clone();
+        for (int id = 0; id < this.cityCount; id++) {
+            cellCities[next[cellOf[id]]++] = id;
+        }
+
+        double[] rankWeights = this.degrees == DegreeDistribution.POWER_LAW
+                ? this.rankWeights() : null;
+        int[] ranked = this.degrees == DegreeDistribution.POWER_LAW
+                ? shuffledIds(random, this.cityCount) : null;
+
+        for (long e = 0; e < this.edgeCount; e++) {
+            TransportType type = this.pickType(random);
+            boolean plane = type == TransportType.PLANE;
+            int origin;
+            if (plane && random.nextDouble() < this.hubShare) {
+                origin = this.hub(random.nextInt(this.hubCount));
+            } else if (this.degrees == DegreeDistribution.REGULAR) {
+                origin = (int) (e % this.cityCount);
+            } else if (this.degrees == DegreeDistribution.POWER_LAW) {
+                origin = ranked[pick(rankWeights, random.nextDouble())];
+            } else {
+                origin = random.nextInt(this.cityCount);
+            }
+
+            int destination;
+            if (!plane) {
+                destination = nearby(random, origin, cellOf, side, cellStart,
+                        cellCities);
+            } else if (random.nextDouble() < this.hubShare) {
+                destination = this.hub(random.nextInt(this.hubCount));
+            } else {
+                destination = random.nextInt(this.cityCount);
+            }
+            if (destination == origin) {
+                destination = (origin + 1 + random.nextInt(this.cityCount - 1))
+                        % this.cityCount;
+            }
+
+            double distance = Math.hypot(x[origin] - x[destination],
+                    y[origin] - y[destination]);
+            double[] tariff = this.tariffs.get(type);
+            handleTransport.handle(names[origin], names[destination], type,
+                    Math.round((tariff[0] + tariff[1] * distance)
+                            * this.noiseFactor(random)),
+                    Math.round((tariff[2] + tariff[3] * distance)
+                            * this.noiseFactor(random)));
+        }
+    }
+
+    /**
+     * Builds the network as a TravelGraph
+     *
+     * @return a graph with every city and Transport of the network
+     */
+
+    public TravelGraph buildGraph() {
+        TravelGraph graph = new TravelGraph();
+        City[] cities = new City[this.cityCount];
+        int[] count = {0};
+        this.generate(name -> {
+            cities[count[0]] = new City(name);
+            graph.addVertex(cities[count[0]++]);
+        }, (origin, destination, type, price, minutes) -> {
+            City from = cities[Integer.parseInt(origin.substring(5))];
+            City to = cities[Integer.parseInt(destination.substring(5))];
+            graph.addEdge(from, new Transport(from, to, type, price, minutes));
+        });
+        return graph;
+    }
+
+    /**
+     * Writes the network in the format of the files in data/
+     *
+     * @param citiesFile    the path of the cities CSV to write
+     * @param transportFile the path of the transport CSV to write
+     * @throws IOException if the files cannot be written
+     */
+
+    public void writeCsv(Path citiesFile, Path transportFile)
+            throws IOException {
+        try (BufferedWriter cities = Files.newBufferedWriter(citiesFile);
+             BufferedWriter transports = Files.newBufferedWriter(transportFile)) {
+            cities.write("name\n");
+            transports.write("origin,destination,type,price,duration\n");
+            IOException[] failure = new IOException[1];
+            this.generate(name -> {
+                try {
+                    cities.write(name);
+                    cities.write('\n');
+                } catch (IOException e) {
+                    failure[0] = e;
+                }
+            }, (origin, destination, type, price, minutes) -> {
+                try {
+                    transports.write(origin + "," + destination + ","
+                            + type.getLabel() + "," + (long) price + ","
+                            + (long) minutes + "\n");
+                } catch (IOException e) {
+                    failure[0] = e;
+                }
+            });
+            if (failure[0] != null) {
+                throw failure[0];
+            }
+        }
+    }
+
+    /**
+     * Applies one command line option
+     *
+     * @param name   the option, such as --mix
+     * @param values its colon-separated values
+     * @throws IllegalArgumentException if the option or a value is not valid
+     */
+
+    private void option(String name, String[] values) {
+        try {
+            this.applyOption(name, values);
+        } catch (IndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("Missing value for " + name);
+        }
+    }
+
+    /**
+     * Applies one command line option, assuming it has all its values
+     *
+     * @param name   the option
+     * @param values its values
+     * @throws IllegalArgumentException if the option or a value is not valid
+     * @throws IndexOutOfBoundsException if a value is missing
+     */
+
+    private void applyOption(String name, String[] values) {
+        switch (name) {
+            case "--degrees" -> {
+                this.degrees(switch (values[0]) {
+                    case "regular" -> DegreeDistribution.REGULAR;
+                    case "random" -> DegreeDistribution.RANDOM;
+                    case "powerlaw" -> DegreeDistribution.POWER_LAW;
+                    default -> throw new IllegalArgumentException(
+                            "Unknown degree distribution: " + values[0]);
+                });
+                if (values.length > 1) {
+                    this.degreeExponent(Double.parseDouble(values[1]));
+                }
+            }
+            case "--hubs" -> this.hubs(Integer.parseInt(values[0]),
+                    Double.parseDouble(values[1]));
+            case "--mix" -> this.mix(Double.parseDouble(values[0]),
+                    Double.parseDouble(values[1]), Double.parseDouble(values[2]));
+            case "--noise" -> this.noise(switch (values[0]) {
+                case "uniform" -> NoiseDistribution.UNIFORM;
+                case "lognormal" -> NoiseDistribution.LOG_NORMAL;
+                default -> throw new IllegalArgumentException(
+                        "Unknown noise distribution: " + values[0]);
+            }, Double.parseDouble(values[1]));
+            case "--tariff" -> this.tariff(TransportType.fromString(values[0]),
+                    Double.parseDouble(values[1]), Double.parseDouble(values[2]),
+                    Double.parseDouble(values[3]), Double.parseDouble(values[4]));
+            default -> throw new IllegalArgumentException("Unknown option: "
+                    + name);
+        }
+    }
+
+    /**
+     * Returns the command line usage of main
+     *
+     * @return the usage message
+     */
+
+    private static String usage() {
+        return "Usage: NetworkGenerator [cities] [transports] [seed] "
+                + "[output_directory] [--degrees regular|random|powerlaw[:exponent]] "
+                + "[--hubs count:share] [--mix bus:train:plane] "
+                + "[--noise uniform|lognormal:spread] "
+                + "[--tariff type:basePrice:pricePerKm:baseMinutes:minutesPerKm]";
+    }
+
+    /**
+     * Picks a transport type according to the mix
+     *
+     * @param random the random source
+     * @return the type
+     */
+
+    private TransportType pickType(Random random) {
+        double draw = random.nextDouble();
+        for (TransportType type : TYPES) {
+            draw -= this.mix[type.ordinal()];
+            if (draw < 0) {
+                return type;
+            }
+        }
+        return TransportType.PLANE;
+    }
+
+    /**
+     * Returns the id of a hub
+     *
+     * @param hub the number of the hub, in [0, hubCount)
+     * @return the id of its city
+     */
+
+    private int hub(int hub) {
+        return (int) ((long) hub * this.cityCount / this.hubCount);
+    }
+
+    /**
+     * Draws the noise factor of one price or duration
+     *
+     * @param random the random source
+     * @return the factor
+     */
+
+    private double noiseFactor(Random random) {
+        return this.noise == NoiseDistribution.UNIFORM
+                ? 1 + this.noiseSpread * (2 * random.nextDouble() - 1)
+                : Math.exp(this.noiseSpread * random.nextGaussian());
+    }
+
+    /**
+     * Returns the running totals of the POWER_LAW weights of the ranks,
+     * scaled so the last is 1
+     *
+     * @return the cumulative weights
+     */
+
+    private double[] rankWeights() {
+        double[] cumulative = new double[this.cityCount];
+        double total = 0;
+        for (int rank = 0; rank < this.cityCount; rank++) {
+            total += Math.pow(rank + 1, -this.degreeExponent);
+            cumulative[rank] = total;
+        }
+        for (int rank = 0; rank < this.cityCount; rank++) {
+            cumulative[rank] /= total;
+        }
+        return cumulative;
+    }
+
+    /**
+     * Returns the first index whose cumulative weight is above a draw
+     *
+     * @param cumulative the cumulative weights, ending at 1
+     * @param draw       a draw from [0, 1)
+     * @return the picked index
+     */
+
+    private static int pick(double[] cumulative, double draw) {
+        int index = Arrays.binarySearch(cumulative, draw);
+        index = index < 0 ? -index - 1 : index + 1;
+        return Math.min(index, cumulative.length - 1);
+    }
+
+    /**
+     * Returns the ids 0 to count - 1 in a random order, so degree ranks are
+     * not tied to ids or to where cities are on the map
+     *
+     * @param random the random source
+     * @param count  the number of ids
+     * @return the shuffled ids
+     */
+
+    private static int[] shuffledIds(Random random, int count) {
+        int[] ids = new int[count];
+        for (int i = 0; i < count; i++) {
+            int j = random.nextInt(i + 1);
+            ids[i] = ids[j];
+            ids[j] = i;
+        }
+        return ids;
+    }
+
+    /**
+     * Picks a city in the cell of a city or one of the eight cells around it
+     *
+     * @param random     the random source
+     * @param origin     the city to start from
+     * @param cellOf     the cell of every city
+     * @param side       the number of cells along each side of the grid
+     * @param cellStart  where the cities of each cell start in cellCities
+     * @param cellCities the cities ordered by cell
+     * @return a nearby city, which may be the origin itself
+     */
+
+    private static int nearby(Random random, int origin, int[] cellOf, int side,
+                              int[] cellStart, int[] cellCities) {
+        int cellX = cellOf[origin] / side;
+        int cellY = cellOf[origin] % side;
+        for (int attempt = 0; attempt < 4; attempt++) {
+            int cx = Math.min(side - 1, Math.max(0, cellX + random.nextInt(3) - 1));
+            int cy = Math.min(side - 1, Math.max(0, cellY + random.nextInt(3) - 1));
+            int c = cx * side + cy;
+            int size = cellStart[c + 1] - cellStart[c];
+            if (size > 0) {
+                return cellCities[cellStart[c] + random.nextInt(size)];
+            }
+        }
+        return origin;
+    }
+
+    /**
+     * Returns the grid cell a coordinate falls in
+     *
+     * @param coordinate a coordinate on the map
+     * @param side       the number of cells along each side
+     * @return the cell index along that axis
+     */
+
+    private static int cell(double coordinate, int side) {
+        return Math.min(side - 1, (int) (coordinate / MAP_SIZE * side));
+    }
+
+    /**
+     * Keeps a coordinate on the map
+     *
+     * @param coordinate a coordinate
+     * @return the nearest coordinate on the map
+     */
+
+    private static double clamp(double coordinate) {
+        return Math.min(MAP_SIZE - 1e-9, Math.max(0, coordinate));
+    }
+}
@@ -0,0 +1,157 @@
+package bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import sol.BFS;
+import sol.BidirectionalBFS;
+import sol.Dijkstra;
+import sol.DirectionOptimizingBFS;
+import sol.FrozenTravelGraph;
+import sol.ParetoDijkstra;
+import sol.TransportWeights;
+import sol.TravelGraph;
+import src.City;
+import src.IGraph;
+import src.Transport;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures single route queries on generated networks: BFS.getPath,
+ * DirectionOptimizingBFS.getPath and BidirectionalBFS.getPath for the most
+ * direct route, Dijkstra.getShortestPath for the fastest and the cheapest,
+ * and ParetoDijkstra.getRoutes for every Pareto route over both. Each
+ * network has a quarter as many cities as Transports, the same ratio as the
+ * files in data/. A query picks the next pair from a fixed, seeded list of
+ * city pairs, so every run asks the same questions. Queries run either on
+ * the TravelGraph that load builds or on its frozen CSR form, except Pareto
+ * routes, which are only found on the frozen form.
+ */
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx8g")
+public class RouteBenchmark {
+
+    private static final long SEED = 42;
+    private static final int QUERY_COUNT = 1024;
+
+    @Param({"1000", "100000", "1000000", "10000000"})
+    public int edges;
+
+    @Param({"frozen", "graph"})
+    public String layout;
+
+    private IGraph<City, Transport> graph;
+    private FrozenTravelGraph frozen;
+    private City[] sources;
+    private City[] destinations;
+
+    /**
+     * Generates the network and the query pairs once per parameter set
+     */
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        NetworkGenerator generator = new NetworkGenerator(
+                Math.max(2, this.edges / 4), this.edges, SEED);
+        TravelGraph travelGraph = generator.buildGraph();
+        this.frozen = travelGraph.freeze();
+        this.graph = this.layout.equals("frozen") ? this.frozen : travelGraph;
+
+        Random random = new Random(SEED);
+        this.sources = new City[QUERY_COUNT];
+        this.destinations = new City[QUERY_COUNT];
+        for (int i = 0; i < QUERY_COUNT; i++) {
+            this.sources[i] = travelGraph.getCityByName(
+                    NetworkGenerator.cityName(random.nextInt(
+                            generator.getCityCount())));
+            this.destinations[i] = travelGraph.getCityByName(
+                    NetworkGenerator.cityName(random.nextInt(
+                            generator.getCityCount())));
+        }
+    }
+
+    /**
+     * The searches and the position in the query list of one benchmark
+     * thread. BFS and Dijkstra keep buffers between calls, so each thread
+     * has its own, as each REPL session does
+     */
+
+    @State(Scope.Thread)
+    public static class Searches {
+
+        final BFS<City, Transport> bfs = new BFS<>();
+        final DirectionOptimizingBFS directionOptimizing =
+                new DirectionOptimizingBFS();
+        final BidirectionalBFS<City, Transport> bidirectional =
+                new BidirectionalBFS<>();
+        final Dijkstra<City, Transport> dijkstra = new Dijkstra<>();
+        final ParetoDijkstra pareto = new ParetoDijkstra();
+        int next;
+
+        int nextQuery() {
+            this.next = (this.next + 1) % QUERY_COUNT;
+            return this.next;
+        }
+    }
+
+    @Benchmark
+    public List<Transport> bfsMostDirect(Searches searches) {
+        int query = searches.nextQuery();
+        return searches.bfs.getPath(this.graph, this.sources[query],
+                this.destinations[query]);
+    }
+
+    @Benchmark
+    public List<Transport> directionOptimizingMostDirect(Searches searches) {
+        int query = searches.nextQuery();
+        return searches.directionOptimizing.getPath(this.graph,
+                this.sources[query], this.destinations[query]);
+    }
+
+    @Benchmark
+    public List<Transport> bidirectionalMostDirect(Searches searches) {
+        int query = searches.nextQuery();
+        return searches.bidirectional.getPath(this.graph,
+                this.sources[query], this.destinations[query]);
+    }
+
+    @Benchmark
+    public List<Transport> dijkstraFastest(Searches searches) {
+        int query = searches.nextQuery();
+        return searches.dijkstra.getShortestPath(this.graph,
+                this.sources[query], this.destinations[query],
+                TransportWeights.MINUTES);
+    }
+
+    @Benchmark
+    public List<Transport> dijkstraCheapest(Searches searches) {
+        int query = searches.nextQuery();
+        return searches.dijkstra.getShortestPath(this.graph,
+                this.sources[query], this.destinations[query],
+                TransportWeights.PRICE);
+    }
+
+    @Benchmark
+    public List<List<Transport>> paretoRoutes(Searches searches) {
+        int query = searches.nextQuery();
+        return searches.pareto.getRoutes(this.frozen, this.sources[query],
+                this.destinations[query]);
+    }
+}
@@ -1,20 +1,61 @@
 package sol;
 
+import src.City;
 import src.IBFS;
+import src.ICountedSearch;
 import src.IGraph;
+import src.SearchWork;
+import src.Transport;
 
 import java.util.*;
 
 /**
  * The BFS<V, E> class implements the BFS algorithm that finds the
  * shortest/most direct path from a source vertex to a destination vertex. It
- * does this via the getPath, performBFS, and buildFinalPath methods.
+ * does this via the getPath, performBFS, and buildFinalPath methods. Vertices
+ * get dense int ids, are marked visited as soon as they are discovered, so
+ * each one enters the queue at most once, and the queue is an int ring
+ * buffer. When the graph is a FrozenTravelGraph, the search runs directly
+ * over its CSR arrays and its vertex ids.
  *
  * @param <V> represents a vertex in the graph
  * @param <E> represents an edge in the graph
  */
 
-public class BFS<V, E> implements IBFS<V, E> {
+public class BFS<V, E> implements IBFS<V, E>, ICountedSearch {
+
+    private VisitedSet visited;
+    private IntQueue frontier;
+    private int[] parentEdges;
+    private Object[] nodeToEdge;
+    private final SearchWork work;
+
+    /**
+     * Constructor for the BFS class. The visited set, the queue and the
+     * parent edge arrays are kept between calls to getPath and only grow, so
+     * once they fit the graph a search allocates nothing but its result. A
+     * single BFS object should not be shared between threads
+     */
+
+    public BFS() {
+        this.visited = new VisitedSet();
+        this.frontier = new IntQueue();
+        this.parentEdges = new int[0];
+        this.nodeToEdge = new Object[16];
+        this.work = new SearchWork();
+    }
+
+    /**
+     * Returns the work of the last getPath call on this object. A BFS has
+     * no heap, so its heap operation count is always 0
+     *
+     * @return the settled and relaxed counts of that call
+     */
+
+    @Override
+    public SearchWork getLastWork() {
+        return this.work;
+    }
 
     /**
      * Returns a list of edges that represent the most direct path (least
@@ -23,73 +64,191 @@ public class BFS<V, E> implements IBFS<V, E> {
      * @param graph the graph including the vertices and the edges
      * @param start the start vertex
      * @param end   the end vertex
-     * @return a list of edges representing the most direct path from the
-     * start to end vertices
+     * @return an unmodifiable list of edges representing the most direct
+     * path from the start to end vertices
      */
 
     @Override
+    @SuppressWarnings("unchecked")
     public List<E> getPath(IGraph<V, E> graph, V start, V end) {
-        LinkedList<V> visited = new LinkedList<>();
-        LinkedList<V> queue = new LinkedList<>(List.of(start));
-        HashMap<V, E> nodeToEdge = new HashMap<>();
-        return this.performBFS(graph, end, visited, queue, nodeToEdge);
+        if (graph instanceof FrozenTravelGraph) {
+            return (List<E>) this.getPathFrozen((FrozenTravelGraph) graph,
+                    (City) start, (City) end);
+        }
+        if (start.equals(end)) {
+            this.work.record(0, 0, 0);
+            return Collections.emptyList();
+        }
+        VertexIndex<V> vertexIds = new VertexIndex<>();
+        int startId = vertexIds.idOf(start);
+        int endId = vertexIds.idOf(end);
+        this.visited.clear();
+        this.visited.add(startId);
+        this.frontier.clear();
+        this.frontier.add(startId);
+        return this.performBFS(graph, startId, endId, vertexIds);
     }
 
     /**
-     * Recursive method that performs BFS by iterating through a queue until
-     * it is empty and then building the path back up when the destination is
-     * reached.
+     * Performs BFS by taking vertices off the queue until it is empty and
+     * then building the path back up when the destination is reached. A
+     * vertex is marked visited and given its incoming edge when it is first
+     * discovered, so the first edge found to each vertex is on a shortest
+     * path to it.
      *
-     * @param graph      the graph that BFS will be performed on
-     * @param end        the destination vertex
-     * @param visited    a linked list containing all visited vertices in graph
-     * @param queue      a linked list containing vertices that have not been
-     *                   explored yet
-     * @param nodeToEdge a hash map that contains mappings of vertices to the
-     *                   edges that point to them
-     * @return a list of edges representing the most direct path from the
-     * start to end vertices
+     * @param graph     the graph that BFS will be performed on
+     * @param startId   the id of the start vertex, already queued
+     * @param endId     the id of the destination vertex
+     * @param vertexIds the dense ids handed out to the vertices seen so far
+     * @return an unmodifiable list of edges representing the most direct
+     * path from the start to end vertices
      */
 
-    private List<E> performBFS(IGraph<V, E> graph, V end,
-                               LinkedList<V> visited, LinkedList<V> queue,
-                               HashMap<V, E> nodeToEdge) {
-        while (!(queue.isEmpty())) {
-            V currentNode = queue.getFirst();
-            queue.removeFirst();
-
-            visited.add(currentNode);
+    private List<E> performBFS(IGraph<V, E> graph, int startId, int endId,
+                               VertexIndex<V> vertexIds) {
+        long settled = 0;
+        long relaxed = 0;
+        while (!this.frontier.isEmpty()) {
+            V currentNode = vertexIds.vertexOf(this.frontier.poll());
+            settled++;
             for (E edge : graph.getOutgoingEdges(currentNode)) {
-                V nextNode = graph.getEdgeTarget(edge);
-                nodeToEdge.put(nextNode, edge);
-                if (nextNode.equals(end))
-                    return this.buildFinalPath(nodeToEdge, end, graph);
-                queue.add(nextNode);
+                relaxed++;
+                int next = vertexIds.idOf(graph.getEdgeTarget(edge));
+                if (!this.visited.add(next))
+                    continue;
+                this.setParentEdge(next, edge);
+                if (next == endId) {
+                    this.work.record(settled, relaxed, 0);
+                    return this.buildFinalPath(graph, vertexIds, startId,
+                            endId);
+                }
+                this.frontier.add(next);
+            }
+        }
+        this.work.record(settled, relaxed, 0);
+        return Collections.emptyList();
+    }
+
+    /**
+     * Records the edge a vertex was discovered through, growing the reused
+     * parent edge array if needed
+     *
+     * @param id   the dense id of the vertex
+     * @param edge the edge that points to it
+     */
+
+    private void setParentEdge(int id, E edge) {
+        if (id >= this.nodeToEdge.length) {
+            this.nodeToEdge = Arrays.copyOf(this.nodeToEdge,
+                    Math.max(id + 1, this.nodeToEdge.length * 2));
+        }
+        this.nodeToEdge[id] = edge;
+    }
+
+    /**
+     * Builds the final path by following the parent edge of each vertex back
+     * to the start. The path is walked once to count its edges, so it can be
+     * filled into an array of exactly that size
+     *
+     * @param graph     the graph that BFS was performed on
+     * @param vertexIds the dense ids handed out during the search
+     * @param startId   the id of the start vertex
+     * @param endId     the id of the destination vertex
+     * @return an unmodifiable list of edges from start to end
+     */
+
+    @SuppressWarnings("unchecked")
+    private List<E> buildFinalPath(IGraph<V, E> graph, VertexIndex<V> vertexIds,
+                                   int startId, int endId) {
+        int length = 0;
+        for (int node = endId; node != startId; length++) {
+            node = vertexIds.find(graph.getEdgeSource((E) this.nodeToEdge[node]));
+        }
+        Object[] path = new Object[length];
+        int node = endId;
+        while (node != startId) {
+            E incomingEdge = (E) this.nodeToEdge[node];
+            path[--length] = incomingEdge;
+            node = vertexIds.find(graph.getEdgeSource(incomingEdge));
+        }
+        return Collections.unmodifiableList(Arrays.asList((E[]) path));
+    }
+
+    /**
+     * Performs BFS directly over the CSR arrays of a frozen graph, whose
+     * vertex ids are already dense, so no VertexIndex is needed.
+     *
+     * @param graph the frozen graph to search
+     * @param start the start city
+     * @param end   the end city
+     * @return an unmodifiable list of Transports representing the most
+     * direct path from start to end
+     */
+
+    private List<Transport> getPathFrozen(FrozenTravelGraph graph, City start,
+                                          City end) {
+        int startId = graph.getVertexId(start);
+        int endId = graph.getVertexId(end);
+        if (startId == endId) {
+            this.work.record(0, 0, 0);
+            return Collections.emptyList();
+        }
+        if (this.parentEdges.length < graph.getVertexCount()) {
+            this.parentEdges = new int[graph.getVertexCount()];
+        }
+        this.visited.clear();
+        this.visited.add(startId);
+        this.frontier.clear();
+        this.frontier.add(startId);
+        long settled = 0;
+        long relaxed = 0;
+
+        while (!this.frontier.isEmpty()) {
+            int current = this.frontier.poll();
+            settled++;
+            int first = graph.getFirstEdge(current);
+            int last = graph.getEdgeEnd(current);
+            relaxed += last - first;
+            for (int edge = first; edge < last; edge++) {
+                int next = graph.getTargetId(edge);
+                if (!this.visited.add(next))
+                    continue;
+                this.parentEdges[next] = edge;
+                if (next == endId) {
+                    this.work.record(settled, relaxed, 0);
+                    return this.buildFinalPath(graph, startId, endId);
+                }
+                this.frontier.add(next);
             }
         }
+        this.work.record(settled, relaxed, 0);
         return Collections.emptyList();
     }
 
     /**
-     * Builds the final path using the nodeToEdge hash map.
+     * Builds the final path on a frozen graph by following the parent edge of
+     * each vertex back to the start, into an array of exactly the path's
+     * length.
      *
-     * @param nodeToEdge a hash map that contains mappings of vertices to the
-     *                   edges that point to them
-     * @param dest       the destination vertex
-     * @param graph      the graph that BFS is being performed on
-     * @return a list of edges representing the most direct path from source
-     * to destination vertices
+     * @param graph   the frozen graph that was searched
+     * @param startId the id of the start city
+     * @param endId   the id of the end city
+     * @return an unmodifiable list of Transports from start to end
      */
 
-    private List<E> buildFinalPath(HashMap<V, E> nodeToEdge, V dest,
-                                   IGraph<V, E> graph) {
-        LinkedList<E> path = new LinkedList<>();
-        V node = dest;
-        while (nodeToEdge.containsKey(node)) {
-            E incomingEdge = nodeToEdge.get(node);
-            path.addFirst(incomingEdge);
-            node = graph.getEdgeSource(incomingEdge);
+    private List<Transport> buildFinalPath(FrozenTravelGraph graph,
+                                           int startId, int endId) {
+        int length = 0;
+        for (int node = endId; node != startId; length++) {
+            node = graph.getSourceId(this.parentEdges[node]);
+        }
+        Transport[] path = new Transport[length];
+        int node = endId;
+        while (node != startId) {
+            int incomingEdge = this.parentEdges[node];
+            path[--length] = graph.getEdge(incomingEdge);
+            node = graph.getSourceId(incomingEdge);
         }
-        return path;
+        return Collections.unmodifiableList(Arrays.asList(path));
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,308 @@
+package sol;
+
+import src.City;
+import src.IBFS;
+import src.ICountedSearch;
+import src.IGraph;
+import src.SearchWork;
+import src.Transport;
+
+import java.util.*;
+
+/**
+ * The BidirectionalBFS class finds the most direct path between two
+ * vertices by running BFS forward from the source (over outgoing edges) and
+ * backward from the destination (over incoming edges). Each step expands a
+ * whole level of the direction whose frontier has fewer vertices, and the
+ * search stops at the first vertex that both directions have discovered.
+ * Before that level, no vertex was within reach of both directions, so no
+ * path is shorter than the one through that vertex. A path of k hops is
+ * found after visiting about twice the vertices within k / 2 hops of either
+ * end, instead of every vertex within k hops of the source. When the graph
+ * is a FrozenTravelGraph, the search runs directly over its CSR arrays and
+ * their reverse.
+ *
+ * @param <V> represents a vertex in the graph
+ * @param <E> represents an edge in the graph
+ */
+
+public class BidirectionalBFS<V, E> implements IBFS<V, E>, ICountedSearch {
+
+    private final Direction forward;
+    private final Direction backward;
+    private final SearchWork work;
+
+    /**
+     * Constructor for the BidirectionalBFS class. The visited sets, queues
+     * and parent edge arrays of both directions are kept between calls to
+     * getPath, so a single BidirectionalBFS object should not be shared
+     * between threads
+     */
+
+    public BidirectionalBFS() {
+        this.forward = new Direction();
+        this.backward = new Direction();
+        this.work = new SearchWork();
+    }
+
+    /**
+     * Returns the work of the last getPath call on this object, added up
+     * over both directions. A BFS has no heap, so its heap operation count
+     * is always 0
+     *
+     * @return the settled and relaxed counts of that call
+     */
+
+    @Override
+    public SearchWork getLastWork() {
+        return this.work;
+    }
+
+    /**
+     * Returns a list of edges that represent the most direct path (least
+     * number of connections) from start to end.
+     *
+     * @param graph the graph including the vertices and the edges
+     * @param start the start vertex
+     * @param end   the end vertex
+     * @return an unmodifiable list of edges representing the most direct
+     * path from the start to end vertices
+     */
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public List<E> getPath(IGraph<V, E> graph, V start, V end) {
+        if (graph instanceof FrozenTravelGraph) {
+            return (List<E>) this.getPathFrozen((FrozenTravelGraph) graph,
+                    (City) start, (City) end);
+        }
+        if (start.equals(end)) {
+            this.work.record(0, 0, 0);
+            return Collections.emptyList();
+        }
+        VertexIndex<V> vertexIds = new VertexIndex<>();
+        this.forward.reset(vertexIds.idOf(start));
+        this.backward.reset(vertexIds.idOf(end));
+        long settled = 0;
+        long relaxed = 0;
+
+        while (!this.forward.frontier.isEmpty()
+                && !this.backward.frontier.isEmpty()) {
+            boolean isForward = this.forward.frontier.size()
+                    <= this.backward.frontier.size();
+            Direction expanding = isForward ? this.forward : this.backward;
+            Direction other = isForward ? this.backward : this.forward;
+            for (int left = expanding.frontier.size(); left > 0; left--) {
+                V current = vertexIds.vertexOf(expanding.frontier.poll());
+                settled++;
+                Set<E> edges = isForward ? graph.getOutgoingEdges(current)
+                        : graph.getIncomingEdges(current);
+                for (E edge : edges) {
+                    relaxed++;
+                    int next = vertexIds.idOf(isForward
+                            ? graph.getEdgeTarget(edge) : graph.getEdgeSource(edge));
+                    if (!expanding.visited.add(next))
+                        continue;
+                    expanding.setParentEdge(next, edge);
+                    if (other.visited.contains(next)) {
+                        this.work.record(settled, relaxed, 0);
+                        return this.buildFinalPath(graph, vertexIds, next);
+                    }
+                    expanding.frontier.add(next);
+                }
+            }
+        }
+        this.work.record(settled, relaxed, 0);
+        return Collections.emptyList();
+    }
+
+    /**
+     * Joins the forward path from the start to the meeting vertex with the
+     * backward path from the meeting vertex to the end, in an array of
+     * exactly the path's length
+     *
+     * @param graph     the graph that was searched
+     * @param vertexIds the dense ids handed out during the search
+     * @param meeting   the id of the vertex where the two directions met
+     * @return an unmodifiable list of edges from start to end
+     */
+
+    @SuppressWarnings("unchecked")
+    private List<E> buildFinalPath(IGraph<V, E> graph, VertexIndex<V> vertexIds,
+                                   int meeting) {
+        int before = 0;
+        for (int node = meeting; node != this.forward.root; before++) {
+            node = vertexIds.find(graph.getEdgeSource(
+                    (E) this.forward.parentObjects[node]));
+        }
+        int after = 0;
+        for (int node = meeting; node != this.backward.root; after++) {
+            node = vertexIds.find(graph.getEdgeTarget(
+                    (E) this.backward.parentObjects[node]));
+        }
+        Object[] path = new Object[before + after];
+        int node = meeting;
+        for (int i = before - 1; i >= 0; i--) {
+            E incomingEdge = (E) this.forward.parentObjects[node];
+            path[i] = incomingEdge;
+            node = vertexIds.find(graph.getEdgeSource(incomingEdge));
+        }
+        node = meeting;
+        for (int i = before; i < path.length; i++) {
+            E outgoingEdge = (E) this.backward.parentObjects[node];
+            path[i] = outgoingEdge;
+            node = vertexIds.find(graph.getEdgeTarget(outgoingEdge));
+        }
+        return Collections.unmodifiableList(Arrays.asList((E[]) path));
+    }
+
+    /**
+     * Performs bidirectional BFS directly over the CSR arrays of a frozen
+     * graph, going backward over its incoming edge arrays
+     *
+     * @param graph the frozen graph to search
+     * @param start the start city
+     * @param end   the end city
+     * @return an unmodifiable list of Transports representing the most
+     * direct path from start to end
+     */
+
+    private List<Transport> getPathFrozen(FrozenTravelGraph graph, City start,
+                                          City end) {
+        int startId = graph.getVertexId(start);
+        int endId = graph.getVertexId(end);
+        if (startId == endId) {
+            this.work.record(0, 0, 0);
+            return Collections.emptyList();
+        }
+        this.forward.ensureCapacity(graph.getVertexCount());
+        this.backward.ensureCapacity(graph.getVertexCount());
+        this.forward.reset(startId);
+        this.backward.reset(endId);
+        long settled = 0;
+        long relaxed = 0;
+
+        while (!this.forward.frontier.isEmpty()
+                && !this.backward.frontier.isEmpty()) {
+            boolean isForward = this.forward.frontier.size()
+                    <= this.backward.frontier.size();
+            Direction expanding = isForward ? this.forward : this.backward;
+            Direction other = isForward ? this.backward : this.forward;
+            for (int left = expanding.frontier.size(); left > 0; left--) {
+                int current = expanding.frontier.poll();
+                settled++;
+                int first = isForward ? graph.getFirstEdge(current)
+                        : graph.getFirstIncoming(current);
+                int last = isForward ? graph.getEdgeEnd(current)
+                        : graph.getIncomingEnd(current);
+                relaxed += last - first;
+                for (int position = first; position < last; position++) {
+                    int next = isForward ? graph.getTargetId(position)
+                            : graph.getIncomingSource(position);
+                    if (!expanding.visited.add(next))
+                        continue;
+                    expanding.parentEdges[next] = isForward ? position
+                            : graph.getIncomingEdge(position);
+                    if (other.visited.contains(next)) {
+                        this.work.record(settled, relaxed, 0);
+                        return this.buildFinalPath(graph, next);
+                    }
+                    expanding.frontier.add(next);
+                }
+            }
+        }
+        this.work.record(settled, relaxed, 0);
+        return Collections.emptyList();
+    }
+
+    /**
+     * Joins the two halves of a path on a frozen graph, in an array of
+     * exactly the path's length
+     *
+     * @param graph   the frozen graph that was searched
+     * @param meeting the id of the city where the two directions met
+     * @return an unmodifiable list of Transports from start to end
+     */
+
+    private List<Transport> buildFinalPath(FrozenTravelGraph graph,
+                                           int meeting) {
+        int before = 0;
+        for (int node = meeting; node != this.forward.root; before++) {
+            node = graph.getSourceId(this.forward.parentEdges[node]);
+        }
+        int after = 0;
+        for (int node = meeting; node != this.backward.root; after++) {
+            node = graph.getTargetId(this.backward.parentEdges[node]);
+        }
+        Transport[] path = new Transport[before + after];
+        int node = meeting;
+        for (int i = before - 1; i >= 0; i--) {
+            int incomingEdge = this.forward.parentEdges[node];
+            path[i] = graph.getEdge(incomingEdge);
+            node = graph.getSourceId(incomingEdge);
+        }
+        node = meeting;
+        for (int i = before; i < path.length; i++) {
+            int outgoingEdge = this.backward.parentEdges[node];
+            path[i] = graph.getEdge(outgoingEdge);
+            node = graph.getTargetId(outgoingEdge);
+        }
+        return Collections.unmodifiableList(Arrays.asList(path));
+    }
+
+    /**
+     * The state of one direction of the search. Edge ids of a frozen graph
+     * are kept in parentEdges, and edges of any other graph in parentObjects
+     */
+
+    private static class Direction {
+
+        private final VisitedSet visited = new VisitedSet();
+        private final IntQueue frontier = new IntQueue();
+        private int[] parentEdges = new int[0];
+        private Object[] parentObjects = new Object[16];
+        private int root;
+
+        /**
+         * Clears the direction and queues its root vertex
+         *
+         * @param rootId the id of the vertex this direction starts from
+         */
+
+        void reset(int rootId) {
+            this.visited.clear();
+            this.visited.add(rootId);
+            this.frontier.clear();
+            this.frontier.add(rootId);
+            this.root = rootId;
+        }
+
+        /**
+         * Grows the parent edge array to fit a frozen graph
+         *
+         * @param vertexCount the number of cities in the graph
+         */
+
+        void ensureCapacity(int vertexCount) {
+            if (this.parentEdges.length < vertexCount) {
+                this.parentEdges = new int[vertexCount];
+            }
+        }
+
+        /**
+         * Records the edge a vertex was discovered through, growing the
+         * reused parent edge array if needed
+         *
+         * @param id   the dense id of the vertex
+         * @param edge the edge that leads to it in this direction
+         */
+
+        void setParentEdge(int id, Object edge) {
+            if (id >= this.parentObjects.length) {
+                this.parentObjects = Arrays.copyOf(this.parentObjects,
+                        Math.max(id + 1, this.parentObjects.length * 2));
+            }
+            this.parentObjects[id] = edge;
+        }
+    }
+}
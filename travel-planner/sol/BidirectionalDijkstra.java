@@ -0,0 +1,418 @@
+package sol;
+
+import src.City;
+import src.ICountedSearch;
+import src.IDijkstra;
+import src.IGraph;
+import src.SearchWork;
+import src.Transport;
+
+import java.util.*;
+import java.util.function.Function;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * The BidirectionalDijkstra class finds the least cost path between two
+ * vertices by running Dijkstra's algorithm forward from the source (over
+ * outgoing edges) and backward from the destination (over incoming edges)
+ * at the same time. Each step expands the direction whose queue has the
+ * smaller minimum key. Whenever a relaxed vertex has been reached by both
+ * searches, the combined weight is a candidate for the best path, and the
+ * search stops once the two queue minimums add up to at least the best
+ * candidate, since no undiscovered path can be lighter than that. The
+ * weight of the returned path is always the same as the one found by
+ * Dijkstra. When the graph is a FrozenTravelGraph, the forward search runs
+ * over its CSR arrays and the backward search over its reverse CSR arrays,
+ * weighing edges from a weight column when there is one.
+ *
+ * @param <V> the type of vertex in the graph
+ * @param <E> the type of edge in the graph
+ */
+
+public class BidirectionalDijkstra<V, E> implements IDijkstra<V, E>,
+        ICountedSearch {
+
+    private Direction forward;
+    private Direction backward;
+    private final SearchWork work;
+
+    /**
+     * Constructor for the BidirectionalDijkstra class. The queues, settled
+     * sets and weight arrays of both directions are kept between calls to
+     * getShortestPath, so a single BidirectionalDijkstra object should not
+     * be shared between threads
+     */
+
+    public BidirectionalDijkstra() {
+        this.forward = new Direction();
+        this.backward = new Direction();
+        this.work = new SearchWork();
+    }
+
+    /**
+     * Returns the work of the last getShortestPath call on this object,
+     * added up over both directions
+     *
+     * @return the settled, relaxed and heap operation counts of that call
+     */
+
+    @Override
+    public SearchWork getLastWork() {
+        return this.work;
+    }
+
+    /**
+     * Returns a list of edges representing the path of the least weight
+     * (determined by edgeWeight parameter) from a start to end vertex
+     *
+     * @param graph       the graph including the vertices
+     * @param source      the source vertex
+     * @param destination the destination vertex
+     * @param edgeWeight  a function that indicates how to weigh an edge for
+     *                    a particular run of the algorithm
+     * @return a list of edges representing the path of the least weight from a
+     * start to end vertex, or an empty list if there is none
+     */
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public List<E> getShortestPath(IGraph<V, E> graph, V source, V destination,
+                                   Function<E, Double> edgeWeight) {
+        if (graph instanceof FrozenTravelGraph) {
+            FrozenTravelGraph frozen = (FrozenTravelGraph) graph;
+            Function<Transport, Double> transportWeight =
+                    (Function<Transport, Double>) (Function<?, Double>) edgeWeight;
+            return (List<E>) this.getShortestPathFrozen(frozen, (City) source,
+                    (City) destination, frozen.getWeightColumn(transportWeight),
+                    transportWeight::apply);
+        }
+        return this.getShortestPathDouble(graph, source, destination,
+                edgeWeight::apply);
+    }
+
+    /**
+     * Returns a list of edges representing the path of the least weight
+     * (determined by edgeWeight parameter) from a start to end vertex,
+     * without boxing any edge weights
+     *
+     * @param graph       the graph including the vertices
+     * @param source      the source vertex
+     * @param destination the destination vertex
+     * @param edgeWeight  the weight of an edge
+     * @return a list of edges representing the path of the least weight from a
+     * start to end vertex, or an empty list if there is none
+     */
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public List<E> getShortestPathDouble(IGraph<V, E> graph, V source,
+                                         V destination,
+                                         ToDoubleFunction<E> edgeWeight) {
+        if (graph instanceof FrozenTravelGraph) {
+            return (List<E>) this.getShortestPathFrozen(
+                    (FrozenTravelGraph) graph, (City) source,
+                    (City) destination, null,
+                    (ToDoubleFunction<Transport>) (ToDoubleFunction<?>) edgeWeight);
+        }
+        if (source.equals(destination)) {
+            this.work.record(0, 0, 0);
+            return Collections.emptyList();
+        }
+        VertexIndex<V> vertexIds = new VertexIndex<>();
+        this.forward.reset(vertexIds.idOf(source));
+        this.backward.reset(vertexIds.idOf(destination));
+
+        double best = Double.POSITIVE_INFINITY;
+        int meeting = -1;
+        long relaxed = 0;
+        while (!this.forward.queue.isEmpty() && !this.backward.queue.isEmpty()) {
+            double forwardMin = this.forward.queue.peekKey();
+            double backwardMin = this.backward.queue.peekKey();
+            if (forwardMin + backwardMin >= best) {
+                break;
+            }
+            boolean isForward = forwardMin <= backwardMin;
+            Direction expanding = isForward ? this.forward : this.backward;
+            Direction other = isForward ? this.backward : this.forward;
+
+            int current = expanding.queue.poll();
+            expanding.settled.add(current);
+            V currentVertex = vertexIds.vertexOf(current);
+            Set<E> edges = isForward ? graph.getOutgoingEdges(currentVertex)
+                    : graph.getIncomingEdges(currentVertex);
+            for (E edge : edges) {
+                relaxed++;
+                V next = isForward ? graph.getEdgeTarget(edge)
+                        : graph.getEdgeSource(edge);
+                int nextId = vertexIds.idOf(next);
+                if (!expanding.relax(nextId, expanding.weights[current]
+                        + edgeWeight.applyAsDouble(edge))) {
+                    continue;
+                }
+                expanding.setParentEdge(nextId, edge);
+                /* the relaxed vertex closes a path if the other search has
+                   already reached it */
+                if (other.reached.contains(nextId)) {
+                    double candidate = expanding.weights[nextId]
+                            + other.weights[nextId];
+                    if (candidate < best) {
+                        best = candidate;
+                        meeting = nextId;
+                    }
+                }
+            }
+        }
+
+        this.recordWork(relaxed);
+        if (meeting == -1) {
+            return Collections.emptyList();
+        }
+        return this.buildFinalPath(graph, vertexIds, meeting);
+    }
+
+    /**
+     * Runs both directions directly over the CSR arrays of a frozen graph:
+     * the forward search over the outgoing edges of a city and the backward
+     * search over the reverse CSR. Vertex ids are the graph's own, so there
+     * is no vertex index to build, and the parent edges are edge ids, so a
+     * query allocates nothing but its path
+     *
+     * @param graph       the frozen graph to search
+     * @param source      the source city
+     * @param destination the destination city
+     * @param column      the weight of every edge by edge id, or null to
+     *                    call edgeWeight instead
+     * @param edgeWeight  the weight of an edge, used when column is null
+     * @return a list of Transports representing the path of the least weight
+     * from source to destination, or an empty list if there is none
+     */
+
+    private List<Transport> getShortestPathFrozen(FrozenTravelGraph graph,
+                                                  City source,
+                                                  City destination,
+                                                  double[] column,
+                                                  ToDoubleFunction<Transport> edgeWeight) {
+        int sourceId = graph.getVertexId(source);
+        int destId = graph.getVertexId(destination);
+        if (sourceId == destId) {
+            this.work.record(0, 0, 0);
+            return Collections.emptyList();
+        }
+        int vertexCount = graph.getVertexCount();
+        this.forward.reset(sourceId, vertexCount);
+        this.backward.reset(destId, vertexCount);
+
+        double best = Double.POSITIVE_INFINITY;
+        int meeting = -1;
+        long relaxed = 0;
+        while (!this.forward.queue.isEmpty() && !this.backward.queue.isEmpty()) {
+            double forwardMin = this.forward.queue.peekKey();
+            double backwardMin = this.backward.queue.peekKey();
+            if (forwardMin + backwardMin >= best) {
+                break;
+            }
+            boolean isForward = forwardMin <= backwardMin;
+            Direction expanding = isForward ? this.forward : this.backward;
+            Direction other = isForward ? this.backward : this.forward;
+
+            int current = expanding.queue.poll();
+            expanding.settled.add(current);
+            double currentWeight = expanding.weights[current];
+            int start = isForward ? graph.getFirstEdge(current)
+                    : graph.getFirstIncoming(current);
+            int end = isForward ? graph.getEdgeEnd(current)
+                    : graph.getIncomingEnd(current);
+            relaxed += end - start;
+            for (int i = start; i < end; i++) {
+                int edge = isForward ? i : graph.getIncomingEdge(i);
+                int next = isForward ? graph.getTargetId(edge)
+                        : graph.getIncomingSource(i);
+                double weight = column != null ? column[edge]
+                        : edgeWeight.applyAsDouble(graph.getEdge(edge));
+                if (!expanding.relax(next, currentWeight + weight)) {
+                    continue;
+                }
+                expanding.edgeIds[next] = edge;
+                if (other.reached.contains(next)) {
+                    double candidate = expanding.weights[next]
+                            + other.weights[next];
+                    if (candidate < best) {
+                        best = candidate;
+                        meeting = next;
+                    }
+                }
+            }
+        }
+
+        this.recordWork(relaxed);
+        if (meeting == -1) {
+            return Collections.emptyList();
+        }
+        return this.buildFinalPath(graph, meeting);
+    }
+
+    /**
+     * Records the work of the query that just ended, added up over both
+     * directions
+     *
+     * @param relaxed the number of edges both directions looked at
+     */
+
+    private void recordWork(long relaxed) {
+        this.work.record(this.forward.queue.getPollCount()
+                        + this.backward.queue.getPollCount(), relaxed,
+                this.forward.queue.getOperationCount()
+                        + this.backward.queue.getOperationCount());
+    }
+
+    /**
+     * Joins the forward path from the source to the meeting vertex with the
+     * backward path from the meeting vertex to the destination
+     *
+     * @param graph     the graph that was searched
+     * @param vertexIds the dense ids handed out during the search
+     * @param meeting   the id of the vertex where the two searches met
+     * @return a list of edges from source to destination
+     */
+
+    @SuppressWarnings("unchecked")
+    private List<E> buildFinalPath(IGraph<V, E> graph, VertexIndex<V> vertexIds,
+                                   int meeting) {
+        LinkedList<E> path = new LinkedList<>();
+        int node = meeting;
+        while (node != this.forward.root) {
+            E incomingEdge = (E) this.forward.parentEdges[node];
+            path.addFirst(incomingEdge);
+            node = vertexIds.idOf(graph.getEdgeSource(incomingEdge));
+        }
+        node = meeting;
+        while (node != this.backward.root) {
+            E outgoingEdge = (E) this.backward.parentEdges[node];
+            path.addLast(outgoingEdge);
+            node = vertexIds.idOf(graph.getEdgeTarget(outgoingEdge));
+        }
+        return path;
+    }
+
+    /**
+     * Joins the forward and backward paths on a frozen graph by following
+     * the parent edge ids out from the meeting city
+     *
+     * @param graph   the frozen graph that was searched
+     * @param meeting the id of the city where the two searches met
+     * @return a list of Transports from source to destination
+     */
+
+    private List<Transport> buildFinalPath(FrozenTravelGraph graph,
+                                           int meeting) {
+        LinkedList<Transport> path = new LinkedList<>();
+        int node = meeting;
+        while (node != this.forward.root) {
+            int incomingEdge = this.forward.edgeIds[node];
+            path.addFirst(graph.getEdge(incomingEdge));
+            node = graph.getSourceId(incomingEdge);
+        }
+        node = meeting;
+        while (node != this.backward.root) {
+            int outgoingEdge = this.backward.edgeIds[node];
+            path.addLast(graph.getEdge(outgoingEdge));
+            node = graph.getTargetId(outgoingEdge);
+        }
+        return path;
+    }
+
+    /**
+     * The state of one direction of the search. A vertex id is reached once
+     * it has a tentative weight, and settled once it has been polled from
+     * the queue. The last edge of the path to a vertex is kept as an object
+     * on a generic graph and as an edge id on a frozen one
+     */
+
+    private static class Direction {
+
+        private final IndexedMinHeap queue = new IndexedMinHeap();
+        private final VisitedSet reached = new VisitedSet();
+        private final VisitedSet settled = new VisitedSet();
+        private double[] weights = new double[16];
+        private Object[] parentEdges = new Object[16];
+        private int[] edgeIds = new int[0];
+        private int root;
+
+        /**
+         * Clears the direction and queues its root vertex with weight 0
+         *
+         * @param rootId the id of the vertex this direction starts from
+         */
+
+        void reset(int rootId) {
+            this.queue.clear();
+            this.reached.clear();
+            this.settled.clear();
+            this.root = rootId;
+            this.relax(rootId, 0.0);
+        }
+
+        /**
+         * Clears the direction for a search over a frozen graph, sizing the
+         * weight and edge id arrays for all of its cities
+         *
+         * @param rootId      the id of the city this direction starts from
+         * @param vertexCount the number of cities in the graph
+         */
+
+        void reset(int rootId, int vertexCount) {
+            if (this.weights.length < vertexCount) {
+                this.weights = new double[vertexCount];
+            }
+            if (this.edgeIds.length < vertexCount) {
+                this.edgeIds = new int[vertexCount];
+            }
+            this.reset(rootId);
+        }
+
+        /**
+         * Records a path of the given weight to a vertex if the vertex is not
+         * settled and the path is lighter than any found before. The caller
+         * records the last edge of the path when this returns true
+         *
+         * @param id     the id of the vertex
+         * @param weight the weight of the new path
+         * @return true if the path was recorded, false otherwise
+         */
+
+        boolean relax(int id, double weight) {
+            if (this.settled.contains(id)) {
+                return false;
+            }
+            if (id >= this.weights.length) {
+                this.weights = Arrays.copyOf(this.weights,
+                        Math.max(id + 1, this.weights.length * 2));
+            }
+            if (this.reached.add(id)) {
+                this.queue.insert(id, weight);
+            } else if (weight < this.weights[id]) {
+                this.queue.decreaseKey(id, weight);
+            } else {
+                return false;
+            }
+            this.weights[id] = weight;
+            return true;
+        }
+
+        /**
+         * Records the last edge of the lightest known path to a vertex of a
+         * generic graph, growing the parent edge array if needed
+         *
+         * @param id   the id of the vertex
+         * @param edge the last edge of the path
+         */
+
+        void setParentEdge(int id, Object edge) {
+            if (id >= this.parentEdges.length) {
+                this.parentEdges = Arrays.copyOf(this.parentEdges,
+                        Math.max(id + 1, this.parentEdges.length * 2));
+            }
+            this.parentEdges[id] = edge;
+        }
+    }
+}
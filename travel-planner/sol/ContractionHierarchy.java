@@ -0,0 +1,1242 @@
+package sol;
+
+import src.SearchWork;
+import src.Transport;
+
+import java.util.*;
+
+/**
+ * The ContractionHierarchy class is a preprocessed index over a
+ * FrozenTravelGraph for one edge weight (for example minutes or price) that
+ * answers shortest path queries by exploring only a small part of the graph.
+ * <p>
+ * Preprocessing contracts the cities one at a time, least important first
+ * (by edge difference, contracted neighbors and depth in the hierarchy).
+ * Contracting a city v removes it from the remaining graph and,
+ * for every pair of neighbors u -> v -> x whose lightest connection runs
+ * through v, adds a shortcut arc u -> x with the combined weight. Whether a
+ * lighter path (a witness) avoids v is checked with a bounded local Dijkstra.
+ * The position at which a city was contracted is its rank. Contraction
+ * stops once the remaining graph averages more than CORE_DEGREE arcs per
+ * city, since from there on every contraction adds more shortcuts than it
+ * removes arcs; the cities left form the core and rank above all others.
+ * When Transports change but the cities stay the same, customize keeps the
+ * ranks and only redoes the witness searches the change can affect.
+ * <p>
+ * A query runs Dijkstra forward from the source over arcs that lead to
+ * higher ranked cities and backward from the destination over arcs that come
+ * from higher ranked cities. The two searches meet at the highest ranked city
+ * of a shortest path. A city is not expanded (it is stalled) when a higher
+ * ranked city the same search has reached has an arc to it that gives a
+ * lighter path than the one it was settled with, since no shortest path can
+ * then continue upward from it. Core cities are set aside when settled, and
+ * once both upward searches are done, a plain bidirectional Dijkstra over the
+ * core arcs starts from them. The shortcuts on the path are then unpacked into
+ * the original Transports. A ContractionHierarchy never changes after it is
+ * built; the per-query buffers live in a Query object, which is handed the
+ * hierarchy on every query so it can be reused across hierarchies without
+ * keeping any of them alive.
+ */
+
+public class ContractionHierarchy {
+
+    private static final int WITNESS_SETTLE_LIMIT = 100;
+    private static final int CORE_DEGREE = 8;
+
+    private final FrozenTravelGraph graph;
+    private final int[] ranks;
+    private final int coreSize;
+
+    private final int[] arcTails;
+    private final int[] arcHeads;
+    private final double[] arcWeights;
+    private final int[] arcEdges;
+    private final int[] arcFirst;
+    private final int[] arcSecond;
+
+    private final int[] upOffsets;
+    private final int[] upArcs;
+    private final int[] downOffsets;
+    private final int[] downArcs;
+
+    /**
+     * Constructor for the ContractionHierarchy class. Contracts the cities
+     * of the graph up to the core and stores the upward arcs of each city in CSR form
+     *
+     * @param graph   the frozen graph to preprocess
+     * @param weights the non-negative weight of every edge, indexed by edge id
+     */
+
+    public ContractionHierarchy(FrozenTravelGraph graph, double[] weights) {
+        this(graph, new Builder(graph, weights).contractAll());
+    }
+
+    /**
+     * Constructor for the ContractionHierarchy class that takes the ranks
+     * and arcs a Builder ended up with
+     *
+     * @param graph   the frozen graph the hierarchy is for
+     * @param builder a builder that has finished contracting
+     */
+
+    private ContractionHierarchy(FrozenTravelGraph graph, Builder builder) {
+        this.graph = graph;
+        int vertexCount = graph.getVertexCount();
+        this.ranks = builder.ranks;
+        this.coreSize = builder.coreSize;
+        this.arcTails = Arrays.copyOf(builder.arcTails, builder.arcCount);
+        this.arcHeads = Arrays.copyOf(builder.arcHeads, builder.arcCount);
+        this.arcWeights = Arrays.copyOf(builder.arcWeights, builder.arcCount);
+        this.arcEdges = Arrays.copyOf(builder.arcEdges, builder.arcCount);
+        this.arcFirst = Arrays.copyOf(builder.arcFirst, builder.arcCount);
+        this.arcSecond = Arrays.copyOf(builder.arcSecond, builder.arcCount);
+
+        this.upOffsets = new int[vertexCount + 1];
+        this.downOffsets = new int[vertexCount + 1];
+        for (int v = 0; v < vertexCount; v++) {
+            this.upOffsets[v + 1] = this.upOffsets[v] + builder.upArcs[v].length;
+            this.downOffsets[v + 1] = this.downOffsets[v]
+                    + builder.downArcs[v].length;
+        }
+        this.upArcs = new int[this.upOffsets[vertexCount]];
+        this.downArcs = new int[this.downOffsets[vertexCount]];
+        for (int v = 0; v < vertexCount; v++) {
+            System.arraycopy(builder.upArcs[v], 0, this.upArcs,
+                    this.upOffsets[v], builder.upArcs[v].length);
+            System.arraycopy(builder.downArcs[v], 0, this.downArcs,
+                    this.downOffsets[v], builder.downArcs[v].length);
+        }
+    }
+
+    /**
+     * Returns a hierarchy for a changed version of the graph that keeps the
+     * ranks of this one instead of ordering the cities again. Every arc's
+     * weight is worked out again bottom-up: an original arc gets the
+     * lightest edge now joining its cities, and a shortcut the sum of the
+     * two arcs it stands for. The cities are then contracted again in rank
+     * order, but a city only repeats the witness searches that the change
+     * can have made wrong: those for arcs that got lighter, and, when some
+     * arc got heavier, every search below the highest rank at which that
+     * arc could have served as a witness. Shortcuts are added where a
+     * witness no longer exists, so queries on the result find shortest
+     * paths just like on a hierarchy contracted from scratch. When only a few
+     * Transports change, most cities repeat no search at all.
+     *
+     * @param changed the changed graph, with the same cities and ids
+     * @param weights the non-negative weight of every edge of that graph
+     * @return a hierarchy for the changed graph
+     */
+
+    public ContractionHierarchy customize(FrozenTravelGraph changed,
+                                          double[] weights) {
+        return new ContractionHierarchy(changed,
+                new Builder(this, changed, weights).recontractAll());
+    }
+
+    /**
+     * Returns the frozen graph this hierarchy was built for
+     *
+     * @return the preprocessed graph
+     */
+
+    public FrozenTravelGraph getGraph() {
+        return this.graph;
+    }
+
+    /**
+     * Returns the contraction rank of a city. Cities contracted later have
+     * higher ranks
+     *
+     * @param vertex a vertex id
+     * @return the rank of that vertex, in the range [0, getVertexCount())
+     */
+
+    public int getRank(int vertex) {
+        return this.ranks[vertex];
+    }
+
+    /**
+     * Returns the number of cities left uncontracted at the top of the
+     * hierarchy. Their arcs are searched as they are, like a plain graph
+     *
+     * @return the core size, in the range [0, getVertexCount()]
+     */
+
+    public int getCoreSize() {
+        return this.coreSize;
+    }
+
+    /**
+     * Returns the number of shortcut arcs added during preprocessing
+     *
+     * @return the shortcut count
+     */
+
+    public int getShortcutCount() {
+        int count = 0;
+        for (int edge : this.arcEdges) {
+            if (edge < 0) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Returns whether a city was left in the uncontracted core
+     *
+     * @param vertex a vertex id
+     * @return true if it is a core city, false otherwise
+     */
+
+    private boolean isCore(int vertex) {
+        return this.ranks[vertex] >= this.ranks.length - this.coreSize;
+    }
+
+    /**
+     * Appends the original edges that an arc stands for to a list, in path
+     * order, expanding shortcuts iteratively
+     *
+     * @param arc   an arc id
+     * @param stack a scratch stack of arc ids
+     * @param path  the list to append Transports to
+     * @return the scratch stack, which may have been grown
+     */
+
+    private int[] unpack(int arc, int[] stack, List<Transport> path) {
+        int top = 0;
+        stack[top++] = arc;
+        while (top > 0) {
+            int current = stack[--top];
+            if (this.arcEdges[current] >= 0) {
+                path.add(this.graph.getEdge(this.arcEdges[current]));
+                continue;
+            }
+            if (top + 2 > stack.length) {
+                stack = Arrays.copyOf(stack, stack.length * 2);
+            }
+            stack[top++] = this.arcSecond[current];
+            stack[top++] = this.arcFirst[current];
+        }
+        return stack;
+    }
+
+    /**
+     * The Query class holds the buffers of a bidirectional upward search, so
+     * they can be reused across queries. The buffers are grown to the size
+     * of the hierarchy being searched, and the hierarchy itself is only
+     * referenced while a query runs. A Query should only be used by one
+     * thread at a time
+     */
+
+    public static class Query {
+
+        private IndexedMinHeap forwardQueue;
+        private IndexedMinHeap backwardQueue;
+        private VisitedSet forwardReached;
+        private VisitedSet backwardReached;
+        private double[] forwardWeights;
+        private double[] backwardWeights;
+        private int[] forwardArcs;
+        private int[] backwardArcs;
+        private int[] forwardCore;
+        private int[] backwardCore;
+        private int forwardCoreSize;
+        private int backwardCoreSize;
+        private final SearchWork work;
+        private int[] stack;
+        private long relaxed;
+
+        /**
+         * Constructor for the Query class, with its own SearchWork
+         */
+
+        public Query() {
+            this(new SearchWork());
+        }
+
+        /**
+         * Constructor for the Query class, reporting the work of each query
+         * into the given object. Queries can share one, as long as they are
+         * all used by the same thread
+         *
+         * @param work where each query records its work
+         */
+
+        public Query(SearchWork work) {
+            this.work = work;
+            this.ensureCapacity(0, 0);
+            this.stack = new int[16];
+        }
+
+        /**
+         * Returns the object the work of each query is recorded in
+         *
+         * @return the work of the last query
+         */
+
+        public SearchWork getWork() {
+            return this.work;
+        }
+
+        /**
+         * Grows the buffers to fit a hierarchy, reallocating only those that
+         * are too small
+         *
+         * @param vertexCount the number of cities of the hierarchy
+         * @param coreSize    the number of core cities of the hierarchy
+         */
+
+        private void ensureCapacity(int vertexCount, int coreSize) {
+            if (this.forwardWeights == null
+                    || this.forwardWeights.length < vertexCount) {
+                this.forwardQueue = new IndexedMinHeap(vertexCount);
+                this.backwardQueue = new IndexedMinHeap(vertexCount);
+                this.forwardReached = new VisitedSet(vertexCount);
+                this.backwardReached = new VisitedSet(vertexCount);
+                this.forwardWeights = new double[vertexCount];
+                this.backwardWeights = new double[vertexCount];
+                this.forwardArcs = new int[vertexCount];
+                this.backwardArcs = new int[vertexCount];
+            }
+            if (this.forwardCore == null || this.forwardCore.length < coreSize) {
+                this.forwardCore = new int[coreSize];
+                this.backwardCore = new int[coreSize];
+            }
+        }
+
+        /**
+         * Finds the lightest path between two cities on a hierarchy and
+         * unpacks it into the original Transports
+         *
+         * @param ch          the hierarchy to search
+         * @param source      the id of the source city
+         * @param destination the id of the destination city
+         * @return a list of Transports from source to destination, or an
+         * empty list if there is no path
+         */
+
+        public List<Transport> getShortestPath(ContractionHierarchy ch,
+                                               int source, int destination) {
+            if (source == destination) {
+                this.work.record(0, 0, 0);
+                return Collections.emptyList();
+            }
+            this.ensureCapacity(ch.ranks.length, ch.coreSize);
+            this.relaxed = 0;
+            this.forwardCoreSize = 0;
+            this.backwardCoreSize = 0;
+            this.forwardQueue.clear();
+            this.backwardQueue.clear();
+            this.forwardReached.clear();
+            this.backwardReached.clear();
+            this.forwardReached.add(source);
+            this.forwardWeights[source] = 0.0;
+            this.forwardQueue.insert(source, 0.0);
+            this.backwardReached.add(destination);
+            this.backwardWeights[destination] = 0.0;
+            this.backwardQueue.insert(destination, 0.0);
+
+            double best = Double.POSITIVE_INFINITY;
+            int meeting = -1;
+            while (true) {
+                boolean forwardDone = this.forwardQueue.isEmpty()
+                        || this.forwardQueue.peekKey() >= best;
+                boolean backwardDone = this.backwardQueue.isEmpty()
+                        || this.backwardQueue.peekKey() >= best;
+                if (forwardDone && backwardDone) {
+                    break;
+                }
+                boolean isForward = !forwardDone && (backwardDone
+                        || this.forwardQueue.peekKey()
+                        <= this.backwardQueue.peekKey());
+                int candidate = isForward ? this.expandForward(ch, false)
+                        : this.expandBackward(ch, false);
+                if (candidate >= 0 && this.weightAt(candidate) < best) {
+                    best = this.weightAt(candidate);
+                    meeting = candidate;
+                }
+            }
+
+            /* the core cities reached so far are the entry points of a
+               plain bidirectional Dijkstra over the core */
+            for (int i = 0; i < this.forwardCoreSize; i++) {
+                int vertex = this.forwardCore[i];
+                this.forwardQueue.insert(vertex, this.forwardWeights[vertex]);
+            }
+            for (int i = 0; i < this.backwardCoreSize; i++) {
+                int vertex = this.backwardCore[i];
+                this.backwardQueue.insert(vertex, this.backwardWeights[vertex]);
+            }
+            while (!this.forwardQueue.isEmpty() && !this.backwardQueue.isEmpty()
+                    && this.forwardQueue.peekKey() + this.backwardQueue.peekKey() < best) {
+                int candidate = this.forwardQueue.peekKey() <= this.backwardQueue.peekKey()
+                        ? this.expandForward(ch, true) : this.expandBackward(ch, true);
+                if (candidate >= 0 && this.weightAt(candidate) < best) {
+                    best = this.weightAt(candidate);
+                    meeting = candidate;
+                }
+            }
+
+            this.work.record(this.forwardQueue.getPollCount()
+                            + this.backwardQueue.getPollCount(), this.relaxed,
+                    this.forwardQueue.getOperationCount()
+                            + this.backwardQueue.getOperationCount());
+            if (meeting == -1) {
+                return Collections.emptyList();
+            }
+            return this.buildFinalPath(ch, source, destination, meeting);
+        }
+
+        /**
+         * Returns the weight of the path through a city reached by both
+         * directions of the search
+         *
+         * @param vertex the id of the city
+         * @return the forward weight plus the backward weight
+         */
+
+        private double weightAt(int vertex) {
+            return this.forwardWeights[vertex] + this.backwardWeights[vertex];
+        }
+
+        /**
+         * Settles the next city of the forward search and relaxes its upward
+         * arcs. Before the core search starts, a core city is only set aside
+         *
+         * @param ch     the hierarchy being searched
+         * @param inCore whether the search over the core has started
+         * @return the lightest city at which the searches met during this
+         * step, or -1 if they did not meet
+         */
+
+        private int expandForward(ContractionHierarchy ch, boolean inCore) {
+            double weight = this.forwardQueue.peekKey();
+            int current = this.forwardQueue.poll();
+            int meeting = this.backwardReached.contains(current) ? current : -1;
+            if (ch.isCore(current)) {
+                if (!inCore) {
+                    this.forwardCore[this.forwardCoreSize++] = current;
+                    return meeting;
+                }
+            } else if (this.isStalled(ch, ch.downOffsets, ch.downArcs, ch.arcTails,
+                    this.forwardReached, this.forwardWeights, current, weight)) {
+                return meeting;
+            }
+            this.relaxed += ch.upOffsets[current + 1] - ch.upOffsets[current];
+            for (int i = ch.upOffsets[current]; i < ch.upOffsets[current + 1]; i++) {
+                int arc = ch.upArcs[i];
+                int next = ch.arcHeads[arc];
+                double newWeight = weight + ch.arcWeights[arc];
+                if (!this.relax(this.forwardQueue, this.forwardReached,
+                        this.forwardWeights, this.forwardArcs, next, newWeight, arc)) {
+                    continue;
+                }
+                if (this.backwardReached.contains(next) && (meeting == -1
+                        || newWeight + this.backwardWeights[next]
+                        < this.forwardWeights[meeting] + this.backwardWeights[meeting])) {
+                    meeting = next;
+                }
+            }
+            return meeting;
+        }
+
+        /**
+         * Settles the next city of the backward search and relaxes the arcs
+         * that reach it from higher ranked cities. Before the core search
+         * starts, a core city is only set aside
+         *
+         * @param ch     the hierarchy being searched
+         * @param inCore whether the search over the core has started
+         * @return the lightest city at which the searches met during this
+         * step, or -1 if they did not meet
+         */
+
+        private int expandBackward(ContractionHierarchy ch, boolean inCore) {
+            double weight = this.backwardQueue.peekKey();
+            int current = this.backwardQueue.poll();
+            int meeting = this.forwardReached.contains(current) ? current : -1;
+            if (ch.isCore(current)) {
+                if (!inCore) {
+                    this.backwardCore[this.backwardCoreSize++] = current;
+                    return meeting;
+                }
+            } else if (this.isStalled(ch, ch.upOffsets, ch.upArcs, ch.arcHeads,
+                    this.backwardReached, this.backwardWeights, current, weight)) {
+                return meeting;
+            }
+            this.relaxed += ch.downOffsets[current + 1] - ch.downOffsets[current];
+            for (int i = ch.downOffsets[current]; i < ch.downOffsets[current + 1]; i++) {
+                int arc = ch.downArcs[i];
+                int next = ch.arcTails[arc];
+                double newWeight = weight + ch.arcWeights[arc];
+                if (!this.relax(this.backwardQueue, this.backwardReached,
+                        this.backwardWeights, this.backwardArcs, next, newWeight, arc)) {
+                    continue;
+                }
+                if (this.forwardReached.contains(next) && (meeting == -1
+                        || newWeight + this.forwardWeights[next]
+                        < this.forwardWeights[meeting] + this.backwardWeights[meeting])) {
+                    meeting = next;
+                }
+            }
+            return meeting;
+        }
+
+        /**
+         * Returns whether a city just settled by one direction of the search
+         * can be stalled: whether a higher ranked city that direction has
+         * reached has an arc to it, against the direction of the search,
+         * that makes a lighter path than the one it was settled with. The
+         * arcs looked at count as relaxed
+         *
+         * @param ch      the hierarchy being searched
+         * @param offsets the CSR offsets of the arcs against the direction
+         * @param arcs    the arc ids of the arcs against the direction
+         * @param ends    the far end of each arc, by arc id
+         * @param reached the cities the direction has reached
+         * @param weights the weights the direction has found
+         * @param vertex  the id of the settled city
+         * @param weight  the weight it was settled with
+         * @return true if the city should not be expanded, false otherwise
+         */
+
+        private boolean isStalled(ContractionHierarchy ch, int[] offsets,
+                                  int[] arcs, int[] ends, VisitedSet reached,
+                                  double[] weights, int vertex, double weight) {
+            int end = offsets[vertex + 1];
+            for (int i = offsets[vertex]; i < end; i++) {
+                int arc = arcs[i];
+                int higher = ends[arc];
+                if (reached.contains(higher)
+                        && weights[higher] + ch.arcWeights[arc] < weight) {
+                    this.relaxed += i - offsets[vertex] + 1;
+                    return true;
+                }
+            }
+            this.relaxed += end - offsets[vertex];
+            return false;
+        }
+
+        /**
+         * Records a path to a city if it is lighter than any found before in
+         * one direction of the search
+         *
+         * @return true if the path was recorded, false otherwise
+         */
+
+        private boolean relax(IndexedMinHeap queue, VisitedSet reached,
+                              double[] weights, int[] arcs, int vertex,
+                              double weight, int arc) {
+            if (reached.add(vertex)) {
+                queue.insert(vertex, weight);
+            } else if (weight < weights[vertex] && queue.contains(vertex)) {
+                queue.decreaseKey(vertex, weight);
+            } else {
+                return false;
+            }
+            weights[vertex] = weight;
+            arcs[vertex] = arc;
+            return true;
+        }
+
+        /**
+         * Joins the upward path from the source and the path down to the
+         * destination at the meeting city, and unpacks every shortcut
+         *
+         * @param ch the hierarchy being searched
+         * @return a list of Transports from source to destination
+         */
+
+        private List<Transport> buildFinalPath(ContractionHierarchy ch,
+                                               int source, int destination,
+                                               int meeting) {
+            ArrayList<Integer> upward = new ArrayList<>();
+            for (int node = meeting; node != source; node = ch.arcTails[this.forwardArcs[node]]) {
+                upward.add(this.forwardArcs[node]);
+            }
+            List<Transport> path = new ArrayList<>();
+            for (int i = upward.size() - 1; i >= 0; i--) {
+                this.stack = ch.unpack(upward.get(i), this.stack, path);
+            }
+            for (int node = meeting; node != destination; node = ch.arcHeads[this.backwardArcs[node]]) {
+                this.stack = ch.unpack(this.backwardArcs[node], this.stack, path);
+            }
+            return path;
+        }
+    }
+
+    /**
+     * The Builder class holds the mutable state used while contracting the
+     * graph: a pool of arcs (original edges and shortcuts) and, for every
+     * city that is not contracted yet, the ids of its remaining outgoing and
+     * incoming arcs
+     */
+
+    private static class Builder {
+
+        private final int vertexCount;
+        private int arcCount;
+        private int liveArcs;
+        private int coreSize;
+        private int[] arcTails;
+        private int[] arcHeads;
+        private double[] arcWeights;
+        private int[] arcEdges;
+        private int[] arcFirst;
+        private int[] arcSecond;
+
+        private final int[][] outArcs;
+        private final int[] outSizes;
+        private final int[][] inArcs;
+        private final int[] inSizes;
+        private final int[] contractedNeighbors;
+        private final int[] levels;
+        private final int[] ranks;
+        private final int[][] upArcs;
+        private final int[][] downArcs;
+
+        private final IndexedMinHeap witnessQueue;
+        private final VisitedSet witnessReached;
+        private final double[] witnessWeights;
+        private final VisitedSet witnessTargets;
+        private boolean[] lighter;
+        private int threshold;
+
+        Builder(FrozenTravelGraph graph, double[] weights) {
+            this(graph.getVertexCount(), Math.max(graph.getEdgeCount(), 16));
+
+            /* keep only the lightest of parallel edges and drop self loops,
+               since neither can be part of a shortest path */
+            VisitedSet seen = new VisitedSet(this.vertexCount);
+            int[] arcTo = new int[this.vertexCount];
+            for (int u = 0; u < this.vertexCount; u++) {
+                seen.clear();
+                int end = graph.getEdgeEnd(u);
+                for (int edge = graph.getFirstEdge(u); edge < end; edge++) {
+                    int v = graph.getTargetId(edge);
+                    if (u == v) {
+                        continue;
+                    }
+                    if (!seen.add(v)) {
+                        if (this.arcWeights[arcTo[v]] <= weights[edge]) {
+                            continue;
+                        }
+                        this.removeArc(arcTo[v]);
+                    }
+                    arcTo[v] = this.arcCount;
+                    this.addArc(u, v, weights[edge], edge, -1, -1);
+                }
+            }
+        }
+
+        /**
+         * Constructor for a Builder that contracts a changed graph again in
+         * the order of an earlier hierarchy. The remaining graph starts out
+         * as every arc of that hierarchy, reweighted bottom-up, plus an
+         * original arc for every pair of cities whose lightest edge is now
+         * lighter than any arc between them. Arcs that got lighter are
+         * marked, and the threshold is set to the highest rank below which
+         * some witness search may have used an arc that got heavier
+         *
+         * @param previous the hierarchy to take the ranks and arcs from
+         * @param graph    the changed graph, with the same cities and ids
+         * @param weights  the non-negative weight of every edge of graph
+         */
+
+        Builder(ContractionHierarchy previous, FrozenTravelGraph graph,
+                double[] weights) {
+            this(graph.getVertexCount(), previous.arcTails.length + 16);
+            int previousCount = previous.arcTails.length;
+            this.arcCount = previousCount;
+            System.arraycopy(previous.arcTails, 0, this.arcTails, 0, previousCount);
+            System.arraycopy(previous.arcHeads, 0, this.arcHeads, 0, previousCount);
+            System.arraycopy(previous.arcEdges, 0, this.arcEdges, 0, previousCount);
+            System.arraycopy(previous.arcFirst, 0, this.arcFirst, 0, previousCount);
+            System.arraycopy(previous.arcSecond, 0, this.arcSecond, 0, previousCount);
+            System.arraycopy(previous.ranks, 0, this.ranks, 0, this.vertexCount);
+            this.coreSize = previous.coreSize;
+            this.lighter = new boolean[this.arcTails.length];
+
+            boolean[] inHierarchy = new boolean[previousCount];
+            for (int arc : previous.upArcs) {
+                inHierarchy[arc] = true;
+            }
+            for (int arc : previous.downArcs) {
+                inHierarchy[arc] = true;
+            }
+            int[] originalOffsets = new int[this.vertexCount + 1];
+            int[] hierarchyOffsets = new int[this.vertexCount + 1];
+            for (int arc = 0; arc < previousCount; arc++) {
+                if (this.arcEdges[arc] >= 0) {
+                    originalOffsets[this.arcTails[arc] + 1]++;
+                }
+                if (inHierarchy[arc]) {
+                    hierarchyOffsets[this.arcTails[arc] + 1]++;
+                }
+            }
+            for (int v = 0; v < this.vertexCount; v++) {
+                originalOffsets[v + 1] += originalOffsets[v];
+                hierarchyOffsets[v + 1] += hierarchyOffsets[v];
+            }
+            int[] originals = new int[originalOffsets[this.vertexCount]];
+            int[] hierarchyArcs = new int[hierarchyOffsets[this.vertexCount]];
+            int[] nextOriginal = Arrays.copyOf(originalOffsets, this.vertexCount);
+            int[] nextHierarchy = Arrays.copyOf(hierarchyOffsets, this.vertexCount);
+            for (int arc = 0; arc < previousCount; arc++) {
+                if (this.arcEdges[arc] >= 0) {
+                    originals[nextOriginal[this.arcTails[arc]]++] = arc;
+                }
+                if (inHierarchy[arc]) {
+                    hierarchyArcs[nextHierarchy[this.arcTails[arc]]++] = arc;
+                }
+            }
+
+            // original arcs take the lightest edge now joining their cities
+            VisitedSet joined = new VisitedSet(this.vertexCount);
+            double[] lightestWeights = new double[this.vertexCount];
+            int[] lightestEdges = new int[this.vertexCount];
+            for (int u = 0; u < this.vertexCount; u++) {
+                this.findLightestEdges(graph, weights, u, joined,
+                        lightestWeights, lightestEdges);
+                for (int i = originalOffsets[u]; i < originalOffsets[u + 1]; i++) {
+                    int arc = originals[i];
+                    int head = this.arcHeads[arc];
+                    if (joined.contains(head)) {
+                        this.arcWeights[arc] = lightestWeights[head];
+                        this.arcEdges[arc] = lightestEdges[head];
+                    } else {
+                        this.arcWeights[arc] = Double.POSITIVE_INFINITY;
+                    }
+                }
+            }
+
+            // the parts of a shortcut always come before it in the pool
+            for (int arc = 0; arc < previousCount; arc++) {
+                if (this.arcEdges[arc] < 0) {
+                    this.arcWeights[arc] = this.arcWeights[this.arcFirst[arc]]
+                            + this.arcWeights[this.arcSecond[arc]];
+                }
+            }
+
+            /* keep the lightest arc between every pair of cities, and drop
+               arcs that no longer stand for any path */
+            VisitedSet kept = new VisitedSet(this.vertexCount);
+            int[] keptArcs = new int[this.vertexCount];
+            int[] keptHeads = new int[this.vertexCount];
+            for (int u = 0; u < this.vertexCount; u++) {
+                kept.clear();
+                int keptCount = 0;
+                for (int i = hierarchyOffsets[u]; i < hierarchyOffsets[u + 1]; i++) {
+                    int arc = hierarchyArcs[i];
+                    int head = this.arcHeads[arc];
+                    double weight = this.arcWeights[arc];
+                    if (weight > previous.arcWeights[arc]) {
+                        this.threshold = Math.max(this.threshold,
+                                Math.min(this.ranks[u], this.ranks[head]));
+                    }
+                    if (weight == Double.POSITIVE_INFINITY) {
+                        continue;
+                    }
+                    if (kept.add(head)) {
+                        keptHeads[keptCount++] = head;
+                    } else if (this.arcWeights[keptArcs[head]] <= weight) {
+                        continue;
+                    }
+                    keptArcs[head] = arc;
+                }
+                this.findLightestEdges(graph, weights, u, joined,
+                        lightestWeights, lightestEdges);
+                int end = graph.getEdgeEnd(u);
+                for (int edge = graph.getFirstEdge(u); edge < end; edge++) {
+                    int head = graph.getTargetId(edge);
+                    if (head == u || lightestEdges[head] != edge) {
+                        continue;
+                    }
+                    if (kept.add(head)) {
+                        keptHeads[keptCount++] = head;
+                    } else if (this.arcWeights[keptArcs[head]] <= weights[edge]) {
+                        continue;
+                    }
+                    keptArcs[head] = this.poolArc(u, head, weights[edge], edge,
+                            -1, -1);
+                }
+                for (int i = 0; i < keptCount; i++) {
+                    int arc = keptArcs[keptHeads[i]];
+                    if (arc >= previousCount
+                            || this.arcWeights[arc] < previous.arcWeights[arc]) {
+                        this.lighter[arc] = true;
+                    }
+                    this.attachArc(arc);
+                }
+            }
+        }
+
+        /**
+         * Constructor for a Builder with an empty remaining graph
+         *
+         * @param vertexCount the number of cities
+         * @param capacity    the initial capacity of the arc pool
+         */
+
+        private Builder(int vertexCount, int capacity) {
+            this.vertexCount = vertexCount;
+            this.arcTails = new int[capacity];
+            this.arcHeads = new int[capacity];
+            this.arcWeights = new double[capacity];
+            this.arcEdges = new int[capacity];
+            this.arcFirst = new int[capacity];
+            this.arcSecond = new int[capacity];
+            this.outArcs = new int[this.vertexCount][];
+            this.outSizes = new int[this.vertexCount];
+            this.inArcs = new int[this.vertexCount][];
+            this.inSizes = new int[this.vertexCount];
+            for (int v = 0; v < this.vertexCount; v++) {
+                this.outArcs[v] = new int[4];
+                this.inArcs[v] = new int[4];
+            }
+            this.contractedNeighbors = new int[this.vertexCount];
+            this.levels = new int[this.vertexCount];
+            this.ranks = new int[this.vertexCount];
+            this.upArcs = new int[this.vertexCount][];
+            this.downArcs = new int[this.vertexCount][];
+            this.witnessQueue = new IndexedMinHeap(this.vertexCount);
+            this.witnessReached = new VisitedSet(this.vertexCount);
+            this.witnessWeights = new double[this.vertexCount];
+            this.witnessTargets = new VisitedSet(this.vertexCount);
+        }
+
+        /**
+         * Finds, for every city an edge from u leads to, the lightest such
+         * edge
+         *
+         * @param graph   the frozen graph
+         * @param weights the weight of every edge of graph
+         * @param u       the id of the city to look from
+         * @param joined  gets the cities reached, other than u itself
+         * @param lightestWeights gets the weight of the lightest edge to each
+         * @param lightestEdges   gets the id of the lightest edge to each
+         */
+
+        private void findLightestEdges(FrozenTravelGraph graph, double[] weights,
+                                       int u, VisitedSet joined,
+                                       double[] lightestWeights,
+                                       int[] lightestEdges) {
+            joined.clear();
+            int end = graph.getEdgeEnd(u);
+            for (int edge = graph.getFirstEdge(u); edge < end; edge++) {
+                int v = graph.getTargetId(edge);
+                if (v != u && (joined.add(v) || weights[edge] < lightestWeights[v])) {
+                    lightestWeights[v] = weights[edge];
+                    lightestEdges[v] = edge;
+                }
+            }
+        }
+
+        /**
+         * Contracts the cities, always picking the one with the lowest
+         * priority next. Contracting a city changes the arcs of its
+         * neighbors, so their priorities are recomputed right after it.
+         * Priorities are also checked lazily: a popped city whose recomputed
+         * priority is no longer the lowest goes back in the queue. Once the
+         * remaining graph is too dense, the cities left keep all their
+         * remaining arcs as the core
+         *
+         * @return this builder
+         */
+
+        Builder contractAll() {
+            IndexedMinHeap order = new IndexedMinHeap(this.vertexCount);
+            for (int v = 0; v < this.vertexCount; v++) {
+                order.insert(v, this.priority(v));
+            }
+            VisitedSet updated = new VisitedSet(this.vertexCount);
+            int rank = 0;
+            while (!order.isEmpty()
+                    && this.liveArcs <= (long) CORE_DEGREE * order.size()) {
+                int v = order.poll();
+                double priority = this.priority(v);
+                if (!order.isEmpty() && priority > order.peekKey()) {
+                    order.insert(v, priority);
+                    continue;
+                }
+                this.contract(v, true);
+                this.ranks[v] = rank++;
+                updated.clear();
+                for (int arc : this.upArcs[v]) {
+                    this.updatePriority(order, updated, this.arcHeads[arc]);
+                }
+                for (int arc : this.downArcs[v]) {
+                    this.updatePriority(order, updated, this.arcTails[arc]);
+                }
+            }
+            this.coreSize = order.size();
+            while (!order.isEmpty()) {
+                int v = order.poll();
+                this.upArcs[v] = Arrays.copyOf(this.outArcs[v], this.outSizes[v]);
+                this.downArcs[v] = Arrays.copyOf(this.inArcs[v], this.inSizes[v]);
+                this.ranks[v] = rank++;
+            }
+            return this;
+        }
+
+        /**
+         * Contracts the cities again in the order of the earlier hierarchy,
+         * repeating only the witness searches the change can have made wrong,
+         * and gives the core cities all their remaining arcs
+         *
+         * @return this builder
+         */
+
+        Builder recontractAll() {
+            int[] order = new int[this.vertexCount];
+            for (int v = 0; v < this.vertexCount; v++) {
+                order[this.ranks[v]] = v;
+            }
+            int contracted = this.vertexCount - this.coreSize;
+            for (int rank = 0; rank < contracted; rank++) {
+                int v = order[rank];
+                this.recontract(v, rank < this.threshold);
+                this.detach(v);
+            }
+            for (int rank = contracted; rank < this.vertexCount; rank++) {
+                int v = order[rank];
+                this.upArcs[v] = Arrays.copyOf(this.outArcs[v], this.outSizes[v]);
+                this.downArcs[v] = Arrays.copyOf(this.inArcs[v], this.inSizes[v]);
+            }
+            return this;
+        }
+
+        /**
+         * Repeats the witness searches of a city's contraction for the pairs
+         * of its arcs where a witness may be missing now, and adds the
+         * shortcuts needed
+         *
+         * @param v   the id of the city to contract again
+         * @param all whether every pair must be checked, rather than only
+         *            those with an arc that got lighter
+         */
+
+        private void recontract(int v, boolean all) {
+            for (int i = 0; i < this.inSizes[v]; i++) {
+                int in = this.inArcs[v][i];
+                int u = this.arcTails[in];
+                boolean every = all || this.lighter[in];
+                double maxWeight = 0.0;
+                int targets = 0;
+                this.witnessTargets.clear();
+                for (int j = 0; j < this.outSizes[v]; j++) {
+                    int out = this.outArcs[v][j];
+                    int x = this.arcHeads[out];
+                    if (x != u && (every || this.lighter[out])) {
+                        maxWeight = Math.max(maxWeight, this.arcWeights[out]);
+                        if (this.witnessTargets.add(x)) {
+                            targets++;
+                        }
+                    }
+                }
+                if (targets == 0) {
+                    continue;
+                }
+                this.witnessSearch(u, v, this.arcWeights[in] + maxWeight,
+                        targets);
+                for (int j = 0; j < this.outSizes[v]; j++) {
+                    int out = this.outArcs[v][j];
+                    int x = this.arcHeads[out];
+                    if (x == u || !(every || this.lighter[out])) {
+                        continue;
+                    }
+                    double via = this.arcWeights[in] + this.arcWeights[out];
+                    if (!this.witnessReached.contains(x) || this.witnessWeights[x] > via) {
+                        this.addShortcut(u, x, via, in, out);
+                    }
+                }
+            }
+        }
+
+        /**
+         * Recomputes the priority of a neighbor of the city just contracted,
+         * unless it was already recomputed for that city
+         *
+         * @param order    the queue of uncontracted cities by priority
+         * @param updated  the neighbors already recomputed
+         * @param neighbor the id of an uncontracted neighbor
+         */
+
+        private void updatePriority(IndexedMinHeap order, VisitedSet updated,
+                                    int neighbor) {
+            if (updated.add(neighbor)) {
+                order.changeKey(neighbor, this.priority(neighbor));
+            }
+        }
+
+        /**
+         * Returns the priority of a city: twice the number of shortcuts its
+         * contraction would add minus the number of arcs it would remove,
+         * plus the number of its neighbors already contracted and its level,
+         * which together spread contractions evenly over the graph
+         *
+         * @param v the id of an uncontracted city
+         * @return the priority of v
+         */
+
+        private double priority(int v) {
+            int shortcuts = this.contract(v, false);
+            int edgeDifference = shortcuts - this.outSizes[v] - this.inSizes[v];
+            return 2 * edgeDifference + this.contractedNeighbors[v]
+                    + this.levels[v];
+        }
+
+        /**
+         * Finds the shortcuts needed to contract a city, and either only
+         * counts them or adds them and removes the city from the remaining
+         * graph. Counting runs the same witness searches as contracting, so
+         * a priority never promises fewer shortcuts than the contraction
+         * adds
+         *
+         * @param v      the id of an uncontracted city
+         * @param commit whether to actually contract v
+         * @return the number of shortcuts needed
+         */
+
+        private int contract(int v, boolean commit) {
+            int shortcuts = 0;
+            for (int i = 0; i < this.inSizes[v]; i++) {
+                int in = this.inArcs[v][i];
+                int u = this.arcTails[in];
+                double maxWeight = 0.0;
+                int targets = 0;
+                this.witnessTargets.clear();
+                for (int j = 0; j < this.outSizes[v]; j++) {
+                    int out = this.outArcs[v][j];
+                    int x = this.arcHeads[out];
+                    if (x != u) {
+                        maxWeight = Math.max(maxWeight, this.arcWeights[out]);
+                        if (this.witnessTargets.add(x)) {
+                            targets++;
+                        }
+                    }
+                }
+                this.witnessSearch(u, v, this.arcWeights[in] + maxWeight,
+                        targets);
+                for (int j = 0; j < this.outSizes[v]; j++) {
+                    int out = this.outArcs[v][j];
+                    int x = this.arcHeads[out];
+                    if (x == u) {
+                        continue;
+                    }
+                    double via = this.arcWeights[in] + this.arcWeights[out];
+                    if (this.witnessReached.contains(x) && this.witnessWeights[x] <= via) {
+                        continue;
+                    }
+                    shortcuts++;
+                    if (commit) {
+                        this.addShortcut(u, x, via, in, out);
+                    }
+                }
+            }
+            if (commit) {
+                this.detach(v);
+            }
+            return shortcuts;
+        }
+
+        /**
+         * Removes a city from the remaining graph, handing its remaining
+         * arcs to the hierarchy
+         *
+         * @param v the id of the city being contracted
+         */
+
+        private void detach(int v) {
+            this.upArcs[v] = Arrays.copyOf(this.outArcs[v], this.outSizes[v]);
+            this.downArcs[v] = Arrays.copyOf(this.inArcs[v], this.inSizes[v]);
+            for (int arc : this.upArcs[v]) {
+                this.detachNeighbor(v, this.arcHeads[arc]);
+                this.removeFrom(this.inArcs, this.inSizes, this.arcHeads[arc], arc);
+            }
+            for (int arc : this.downArcs[v]) {
+                this.detachNeighbor(v, this.arcTails[arc]);
+                this.removeFrom(this.outArcs, this.outSizes, this.arcTails[arc], arc);
+            }
+            this.liveArcs -= this.upArcs[v].length + this.downArcs[v].length;
+        }
+
+        /**
+         * Records that a neighbor of a contracted city lost a neighbor and
+         * now sits at least one level above it
+         *
+         * @param v        the id of the city being contracted
+         * @param neighbor the id of one of its remaining neighbors
+         */
+
+        private void detachNeighbor(int v, int neighbor) {
+            this.contractedNeighbors[neighbor]++;
+            this.levels[neighbor] = Math.max(this.levels[neighbor],
+                    this.levels[v] + 1);
+        }
+
+        /**
+         * Runs a Dijkstra from a city over the remaining graph that avoids
+         * one city, stopping once paths get heavier than a limit, every
+         * target city has been settled or WITNESS_SETTLE_LIMIT cities have
+         * been settled
+         *
+         * @param source    the id of the city to search from
+         * @param excluded  the id of the city being contracted
+         * @param maxWeight the weight beyond which witnesses are useless
+         * @param targets   the number of cities marked in witnessTargets
+         */
+
+        private void witnessSearch(int source, int excluded, double maxWeight,
+                                   int targets) {
+            this.witnessQueue.clear();
+            this.witnessReached.clear();
+            this.witnessReached.add(source);
+            this.witnessWeights[source] = 0.0;
+            this.witnessQueue.insert(source, 0.0);
+            int settled = 0;
+            while (!this.witnessQueue.isEmpty() && settled < WITNESS_SETTLE_LIMIT) {
+                double weight = this.witnessQueue.peekKey();
+                if (weight > maxWeight) {
+                    break;
+                }
+                int current = this.witnessQueue.poll();
+                settled++;
+                if (this.witnessTargets.contains(current) && --targets == 0) {
+                    break;
+                }
+                for (int i = 0; i < this.outSizes[current]; i++) {
+                    int arc = this.outArcs[current][i];
+                    int next = this.arcHeads[arc];
+                    if (next == excluded) {
+                        continue;
+                    }
+                    double newWeight = weight + this.arcWeights[arc];
+                    if (newWeight > maxWeight) {
+                        continue;
+                    }
+                    if (this.witnessReached.add(next)) {
+                        this.witnessWeights[next] = newWeight;
+                        this.witnessQueue.insert(next, newWeight);
+                    } else if (newWeight < this.witnessWeights[next]
+                            && this.witnessQueue.contains(next)) {
+                        this.witnessWeights[next] = newWeight;
+                        this.witnessQueue.decreaseKey(next, newWeight);
+                    }
+                }
+            }
+        }
+
+        /**
+         * Adds a shortcut u -> x unless an arc u -> x that is at least as
+         * light already exists, in which case that arc is kept
+         */
+
+        private void addShortcut(int u, int x, double weight, int first, int second) {
+            int existing = this.findArc(u, x);
+            if (existing >= 0) {
+                if (this.arcWeights[existing] <= weight) {
+                    return;
+                }
+                this.removeArc(existing);
+            }
+            this.addArc(u, x, weight, -1, first, second);
+        }
+
+        /**
+         * Returns the id of the remaining arc from u to v, or -1 if there is
+         * none
+         */
+
+        private int findArc(int u, int v) {
+            for (int i = 0; i < this.outSizes[u]; i++) {
+                if (this.arcHeads[this.outArcs[u][i]] == v) {
+                    return this.outArcs[u][i];
+                }
+            }
+            return -1;
+        }
+
+        /**
+         * Adds an arc to the pool and to the remaining graph. Arcs added
+         * while contracting again count as lighter, since they are new
+         */
+
+        private void addArc(int tail, int head, double weight, int edge,
+                            int first, int second) {
+            int arc = this.poolArc(tail, head, weight, edge, first, second);
+            if (this.lighter != null) {
+                this.lighter[arc] = true;
+            }
+            this.attachArc(arc);
+        }
+
+        /**
+         * Adds an arc to the pool only
+         *
+         * @return the id of the new arc
+         */
+
+        private int poolArc(int tail, int head, double weight, int edge,
+                            int first, int second) {
+            if (this.arcCount == this.arcTails.length) {
+                int length = this.arcCount * 2;
+                this.arcTails = Arrays.copyOf(this.arcTails, length);
+                this.arcHeads = Arrays.copyOf(this.arcHeads, length);
+                this.arcWeights = Arrays.copyOf(this.arcWeights, length);
+                this.arcEdges = Arrays.copyOf(this.arcEdges, length);
+                this.arcFirst = Arrays.copyOf(this.arcFirst, length);
+                this.arcSecond = Arrays.copyOf(this.arcSecond, length);
+                if (this.lighter != null) {
+                    this.lighter = Arrays.copyOf(this.lighter, length);
+                }
+            }
+            int arc = this.arcCount++;
+            this.arcTails[arc] = tail;
+            this.arcHeads[arc] = head;
+            this.arcWeights[arc] = weight;
+            this.arcEdges[arc] = edge;
+            this.arcFirst[arc] = first;
+            this.arcSecond[arc] = second;
+            return arc;
+        }
+
+        /**
+         * Adds an arc of the pool to the remaining graph
+         */
+
+        private void attachArc(int arc) {
+            this.appendTo(this.outArcs, this.outSizes, this.arcTails[arc], arc);
+            this.appendTo(this.inArcs, this.inSizes, this.arcHeads[arc], arc);
+            this.liveArcs++;
+        }
+
+        /**
+         * Removes an arc from the remaining graph. It stays in the pool, since
+         * shortcuts may still refer to it
+         */
+
+        private void removeArc(int arc) {
+            this.removeFrom(this.outArcs, this.outSizes, this.arcTails[arc], arc);
+            this.removeFrom(this.inArcs, this.inSizes, this.arcHeads[arc], arc);
+            this.liveArcs--;
+        }
+
+        private void appendTo(int[][] lists, int[] sizes, int v, int arc) {
+            if (sizes[v] == lists[v].length) {
+                lists[v] = Arrays.copyOf(lists[v], lists[v].length * 2);
+            }
+            lists[v][sizes[v]++] = arc;
+        }
+
+        private void removeFrom(int[][] lists, int[] sizes, int v, int arc) {
+            for (int i = 0; i < sizes[v]; i++) {
+                if (lists[v][i] == arc) {
+                    lists[v][i] = lists[v][--sizes[v]];
+                    return;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,176 @@
+package sol;
+
+import src.City;
+import src.ICountedSearch;
+import src.IGraph;
+import src.IPreprocessedDijkstra;
+import src.SearchWork;
+import src.Transport;
+
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * The ContractionHierarchyDijkstra class answers shortest path queries on a
+ * FrozenTravelGraph with contraction hierarchies. The first query for each
+ * edge weight (given by either a Function or a ToDoubleFunction) builds a
+ * ContractionHierarchy for that weight, and later queries on the same graph
+ * with the same weights reuse it. Passing a different graph throws the old
+ * hierarchies away. Each thread keeps one
+ * set of query buffers on the engine, grown to the largest graph it has
+ * searched, so the buffers never keep a replaced hierarchy alive.
+ */
+
+public class ContractionHierarchyDijkstra
+        implements IPreprocessedDijkstra<City, Transport>, ICountedSearch {
+
+    private final GraphTableCache<ContractionHierarchy> hierarchies;
+    private final ThreadLocal<ContractionHierarchy.Query> queries;
+
+    /**
+     * Constructor for the ContractionHierarchyDijkstra class. Hierarchies are
+     * kept between calls to getShortestPath and shared by all threads, and
+     * each thread gets its own query buffers, so a single object may be used
+     * by many threads at once
+     */
+
+    public ContractionHierarchyDijkstra() {
+        this.hierarchies = new GraphTableCache<>();
+        this.queries = ThreadLocal.withInitial(ContractionHierarchy.Query::new);
+    }
+
+    /**
+     * Returns the work of the last query the calling thread ran, on any of
+     * the hierarchies
+     *
+     * @return the settled, relaxed and heap operation counts of that query
+     */
+
+    @Override
+    public SearchWork getLastWork() {
+        return this.queries.get().getWork();
+    }
+
+    /**
+     * Returns a list of Transports representing the path of the least weight
+     * (determined by edgeWeight parameter) from a start to end city
+     *
+     * @param graph       a FrozenTravelGraph including the cities
+     * @param source      the source city
+     * @param destination the destination city
+     * @param edgeWeight  a function that indicates how to weigh an edge for
+     *                    a particular run of the algorithm
+     * @return a list of Transports representing the path of the least weight
+     * from source to destination, or an empty list if there is none
+     * @throws IllegalArgumentException if the graph is not frozen
+     */
+
+    @Override
+    public List<Transport> getShortestPath(IGraph<City, Transport> graph,
+                                           City source, City destination,
+                                           Function<Transport, Double> edgeWeight) {
+        FrozenTravelGraph frozen = this.requireFrozen(graph);
+        int sourceId = frozen.getVertexId(source);
+        int destId = frozen.getVertexId(destination);
+        return this.queries.get().getShortestPath(this.getHierarchy(frozen,
+                edgeWeight, () -> frozen.toWeightColumn(edgeWeight)),
+                sourceId, destId);
+    }
+
+    /**
+     * Returns a list of Transports representing the path of the least weight
+     * (determined by edgeWeight parameter) from a start to end city
+     *
+     * @param graph       a FrozenTravelGraph including the cities
+     * @param source      the source city
+     * @param destination the destination city
+     * @param edgeWeight  the weight of an edge
+     * @return a list of Transports representing the path of the least weight
+     * from source to destination, or an empty list if there is none
+     * @throws IllegalArgumentException if the graph is not frozen
+     */
+
+    @Override
+    public List<Transport> getShortestPathDouble(IGraph<City, Transport> graph,
+                                                 City source, City destination,
+                                                 ToDoubleFunction<Transport> edgeWeight) {
+        FrozenTravelGraph frozen = this.requireFrozen(graph);
+        int sourceId = frozen.getVertexId(source);
+        int destId = frozen.getVertexId(destination);
+        return this.queries.get().getShortestPath(this.getHierarchy(frozen,
+                edgeWeight, () -> frozen.computeWeightColumn(edgeWeight)),
+                sourceId, destId);
+    }
+
+    /**
+     * Builds the hierarchy for a graph and weight function if it does not
+     * exist yet, so that preprocessing can be done ahead of the first query
+     *
+     * @param graph      the FrozenTravelGraph to preprocess
+     * @param edgeWeight the weight function to preprocess for
+     * @throws IllegalArgumentException if the graph is not frozen
+     */
+
+    @Override
+    public void preprocess(IGraph<City, Transport> graph,
+                           Function<Transport, Double> edgeWeight) {
+        FrozenTravelGraph frozen = this.requireFrozen(graph);
+        this.getHierarchy(frozen, edgeWeight,
+                () -> frozen.toWeightColumn(edgeWeight));
+    }
+
+    /**
+     * Takes over the hierarchies another search built for a graph, for a
+     * changed version of that graph, by customizing them to its weights
+     * rather than contracting it again. Only hierarchies for the
+     * TransportWeights functions are carried over; the others are built
+     * again by the next preprocess or query
+     *
+     * @param previous the search that holds hierarchies for the old graph
+     * @param from     the old graph
+     * @param to       the changed graph, with the same cities and ids
+     */
+
+    @SuppressWarnings("unchecked")
+    void carryOver(ContractionHierarchyDijkstra previous, FrozenTravelGraph from,
+                   FrozenTravelGraph to) {
+        this.hierarchies.carryOver(previous.hierarchies, from, to,
+                (weight, hierarchy) -> hierarchy.customize(to,
+                        to.getWeightColumn((Function<Transport, Double>) weight)));
+    }
+
+    /**
+     * Returns a graph as a FrozenTravelGraph
+     *
+     * @param graph a graph
+     * @return the same graph
+     * @throws IllegalArgumentException if the graph is not frozen
+     */
+
+    private FrozenTravelGraph requireFrozen(IGraph<City, Transport> graph) {
+        if (!(graph instanceof FrozenTravelGraph)) {
+            throw new IllegalArgumentException("Contraction hierarchies need a "
+                    + "FrozenTravelGraph.");
+        }
+        return (FrozenTravelGraph) graph;
+    }
+
+    /**
+     * Returns the hierarchy for a graph and weight function, building it the
+     * first time it is needed
+     *
+     * @param graph      a frozen graph
+     * @param edgeWeight an edge weight function
+     * @param weights    computes the weight of every edge under edgeWeight
+     * @return the matching hierarchy
+     */
+
+    private ContractionHierarchy getHierarchy(FrozenTravelGraph graph,
+                                              Object edgeWeight,
+                                              Supplier<double[]> weights) {
+        return this.hierarchies.get(graph, edgeWeight, weights,
+                column -> new ContractionHierarchy(graph, column));
+    }
+}
@@ -1,22 +1,62 @@
 package sol;
 
+import src.City;
+import src.ICountedSearch;
 import src.IDijkstra;
 import src.IGraph;
+import src.IShortestPathTree;
+import src.SearchWork;
+import src.Transport;
 
 import java.util.*;
 import java.util.function.Function;
+import java.util.function.ToDoubleFunction;
 
 /**
  * The Dijkstra class implements Dijkstra's algorithm to find the least cost
  * path (in terms of time or cost) from a source vertex and a destination
  * vertex. It does this via the getShortestPath, performDijkstra, and
- * buildFinalPath methods
+ * buildFinalPath methods. Vertices waiting to be settled are kept in an
+ * IndexedMinHeap so that finding a lighter path to a queued vertex lowers its
+ * key in place. When the graph is a FrozenTravelGraph, the search runs
+ * directly over its CSR arrays instead of going through the IGraph methods.
  *
  * @param <V> the type of vertex in the graph
  * @param <E> the type of edge in the graph
  */
 
-public class Dijkstra<V, E> implements IDijkstra<V, E> {
+public class Dijkstra<V, E> implements IDijkstra<V, E>, ICountedSearch {
+
+    private VisitedSet settled;
+    private IndexedMinHeap queue;
+    private Object[] nodeToEdge;
+    private int[] parentEdges;
+    private final SearchWork work;
+
+    /**
+     * Constructor for the Dijkstra class. The settled set, the queue and the
+     * parent edge buffers are kept between calls to getShortestPath, so a
+     * single Dijkstra object should not be shared between threads
+     */
+
+    public Dijkstra() {
+        this.settled = new VisitedSet();
+        this.queue = new IndexedMinHeap();
+        this.nodeToEdge = new Object[16];
+        this.parentEdges = new int[0];
+        this.work = new SearchWork();
+    }
+
+    /**
+     * Returns the work of the last getShortestPath call on this object
+     *
+     * @return the settled, relaxed and heap operation counts of that call
+     */
+
+    @Override
+    public SearchWork getLastWork() {
+        return this.work;
+    }
 
     /**
      * Returns a list of edges representing the path of the least weight
@@ -33,103 +73,401 @@ public class Dijkstra<V, E> implements IDijkstra<V, E> {
      */
 
     @Override
+    @SuppressWarnings("unchecked")
     public List<E> getShortestPath(IGraph<V, E> graph, V source, V destination,
                                    Function<E, Double> edgeWeight) {
-        LinkedList<V> visited = new LinkedList<>();
-        HashMap<V, Double> partialPathWeights = new HashMap<>();
-        partialPathWeights.put(source, 0.0);
-        HashMap<V, E> nodeToEdge = new HashMap<>();
-        Comparator<V> lighterWeight = (node1, node2) -> {
-            Double weight1 = partialPathWeights.get(node1);
-            Double weight2 = partialPathWeights.get(node2);
-            return Double.compare(weight1, weight2);
-        };
-        PriorityQueue<V> queue = new PriorityQueue<>(lighterWeight);
-
-        for (V node : graph.getVertices()) {
-            partialPathWeights.put(node, Double.MAX_VALUE);
+        if (graph instanceof FrozenTravelGraph) {
+            FrozenTravelGraph frozen = (FrozenTravelGraph) graph;
+            Function<Transport, Double> transportWeight =
+                    (Function<Transport, Double>) (Function<?, Double>) edgeWeight;
+            return (List<E>) this.getShortestPathFrozen(frozen, (City) source,
+                    (City) destination, frozen.getWeightColumn(transportWeight),
+                    transportWeight::apply);
+        }
+        return this.getShortestPathDouble(graph, source, destination,
+                edgeWeight::apply);
+    }
+
+    /**
+     * Returns a list of edges representing the path of the least weight
+     * (determined by edgeWeight parameter) from a start to end vertex. The
+     * weights are primitive doubles from start to finish, so a run of the
+     * search does not box anything per edge; getShortestPath is an adapter
+     * onto this method
+     *
+     * @param graph       the graph including the vertices
+     * @param source      the source vertex
+     * @param destination the destination vertex
+     * @param edgeWeight  the weight of an edge
+     * @return a list of edges representing the path of the least weight from a
+     * start to end vertex
+     */
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public List<E> getShortestPathDouble(IGraph<V, E> graph, V source,
+                                         V destination,
+                                         ToDoubleFunction<E> edgeWeight) {
+        if (graph instanceof FrozenTravelGraph) {
+            return (List<E>) this.getShortestPathFrozen(
+                    (FrozenTravelGraph) graph, (City) source,
+                    (City) destination, null,
+                    (ToDoubleFunction<Transport>) (ToDoubleFunction<?>) edgeWeight);
         }
+        this.settled.clear();
+        this.queue.clear();
+        VertexIndex<V> vertexIds = new VertexIndex<>();
+        this.queue.insert(vertexIds.idOf(source), 0.0);
 
-        partialPathWeights.put(source, 0.0);
-        queue.add(source);
+        return this.performDijkstra(graph, destination, vertexIds, edgeWeight);
+    }
 
-        return this.performDijkstra(graph, destination, visited, queue,
-                nodeToEdge, partialPathWeights, edgeWeight);
+    /**
+     * Runs Dijkstra's algorithm from a source vertex until every vertex it
+     * can reach is settled, and returns the lightest path to all of them at
+     * once
+     *
+     * @param graph      the graph including the vertices
+     * @param source     the source vertex
+     * @param edgeWeight a function that indicates how to weigh an edge for
+     *                   a particular run of the algorithm
+     * @return the tree of lightest paths from the source
+     */
+
+    public IShortestPathTree<V, E> getShortestPathTree(IGraph<V, E> graph,
+                                                       V source,
+                                                       Function<E, Double> edgeWeight) {
+        return this.getShortestPathTree(graph, source, edgeWeight,
+                Double.POSITIVE_INFINITY);
     }
 
     /**
-     * Recursive method that performs Dijkstra's algorithm. Returns the final
-     * path built back up after destination is reached, or an empty list if
-     * destination is never reached.
+     * Runs Dijkstra's algorithm from a source vertex until every vertex
+     * within a weight limit is settled, and returns the lightest path to all
+     * of them. The search stops as soon as the lightest queued path is over
+     * the limit, so only the vertices around the source are ever touched,
+     * and the tree only takes space for the vertices it holds
      *
-     * @param graph      the graph that the algorithm will be performed on
-     * @param dest       the destination vertex
-     * @param visited    a linked list containing all vertices that have been
-     *                   visited
-     * @param queue      a PriorityQueue that sorts vertices by the weight of
-     *                   the edge that points to it
-     * @param nodeToEdge a hash map containing mappings of a vertex to the
-     *                   weighted edge that points to it
-     * @param weights    a hash map containing mappings of an edge to its
-     *                   specific weight
+     * @param graph      the graph including the vertices
+     * @param source     the source vertex
      * @param edgeWeight a function that indicates how to weigh an edge for
      *                   a particular run of the algorithm
+     * @param limit      the largest path weight to include
+     * @return the tree of lightest paths from the source to every vertex
+     * whose path weight is at most limit
+     */
+
+    @SuppressWarnings("unchecked")
+    public IShortestPathTree<V, E> getShortestPathTree(IGraph<V, E> graph,
+                                                       V source,
+                                                       Function<E, Double> edgeWeight,
+                                                       double limit) {
+        if (graph instanceof FrozenTravelGraph) {
+            return (IShortestPathTree<V, E>) this.getShortestPathTreeFrozen(
+                    (FrozenTravelGraph) graph, (City) source,
+                    (Function<Transport, Double>) (Function<?, Double>) edgeWeight,
+                    limit);
+        }
+        this.settled.clear();
+        this.queue.clear();
+        VertexIndex<V> vertexIds = new VertexIndex<>();
+        double[] weights = new double[16];
+        Object[] parentEdges = new Object[16];
+        int[] order = new int[16];
+        int settledCount = 0;
+        Arrays.fill(weights, Double.POSITIVE_INFINITY);
+        this.queue.insert(vertexIds.idOf(source), 0.0);
+
+        while (!this.queue.isEmpty() && this.queue.peekKey() <= limit) {
+            double lightestWeight = this.queue.peekKey();
+            int lightest = this.queue.poll();
+            this.settled.add(lightest);
+            weights[lightest] = lightestWeight;
+            if (settledCount == order.length) {
+                order = Arrays.copyOf(order, settledCount * 2);
+            }
+            order[settledCount++] = lightest;
+
+            for (E edge : graph.getOutgoingEdges(vertexIds.vertexOf(lightest))) {
+                int neighbor = vertexIds.idOf(graph.getEdgeTarget(edge));
+                if (this.settled.contains(neighbor))
+                    continue;
+                if (neighbor >= weights.length) {
+                    int length = Math.max(neighbor + 1, weights.length * 2);
+                    int oldLength = weights.length;
+                    weights = Arrays.copyOf(weights, length);
+                    Arrays.fill(weights, oldLength, length,
+                            Double.POSITIVE_INFINITY);
+                    parentEdges = Arrays.copyOf(parentEdges, length);
+                }
+                double newWeight = lightestWeight + edgeWeight.apply(edge);
+                if (!this.queue.contains(neighbor)) {
+                    this.queue.insert(neighbor, newWeight);
+                    parentEdges[neighbor] = edge;
+                } else if (newWeight < this.queue.getKey(neighbor)) {
+                    this.queue.decreaseKey(neighbor, newWeight);
+                    parentEdges[neighbor] = edge;
+                }
+            }
+        }
+        return new ShortestPathTree<>(graph, vertexIds, weights, parentEdges,
+                Arrays.copyOf(order, settledCount));
+    }
+
+    /**
+     * Performs Dijkstra's algorithm on the vertices queued so far. Returns the
+     * final path built back up after destination is reached, or an empty list
+     * if destination is never reached. The queue keys double as the tentative
+     * path weights, so there is no per-vertex weight map to fill in before
+     * the search starts, and nothing is done for vertices the search never
+     * reaches.
+     *
+     * @param graph      the graph that the algorithm will be performed on
+     * @param dest       the destination vertex
+     * @param vertexIds  the dense ids handed out to the vertices in the queue
+     * @param edgeWeight the weight of an edge
      * @return a list of edges representing the path of the least weight from a
      * start to end vertex
      */
 
     private List<E> performDijkstra(IGraph<V, E> graph, V dest,
-                                    LinkedList<V> visited,
-                                    PriorityQueue<V> queue,
-                                    HashMap<V, E> nodeToEdge,
-                                    HashMap<V, Double> weights,
-                                    Function<E, Double> edgeWeight) {
-        while (!queue.isEmpty()) {
-            V newLightest = queue.poll();
-            if (newLightest.equals(dest))
-                return this.buildFinalPath(nodeToEdge, dest, graph);
+                                    VertexIndex<V> vertexIds,
+                                    ToDoubleFunction<E> edgeWeight) {
+        long relaxed = 0;
+        while (!this.queue.isEmpty()) {
+            double lightestWeight = this.queue.peekKey();
+            int lightestId = this.queue.poll();
+            V newLightest = vertexIds.vertexOf(lightestId);
+            if (newLightest.equals(dest)) {
+                this.recordWork(relaxed);
+                return this.buildFinalPath(graph, vertexIds, lightestId);
+            }
+            this.settled.add(lightestId);
 
             for (E edge : graph.getOutgoingEdges(newLightest)) {
+                relaxed++;
                 /* check if the end node isn't visited and see if the new
                    path is shorter than the original path */
-                V neighbor = graph.getEdgeTarget(edge);
-                if (!visited.contains(neighbor)) {
-                    double newWeight = weights.get(newLightest) +
-                            edgeWeight.apply(edge);
-                    double currentWeight = weights.get(neighbor);
-                    if (newWeight < currentWeight) {
-                        weights.put(neighbor, newWeight);
-                        queue.remove(neighbor);
-                        queue.add(neighbor);
-                        nodeToEdge.put(neighbor, edge);
-                    }
+                int neighborId = vertexIds.idOf(graph.getEdgeTarget(edge));
+                if (this.settled.contains(neighborId))
+                    continue;
+                double newWeight = lightestWeight + edgeWeight.applyAsDouble(edge);
+                /* lower the key in place if the neighbor is already queued
+                   instead of removing and re-adding it */
+                if (!this.queue.contains(neighborId)) {
+                    this.queue.insert(neighborId, newWeight);
+                    this.setParentEdge(neighborId, edge);
+                } else if (newWeight < this.queue.getKey(neighborId)) {
+                    this.queue.decreaseKey(neighborId, newWeight);
+                    this.setParentEdge(neighborId, edge);
                 }
             }
-            visited.add(newLightest);
         }
+        this.recordWork(relaxed);
         return Collections.emptyList();
     }
 
     /**
-     * Reconstructs the final path of edges using the nodeToEdge hash map.
+     * Records the work of the query that just ended
      *
-     * @param nodeToEdge a hash map containing mappings of a vertex to the
-     *                   weighted edge that points to it
-     * @param dest       the destination vertex
-     * @param graph      the graph that Dijkstra's algorithm is being performed
-     *                   on
+     * @param relaxed the number of edges it looked at
+     */
+
+    private void recordWork(long relaxed) {
+        this.work.record(this.queue.getPollCount(), relaxed,
+                this.queue.getOperationCount());
+    }
+
+    /**
+     * Records the last edge of the lightest known path to a vertex, growing
+     * the reused parent edge array if needed
+     *
+     * @param id   the dense id of the vertex
+     * @param edge the last edge of the path
+     */
+
+    private void setParentEdge(int id, E edge) {
+        if (id >= this.nodeToEdge.length) {
+            this.nodeToEdge = Arrays.copyOf(this.nodeToEdge,
+                    Math.max(id + 1, this.nodeToEdge.length * 2));
+        }
+        this.nodeToEdge[id] = edge;
+    }
+
+    /**
+     * Reconstructs the final path of edges by following the parent edge of
+     * each vertex back to the source, which always has id 0.
+     *
+     * @param graph     the graph that Dijkstra's algorithm is being performed
+     *                  on
+     * @param vertexIds the dense ids handed out during the search
+     * @param destId    the id of the destination vertex
      * @return a list of edges representing the path of the least weight from a
      * start to end vertex
      */
 
-    private List<E> buildFinalPath(HashMap<V, E> nodeToEdge, V dest,
-                                   IGraph<V, E> graph) {
+    @SuppressWarnings("unchecked")
+    private List<E> buildFinalPath(IGraph<V, E> graph, VertexIndex<V> vertexIds,
+                                   int destId) {
         LinkedList<E> path = new LinkedList<>();
-        V node = dest;
-        while (nodeToEdge.containsKey(node)) {
-            E incomingEdge = nodeToEdge.get(node);
+        int node = destId;
+        while (node != 0) {
+            E incomingEdge = (E) this.nodeToEdge[node];
             path.addFirst(incomingEdge);
-            node = graph.getEdgeSource(incomingEdge);
+            node = vertexIds.idOf(graph.getEdgeSource(incomingEdge));
+        }
+        return path;
+    }
+
+    /**
+     * Runs Dijkstra's algorithm directly over the CSR arrays of a frozen
+     * graph. The heap keys double as the tentative path weights, so no
+     * per-vertex weight map is needed, and edges are weighed straight from
+     * a weight column (such as the price or minutes column for the shared
+     * TransportWeights functions) when there is one.
+     *
+     * @param graph       the frozen graph to search
+     * @param source      the source city
+     * @param destination the destination city
+     * @param column      the weight of every edge by edge id, or null to
+     *                    call edgeWeight instead
+     * @param edgeWeight  the weight of an edge, used when column is null
+     * @return a list of Transports representing the path of the least weight
+     * from source to destination
+     */
+
+    private List<Transport> getShortestPathFrozen(FrozenTravelGraph graph,
+                                                  City source,
+                                                  City destination,
+                                                  double[] column,
+                                                  ToDoubleFunction<Transport> edgeWeight) {
+        int sourceId = graph.getVertexId(source);
+        int destId = graph.getVertexId(destination);
+        if (this.parentEdges.length < graph.getVertexCount()) {
+            this.parentEdges = new int[graph.getVertexCount()];
+        }
+        this.settled.clear();
+        this.queue.clear();
+        this.queue.insert(sourceId, 0.0);
+        long relaxed = 0;
+
+        while (!this.queue.isEmpty()) {
+            double lightestWeight = this.queue.peekKey();
+            int lightest = this.queue.poll();
+            if (lightest == destId) {
+                this.recordWork(relaxed);
+                return this.buildFinalPath(graph, sourceId, destId);
+            }
+            this.settled.add(lightest);
+
+            int start = graph.getFirstEdge(lightest);
+            int end = graph.getEdgeEnd(lightest);
+            relaxed += end - start;
+            for (int edge = start; edge < end; edge++) {
+                int neighbor = graph.getTargetId(edge);
+                if (this.settled.contains(neighbor))
+                    continue;
+                double newWeight = lightestWeight + (column != null
+                        ? column[edge] : edgeWeight.applyAsDouble(graph.getEdge(edge)));
+                if (!this.queue.contains(neighbor)) {
+                    this.queue.insert(neighbor, newWeight);
+                    this.parentEdges[neighbor] = edge;
+                } else if (newWeight < this.queue.getKey(neighbor)) {
+                    this.queue.decreaseKey(neighbor, newWeight);
+                    this.parentEdges[neighbor] = edge;
+                }
+            }
+        }
+        this.recordWork(relaxed);
+        return Collections.emptyList();
+    }
+
+    /**
+     * Runs a bounded one-to-all Dijkstra directly over the CSR arrays of a
+     * frozen graph. The queue, settled set and parent edges are the reused
+     * buffers of this object, and the arrays handed to the tree grow with
+     * the number of settled cities rather than being sized to the graph
+     *
+     * @param graph      the frozen graph to search
+     * @param source     the source city
+     * @param edgeWeight a function that indicates how to weigh an edge for
+     *                   a particular run of the algorithm
+     * @param limit      the largest path weight to include
+     * @return the tree of lightest paths from the source
+     */
+
+    private FrozenShortestPathTree getShortestPathTreeFrozen(FrozenTravelGraph graph,
+                                                             City source,
+                                                             Function<Transport, Double> edgeWeight,
+                                                             double limit) {
+        int sourceId = graph.getVertexId(source);
+        double[] column = graph.getWeightColumn(edgeWeight);
+        if (this.parentEdges.length < graph.getVertexCount()) {
+            this.parentEdges = new int[graph.getVertexCount()];
+        }
+        int[] order = new int[16];
+        double[] weights = new double[16];
+        int[] treeEdges = new int[16];
+        int settledCount = 0;
+        this.settled.clear();
+        this.queue.clear();
+        this.queue.insert(sourceId, 0.0);
+        this.parentEdges[sourceId] = -1;
+
+        while (!this.queue.isEmpty() && this.queue.peekKey() <= limit) {
+            double lightestWeight = this.queue.peekKey();
+            int lightest = this.queue.poll();
+            this.settled.add(lightest);
+            if (settledCount == order.length) {
+                order = Arrays.copyOf(order, settledCount * 2);
+                weights = Arrays.copyOf(weights, settledCount * 2);
+                treeEdges = Arrays.copyOf(treeEdges, settledCount * 2);
+            }
+            order[settledCount] = lightest;
+            weights[settledCount] = lightestWeight;
+            treeEdges[settledCount] = this.parentEdges[lightest];
+            settledCount++;
+
+            int end = graph.getEdgeEnd(lightest);
+            for (int edge = graph.getFirstEdge(lightest); edge < end; edge++) {
+                int neighbor = graph.getTargetId(edge);
+                if (this.settled.contains(neighbor))
+                    continue;
+                double newWeight = lightestWeight + (column != null
+                        ? column[edge] : edgeWeight.apply(graph.getEdge(edge)));
+                if (!this.queue.contains(neighbor)) {
+                    this.queue.insert(neighbor, newWeight);
+                    this.parentEdges[neighbor] = edge;
+                } else if (newWeight < this.queue.getKey(neighbor)) {
+                    this.queue.decreaseKey(neighbor, newWeight);
+                    this.parentEdges[neighbor] = edge;
+                }
+            }
+        }
+        return new FrozenShortestPathTree(graph, sourceId,
+                Arrays.copyOf(order, settledCount),
+                Arrays.copyOf(weights, settledCount),
+                Arrays.copyOf(treeEdges, settledCount));
+    }
+
+    /**
+     * Reconstructs the final path of Transports on a frozen graph by
+     * following the parent edge of each vertex back to the source.
+     *
+     * @param graph    the frozen graph that was searched
+     * @param sourceId the id of the source city
+     * @param destId   the id of the destination city
+     * @return a list of Transports from source to destination
+     */
+
+    private List<Transport> buildFinalPath(FrozenTravelGraph graph,
+                                           int sourceId, int destId) {
+        LinkedList<Transport> path = new LinkedList<>();
+        int node = destId;
+        while (node != sourceId) {
+            int incomingEdge = this.parentEdges[node];
+            path.addFirst(graph.getEdge(incomingEdge));
+            node = graph.getSourceId(incomingEdge);
         }
         return path;
     }
@@ -0,0 +1,353 @@
+package sol;
+
+import src.City;
+import src.IBFS;
+import src.ICountedSearch;
+import src.IGraph;
+import src.SearchWork;
+import src.Transport;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The DirectionOptimizingBFS class finds most direct routes on a
+ * FrozenTravelGraph with the direction-optimizing BFS of Beamer, Asanovic
+ * and Patterson. A level is normally expanded top-down, from each frontier
+ * city along its outgoing Transports. Once a big hub has been expanded, the
+ * frontier holds much of the graph and most of its Transports lead to
+ * cities already visited, so when the frontier has more than 1/ALPHA as
+ * many cities as are still unvisited, levels are expanded bottom-up
+ * instead: every unvisited city scans its incoming Transports and stops at
+ * the first one from the frontier. The paper compares Transport counts;
+ * comparing city counts gives the same switch points on these networks
+ * without reading the degree of every city discovered. The frontier and
+ * the visited cities are then bitmaps over the vertex ids, so finding
+ * unvisited cities skips 64 visited ones at a time. The search goes back to
+ * top-down once the frontier shrinks below 1/BETA of the cities.
+ * <p>
+ * Every city is still reached at its lowest level, so routes have as few
+ * connections as those of BFS, though ties may be broken differently. The
+ * same search, run without a destination, gives the hop count to every
+ * city for reachability sweeps. On graphs that are not frozen, getPath
+ * falls back to a plain BFS. Buffers are kept between calls, so an object
+ * should not be shared between threads.
+ */
+
+public class DirectionOptimizingBFS implements IBFS<City, Transport>,
+        ICountedSearch {
+
+    static final int ALPHA = 14;
+    static final int BETA = 24;
+
+    private final BFS<City, Transport> fallback;
+    private final VisitedSet visited;
+    private final SearchWork work;
+    private SearchWork lastWork;
+    private int[] order;
+    private int[] parentEdges;
+    private int[] levelEnds;
+    private long[] visitedBits;
+    private long[] frontierBits;
+    private int discovered;
+    private int levels;
+    private int bottomUpLevels;
+
+    /**
+     * Constructor for the DirectionOptimizingBFS class. The buffers are
+     * sized for the first graph searched and grow with larger graphs
+     */
+
+    public DirectionOptimizingBFS() {
+        this.fallback = new BFS<>();
+        this.visited = new VisitedSet();
+        this.work = new SearchWork();
+        this.lastWork = this.work;
+        this.order = new int[0];
+        this.parentEdges = new int[0];
+        this.levelEnds = new int[16];
+        this.visitedBits = new long[0];
+        this.frontierBits = new long[0];
+    }
+
+    /**
+     * Returns the work of the last search run by this object. Cities of a
+     * bottom-up level count as settled, and every incoming Transport they
+     * scanned as relaxed
+     *
+     * @return the settled and relaxed counts of that search
+     */
+
+    @Override
+    public SearchWork getLastWork() {
+        return this.lastWork;
+    }
+
+    /**
+     * Returns the number of levels of the last search that were expanded
+     * bottom-up
+     *
+     * @return the bottom-up level count
+     */
+
+    public int getBottomUpLevels() {
+        return this.bottomUpLevels;
+    }
+
+    /**
+     * Returns a list of Transports that represent the most direct path
+     * (least number of connections) from start to end
+     *
+     * @param graph the graph including the vertices and the edges
+     * @param start the start city
+     * @param end   the end city
+     * @return an unmodifiable list of Transports representing the most
+     * direct path from the start to end cities
+     */
+
+    @Override
+    public List<Transport> getPath(IGraph<City, Transport> graph, City start,
+                                   City end) {
+        if (!(graph instanceof FrozenTravelGraph)) {
+            this.lastWork = this.fallback.getLastWork();
+            return this.fallback.getPath(graph, start, end);
+        }
+        FrozenTravelGraph frozen = (FrozenTravelGraph) graph;
+        int startId = frozen.getVertexId(start);
+        int endId = frozen.getVertexId(end);
+        this.lastWork = this.work;
+        if (startId == endId) {
+            this.work.record(0, 0, 0);
+            this.bottomUpLevels = 0;
+            return Collections.emptyList();
+        }
+        if (!this.search(frozen, startId, endId, Integer.MAX_VALUE)) {
+            return Collections.emptyList();
+        }
+        return this.buildFinalPath(frozen, startId, endId);
+    }
+
+    /**
+     * Returns the most direct routes from a city to every city it can reach
+     * within a number of connections. The weight of each city in the tree
+     * is its number of connections, and the cities are listed level by
+     * level
+     *
+     * @param graph       the frozen graph to search
+     * @param source      the source city
+     * @param connections the largest number of connections to include
+     * @return the tree of most direct routes from the source
+     */
+
+    public FrozenShortestPathTree getHopTree(FrozenTravelGraph graph,
+                                             City source, int connections) {
+        int sourceId = graph.getVertexId(source);
+        this.lastWork = this.work;
+        this.search(graph, sourceId, -1, connections);
+
+        int[] treeOrder = Arrays.copyOf(this.order, this.discovered);
+        double[] hops = new double[this.discovered];
+        int[] treeEdges = new int[this.discovered];
+        int level = 0;
+        for (int position = 0; position < this.discovered; position++) {
+            while (level < this.levels && position >= this.levelEnds[level]) {
+                level++;
+            }
+            hops[position] = level;
+            treeEdges[position] = this.parentEdges[treeOrder[position]];
+        }
+        return new FrozenShortestPathTree(graph, sourceId, treeOrder, hops,
+                treeEdges);
+    }
+
+    /**
+     * Runs the BFS from a city, level by level, until the destination is
+     * discovered, the frontier is empty or a number of levels have been
+     * expanded. Afterwards order holds the discovered cities in level order
+     * and levelEnds[l] is the position in order where level l + 1 starts
+     *
+     * @param graph    the frozen graph to search
+     * @param sourceId the id of the source city
+     * @param targetId the id of the destination city, or -1 to visit every
+     *                 city within maxHops
+     * @param maxHops  the number of levels to expand at most
+     * @return true if the destination was discovered, false otherwise
+     */
+
+    private boolean search(FrozenTravelGraph graph, int sourceId,
+                           int targetId, int maxHops) {
+        int vertexCount = graph.getVertexCount();
+        this.ensureCapacity(vertexCount);
+        this.visited.clear();
+        this.visited.add(sourceId);
+        this.order[0] = sourceId;
+        this.parentEdges[sourceId] = -1;
+        int head = 0;
+        int tail = 1;
+        this.levels = 0;
+        this.bottomUpLevels = 0;
+        long settled = 0;
+        long relaxed = 0;
+        boolean bottomUp = false;
+        int previousSize = 0;
+
+        while (head < tail && this.levels < maxHops) {
+            int frontierSize = tail - head;
+            if (!bottomUp && frontierSize > (vertexCount - tail) / ALPHA) {
+                bottomUp = true;
+                this.markVisited(tail);
+            } else if (bottomUp && frontierSize < vertexCount / BETA
+                    && frontierSize < previousSize) {
+                bottomUp = false;
+            }
+            previousSize = frontierSize;
+            int levelEnd = tail;
+
+            if (bottomUp) {
+                this.bottomUpLevels++;
+                Arrays.fill(this.frontierBits, 0);
+                for (int i = head; i < levelEnd; i++) {
+                    int id = this.order[i];
+                    this.frontierBits[id >>> 6] |= 1L << id;
+                }
+                settled += levelEnd - head;
+                head = levelEnd;
+                for (int word = 0; word < this.visitedBits.length; word++) {
+                    long unvisited = ~this.visitedBits[word];
+                    if (word == this.visitedBits.length - 1
+                            && (vertexCount & 63) != 0) {
+                        unvisited &= (1L << vertexCount) - 1;
+                    }
+                    while (unvisited != 0) {
+                        int id = (word << 6) + Long.numberOfTrailingZeros(unvisited);
+                        unvisited &= unvisited - 1;
+                        int last = graph.getIncomingEnd(id);
+                        for (int p = graph.getFirstIncoming(id); p < last; p++) {
+                            relaxed++;
+                            int from = graph.getIncomingSource(p);
+                            if ((this.frontierBits[from >>> 6] & (1L << from)) == 0)
+                                continue;
+                            this.visitedBits[word] |= 1L << id;
+                            this.visited.add(id);
+                            this.parentEdges[id] = graph.getIncomingEdge(p);
+                            this.order[tail++] = id;
+                            if (id == targetId) {
+                                this.finish(tail, settled, relaxed);
+                                return true;
+                            }
+                            break;
+                        }
+                    }
+                }
+            } else {
+                while (head < levelEnd) {
+                    int current = this.order[head++];
+                    settled++;
+                    int first = graph.getFirstEdge(current);
+                    int last = graph.getEdgeEnd(current);
+                    relaxed += last - first;
+                    for (int edge = first; edge < last; edge++) {
+                        int next = graph.getTargetId(edge);
+                        if (!this.visited.add(next))
+                            continue;
+                        this.parentEdges[next] = edge;
+                        this.order[tail++] = next;
+                        if (next == targetId) {
+                            this.finish(tail, settled, relaxed);
+                            return true;
+                        }
+                    }
+                }
+            }
+            this.endLevel(levelEnd);
+        }
+        this.finish(tail, settled, relaxed);
+        return false;
+    }
+
+    /**
+     * Rebuilds the visited bitmap from the cities discovered so far, before
+     * the first of a run of bottom-up levels
+     *
+     * @param tail the number of cities discovered
+     */
+
+    private void markVisited(int tail) {
+        Arrays.fill(this.visitedBits, 0);
+        for (int i = 0; i < tail; i++) {
+            int id = this.order[i];
+            this.visitedBits[id >>> 6] |= 1L << id;
+        }
+    }
+
+    /**
+     * Records where the next level starts in order
+     *
+     * @param levelEnd the position of the first city of the next level
+     */
+
+    private void endLevel(int levelEnd) {
+        if (this.levels == this.levelEnds.length) {
+            this.levelEnds = Arrays.copyOf(this.levelEnds, this.levels * 2);
+        }
+        this.levelEnds[this.levels++] = levelEnd;
+    }
+
+    /**
+     * Records the end of a search
+     *
+     * @param tail    the number of cities discovered
+     * @param settled the number of cities expanded
+     * @param relaxed the number of Transports looked at
+     */
+
+    private void finish(int tail, long settled, long relaxed) {
+        this.discovered = tail;
+        this.work.record(settled, relaxed, 0);
+    }
+
+    /**
+     * Grows the buffers to fit a graph
+     *
+     * @param vertexCount the number of cities in the graph
+     */
+
+    private void ensureCapacity(int vertexCount) {
+        if (this.order.length < vertexCount) {
+            this.order = new int[vertexCount];
+            this.parentEdges = new int[vertexCount];
+        }
+        int words = (vertexCount + 63) >>> 6;
+        if (this.visitedBits.length != words) {
+            this.visitedBits = new long[words];
+            this.frontierBits = new long[words];
+        }
+    }
+
+    /**
+     * Builds the final path by following the parent edge of each city back
+     * to the start, into an array of exactly the path's length
+     *
+     * @param graph   the frozen graph that was searched
+     * @param startId the id of the start city
+     * @param endId   the id of the end city
+     * @return an unmodifiable list of Transports from start to end
+     */
+
+    private List<Transport> buildFinalPath(FrozenTravelGraph graph,
+                                           int startId, int endId) {
+        int length = 0;
+        for (int node = endId; node != startId; length++) {
+            node = graph.getSourceId(this.parentEdges[node]);
+        }
+        Transport[] path = new Transport[length];
+        int node = endId;
+        while (node != startId) {
+            int incomingEdge = this.parentEdges[node];
+            path[--length] = graph.getEdge(incomingEdge);
+            node = graph.getSourceId(incomingEdge);
+        }
+        return Collections.unmodifiableList(Arrays.asList(path));
+    }
+}
@@ -0,0 +1,158 @@
+package sol;
+
+import src.City;
+import src.IShortestPathTree;
+import src.Transport;
+
+import java.util.*;
+
+/**
+ * The FrozenShortestPathTree class holds the result of a one-to-all run of
+ * Dijkstra's algorithm on a FrozenTravelGraph. Only the cities that were
+ * settled take up space: each one has a position in settle order, and the
+ * vertex id, path weight and last edge of every position are kept in
+ * arrays as long as the number of settled cities. A copy of the vertex ids
+ * sorted alongside their positions maps a city back to its position by
+ * binary search. Transport lists are only built when getPath is called.
+ */
+
+public class FrozenShortestPathTree implements IShortestPathTree<City, Transport> {
+
+    private final FrozenTravelGraph graph;
+    private final int sourceId;
+    private final int[] order;
+    private final double[] weights;
+    private final int[] parentEdges;
+    private final int[] sortedIds;
+    private final int[] sortedPositions;
+
+    /**
+     * Constructor for the FrozenShortestPathTree class
+     *
+     * @param graph       the frozen graph that was searched
+     * @param sourceId    the id of the source city, which is kept even if
+     *                    the search settled nothing
+     * @param order       the ids of the settled cities in the order they
+     *                    were settled, starting with the source
+     * @param weights     the path weight of the city at every position
+     * @param parentEdges the last edge of the path to the city at every
+     *                    position
+     */
+
+    FrozenShortestPathTree(FrozenTravelGraph graph, int sourceId, int[] order,
+                           double[] weights, int[] parentEdges) {
+        this.graph = graph;
+        this.sourceId = sourceId;
+        this.order = order;
+        this.weights = weights;
+        this.parentEdges = parentEdges;
+
+        // sort (id, position) pairs packed into longs by id
+        long[] pairs = new long[order.length];
+        for (int position = 0; position < order.length; position++) {
+            pairs[position] = ((long) order[position] << 32) | position;
+        }
+        Arrays.sort(pairs);
+        this.sortedIds = new int[order.length];
+        this.sortedPositions = new int[order.length];
+        for (int i = 0; i < pairs.length; i++) {
+            this.sortedIds[i] = (int) (pairs[i] >>> 32);
+            this.sortedPositions[i] = (int) pairs[i];
+        }
+    }
+
+    /**
+     * Returns the city the tree is rooted at
+     *
+     * @return the source city
+     */
+
+    @Override
+    public City getSource() {
+        return this.graph.getCity(this.sourceId);
+    }
+
+    /**
+     * Returns the cities the source can reach, in order of increasing path
+     * weight, starting with the source itself
+     *
+     * @return a read-only view of the reachable cities
+     */
+
+    @Override
+    public List<City> getReachableVertices() {
+        return new AbstractList<City>() {
+            @Override
+            public City get(int index) {
+                return FrozenShortestPathTree.this.graph.getCity(
+                        FrozenShortestPathTree.this.order[index]);
+            }
+
+            @Override
+            public int size() {
+                return FrozenShortestPathTree.this.order.length;
+            }
+        };
+    }
+
+    /**
+     * Returns whether there is a path from the source to a city
+     *
+     * @param vertex a city in the graph
+     * @return true if the city can be reached, false otherwise
+     */
+
+    @Override
+    public boolean isReachable(City vertex) {
+        return this.positionOf(this.graph.getVertexId(vertex)) != -1;
+    }
+
+    /**
+     * Returns the weight of the lightest path from the source to a city
+     *
+     * @param vertex a city in the graph
+     * @return the weight of the path, or infinity if there is none
+     */
+
+    @Override
+    public double getWeight(City vertex) {
+        int position = this.positionOf(this.graph.getVertexId(vertex));
+        return position == -1 ? Double.POSITIVE_INFINITY
+                : this.weights[position];
+    }
+
+    /**
+     * Rebuilds the lightest path from the source to a city
+     *
+     * @param vertex a city in the graph
+     * @return a list of edges from the source to the city, or an empty list
+     * if there is none
+     */
+
+    @Override
+    public List<Transport> getPath(City vertex) {
+        LinkedList<Transport> path = new LinkedList<>();
+        int position = this.positionOf(this.graph.getVertexId(vertex));
+        if (position == -1) {
+            return path;
+        }
+        while (position != 0) {
+            int incomingEdge = this.parentEdges[position];
+            path.addFirst(this.graph.getEdge(incomingEdge));
+            position = this.positionOf(this.graph.getSourceId(incomingEdge));
+        }
+        return path;
+    }
+
+    /**
+     * Returns the settle position of a city
+     *
+     * @param id the vertex id of the city
+     * @return its position, or -1 if the city was not settled
+     */
+
+    private int positionOf(int id) {
+        int i = Arrays.binarySearch(this.sortedIds, id);
+        return i < 0 ? -1 : this.sortedPositions[i];
+    }
+}
@@ -0,0 +1,1419 @@
+package sol;
+
+import src.City;
+import src.IGraph;
+import src.NameTable;
+import src.Transport;
+import src.TransportType;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * The FrozenTravelGraph class is an immutable snapshot of a TravelGraph laid
+ * out in compressed sparse row (CSR) form. Every city gets a dense id, and
+ * the outgoing edges of city v are the edge ids in the range
+ * [offsets[v], ends[v]). Each edge is described by parallel primitive
+ * columns (target id, price, minutes and transport type), so searches that
+ * know about this class can walk the graph without touching Transport or
+ * City objects. A second, reverse CSR (inOffsets, inEnds, inEdges and
+ * inSources) lists the ids and sources of the edges arriving at each city
+ * for backward searches. The graph is still usable through IGraph, which
+ * hands out the original Transport objects.
+ * <p>
+ * A graph built from cities has its ranges back to back in city order, so
+ * ends[v] is offsets[v + 1]. A graph patched from another shares that
+ * graph's edge arrays and only has ranges of its own for the cities whose
+ * edges changed (see patch), so its edge ids have gaps and its ranges are
+ * not in city order.
+ * <p>
+ * A City is mapped to its vertex id through an array indexed by the City's
+ * own id, and a name through a NameTable, so neither lookup hashes a City.
+ * <p>
+ * A graph read back by GraphFile starts out with no City or Transport
+ * objects at all. Each one is created from the columns the first time it is
+ * asked for, and kept, so the same id always hands out the same object.
+ * Such cities do not hold their Transports until the graph is thawed.
+ */
+
+public class FrozenTravelGraph implements IGraph<City, Transport> {
+
+    private static final TransportType[] TYPES = TransportType.values();
+    private static final int MIN_DEAD_SLOTS = 1024;
+
+    private final AtomicReferenceArray<City> cities;
+    private final int[] vertexIds;
+    private final NameTable names;
+    private final int[] vertexNames;
+    private final int[] nameVertices;
+    private volatile Set<City> vertexView;
+    private volatile boolean linked;
+
+    private final EdgeStore store;
+    private final int edgeCount;
+    private final int edgeIdBound;
+    private final int[] offsets;
+    private final int[] ends;
+    private final int[] targets;
+    private final double[] prices;
+    private final double[] minutes;
+    private final byte[] types;
+    private final AtomicReferenceArray<Transport> transports;
+    private final int[] baseOffsets;
+    private final int baseEdgeCount;
+    private final int[] appendedSources;
+    private final int[] inOffsets;
+    private final int[] inEnds;
+    private final int[] inEdges;
+    private final int[] inSources;
+
+    /**
+     * Constructor for the FrozenTravelGraph class. Compiles the given cities
+     * and their outgoing Transports into CSR arrays. Cities are numbered in
+     * the iteration order of the collection
+     *
+     * @param vertices all the cities of the graph being frozen
+     * @throws IllegalArgumentException if a Transport leads to a city that is
+     *                                  not in the collection
+     */
+
+    public FrozenTravelGraph(Collection<City> vertices) {
+        int vertexCount = vertices.size();
+        City[] cities = vertices.toArray(new City[0]);
+        this.cities = new AtomicReferenceArray<>(cities);
+        this.vertexIds = indexCities(cities);
+        this.names = new NameTable(vertexCount);
+        this.vertexNames = indexNames(cities, this.names);
+        this.nameVertices = invertNames(this.vertexNames, this.names.size());
+        this.linked = true;
+        int edgeCount = 0;
+        for (City city : cities) {
+            edgeCount += city.getOutgoing().size();
+        }
+
+        int[] offsets = new int[vertexCount + 1];
+        int[] targets = new int[edgeCount];
+        double[] prices = new double[edgeCount];
+        double[] minutes = new double[edgeCount];
+        byte[] types = new byte[edgeCount];
+        AtomicReferenceArray<Transport> transports
+                = new AtomicReferenceArray<>(edgeCount);
+
+        int edge = 0;
+        for (int v = 0; v < vertexCount; v++) {
+            offsets[v] = edge;
+            for (Transport transport : cities[v].getOutgoing()) {
+                int target = this.findVertex(transport.getTarget());
+                if (target == -1) {
+                    throw new IllegalArgumentException("Transport leads to a "
+                            + "city that is not in the graph: " + transport);
+                }
+                targets[edge] = target;
+                prices[edge] = transport.getPrice();
+                minutes[edge] = transport.getMinutes();
+                types[edge] = (byte) transport.getType().ordinal();
+                transports.set(edge, transport);
+                edge++;
+            }
+        }
+        offsets[vertexCount] = edge;
+
+        int[][] reverse = buildReverse(vertexCount, offsets, targets);
+        this.store = new EdgeStore(offsets, targets, prices, minutes, types,
+                transports, reverse[1], reverse[2]);
+        this.edgeCount = edgeCount;
+        this.edgeIdBound = edgeCount;
+        this.offsets = offsets;
+        this.ends = rangeEnds(offsets);
+        this.targets = targets;
+        this.prices = prices;
+        this.minutes = minutes;
+        this.types = types;
+        this.transports = transports;
+        this.baseOffsets = offsets;
+        this.baseEdgeCount = edgeCount;
+        this.appendedSources = this.store.sources;
+        this.inOffsets = reverse[0];
+        this.inEnds = rangeEnds(reverse[0]);
+        this.inEdges = reverse[1];
+        this.inSources = reverse[2];
+    }
+
+    /**
+     * Constructor for the FrozenTravelGraph class that takes CSR arrays that
+     * are already built, as read back by GraphFile. Nothing is checked or
+     * copied: the arrays must describe a valid graph and not be modified
+     * afterwards. No City or Transport is created here; city v is named by
+     * the name with id vertexNames[v] and gets the id v when it is created
+     *
+     * @param names       a table holding the name of every city
+     * @param vertexNames the name id of every vertex id
+     * @param offsets     the first edge id of every city, plus the edge count
+     * @param targets     the target vertex id of every edge
+     * @param prices      the price of every edge
+     * @param minutes     the duration of every edge
+     * @param types       the TransportType ordinal of every edge
+     * @param inOffsets   the first reverse CSR position of every city, plus
+     *                    the edge count
+     * @param inEdges     the edge id at every reverse CSR position
+     * @param inSources   the source vertex id at every reverse CSR position
+     */
+
+    FrozenTravelGraph(NameTable names, int[] vertexNames, int[] offsets,
+                      int[] targets, double[] prices, double[] minutes,
+                      byte[] types, int[] inOffsets, int[] inEdges,
+                      int[] inSources) {
+        this(new AtomicReferenceArray<>(vertexNames.length),
+                identityIds(vertexNames.length), names, vertexNames, null,
+                false, new EdgeStore(offsets, targets, prices, minutes, types,
+                        new AtomicReferenceArray<>(targets.length), inEdges,
+                        inSources), targets.length, offsets,
+                rangeEnds(offsets), inOffsets, rangeEnds(inOffsets));
+    }
+
+    /**
+     * Constructor for the FrozenTravelGraph class that adopts the given
+     * fields and takes the edge columns from the store as they are now, so
+     * the caller must hold the store's lock or be its only user. The vertex
+     * of every name is worked out from the name of every vertex when it is
+     * null
+     */
+
+    private FrozenTravelGraph(AtomicReferenceArray<City> cities,
+                              int[] vertexIds, NameTable names,
+                              int[] vertexNames, int[] nameVertices,
+                              boolean linked, EdgeStore store, int edgeCount,
+                              int[] offsets, int[] ends, int[] inOffsets,
+                              int[] inEnds) {
+        this.cities = cities;
+        this.vertexIds = vertexIds;
+        this.names = names;
+        this.vertexNames = vertexNames;
+        this.nameVertices = nameVertices != null ? nameVertices
+                : invertNames(vertexNames, names.size());
+        this.linked = linked;
+        this.store = store;
+        this.edgeCount = edgeCount;
+        this.edgeIdBound = store.size;
+        this.offsets = offsets;
+        this.ends = ends;
+        this.targets = store.targets;
+        this.prices = store.prices;
+        this.minutes = store.minutes;
+        this.types = store.types;
+        this.transports = store.transports;
+        this.baseOffsets = store.baseOffsets;
+        this.baseEdgeCount = store.baseCount;
+        this.appendedSources = store.sources;
+        this.inOffsets = inOffsets;
+        this.inEnds = inEnds;
+        this.inEdges = store.inEdges;
+        this.inSources = store.inSources;
+    }
+
+    /**
+     * Returns a new graph with some Transports and cities removed and
+     * others added, without going back to a TravelGraph. This graph is not
+     * changed.
+     * <p>
+     * When no city is added or removed, the change is laid over the arrays
+     * of this graph rather than copied into new ones: every city keeps its
+     * id, the cities that lose or gain a Transport get a new range at the end
+     * of the shared edge arrays, and the cities those ranges lead to get a
+     * new range of the reverse CSR the same way. Only the range bounds are
+     * copied, so the work is proportional to the number of cities plus the
+     * degrees of the cities changed. The old ranges are left for the graphs
+     * that still use them; once they take up more room than the live edges,
+     * the edges are compacted into fresh arrays first.
+     * <p>
+     * Otherwise the arrays are rebuilt by copying each city's range, leaving
+     * out the removed edges and appending the added ones. Cities keep their
+     * relative order and new cities get the ids after the old ones. In both
+     * cases no Transport or City is hashed except the changed ones
+     *
+     * @param removedEdges  Transports of this graph to leave out, including
+     *                      every Transport of a removed city
+     * @param addedEdges    Transports to add
+     * @param removedCities cities of this graph to leave out
+     * @param addedCities   cities to add
+     * @return the changed graph
+     * @throws IllegalArgumentException if a removed Transport is not in this
+     *                                  graph, or an added one leaves from or
+     *                                  leads to a city that is not in the
+     *                                  changed graph
+     */
+
+    FrozenTravelGraph patch(Set<Transport> removedEdges,
+                            Collection<Transport> addedEdges,
+                            Set<City> removedCities,
+                            Collection<City> addedCities) {
+        if (!removedCities.isEmpty() || !addedCities.isEmpty()) {
+            return this.rebuild(removedEdges, addedEdges, removedCities,
+                    addedCities);
+        }
+        FrozenTravelGraph base = this.hasManyDeadSlots() ? this.compact() : this;
+        return base.overlay(removedEdges, addedEdges);
+    }
+
+    /**
+     * Returns a graph with the same cities and edges whose edges take up
+     * fresh, dense arrays in city order, or this graph if its edges already
+     * do. Edge ids and reverse CSR positions are renumbered
+     *
+     * @return a compact graph equal to this one
+     */
+
+    FrozenTravelGraph compact() {
+        if (this.offsets == this.baseOffsets) {
+            return this;
+        }
+        return this.rebuild(Collections.emptySet(), Collections.emptyList(),
+                Collections.emptySet(), Collections.emptyList());
+    }
+
+    /**
+     * Returns whether the shared edge arrays hold more edges or reverse
+     * positions that no longer belong to a city than live ones
+     *
+     * @return true if the edges should be compacted before the next patch
+     */
+
+    private boolean hasManyDeadSlots() {
+        int spare = Math.max(this.edgeCount, MIN_DEAD_SLOTS);
+        synchronized (this.store) {
+            return this.store.size - this.edgeCount > spare
+                    || this.store.inSize - this.edgeCount > spare;
+        }
+    }
+
+    /**
+     * Lays Transports removed from and added to cities of this graph over
+     * its arrays, as described by patch
+     *
+     * @param removedEdges Transports of this graph to leave out
+     * @param addedEdges   Transports between cities of this graph to add
+     * @return the changed graph
+     */
+
+    private FrozenTravelGraph overlay(Set<Transport> removedEdges,
+                                      Collection<Transport> addedEdges) {
+        int[] removedIds = new int[removedEdges.size()];
+        int count = 0;
+        for (Transport transport : removedEdges) {
+            removedIds[count++] = this.findEdge(transport);
+        }
+        Arrays.sort(removedIds);
+
+        // the added edges, sorted by their source id
+        Transport[] added = addedEdges.toArray(new Transport[0]);
+        int[] addedTargets = new int[added.length];
+        long[] addedBySource = new long[added.length];
+        for (int i = 0; i < added.length; i++) {
+            int source = this.findVertex(added[i].getSource());
+            addedTargets[i] = this.findVertex(added[i].getTarget());
+            if (source == -1 || addedTargets[i] == -1) {
+                throw new IllegalArgumentException("Transport is not between "
+                        + "cities of the graph: " + added[i]);
+            }
+            addedBySource[i] = ((long) source << 32) | i;
+        }
+        Arrays.sort(addedBySource);
+
+        // the cities whose outgoing range changes
+        int[] changed = new int[removedIds.length + added.length];
+        for (int i = 0; i < removedIds.length; i++) {
+            changed[i] = this.getSourceId(removedIds[i]);
+        }
+        for (int i = 0; i < added.length; i++) {
+            changed[removedIds.length + i] = (int) (addedBySource[i] >>> 32);
+        }
+        changed = sortedDistinct(changed, changed.length);
+        int newEdges = added.length - removedIds.length;
+        for (int v : changed) {
+            newEdges += this.ends[v] - this.offsets[v];
+        }
+
+        synchronized (this.store) {
+            EdgeStore store = this.store;
+            int edge = store.reserveEdges(newEdges);
+            int[] newOffsets = this.offsets.clone();
+            int[] newEnds = this.ends.clone();
+            // target and edge id of every new edge, to sort by target
+            long[] byTarget = new long[newEdges];
+            int entries = 0;
+            int nextAdded = 0;
+            for (int v : changed) {
+                newOffsets[v] = edge;
+                for (int e = this.offsets[v]; e < this.ends[v]; e++) {
+                    if (Arrays.binarySearch(removedIds, e) >= 0) {
+                        continue;
+                    }
+                    store.putEdge(edge, v, this.targets[e], this.prices[e],
+                            this.minutes[e], this.types[e],
+                            this.transports.get(e));
+                    byTarget[entries++] = ((long) this.targets[e] << 32) | edge;
+                    edge++;
+                }
+                while (nextAdded < added.length
+                        && (int) (addedBySource[nextAdded] >>> 32) == v) {
+                    int i = (int) addedBySource[nextAdded++];
+                    Transport transport = added[i];
+                    store.putEdge(edge, v, addedTargets[i],
+                            transport.getPrice(), transport.getMinutes(),
+                            (byte) transport.getType().ordinal(), transport);
+                    byTarget[entries++] = ((long) addedTargets[i] << 32) | edge;
+                    edge++;
+                }
+                newEnds[v] = edge;
+            }
+            Arrays.sort(byTarget);
+
+            /* the cities whose incoming range changes: the targets of the new
+               edges and of the removed ones. Each keeps its incoming edges
+               from unchanged cities and takes the new edges */
+            int[] arrivals = new int[entries + removedIds.length];
+            for (int i = 0; i < entries; i++) {
+                arrivals[i] = (int) (byTarget[i] >>> 32);
+            }
+            for (int i = 0; i < removedIds.length; i++) {
+                arrivals[entries + i] = this.targets[removedIds[i]];
+            }
+            arrivals = sortedDistinct(arrivals, arrivals.length);
+            int positions = entries;
+            for (int x : arrivals) {
+                for (int p = this.inOffsets[x]; p < this.inEnds[x]; p++) {
+                    if (Arrays.binarySearch(changed, this.inSources[p]) < 0) {
+                        positions++;
+                    }
+                }
+            }
+            int position = store.reservePositions(positions);
+            int[] newInOffsets = this.inOffsets.clone();
+            int[] newInEnds = this.inEnds.clone();
+            int next = 0;
+            for (int x : arrivals) {
+                newInOffsets[x] = position;
+                for (int p = this.inOffsets[x]; p < this.inEnds[x]; p++) {
+                    if (Arrays.binarySearch(changed, this.inSources[p]) < 0) {
+                        store.putIncoming(position++, this.inEdges[p],
+                                this.inSources[p]);
+                    }
+                }
+                while (next < entries && (int) (byTarget[next] >>> 32) == x) {
+                    int e = (int) byTarget[next++];
+                    store.putIncoming(position++, e, store.sourceOf(e));
+                }
+                newInEnds[x] = position;
+            }
+
+            return new FrozenTravelGraph(this.cities, this.vertexIds,
+                    this.names, this.vertexNames, this.nameVertices,
+                    this.linked, store,
+                    this.edgeCount - removedIds.length + added.length,
+                    newOffsets, newEnds, newInOffsets, newInEnds);
+        }
+    }
+
+    /**
+     * Builds a changed graph in fresh, dense arrays, as described by patch
+     *
+     * @param removedEdges  Transports of this graph to leave out
+     * @param addedEdges    Transports to add
+     * @param removedCities cities of this graph to leave out
+     * @param addedCities   cities to add
+     * @return the changed graph
+     */
+
+    private FrozenTravelGraph rebuild(Set<Transport> removedEdges,
+                                      Collection<Transport> addedEdges,
+                                      Set<City> removedCities,
+                                      Collection<City> addedCities) {
+        // new ids: the kept cities in order, then the added ones
+        int oldCount = this.getVertexCount();
+        boolean sameCities = removedCities.isEmpty() && addedCities.isEmpty();
+        int[] newIds = new int[oldCount];
+        City[] newCities = new City[oldCount - removedCities.size()
+                + addedCities.size()];
+        int vertexCount = 0;
+        for (int v = 0; v < oldCount; v++) {
+            City city = this.cities.get(v);
+            if (city != null && removedCities.contains(city)) {
+                newIds[v] = -1;
+            } else {
+                newIds[v] = vertexCount;
+                if (!sameCities) {
+                    newCities[vertexCount] = this.getCity(v);
+                }
+                vertexCount++;
+            }
+        }
+        HashMap<City, Integer> addedIds = new HashMap<>();
+        for (City city : addedCities) {
+            addedIds.put(city, vertexCount);
+            newCities[vertexCount++] = city;
+        }
+
+        // the edge ids to leave out, found in their source's range, sorted
+        int[] removedIds = new int[removedEdges.size()];
+        int count = 0;
+        for (Transport transport : removedEdges) {
+            removedIds[count++] = this.findEdge(transport);
+        }
+        Arrays.sort(removedIds);
+
+        // the added edges, sorted by their new source id
+        long[] addedBySource = new long[addedEdges.size()];
+        Transport[] added = addedEdges.toArray(new Transport[0]);
+        for (int i = 0; i < added.length; i++) {
+            addedBySource[i] = ((long) this.patchedId(added[i].getSource(),
+                    newIds, addedIds) << 32) | i;
+        }
+        Arrays.sort(addedBySource);
+
+        int edgeCount = this.edgeCount - removedIds.length + added.length;
+        int[] newOffsets = new int[vertexCount + 1];
+        int[] newTargets = new int[edgeCount];
+        double[] newPrices = new double[edgeCount];
+        double[] newMinutes = new double[edgeCount];
+        byte[] newTypes = new byte[edgeCount];
+        AtomicReferenceArray<Transport> newTransports
+                = new AtomicReferenceArray<>(edgeCount);
+        int edge = 0;
+        int nextAdded = 0;
+        int oldV = 0;
+        for (int v = 0; v < vertexCount; v++) {
+            newOffsets[v] = edge;
+            while (oldV < oldCount && newIds[oldV] == -1) {
+                oldV++;
+            }
+            if (oldV < oldCount && newIds[oldV] == v) {
+                for (int e = this.offsets[oldV]; e < this.ends[oldV]; e++) {
+                    if (Arrays.binarySearch(removedIds, e) >= 0) {
+                        continue;
+                    }
+                    newTargets[edge] = newIds[this.targets[e]];
+                    newPrices[edge] = this.prices[e];
+                    newMinutes[edge] = this.minutes[e];
+                    newTypes[edge] = this.types[e];
+                    // left unset when never created, unless the cities change
+                    newTransports.set(edge, sameCities
+                            ? this.transports.get(e) : this.edgeAt(e, oldV));
+                    edge++;
+                }
+                oldV++;
+            }
+            while (nextAdded < added.length
+                    && (int) (addedBySource[nextAdded] >>> 32) == v) {
+                Transport transport = added[(int) addedBySource[nextAdded++]];
+                newTargets[edge] = this.patchedId(transport.getTarget(), newIds,
+                        addedIds);
+                newPrices[edge] = transport.getPrice();
+                newMinutes[edge] = transport.getMinutes();
+                newTypes[edge] = (byte) transport.getType().ordinal();
+                newTransports.set(edge, transport);
+                edge++;
+            }
+        }
+        newOffsets[vertexCount] = edge;
+        if (edge != edgeCount) {
+            throw new IllegalArgumentException("Transport leaves from a city "
+                    + "that is not in the graph.");
+        }
+        for (int target : newTargets) {
+            if (target == -1) {
+                throw new IllegalArgumentException("Transport leads to a city "
+                        + "that is not in the graph.");
+            }
+        }
+
+        int[][] reverse = buildReverse(vertexCount, newOffsets, newTargets);
+        EdgeStore store = new EdgeStore(newOffsets, newTargets, newPrices,
+                newMinutes, newTypes, newTransports, reverse[1], reverse[2]);
+        if (sameCities) {
+            return new FrozenTravelGraph(this.cities, this.vertexIds,
+                    this.names, this.vertexNames, this.nameVertices,
+                    this.linked, store, edgeCount, newOffsets,
+                    rangeEnds(newOffsets), reverse[0], rangeEnds(reverse[0]));
+        }
+        NameTable newNames = new NameTable(vertexCount);
+        return new FrozenTravelGraph(new AtomicReferenceArray<>(newCities),
+                indexCities(newCities), newNames,
+                indexNames(newCities, newNames), null, this.linked, store,
+                edgeCount, newOffsets, rangeEnds(newOffsets), reverse[0],
+                rangeEnds(reverse[0]));
+    }
+
+    /**
+     * Returns a TravelGraph holding the same City objects as this graph, for
+     * making changes to. Cities that were frozen from a TravelGraph already
+     * hold their Transports, so this takes time proportional to the number
+     * of cities; a graph read by GraphFile first creates every City and
+     * Transport and hands each city its Transports. It is only right as long
+     * as the cities have not been changed since this graph was built
+     *
+     * @return a TravelGraph with the cities and Transports of this graph
+     */
+
+    TravelGraph thaw() {
+        this.link();
+        TravelGraph graph = new TravelGraph();
+        this.forEachVertex(graph::addVertex);
+        return graph;
+    }
+
+    /**
+     * Adds every Transport to the sets of its source and target, unless that
+     * has been done already
+     */
+
+    private synchronized void link() {
+        if (this.linked) {
+            return;
+        }
+        for (int v = 0; v < this.getVertexCount(); v++) {
+            for (int e = this.offsets[v]; e < this.ends[v]; e++) {
+                Transport transport = this.edgeAt(e, v);
+                transport.getSource().addOut(transport);
+                transport.getTarget().addIn(transport);
+            }
+        }
+        this.linked = true;
+    }
+
+    /**
+     * Returns the edge id of a Transport by scanning its source's range
+     *
+     * @param transport a Transport in the graph
+     * @return its edge id
+     * @throws IllegalArgumentException if the Transport is not in the graph
+     */
+
+    private int findEdge(Transport transport) {
+        int v = this.getVertexId(transport.getSource());
+        for (int e = this.offsets[v]; e < this.ends[v]; e++) {
+            if (this.transports.get(e) == transport) {
+                return e;
+            }
+        }
+        throw new IllegalArgumentException("Transport is not in the graph: "
+                + transport);
+    }
+
+    /**
+     * Returns the id a city gets in a patched graph
+     *
+     * @param city     a city
+     * @param newIds   the new id of every city of this graph, -1 if removed
+     * @param addedIds the ids of the added cities
+     * @return the city's new id, or -1 if it is not in the patched graph
+     */
+
+    private int patchedId(City city, int[] newIds,
+                          HashMap<City, Integer> addedIds) {
+        Integer added = addedIds.get(city);
+        if (added != null) {
+            return added;
+        }
+        int id = this.findVertex(city);
+        return id == -1 ? -1 : newIds[id];
+    }
+
+    /**
+     * Returns the vertex id of a city, looking it up by its own id and, if
+     * that fails, by its name
+     *
+     * @param city a city
+     * @return its vertex id, or -1 if it is not in the graph
+     */
+
+    private int findVertex(City city) {
+        int id = city.getId();
+        if (id >= 0 && id < this.vertexIds.length) {
+            int v = this.vertexIds[id];
+            if (v != -1 && this.cities.get(v) == city) {
+                return v;
+            }
+        }
+        // a city that has no id, or shares it with another city of the graph
+        int nameId = this.names.find(city.toString());
+        if (nameId != -1
+                && this.cities.get(this.nameVertices[nameId]) == city) {
+            return this.nameVertices[nameId];
+        }
+        return -1;
+    }
+
+    /**
+     * Maps the id of every city to its position in an array. A city without
+     * an id, or whose id another city took first, is left to be found by
+     * its name
+     *
+     * @param cities the cities
+     * @return the position of the city with each id, or -1
+     */
+
+    private static int[] indexCities(City[] cities) {
+        int maxId = -1;
+        for (City city : cities) {
+            maxId = Math.max(maxId, city.getId());
+        }
+        int[] ids = new int[maxId + 1];
+        Arrays.fill(ids, -1);
+        for (int v = 0; v < cities.length; v++) {
+            int id = cities[v].getId();
+            if (id != -1 && ids[id] == -1) {
+                ids[id] = v;
+            }
+        }
+        return ids;
+    }
+
+    /**
+     * Returns the ids 0 to count - 1 in order, for mapping the ids of cities
+     * numbered by their position
+     *
+     * @param count the number of ids
+     * @return an array holding its own indices
+     */
+
+    private static int[] identityIds(int count) {
+        int[] ids = new int[count];
+        for (int i = 0; i < count; i++) {
+            ids[i] = i;
+        }
+        return ids;
+    }
+
+    /**
+     * Adds the name of every city to an empty name table
+     *
+     * @param cities the cities
+     * @param names  the table to add the names to
+     * @return the name id of the city at each position
+     */
+
+    private static int[] indexNames(City[] cities, NameTable names) {
+        int[] nameIds = new int[cities.length];
+        for (int v = 0; v < cities.length; v++) {
+            nameIds[v] = names.add(cities[v].toString());
+        }
+        return nameIds;
+    }
+
+    /**
+     * Maps each name id to the position of its city in an array. When two
+     * cities have the same name, the later one keeps it
+     *
+     * @param vertexNames the name id of the city at each position
+     * @param nameCount   the number of names
+     * @return the position of the city with each name id
+     */
+
+    private static int[] invertNames(int[] vertexNames, int nameCount) {
+        int[] vertices = new int[nameCount];
+        for (int v = 0; v < vertexNames.length; v++) {
+            vertices[vertexNames[v]] = v;
+        }
+        return vertices;
+    }
+
+    /**
+     * Returns the end of every range of an offset array, which is the start
+     * of the next one
+     *
+     * @param offsets the first index of every range, plus the total
+     * @return the index just after every range
+     */
+
+    private static int[] rangeEnds(int[] offsets) {
+        return Arrays.copyOfRange(offsets, 1, offsets.length);
+    }
+
+    /**
+     * Sorts the first entries of an array and drops the repeated ones
+     *
+     * @param values an array
+     * @param count  the number of entries to keep
+     * @return a new array with the distinct entries in increasing order
+     */
+
+    private static int[] sortedDistinct(int[] values, int count) {
+        int[] sorted = Arrays.copyOf(values, count);
+        Arrays.sort(sorted);
+        int distinct = 0;
+        for (int i = 0; i < sorted.length; i++) {
+            if (i == 0 || sorted[i] != sorted[i - 1]) {
+                sorted[distinct++] = sorted[i];
+            }
+        }
+        return Arrays.copyOf(sorted, distinct);
+    }
+
+    /**
+     * Builds the reverse CSR of a forward CSR with a counting sort of the
+     * edge ids by target
+     *
+     * @param vertexCount the number of cities
+     * @param offsets     the forward offsets
+     * @param targets     the target of every edge
+     * @return the reverse offsets, the edge id at every reverse position and
+     * the source id at every reverse position
+     */
+
+    private static int[][] buildReverse(int vertexCount, int[] offsets,
+                                        int[] targets) {
+        int edgeCount = targets.length;
+        int[] inOffsets = new int[vertexCount + 1];
+        int[] inEdges = new int[edgeCount];
+        int[] inSources = new int[edgeCount];
+        for (int e = 0; e < edgeCount; e++) {
+            inOffsets[targets[e] + 1]++;
+        }
+        for (int v = 0; v < vertexCount; v++) {
+            inOffsets[v + 1] += inOffsets[v];
+        }
+        int[] next = Arrays.copyOf(inOffsets, vertexCount);
+        for (int v = 0; v < vertexCount; v++) {
+            for (int e = offsets[v]; e < offsets[v + 1]; e++) {
+                int position = next[targets[e]]++;
+                inEdges[position] = e;
+                inSources[position] = v;
+            }
+        }
+        return new int[][]{inOffsets, inEdges, inSources};
+    }
+
+    /**
+     * Unsupported, since a frozen graph cannot change
+     *
+     * @param vertex a City object
+     * @throws UnsupportedOperationException always
+     */
+
+    @Override
+    public void addVertex(City vertex) {
+        throw new UnsupportedOperationException("A frozen graph cannot be modified.");
+    }
+
+    /**
+     * Unsupported, since a frozen graph cannot change
+     *
+     * @param origin the origin of the edge
+     * @param edge   a Transport object
+     * @throws UnsupportedOperationException always
+     */
+
+    @Override
+    public void addEdge(City origin, Transport edge) {
+        throw new UnsupportedOperationException("A frozen graph cannot be modified.");
+    }
+
+    /**
+     * Unsupported, since a frozen graph cannot change
+     *
+     * @param origin the origin of the edge
+     * @param edge   a Transport object
+     * @throws UnsupportedOperationException always
+     */
+
+    @Override
+    public void removeEdge(City origin, Transport edge) {
+        throw new UnsupportedOperationException("A frozen graph cannot be modified.");
+    }
+
+    /**
+     * Unsupported, since a frozen graph cannot change
+     *
+     * @param vertex a City object
+     * @throws UnsupportedOperationException always
+     */
+
+    @Override
+    public void removeVertex(City vertex) {
+        throw new UnsupportedOperationException("A frozen graph cannot be modified.");
+    }
+
+    /**
+     * Returns an unmodifiable set of all the cities in the graph. The set is
+     * built the first time it is asked for, so later calls do not copy
+     * anything
+     *
+     * @return the set of City objects in the graph
+     */
+
+    @Override
+    public Set<City> getVertices() {
+        Set<City> view = this.vertexView;
+        if (view == null) {
+            Set<City> vertices = new LinkedHashSet<>();
+            this.forEachVertex(vertices::add);
+            view = Collections.unmodifiableSet(vertices);
+            this.vertexView = view;
+        }
+        return view;
+    }
+
+    /**
+     * Returns the city a Transport leaves from
+     *
+     * @param edge a Transport in the graph
+     * @return the source City of that Transport
+     */
+
+    @Override
+    public City getEdgeSource(Transport edge) {
+        return edge.getSource();
+    }
+
+    /**
+     * Returns the city a Transport arrives at
+     *
+     * @param edge a Transport in the graph
+     * @return the target City of that Transport
+     */
+
+    @Override
+    public City getEdgeTarget(Transport edge) {
+        return edge.getTarget();
+    }
+
+    /**
+     * Returns an unmodifiable view of the outgoing Transports of a city,
+     * backed by the city's range of the CSR arrays
+     *
+     * @param fromVertex a City in the graph
+     * @return the set of Transports leaving that City
+     */
+
+    @Override
+    public Set<Transport> getOutgoingEdges(City fromVertex) {
+        int v = this.getVertexId(fromVertex);
+        return new EdgeRange(v, false, this.offsets[v], this.ends[v]);
+    }
+
+    /**
+     * Returns an unmodifiable view of the incoming Transports of a city,
+     * backed by the city's range of the reverse CSR arrays
+     *
+     * @param toVertex a City in the graph
+     * @return the set of Transports arriving at that City
+     */
+
+    @Override
+    public Set<Transport> getIncomingEdges(City toVertex) {
+        int v = this.getVertexId(toVertex);
+        return new EdgeRange(v, true, this.inOffsets[v], this.inEnds[v]);
+    }
+
+    /**
+     * Returns a City object corresponding to the input name
+     *
+     * @param name the name of a city in the graph
+     * @return the City with that name
+     * @throws IllegalArgumentException if no city has that name
+     */
+
+    public City getCityByName(String name) {
+        int id = this.names.find(name);
+        if (id == -1) {
+            throw new IllegalArgumentException("City is not in the graph.");
+        }
+        return this.getCity(this.nameVertices[id]);
+    }
+
+    /**
+     * Returns the dense id of a city
+     *
+     * @param city a City in the graph
+     * @return the id of that City, in the range [0, getVertexCount())
+     * @throws IllegalArgumentException if the City is not in the graph
+     */
+
+    public int getVertexId(City city) {
+        int id = this.findVertex(city);
+        if (id == -1) {
+            throw new IllegalArgumentException("City is not in the graph.");
+        }
+        return id;
+    }
+
+    /**
+     * Returns the city with a dense id, creating it if this is the first
+     * time it is asked for
+     *
+     * @param id an id in the range [0, getVertexCount())
+     * @return the City with that id
+     */
+
+    public City getCity(int id) {
+        City city = this.cities.get(id);
+        if (city == null) {
+            city = new City(this.getCityName(id));
+            city.assignId(id);
+            City other = this.cities.compareAndExchange(id, null, city);
+            if (other != null) {
+                city = other;
+            }
+        }
+        return city;
+    }
+
+    /**
+     * Returns the name of the city with a dense id without creating the City
+     *
+     * @param id an id in the range [0, getVertexCount())
+     * @return the name of the City with that id
+     */
+
+    public String getCityName(int id) {
+        return this.names.getName(this.vertexNames[id]);
+    }
+
+    /**
+     * Returns the number of cities in the graph
+     *
+     * @return the vertex count
+     */
+
+    @Override
+    public int getVertexCount() {
+        return this.vertexNames.length;
+    }
+
+    /**
+     * Calls an action on every city in the graph, in vertex id order
+     *
+     * @param action the action to call on each city
+     */
+
+    @Override
+    public void forEachVertex(Consumer<? super City> action) {
+        for (int v = 0; v < this.getVertexCount(); v++) {
+            action.accept(this.getCity(v));
+        }
+    }
+
+    /**
+     * Returns the number of Transports in the graph
+     *
+     * @return the edge count
+     */
+
+    public int getEdgeCount() {
+        return this.edgeCount;
+    }
+
+    /**
+     * Returns the id of the first outgoing edge of a city. The outgoing
+     * edges of v are the ids in [getFirstEdge(v), getEdgeEnd(v)). On a graph
+     * that was not patched, getFirstEdge(getVertexCount()) is the edge count
+     *
+     * @param v a vertex id
+     * @return the id of the first edge leaving v
+     */
+
+    public int getFirstEdge(int v) {
+        return this.offsets[v];
+    }
+
+    /**
+     * Returns the id just after the last outgoing edge of a city
+     *
+     * @param v a vertex id
+     * @return the end of the range of edges leaving v
+     */
+
+    public int getEdgeEnd(int v) {
+        return this.ends[v];
+    }
+
+    /**
+     * Returns the position of the first incoming edge of a city in the
+     * reverse CSR. The incoming edge ids of v are getIncomingEdge(i) for i in
+     * [getFirstIncoming(v), getIncomingEnd(v))
+     *
+     * @param v a vertex id
+     * @return the reverse CSR position of the first edge arriving at v
+     */
+
+    public int getFirstIncoming(int v) {
+        return this.inOffsets[v];
+    }
+
+    /**
+     * Returns the reverse CSR position just after the last incoming edge of
+     * a city
+     *
+     * @param v a vertex id
+     * @return the end of the reverse CSR range of v
+     */
+
+    public int getIncomingEnd(int v) {
+        return this.inEnds[v];
+    }
+
+    /**
+     * Returns the edge id stored at a position of the reverse CSR
+     *
+     * @param position a position in the range of a city
+     * @return the id of the edge at that position
+     */
+
+    public int getIncomingEdge(int position) {
+        return this.inEdges[position];
+    }
+
+    /**
+     * Returns the id of the city the edge stored at a position of the
+     * reverse CSR leaves from
+     *
+     * @param position a position in the range of a city
+     * @return the vertex id of the source of the edge at that position
+     */
+
+    public int getIncomingSource(int position) {
+        return this.inSources[position];
+    }
+
+    /**
+     * Returns the id of the city an edge arrives at
+     *
+     * @param edge an edge id
+     * @return the vertex id of the edge's target
+     */
+
+    public int getTargetId(int edge) {
+        return this.targets[edge];
+    }
+
+    /**
+     * Returns the id of the city an edge leaves from. Edges added by a patch
+     * have it stored; the others are found by binary search over the
+     * offsets of the graph their arrays were built for
+     *
+     * @param edge an edge id
+     * @return the vertex id of the edge's source
+     */
+
+    public int getSourceId(int edge) {
+        if (edge >= this.baseEdgeCount) {
+            return this.appendedSources[edge - this.baseEdgeCount];
+        }
+        int low = 0;
+        int high = this.baseOffsets.length - 2;
+        while (low < high) {
+            int mid = (low + high + 1) >>> 1;
+            if (this.baseOffsets[mid] <= edge) {
+                low = mid;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Returns the price of an edge
+     *
+     * @param edge an edge id
+     * @return the price of that Transport
+     */
+
+    public double getPrice(int edge) {
+        return this.prices[edge];
+    }
+
+    /**
+     * Returns the duration of an edge
+     *
+     * @param edge an edge id
+     * @return the duration of that Transport in minutes
+     */
+
+    public double getMinutes(int edge) {
+        return this.minutes[edge];
+    }
+
+    /**
+     * Returns the transport type of an edge
+     *
+     * @param edge an edge id
+     * @return the TransportType of that Transport
+     */
+
+    public TransportType getType(int edge) {
+        return TYPES[this.types[edge]];
+    }
+
+    /**
+     * Returns the Transport object for an edge id, creating it if this is the
+     * first time it is asked for
+     *
+     * @param edge an edge id
+     * @return the Transport with that id
+     */
+
+    public Transport getEdge(int edge) {
+        Transport transport = this.transports.get(edge);
+        return transport != null ? transport
+                : this.edgeAt(edge, this.getSourceId(edge));
+    }
+
+    /**
+     * Returns the Transport object for an edge id whose source is known,
+     * creating it if this is the first time it is asked for
+     *
+     * @param edge   an edge id
+     * @param source the vertex id of the edge's source
+     * @return the Transport with that id
+     */
+
+    private Transport edgeAt(int edge, int source) {
+        Transport transport = this.transports.get(edge);
+        if (transport == null) {
+            transport = new Transport(this.getCity(source),
+                    this.getCity(this.targets[edge]), TYPES[this.types[edge]],
+                    this.prices[edge], this.minutes[edge]);
+            Transport other = this.transports.compareAndExchange(edge, null,
+                    transport);
+            if (other != null) {
+                transport = other;
+            }
+        }
+        return transport;
+    }
+
+    /**
+     * Returns the primitive column that holds the same weights as an edge
+     * weight function, if the function is one of the shared functions in
+     * TransportWeights. The returned array is indexed by edge id, may be
+     * longer than the highest edge id and must not be modified
+     *
+     * @param edgeWeight an edge weight function
+     * @return the minutes or price column, or null if the function is not
+     * recognized
+     */
+
+    public double[] getWeightColumn(Function<Transport, Double> edgeWeight) {
+        if (edgeWeight == TransportWeights.MINUTES) {
+            return this.minutes;
+        }
+        if (edgeWeight == TransportWeights.PRICE) {
+            return this.prices;
+        }
+        return null;
+    }
+
+    /**
+     * Returns the weight of every edge under an edge weight function. This
+     * is the shared price or minutes column when the function is one of the
+     * TransportWeights functions, and a new array filled by applying the
+     * function to every Transport otherwise
+     *
+     * @param edgeWeight an edge weight function
+     * @return an array of edge weights indexed by edge id, which must not be
+     * modified
+     */
+
+    public double[] toWeightColumn(Function<Transport, Double> edgeWeight) {
+        double[] column = this.getWeightColumn(edgeWeight);
+        if (column == null) {
+            column = this.computeWeightColumn(edgeWeight::apply);
+        }
+        return column;
+    }
+
+    /**
+     * Computes the weight of every edge into a new array indexed by edge id
+     *
+     * @param edgeWeight the weight of an edge
+     * @return the weight of every edge
+     */
+
+    public double[] computeWeightColumn(ToDoubleFunction<Transport> edgeWeight) {
+        double[] column = new double[this.edgeIdBound];
+        for (int v = 0; v < this.getVertexCount(); v++) {
+            for (int e = this.offsets[v]; e < this.ends[v]; e++) {
+                column[e] = edgeWeight.applyAsDouble(this.edgeAt(e, v));
+            }
+        }
+        return column;
+    }
+
+    /**
+     * An unmodifiable set view of the outgoing edges of a city, a contiguous
+     * range of edge ids, or of its incoming edges, a contiguous range of the
+     * reverse CSR
+     */
+
+    private class EdgeRange extends AbstractSet<Transport> {
+
+        private final int vertex;
+        private final boolean incoming;
+        private final int start;
+        private final int end;
+
+        EdgeRange(int vertex, boolean incoming, int start, int end) {
+            this.vertex = vertex;
+            this.incoming = incoming;
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        public Iterator<Transport> iterator() {
+            return new Iterator<>() {
+                private int next = EdgeRange.this.start;
+
+                @Override
+                public boolean hasNext() {
+                    return this.next < EdgeRange.this.end;
+                }
+
+                @Override
+                public Transport next() {
+                    if (this.next >= EdgeRange.this.end) {
+                        throw new NoSuchElementException();
+                    }
+                    int position = this.next++;
+                    FrozenTravelGraph graph = FrozenTravelGraph.this;
+                    return EdgeRange.this.incoming
+                            ? graph.edgeAt(graph.inEdges[position],
+                            graph.inSources[position])
+                            : graph.edgeAt(position, EdgeRange.this.vertex);
+                }
+            };
+        }
+
+        @Override
+        public int size() {
+            return this.end - this.start;
+        }
+    }
+
+    /**
+     * The EdgeStore class holds the edge columns and reverse CSR arrays
+     * shared by a graph built from cities and every graph patched from it.
+     * Slots are only ever handed out at the end, and a slot is written once,
+     * before the graph that uses it is created, so graphs that share the
+     * arrays never see each other's new slots. When a column is full it is
+     * copied into a larger one, which only graphs created afterwards use
+     */
+
+    private static final class EdgeStore {
+
+        private final int[] baseOffsets;
+        private final int baseCount;
+        private int[] targets;
+        private double[] prices;
+        private double[] minutes;
+        private byte[] types;
+        private AtomicReferenceArray<Transport> transports;
+        private int[] sources;
+        private int size;
+        private int[] inEdges;
+        private int[] inSources;
+        private int inSize;
+
+        EdgeStore(int[] offsets, int[] targets, double[] prices,
+                  double[] minutes, byte[] types,
+                  AtomicReferenceArray<Transport> transports, int[] inEdges,
+                  int[] inSources) {
+            this.baseOffsets = offsets;
+            this.baseCount = targets.length;
+            this.targets = targets;
+            this.prices = prices;
+            this.minutes = minutes;
+            this.types = types;
+            this.transports = transports;
+            this.sources = new int[0];
+            this.size = targets.length;
+            this.inEdges = inEdges;
+            this.inSources = inSources;
+            this.inSize = inEdges.length;
+        }
+
+        /**
+         * Hands out a run of unused edge ids, growing the columns if needed
+         *
+         * @param count the number of ids
+         * @return the first id of the run
+         */
+
+        int reserveEdges(int count) {
+            if (this.size + count > this.targets.length) {
+                int capacity = grownCapacity(this.size, count);
+                this.targets = Arrays.copyOf(this.targets, capacity);
+                this.prices = Arrays.copyOf(this.prices, capacity);
+                this.minutes = Arrays.copyOf(this.minutes, capacity);
+                this.types = Arrays.copyOf(this.types, capacity);
+                this.sources = Arrays.copyOf(this.sources,
+                        capacity - this.baseCount);
+                AtomicReferenceArray<Transport> grown
+                        = new AtomicReferenceArray<>(capacity);
+                for (int e = 0; e < this.size; e++) {
+                    grown.set(e, this.transports.get(e));
+                }
+                this.transports = grown;
+            }
+            int first = this.size;
+            this.size += count;
+            return first;
+        }
+
+        /**
+         * Hands out a run of unused reverse CSR positions, growing the arrays
+         * if needed
+         *
+         * @param count the number of positions
+         * @return the first position of the run
+         */
+
+        int reservePositions(int count) {
+            if (this.inSize + count > this.inEdges.length) {
+                int capacity = grownCapacity(this.inSize, count);
+                this.inEdges = Arrays.copyOf(this.inEdges, capacity);
+                this.inSources = Arrays.copyOf(this.inSources, capacity);
+            }
+            int first = this.inSize;
+            this.inSize += count;
+            return first;
+        }
+
+        void putEdge(int edge, int source, int target, double price,
+                     double minutes, byte type, Transport transport) {
+            this.targets[edge] = target;
+            this.prices[edge] = price;
+            this.minutes[edge] = minutes;
+            this.types[edge] = type;
+            this.transports.set(edge, transport);
+            this.sources[edge - this.baseCount] = source;
+        }
+
+        void putIncoming(int position, int edge, int source) {
+            this.inEdges[position] = edge;
+            this.inSources[position] = source;
+        }
+
+        int sourceOf(int edge) {
+            return this.sources[edge - this.baseCount];
+        }
+
+        /**
+         * Returns the length to grow an array to so that it holds more
+         * entries, growing by at least half so that appending stays cheap
+         *
+         * @param size  the entries in use
+         * @param count the entries to add
+         * @return the new length
+         */
+
+        private static int grownCapacity(int size, int count) {
+            return (int) Math.min(Integer.MAX_VALUE - 8,
+                    Math.max((long) size + count, size + (size >> 1) + 16L));
+        }
+    }
+}
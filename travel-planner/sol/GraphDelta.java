@@ -0,0 +1,417 @@
+package sol;
+
+import src.CSVRowReader;
+import src.City;
+import src.Transport;
+import src.TransportType;
+import src.TravelCSVParser;
+
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.*;
+
+/**
+ * The GraphDelta class is a batch of changes to a loaded graph: cities and
+ * Transports to add or remove, and Transports to re-price. A batch is built
+ * either one change at a time or from a delta CSV file, and is applied by
+ * TravelController.applyUpdates in time proportional to the size of the
+ * batch. Changes are applied in the order they were added, and a batch that
+ * fails part of the way through leaves the graph as it was.
+ * <p>
+ * A Transport is named by its origin, destination and type. Removing or
+ * re-pricing one applies to every Transport with that name.
+ */
+
+public class GraphDelta {
+
+    private final List<Change> changes;
+
+    /**
+     * Constructor for the GraphDelta class. Starts with no changes
+     */
+
+    public GraphDelta() {
+        this.changes = new ArrayList<>();
+    }
+
+    /**
+     * Reads a delta CSV file with the columns op, origin, destination, type,
+     * price and duration. The op of each row is one of add, remove, reprice,
+     * addcity and removecity. The city ops only read the origin column, and
+     * remove does not read price or duration, so those may be left empty
+     *
+     * @param deltaFile the path of the delta file
+     * @return the changes in the file, in file order
+     * @throws IOException if the file cannot be read, is missing a column or
+     *                     has a row that is not a valid change
+     */
+
+    public static GraphDelta parse(String deltaFile) throws IOException {
+        GraphDelta delta = new GraphDelta();
+        try (FileReader in = new FileReader(deltaFile)) {
+            CSVRowReader reader = new CSVRowReader(in);
+            int[] columns = TravelCSVParser.findColumns(reader, deltaFile,
+                    "op", "origin", "destination", "type", "price", "duration");
+            while (reader.next()) {
+                try {
+                    delta.addRow(reader, columns);
+                } catch (IllegalArgumentException e) {
+                    throw new IOException("Invalid change on row "
+                            + reader.getRowNumber() + " of " + deltaFile + ": "
+                            + e.getMessage(), e);
+                }
+            }
+        }
+        return delta;
+    }
+
+    /**
+     * Adds a city with no Transports
+     *
+     * @param name the name of the new city
+     * @return this batch
+     */
+
+    public GraphDelta addCity(String name) {
+        this.changes.add(new Change(Kind.ADD_CITY, name, null, null, 0, 0));
+        return this;
+    }
+
+    /**
+     * Removes a city together with every Transport leaving or arriving at it
+     *
+     * @param name the name of the city
+     * @return this batch
+     */
+
+    public GraphDelta removeCity(String name) {
+        this.changes.add(new Change(Kind.REMOVE_CITY, name, null, null, 0, 0));
+        return this;
+    }
+
+    /**
+     * Adds a Transport between two cities
+     *
+     * @param origin      the name of the city it leaves from
+     * @param destination the name of the city it arrives at
+     * @param type        the type of transport
+     * @param price       the price of the trip
+     * @param minutes     the duration of the trip in minutes
+     * @return this batch
+     */
+
+    public GraphDelta addTransport(String origin, String destination,
+                                   TransportType type, double price,
+                                   double minutes) {
+        this.changes.add(new Change(Kind.ADD_TRANSPORT, origin, destination,
+                type, price, minutes));
+        return this;
+    }
+
+    /**
+     * Removes the Transports of a type between two cities
+     *
+     * @param origin      the name of the city they leave from
+     * @param destination the name of the city they arrive at
+     * @param type        the type of transport
+     * @return this batch
+     */
+
+    public GraphDelta removeTransport(String origin, String destination,
+                                      TransportType type) {
+        this.changes.add(new Change(Kind.REMOVE_TRANSPORT, origin,
+                destination, type, 0, 0));
+        return this;
+    }
+
+    /**
+     * Gives the Transports of a type between two cities a new price and
+     * duration
+     *
+     * @param origin      the name of the city they leave from
+     * @param destination the name of the city they arrive at
+     * @param type        the type of transport
+     * @param price       the new price
+     * @param minutes     the new duration in minutes
+     * @return this batch
+     */
+
+    public GraphDelta reprice(String origin, String destination,
+                              TransportType type, double price,
+                              double minutes) {
+        this.changes.add(new Change(Kind.REPRICE, origin, destination, type,
+                price, minutes));
+        return this;
+    }
+
+    /**
+     * Returns the number of changes in the batch
+     *
+     * @return the change count
+     */
+
+    public int size() {
+        return this.changes.size();
+    }
+
+    /**
+     * Applies every change to a graph, in order. If a change fails, the
+     * changes before it are undone, so the graph is either fully updated or
+     * left as it was
+     *
+     * @param graph the graph to change
+     * @return what the batch did to the graph
+     * @throws IllegalArgumentException if a change names a city that is not
+     *                                  in the graph, adds a city that is, or
+     *                                  removes or re-prices a Transport that
+     *                                  does not exist
+     */
+
+    Applied applyTo(TravelGraph graph) {
+        Applied applied = new Applied();
+        Deque<Runnable> undo = new ArrayDeque<>();
+        try {
+            for (Change change : this.changes) {
+                change.applyTo(graph, applied, undo);
+            }
+        } catch (RuntimeException e) {
+            while (!undo.isEmpty()) {
+                undo.pop().run();
+            }
+            throw e;
+        }
+        return applied;
+    }
+
+    /**
+     * Reads one change from the current row of a delta file
+     *
+     * @param reader  the reader, positioned at the row
+     * @param columns the indexes of the op, origin, destination, type, price
+     *                and duration columns
+     * @throws IllegalArgumentException if the row is not a valid change
+     */
+
+    private void addRow(CSVRowReader reader, int[] columns) {
+        String origin = reader.getName(columns[1]);
+        if (reader.fieldEquals(columns[0], "addcity")) {
+            this.addCity(origin);
+        } else if (reader.fieldEquals(columns[0], "removecity")) {
+            this.removeCity(origin);
+        } else {
+            String destination = reader.getName(columns[2]);
+            TransportType type = reader.getTransportType(columns[3]);
+            if (reader.fieldEquals(columns[0], "remove")) {
+                this.removeTransport(origin, destination, type);
+            } else if (reader.fieldEquals(columns[0], "add")) {
+                this.addTransport(origin, destination, type,
+                        reader.getDouble(columns[4]), reader.getDouble(columns[5]));
+            } else if (reader.fieldEquals(columns[0], "reprice")) {
+                this.reprice(origin, destination, type,
+                        reader.getDouble(columns[4]), reader.getDouble(columns[5]));
+            } else {
+                throw new IllegalArgumentException("unknown op '"
+                        + reader.getString(columns[0]) + "'");
+            }
+        }
+    }
+
+    /**
+     * The kinds of change a batch can hold
+     */
+
+    private enum Kind {
+        ADD_CITY, REMOVE_CITY, ADD_TRANSPORT, REMOVE_TRANSPORT, REPRICE
+    }
+
+    /**
+     * One change of a batch
+     */
+
+    private static final class Change {
+
+        private final Kind kind;
+        private final String origin;
+        private final String destination;
+        private final TransportType type;
+        private final double price;
+        private final double minutes;
+
+        Change(Kind kind, String origin, String destination,
+               TransportType type, double price, double minutes) {
+            this.kind = kind;
+            this.origin = origin;
+            this.destination = destination;
+            this.type = type;
+            this.price = price;
+            this.minutes = minutes;
+        }
+
+        /**
+         * Applies the change to a graph, records what it did and pushes the
+         * steps that undo it
+         *
+         * @param graph   the graph to change
+         * @param applied the record of the batch so far
+         * @param undo    the undo steps of the batch so far
+         */
+
+        void applyTo(TravelGraph graph, Applied applied, Deque<Runnable> undo) {
+            switch (this.kind) {
+                case ADD_CITY -> {
+                    if (graph.containsCity(this.origin)) {
+                        throw new IllegalArgumentException("City is already in "
+                                + "the graph: " + this.origin);
+                    }
+                    City city = new City(this.origin);
+                    graph.addVertex(city);
+                    undo.push(() -> graph.removeVertex(city));
+                    applied.addedCities.add(city);
+                }
+                case REMOVE_CITY -> {
+                    City city = graph.getCityByName(this.origin);
+                    List<Transport> incident = new ArrayList<>(city.getOutgoing());
+                    incident.addAll(city.getIncoming());
+                    graph.removeVertex(city);
+                    undo.push(() -> {
+                        graph.addVertex(city);
+                        for (Transport transport : incident) {
+                            graph.addEdge(transport.getSource(), transport);
+                        }
+                    });
+                    for (Transport transport : incident) {
+                        applied.recordRemoval(transport);
+                    }
+                    if (!applied.addedCities.remove(city)) {
+                        applied.removedCities.add(city);
+                    }
+                }
+                case ADD_TRANSPORT -> {
+                    City from = graph.getCityByName(this.origin);
+                    Transport transport = new Transport(from,
+                            graph.getCityByName(this.destination), this.type,
+                            this.price, this.minutes);
+                    graph.addEdge(from, transport);
+                    undo.push(() -> graph.removeEdge(from, transport));
+                    applied.addedEdges.add(transport);
+                    Arrays.fill(applied.shortens, true);
+                }
+                case REMOVE_TRANSPORT -> {
+                    for (Transport transport : this.findMatches(graph)) {
+                        graph.removeEdge(transport.getSource(), transport);
+                        undo.push(() -> graph.addEdge(transport.getSource(),
+                                transport));
+                        applied.recordRemoval(transport);
+                    }
+                }
+                case REPRICE -> {
+                    for (Transport old : this.findMatches(graph)) {
+                        City from = old.getSource();
+                        Transport repriced = new Transport(from, old.getTarget(),
+                                old.getType(), this.price, this.minutes);
+                        graph.removeEdge(from, old);
+                        graph.addEdge(from, repriced);
+                        undo.push(() -> {
+                            graph.removeEdge(from, repriced);
+                            graph.addEdge(from, old);
+                        });
+                        applied.recordRemoval(old);
+                        applied.addedEdges.add(repriced);
+                        if (this.minutes < old.getMinutes()) {
+                            applied.shortens[RouteMetric.FASTEST.ordinal()] = true;
+                        }
+                        if (this.price < old.getPrice()) {
+                            applied.shortens[RouteMetric.CHEAPEST.ordinal()] = true;
+                        }
+                    }
+                }
+            }
+        }
+
+        /**
+         * Returns the Transports this change names
+         *
+         * @param graph the graph
+         * @return every Transport from origin to destination of the type
+         * @throws IllegalArgumentException if there is none
+         */
+
+        private List<Transport> findMatches(TravelGraph graph) {
+            City from = graph.getCityByName(this.origin);
+            City to = graph.getCityByName(this.destination);
+            List<Transport> matches = new ArrayList<>();
+            for (Transport transport : from.getOutgoing()) {
+                if (transport.getTarget() == to && transport.getType() == this.type) {
+                    matches.add(transport);
+                }
+            }
+            if (matches.isEmpty()) {
+                throw new IllegalArgumentException("No " + this.type.getLabel()
+                        + " from " + this.origin + " to " + this.destination + ".");
+            }
+            return matches;
+        }
+    }
+
+    /**
+     * What a batch did to a graph, with changes that cancel out within the
+     * batch left out: the Transports and cities that were there before and
+     * are gone, the ones that are new, and which metrics some route may now
+     * be shorter in
+     */
+
+    static final class Applied {
+
+        final Set<Transport> removedEdges;
+        final Set<Transport> addedEdges;
+        final Set<City> removedCities;
+        final Set<City> addedCities;
+        private final boolean[] shortens;
+
+        Applied() {
+            this.removedEdges = new HashSet<>();
+            this.addedEdges = new LinkedHashSet<>();
+            this.removedCities = new HashSet<>();
+            this.addedCities = new LinkedHashSet<>();
+            this.shortens = new boolean[RouteMetric.values().length];
+        }
+
+        /**
+         * Returns whether the batch may have made some route shorter in a
+         * metric. Removing Transports and raising prices or durations only
+         * ever makes routes longer, so routes and bounds found before are
+         * still right as long as they do not use a removed Transport
+         *
+         * @param metric a metric
+         * @return true if a Transport was added or got cheaper or faster in
+         * that metric
+         */
+
+        boolean canShorten(RouteMetric metric) {
+            return this.shortens[metric.ordinal()];
+        }
+
+        /**
+         * Returns whether the batch added or removed a city
+         *
+         * @return true if the set of cities changed
+         */
+
+        boolean changesCities() {
+            return !this.removedCities.isEmpty() || !this.addedCities.isEmpty();
+        }
+
+        /**
+         * Records that a Transport is gone. A Transport added earlier in the
+         * same batch simply stops being new
+         *
+         * @param transport the removed Transport
+         */
+
+        private void recordRemoval(Transport transport) {
+            if (!this.addedEdges.remove(transport)) {
+                this.removedEdges.add(transport);
+            }
+        }
+    }
+}
@@ -0,0 +1,376 @@
+package sol;
+
+import src.NameTable;
+import src.TransportType;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * The GraphFile class saves a FrozenTravelGraph in a compact binary form and
+ * loads it back, so a graph only has to be parsed from CSV once. The file
+ * holds the same CSR arrays the graph searches on, little-endian and
+ * naturally aligned, followed by a table with every city name once:
+ * <pre>
+ *   header      magic "TPGF", version, vertex count V, edge count E,
+ *               name table size N, 4 bytes of padding
+ *   prices      E doubles
+ *   minutes     E doubles
+ *   offsets     V + 1 ints, the forward CSR
+ *   targets     E ints
+ *   inOffsets   V + 1 ints, the reverse CSR
+ *   inEdges     E ints
+ *   inSources   E ints
+ *   nameOffsets V + 1 ints into the name table
+ *   types       E bytes, TransportType ordinals
+ *   names       N bytes of UTF-8
+ * </pre>
+ * Loading maps the file and copies each section straight into its array,
+ * so nothing is parsed or sorted. Every name is decoded and added to the
+ * graph's name table, but no City or Transport object is created: the graph
+ * creates each one the first time a search result or IGraph call asks for
+ * it, and only hands the cities their Transports if it is thawed.
+ */
+
+public final class GraphFile {
+
+    public static final int VERSION = 1;
+
+    private static final int MAGIC = 0x46475054; // "TPGF" read little-endian
+    private static final int HEADER_SIZE = 24;
+    private static final int BLOCK_SIZE = 1 << 16;
+    private static final int MAX_MAPPING = 1 << 30;
+    private static final TransportType[] TYPES = TransportType.values();
+
+    private GraphFile() {
+    }
+
+    /**
+     * Writes a graph to a file, replacing the file if it exists. A patched
+     * graph is compacted first, so its edges are saved with new ids
+     *
+     * @param graph the graph to save
+     * @param file  the path of the file
+     * @throws IOException if the file cannot be written
+     */
+
+    public static void write(FrozenTravelGraph graph, Path file)
+            throws IOException {
+        FrozenTravelGraph compact = graph.compact();
+        int vertexCount = compact.getVertexCount();
+        int edgeCount = compact.getEdgeCount();
+        byte[][] names = new byte[vertexCount][];
+        int nameBytes = 0;
+        for (int v = 0; v < vertexCount; v++) {
+            names[v] = compact.getCityName(v).getBytes(
+                    StandardCharsets.UTF_8);
+            nameBytes += names[v].length;
+        }
+
+        try (FileChannel channel = FileChannel.open(file,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            Output out = new Output(channel);
+            out.putInt(MAGIC);
+            out.putInt(VERSION);
+            out.putInt(vertexCount);
+            out.putInt(edgeCount);
+            out.putInt(nameBytes);
+            out.putInt(0);
+            for (int e = 0; e < edgeCount; e++) {
+                out.putDouble(compact.getPrice(e));
+            }
+            for (int e = 0; e < edgeCount; e++) {
+                out.putDouble(compact.getMinutes(e));
+            }
+            for (int v = 0; v <= vertexCount; v++) {
+                out.putInt(compact.getFirstEdge(v));
+            }
+            for (int e = 0; e < edgeCount; e++) {
+                out.putInt(compact.getTargetId(e));
+            }
+            for (int v = 0; v <= vertexCount; v++) {
+                out.putInt(compact.getFirstIncoming(v));
+            }
+            for (int i = 0; i < edgeCount; i++) {
+                out.putInt(compact.getIncomingEdge(i));
+            }
+            for (int i = 0; i < edgeCount; i++) {
+                out.putInt(compact.getIncomingSource(i));
+            }
+            int nameOffset = 0;
+            for (int v = 0; v < vertexCount; v++) {
+                out.putInt(nameOffset);
+                nameOffset += names[v].length;
+            }
+            out.putInt(nameOffset);
+            for (int e = 0; e < edgeCount; e++) {
+                out.putByte((byte) compact.getType(e).ordinal());
+            }
+            for (byte[] name : names) {
+                for (byte b : name) {
+                    out.putByte(b);
+                }
+            }
+            out.flush();
+        }
+    }
+
+    /**
+     * Loads a graph written by write
+     *
+     * @param file the path of the file
+     * @return the graph, ready to be searched
+     * @throws IOException if the file cannot be read, is not a graph file,
+     *                     was written by another version, or is damaged
+     */
+
+    public static FrozenTravelGraph read(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file,
+                StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_SIZE) {
+                throw new IOException("Not a graph file: " + file);
+            }
+            ByteBuffer header = map(channel, 0, HEADER_SIZE);
+            if (header.getInt(0) != MAGIC) {
+                throw new IOException("Not a graph file: " + file);
+            }
+            int version = header.getInt(4);
+            if (version != VERSION) {
+                throw new IOException("Unsupported graph file version "
+                        + version + " (expected " + VERSION + "): " + file);
+            }
+            int vertexCount = header.getInt(8);
+            int edgeCount = header.getInt(12);
+            int nameBytes = header.getInt(16);
+            if (vertexCount < 0 || edgeCount < 0 || nameBytes < 0
+                    || size != HEADER_SIZE + 16L * edgeCount
+                    + 4L * (3L * (vertexCount + 1) + 3L * edgeCount)
+                    + edgeCount + nameBytes) {
+                throw new IOException("Damaged graph file: " + file);
+            }
+
+            long position = HEADER_SIZE;
+            double[] prices = new double[edgeCount];
+            position = readDoubles(channel, position, prices);
+            double[] minutes = new double[edgeCount];
+            position = readDoubles(channel, position, minutes);
+            int[] offsets = new int[vertexCount + 1];
+            position = readInts(channel, position, offsets);
+            int[] targets = new int[edgeCount];
+            position = readInts(channel, position, targets);
+            int[] inOffsets = new int[vertexCount + 1];
+            position = readInts(channel, position, inOffsets);
+            int[] inEdges = new int[edgeCount];
+            position = readInts(channel, position, inEdges);
+            int[] inSources = new int[edgeCount];
+            position = readInts(channel, position, inSources);
+            int[] nameOffsets = new int[vertexCount + 1];
+            position = readInts(channel, position, nameOffsets);
+            byte[] types = new byte[edgeCount];
+            position = readBytes(channel, position, types);
+            byte[] names = new byte[nameBytes];
+            readBytes(channel, position, names);
+
+            checkOffsets(file, offsets, edgeCount);
+            checkOffsets(file, inOffsets, edgeCount);
+            checkOffsets(file, nameOffsets, nameBytes);
+            checkIds(file, targets, vertexCount);
+            checkIds(file, inSources, vertexCount);
+            checkIds(file, inEdges, edgeCount);
+            for (byte type : types) {
+                if (type < 0 || type >= TYPES.length) {
+                    throw new IOException("Damaged graph file: " + file);
+                }
+            }
+
+            NameTable nameTable = new NameTable(vertexCount);
+            int[] vertexNames = new int[vertexCount];
+            for (int v = 0; v < vertexCount; v++) {
+                vertexNames[v] = nameTable.add(new String(names,
+                        nameOffsets[v], nameOffsets[v + 1] - nameOffsets[v],
+                        StandardCharsets.UTF_8));
+            }
+            return new FrozenTravelGraph(nameTable, vertexNames, offsets,
+                    targets, prices, minutes, types, inOffsets, inEdges,
+                    inSources);
+        }
+    }
+
+    /**
+     * Checks that an offset array starts at 0, never decreases and ends at
+     * its total
+     *
+     * @param file    the file, for the error message
+     * @param offsets an offset array
+     * @param total   the value the offsets must end at
+     * @throws IOException if the check fails
+     */
+
+    private static void checkOffsets(Path file, int[] offsets, int total)
+            throws IOException {
+        boolean valid = offsets[0] == 0 && offsets[offsets.length - 1] == total;
+        for (int i = 1; valid && i < offsets.length; i++) {
+            valid = offsets[i - 1] <= offsets[i];
+        }
+        if (!valid) {
+            throw new IOException("Damaged graph file: " + file);
+        }
+    }
+
+    /**
+     * Checks that every entry of an id array is in range
+     *
+     * @param file  the file, for the error message
+     * @param ids   an id array
+     * @param bound the number of valid ids
+     * @throws IOException if the check fails
+     */
+
+    private static void checkIds(Path file, int[] ids, int bound)
+            throws IOException {
+        for (int id : ids) {
+            if (id < 0 || id >= bound) {
+                throw new IOException("Damaged graph file: " + file);
+            }
+        }
+    }
+
+    /**
+     * Maps a range of a file as a little-endian buffer
+     *
+     * @param channel  the open file
+     * @param position the first byte of the range
+     * @param length   the length of the range
+     * @return the mapped range
+     * @throws IOException if the file cannot be mapped
+     */
+
+    private static MappedByteBuffer map(FileChannel channel, long position,
+                                        long length) throws IOException {
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY,
+                position, length);
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        return buffer;
+    }
+
+    /**
+     * Copies a section of doubles into an array, mapping at most
+     * MAX_MAPPING bytes at a time
+     *
+     * @param channel  the open file
+     * @param position the start of the section
+     * @param into     the array to fill
+     * @return the position just after the section
+     * @throws IOException if the file cannot be mapped
+     */
+
+    private static long readDoubles(FileChannel channel, long position,
+                                    double[] into) throws IOException {
+        int step = MAX_MAPPING / Double.BYTES;
+        for (int from = 0; from < into.length; from += step) {
+            int count = Math.min(step, into.length - from);
+            map(channel, position, (long) count * Double.BYTES)
+                    .asDoubleBuffer().get(into, from, count);
+            position += (long) count * Double.BYTES;
+        }
+        return position;
+    }
+
+    /**
+     * Copies a section of ints into an array, mapping at most MAX_MAPPING
+     * bytes at a time
+     *
+     * @param channel  the open file
+     * @param position the start of the section
+     * @param into     the array to fill
+     * @return the position just after the section
+     * @throws IOException if the file cannot be mapped
+     */
+
+    private static long readInts(FileChannel channel, long position,
+                                 int[] into) throws IOException {
+        int step = MAX_MAPPING / Integer.BYTES;
+        for (int from = 0; from < into.length; from += step) {
+            int count = Math.min(step, into.length - from);
+            map(channel, position, (long) count * Integer.BYTES)
+                    .asIntBuffer().get(into, from, count);
+            position += (long) count * Integer.BYTES;
+        }
+        return position;
+    }
+
+    /**
+     * Copies a section of bytes into an array, mapping at most MAX_MAPPING
+     * bytes at a time
+     *
+     * @param channel  the open file
+     * @param position the start of the section
+     * @param into     the array to fill
+     * @return the position just after the section
+     * @throws IOException if the file cannot be mapped
+     */
+
+    private static long readBytes(FileChannel channel, long position,
+                                  byte[] into) throws IOException {
+        for (int from = 0; from < into.length; from += MAX_MAPPING) {
+            int count = Math.min(MAX_MAPPING, into.length - from);
+            map(channel, position, count).get(into, from, count);
+            position += count;
+        }
+        return position;
+    }
+
+    /**
+     * A little-endian writer that collects values in a block and writes the
+     * block to a channel whenever it fills up
+     */
+
+    private static class Output {
+
+        private final FileChannel channel;
+        private final ByteBuffer block;
+
+        Output(FileChannel channel) {
+            this.channel = channel;
+            this.block = ByteBuffer.allocate(BLOCK_SIZE)
+                    .order(ByteOrder.LITTLE_ENDIAN);
+        }
+
+        void putInt(int value) throws IOException {
+            this.ensure(Integer.BYTES);
+            this.block.putInt(value);
+        }
+
+        void putDouble(double value) throws IOException {
+            this.ensure(Double.BYTES);
+            this.block.putDouble(value);
+        }
+
+        void putByte(byte value) throws IOException {
+            this.ensure(1);
+            this.block.put(value);
+        }
+
+        void flush() throws IOException {
+            this.block.flip();
+            while (this.block.hasRemaining()) {
+                this.channel.write(this.block);
+            }
+            this.block.clear();
+        }
+
+        private void ensure(int bytes) throws IOException {
+            if (this.block.remaining() < bytes) {
+                this.flush();
+            }
+        }
+    }
+}
@@ -0,0 +1,198 @@
+package sol;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * The GraphTableCache class keeps the tables a preprocessed search builds
+ * for one FrozenTravelGraph, one per edge weight, and can be read by many
+ * threads without locking. The shared TransportWeights functions are keyed
+ * by identity; any other function is keyed by the weight column it gives,
+ * compared by content, so a new lambda for the same weight finds the table
+ * built before. At most MAX_TABLES tables are kept. Each table is built
+ * once, by the first thread to ask for it, outside of any lock; other
+ * threads asking for the same table wait for it. Asking for a table of a
+ * different graph drops every table of the old one.
+ *
+ * @param <T> the type of the tables
+ */
+
+class GraphTableCache<T> {
+
+    static final int MAX_TABLES = 8;
+
+    private volatile State<T> state;
+
+    /**
+     * Constructor for the GraphTableCache class. Starts with no graph
+     */
+
+    GraphTableCache() {
+        this.state = new State<>(null);
+    }
+
+    /**
+     * Returns the table for a graph and edge weight, building it the first
+     * time it is asked for. For a function that is not one of the
+     * TransportWeights functions, the weight column is computed on every
+     * call to find the key
+     *
+     * @param graph      a frozen graph
+     * @param edgeWeight an edge weight function
+     * @param weights    computes the weight of every edge under edgeWeight
+     * @param builder    builds the table from the weight column if there is
+     *                   none yet
+     * @return the matching table
+     */
+
+    T get(FrozenTravelGraph graph, Object edgeWeight, Supplier<double[]> weights,
+          Function<double[], T> builder) {
+        State<T> current = this.state;
+        if (current.graph != graph) {
+            current = new State<>(graph);
+            this.state = current;
+        }
+        Object key = edgeWeight;
+        double[] column = null;
+        if (!isShared(edgeWeight)) {
+            column = weights.get();
+            key = new ColumnKey(column);
+        }
+        CompletableFuture<T> table = current.tables.get(key);
+        if (table != null) {
+            return table.join();
+        }
+        CompletableFuture<T> created = new CompletableFuture<>();
+        table = current.tables.putIfAbsent(key, created);
+        if (table != null) {
+            return table.join();
+        }
+        current.evictOver(MAX_TABLES, key);
+        try {
+            T built = builder.apply(column != null ? column : weights.get());
+            created.complete(built);
+            return built;
+        } catch (RuntimeException | Error e) {
+            current.tables.remove(key, created);
+            created.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    /**
+     * Fills the cache for a changed graph with tables derived from those
+     * another cache holds for the graph it was changed from, so they do not
+     * have to be built again. Only tables of the TransportWeights functions
+     * that are already built are offered. Nothing is taken over if the
+     * other cache no longer holds tables for the old graph
+     *
+     * @param previous the cache holding tables for the old graph
+     * @param from     the old graph
+     * @param to       the changed graph
+     * @param reuse    gives the table for the changed graph from a weight
+     *                 function and its old table, or null if it must be
+     *                 built again
+     */
+
+    void carryOver(GraphTableCache<T> previous, FrozenTravelGraph from,
+                   FrozenTravelGraph to, BiFunction<Object, T, T> reuse) {
+        State<T> old = previous.state;
+        State<T> next = new State<>(to);
+        if (old.graph == from) {
+            for (Map.Entry<Object, CompletableFuture<T>> entry
+                    : old.tables.entrySet()) {
+                T built = entry.getValue().getNow(null);
+                if (!isShared(entry.getKey()) || built == null) {
+                    continue;
+                }
+                T table = reuse.apply(entry.getKey(), built);
+                if (table != null) {
+                    next.tables.put(entry.getKey(),
+                            CompletableFuture.completedFuture(table));
+                }
+            }
+        }
+        this.state = next;
+    }
+
+    /**
+     * Returns whether an edge weight function is one of the shared
+     * TransportWeights functions, which are keyed by identity
+     *
+     * @param edgeWeight an edge weight function
+     * @return true if it is TransportWeights.MINUTES or PRICE
+     */
+
+    private static boolean isShared(Object edgeWeight) {
+        return edgeWeight == TransportWeights.MINUTES
+                || edgeWeight == TransportWeights.PRICE;
+    }
+
+    /**
+     * The graph the cache holds tables for, together with those tables, so
+     * both are replaced in a single write
+     */
+
+    private static class State<T> {
+
+        private final FrozenTravelGraph graph;
+        private final ConcurrentHashMap<Object, CompletableFuture<T>> tables;
+
+        State(FrozenTravelGraph graph) {
+            this.graph = graph;
+            this.tables = new ConcurrentHashMap<>();
+        }
+
+        /**
+         * Drops tables of weights that are not TransportWeights functions
+         * until at most limit tables are left
+         *
+         * @param limit the most tables to keep
+         * @param keep  the key of the table being built, which is kept
+         */
+
+        void evictOver(int limit, Object keep) {
+            for (Object key : this.tables.keySet()) {
+                if (this.tables.size() <= limit) {
+                    return;
+                }
+                if (key != keep && !isShared(key)) {
+                    this.tables.remove(key);
+                }
+            }
+        }
+    }
+
+    /**
+     * A weight column used as a key, equal to any other column with the
+     * same weights
+     */
+
+    private static final class ColumnKey {
+
+        private final double[] column;
+        private final int hash;
+
+        ColumnKey(double[] column) {
+            this.column = column;
+            this.hash = Arrays.hashCode(column);
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof ColumnKey
+                    && this.hash == ((ColumnKey) other).hash
+                    && Arrays.equals(this.column, ((ColumnKey) other).column);
+        }
+
+        @Override
+        public int hashCode() {
+            return this.hash;
+        }
+    }
+}
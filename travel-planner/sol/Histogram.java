@@ -0,0 +1,273 @@
+package sol;
+
+import java.util.Arrays;
+
+/**
+ * The Histogram class counts non-negative long values in log-linear buckets,
+ * in the style of HdrHistogram, so percentiles of values spread over many
+ * orders of magnitude (such as latencies in nanoseconds) can be read with a
+ * fixed relative error from a small, fixed-size array. Values below
+ * 2^subBucketBits each get their own bucket; above that, every power of two
+ * is split into 2^(subBucketBits - 1) equal buckets, so any recorded value is
+ * off by at most 1 / 2^(subBucketBits - 1) of itself. Recording is a few
+ * shifts and an array increment and never allocates.
+ * <p>
+ * A Histogram is not thread safe. QueryStats gives every thread its own and
+ * adds them up when they are read.
+ */
+
+public class Histogram {
+
+    private final int subBucketBits;
+    private final int subBucketCount;
+    private final int halfCount;
+    private final long highestTrackableValue;
+    private final long[] counts;
+    private long totalCount;
+    private long sum;
+    private long min;
+    private long max;
+
+    /**
+     * Constructor for the Histogram class
+     *
+     * @param highestTrackableValue the largest value kept exactly to within
+     *                              the precision; larger values are counted
+     *                              as this value
+     * @param significantDigits     the number of decimal digits each value
+     *                              is kept to, from 1 to 4
+     * @throws IllegalArgumentException if highestTrackableValue is below 2
+     *                                  or significantDigits is out of range
+     */
+
+    public Histogram(long highestTrackableValue, int significantDigits) {
+        this(subBucketBits(highestTrackableValue, significantDigits),
+                highestTrackableValue);
+    }
+
+    /**
+     * Constructor for an empty histogram with a given number of sub-bucket
+     * bits
+     *
+     * @param subBucketBits         the log2 of the number of values below
+     *                              which every value has its own bucket
+     * @param highestTrackableValue the largest value kept
+     */
+
+    private Histogram(int subBucketBits, long highestTrackableValue) {
+        this.subBucketBits = subBucketBits;
+        this.subBucketCount = 1 << subBucketBits;
+        this.halfCount = this.subBucketCount / 2;
+        this.highestTrackableValue = highestTrackableValue;
+        this.counts = new long[this.indexOf(highestTrackableValue) + 1];
+        this.min = Long.MAX_VALUE;
+    }
+
+    /**
+     * Counts a value. Negative values are counted as 0 and values above the
+     * highest trackable value as that value
+     *
+     * @param value the value
+     */
+
+    public void record(long value) {
+        long clamped = Math.min(Math.max(value, 0), this.highestTrackableValue);
+        this.counts[this.indexOf(clamped)]++;
+        this.totalCount++;
+        this.sum += clamped;
+        if (clamped < this.min) {
+            this.min = clamped;
+        }
+        if (clamped > this.max) {
+            this.max = clamped;
+        }
+    }
+
+    /**
+     * Adds every value counted by another histogram to this one
+     *
+     * @param other a histogram with the same highest value and precision
+     * @throws IllegalArgumentException if the histograms are not alike
+     */
+
+    public void add(Histogram other) {
+        if (other.counts.length != this.counts.length
+                || other.subBucketBits != this.subBucketBits) {
+            throw new IllegalArgumentException("Only histograms with the same "
+                    + "range and precision can be added.");
+        }
+        for (int i = 0; i < this.counts.length; i++) {
+            this.counts[i] += other.counts[i];
+        }
+        this.totalCount += other.totalCount;
+        this.sum += other.sum;
+        this.min = Math.min(this.min, other.min);
+        this.max = Math.max(this.max, other.max);
+    }
+
+    /**
+     * Returns an empty histogram with the same range and precision
+     *
+     * @return the new histogram
+     */
+
+    public Histogram emptyCopy() {
+        return new Histogram(this.subBucketBits, this.highestTrackableValue);
+    }
+
+    /**
+     * Returns a histogram with the same counts as this one
+     *
+     * @return the copy
+     */
+
+    public Histogram copy() {
+        Histogram copy = this.emptyCopy();
+        copy.add(this);
+        return copy;
+    }
+
+    /**
+     * Returns the number of values counted
+     *
+     * @return the count
+     */
+
+    public long getTotalCount() {
+        return this.totalCount;
+    }
+
+    /**
+     * Returns the smallest value counted
+     *
+     * @return the minimum, or 0 if nothing was counted
+     */
+
+    public long getMin() {
+        return this.totalCount == 0 ? 0 : this.min;
+    }
+
+    /**
+     * Returns the largest value counted
+     *
+     * @return the maximum, or 0 if nothing was counted
+     */
+
+    public long getMax() {
+        return this.max;
+    }
+
+    /**
+     * Returns the mean of the values counted
+     *
+     * @return the mean, or 0 if nothing was counted
+     */
+
+    public double getMean() {
+        return this.totalCount == 0 ? 0 : (double) this.sum / this.totalCount;
+    }
+
+    /**
+     * Returns the value below or at which a percentage of the counted values
+     * fall, to the precision of the histogram
+     *
+     * @param percentile a percentage from 0 to 100, such as 99.9
+     * @return the highest value in the bucket of that percentile, no larger
+     * than the maximum, or 0 if nothing was counted
+     * @throws IllegalArgumentException if percentile is not in [0, 100]
+     */
+
+    public long getValueAtPercentile(double percentile) {
+        if (!(percentile >= 0 && percentile <= 100)) {
+            throw new IllegalArgumentException("A percentile must be between 0 "
+                    + "and 100.");
+        }
+        if (this.totalCount == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100
+                * this.totalCount));
+        long seen = 0;
+        for (int i = 0; i < this.counts.length; i++) {
+            seen += this.counts[i];
+            if (seen >= rank) {
+                return Math.min(this.highestValueAt(i), this.max);
+            }
+        }
+        return this.max;
+    }
+
+    /**
+     * Returns the counts of the histogram as an array of (upper bound, count)
+     * pairs for every non-empty bucket, for exporting to other tools
+     *
+     * @return the non-empty buckets in increasing order
+     */
+
+    public long[][] getBuckets() {
+        long[][] buckets = new long[this.counts.length][];
+        int size = 0;
+        for (int i = 0; i < this.counts.length; i++) {
+            if (this.counts[i] > 0) {
+                buckets[size++] = new long[]{this.highestValueAt(i),
+                        this.counts[i]};
+            }
+        }
+        return Arrays.copyOf(buckets, size);
+    }
+
+    /**
+     * Returns the number of sub-bucket bits that keeps values to a number of
+     * significant digits: enough that 2 * 10^digits values each have their
+     * own bucket
+     *
+     * @param highestTrackableValue the largest value to keep
+     * @param significantDigits     the number of decimal digits, 1 to 4
+     * @return the sub-bucket bits
+     * @throws IllegalArgumentException if highestTrackableValue is below 2
+     *                                  or significantDigits is out of range
+     */
+
+    private static int subBucketBits(long highestTrackableValue,
+                                     int significantDigits) {
+        if (highestTrackableValue < 2 || significantDigits < 1
+                || significantDigits > 4) {
+            throw new IllegalArgumentException("A histogram needs a highest "
+                    + "value of at least 2 and 1 to 4 significant digits.");
+        }
+        long needed = 2 * (long) Math.pow(10, significantDigits);
+        return 64 - Long.numberOfLeadingZeros(needed - 1);
+    }
+
+    /**
+     * Returns the bucket of a value
+     *
+     * @param value a value from 0 to the highest trackable value
+     * @return the index of its bucket
+     */
+
+    private int indexOf(long value) {
+        if (value < this.subBucketCount) {
+            return (int) value;
+        }
+        int shift = 63 - Long.numberOfLeadingZeros(value) - (this.subBucketBits - 1);
+        return this.subBucketCount + (shift - 1) * this.halfCount
+                + (int) (value >>> shift) - this.halfCount;
+    }
+
+    /**
+     * Returns the largest value that falls in a bucket
+     *
+     * @param index the index of a bucket
+     * @return the bucket's highest value
+     */
+
+    private long highestValueAt(int index) {
+        if (index < this.subBucketCount) {
+            return index;
+        }
+        int shift = (index - this.subBucketCount) / this.halfCount + 1;
+        long sub = (index - this.subBucketCount) % this.halfCount + this.halfCount;
+        return ((sub + 1) << shift) - 1;
+    }
+}
@@ -0,0 +1,309 @@
+package sol;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+/**
+ * The IndexedMinHeap class is a binary min-heap of dense integer ids ordered
+ * by a double key. Unlike java.util.PriorityQueue, it remembers the slot of
+ * every id in the heap, so lowering the key of an id that is already queued
+ * (decrease-key) takes O(log n) time instead of an O(n) remove and re-add.
+ * The arrays grow as larger ids are inserted and are kept across clear()
+ * calls so one heap can be reused by many searches. The heap also counts
+ * its inserts, key decreases and polls since the last clear(), which is
+ * how searches report the heap work of a query.
+ */
+
+public class IndexedMinHeap {
+
+    private static final int DEFAULT_CAPACITY = 16;
+
+    private int[] heap;
+    private int[] positions;
+    private double[] keys;
+    private int size;
+    private int polls;
+    private int operations;
+
+    /**
+     * Constructor for the IndexedMinHeap class. Creates an empty heap with a
+     * small default capacity
+     */
+
+    public IndexedMinHeap() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Constructor for the IndexedMinHeap class. Creates an empty heap that
+     * can hold ids in the range [0, capacity) without growing
+     *
+     * @param capacity the number of ids to size the heap for
+     */
+
+    public IndexedMinHeap(int capacity) {
+        int initial = Math.max(capacity, 1);
+        this.heap = new int[initial];
+        this.positions = new int[initial];
+        this.keys = new double[initial];
+        Arrays.fill(this.positions, -1);
+        this.size = 0;
+    }
+
+    /**
+     * Returns whether the heap has no ids in it
+     *
+     * @return true if the heap is empty, false otherwise
+     */
+
+    public boolean isEmpty() {
+        return this.size == 0;
+    }
+
+    /**
+     * Returns the number of ids currently in the heap
+     *
+     * @return the size of the heap
+     */
+
+    public int size() {
+        return this.size;
+    }
+
+    /**
+     * Returns whether an id is currently in the heap
+     *
+     * @param id a non-negative id
+     * @return true if the id is queued, false otherwise
+     */
+
+    public boolean contains(int id) {
+        return id < this.positions.length && this.positions[id] >= 0;
+    }
+
+    /**
+     * Returns the key an id is currently queued with
+     *
+     * @param id an id that is in the heap
+     * @return the key of that id
+     * @throws NoSuchElementException if the id is not in the heap
+     */
+
+    public double getKey(int id) {
+        if (!this.contains(id)) {
+            throw new NoSuchElementException("Id " + id + " is not in the heap.");
+        }
+        return this.keys[id];
+    }
+
+    /**
+     * Returns the smallest key in the heap without removing its id
+     *
+     * @return the key of the id that poll would return
+     * @throws NoSuchElementException if the heap is empty
+     */
+
+    public double peekKey() {
+        if (this.size == 0) {
+            throw new NoSuchElementException("The heap is empty.");
+        }
+        return this.keys[this.heap[0]];
+    }
+
+    /**
+     * Adds an id to the heap with the given key
+     *
+     * @param id  a non-negative id that is not already in the heap
+     * @param key the priority of the id (smaller keys are polled first)
+     * @throws IllegalArgumentException if the id is already in the heap
+     */
+
+    public void insert(int id, double key) {
+        this.ensureCapacity(id + 1);
+        if (this.positions[id] >= 0) {
+            throw new IllegalArgumentException("Id " + id + " is already in the heap.");
+        }
+        this.keys[id] = key;
+        this.heap[this.size] = id;
+        this.positions[id] = this.size;
+        this.size++;
+        this.operations++;
+        this.siftUp(this.size - 1);
+    }
+
+    /**
+     * Lowers the key of an id that is already in the heap
+     *
+     * @param id  an id that is in the heap
+     * @param key the new key, which must not be larger than the current one
+     * @throws NoSuchElementException   if the id is not in the heap
+     * @throws IllegalArgumentException if the new key is larger than the
+     *                                  current key
+     */
+
+    public void decreaseKey(int id, double key) {
+        if (!this.contains(id)) {
+            throw new NoSuchElementException("Id " + id + " is not in the heap.");
+        }
+        if (key > this.keys[id]) {
+            throw new IllegalArgumentException("New key is larger than the current key.");
+        }
+        this.keys[id] = key;
+        this.operations++;
+        this.siftUp(this.positions[id]);
+    }
+
+    /**
+     * Sets the key of an id that is already in the heap, moving it up or
+     * down as needed
+     *
+     * @param id  an id that is in the heap
+     * @param key the new key, which may be larger or smaller than the
+     *            current one
+     * @throws NoSuchElementException if the id is not in the heap
+     */
+
+    public void changeKey(int id, double key) {
+        if (!this.contains(id)) {
+            throw new NoSuchElementException("Id " + id + " is not in the heap.");
+        }
+        double oldKey = this.keys[id];
+        this.keys[id] = key;
+        this.operations++;
+        if (key < oldKey) {
+            this.siftUp(this.positions[id]);
+        } else {
+            this.siftDown(this.positions[id]);
+        }
+    }
+
+    /**
+     * Removes and returns the id with the smallest key
+     *
+     * @return the id with the smallest key
+     * @throws NoSuchElementException if the heap is empty
+     */
+
+    public int poll() {
+        if (this.size == 0) {
+            throw new NoSuchElementException("The heap is empty.");
+        }
+        int min = this.heap[0];
+        this.size--;
+        this.polls++;
+        this.operations++;
+        if (this.size > 0) {
+            this.heap[0] = this.heap[this.size];
+            this.positions[this.heap[0]] = 0;
+            this.siftDown(0);
+        }
+        this.positions[min] = -1;
+        return min;
+    }
+
+    /**
+     * Removes every id from the heap and resets its counters. This only
+     * touches the ids that are still queued, so it is cheap after a search
+     * that emptied most of the heap
+     */
+
+    public void clear() {
+        for (int i = 0; i < this.size; i++) {
+            this.positions[this.heap[i]] = -1;
+        }
+        this.size = 0;
+        this.polls = 0;
+        this.operations = 0;
+    }
+
+    /**
+     * Returns the number of ids polled since the last clear
+     *
+     * @return the poll count
+     */
+
+    public int getPollCount() {
+        return this.polls;
+    }
+
+    /**
+     * Returns the number of inserts, key decreases and polls since the last
+     * clear
+     *
+     * @return the operation count
+     */
+
+    public int getOperationCount() {
+        return this.operations;
+    }
+
+    /**
+     * Moves the id at a heap slot up until its parent's key is not larger
+     *
+     * @param slot the heap slot to start from
+     */
+
+    private void siftUp(int slot) {
+        int id = this.heap[slot];
+        double key = this.keys[id];
+        while (slot > 0) {
+            int parentSlot = (slot - 1) >>> 1;
+            int parent = this.heap[parentSlot];
+            if (this.keys[parent] <= key) {
+                break;
+            }
+            this.heap[slot] = parent;
+            this.positions[parent] = slot;
+            slot = parentSlot;
+        }
+        this.heap[slot] = id;
+        this.positions[id] = slot;
+    }
+
+    /**
+     * Moves the id at a heap slot down until neither child has a smaller key
+     *
+     * @param slot the heap slot to start from
+     */
+
+    private void siftDown(int slot) {
+        int id = this.heap[slot];
+        double key = this.keys[id];
+        int half = this.size >>> 1;
+        while (slot < half) {
+            int childSlot = 2 * slot + 1;
+            int child = this.heap[childSlot];
+            int rightSlot = childSlot + 1;
+            if (rightSlot < this.size && this.keys[this.heap[rightSlot]] < this.keys[child]) {
+                childSlot = rightSlot;
+                child = this.heap[rightSlot];
+            }
+            if (key <= this.keys[child]) {
+                break;
+            }
+            this.heap[slot] = child;
+            this.positions[child] = slot;
+            slot = childSlot;
+        }
+        this.heap[slot] = id;
+        this.positions[id] = slot;
+    }
+
+    /**
+     * Grows the backing arrays so that ids below the given bound fit
+     *
+     * @param capacity the number of ids the heap must be able to hold
+     */
+
+    private void ensureCapacity(int capacity) {
+        int oldLength = this.positions.length;
+        if (capacity <= oldLength) {
+            return;
+        }
+        int newLength = Math.max(capacity, oldLength * 2);
+        this.heap = Arrays.copyOf(this.heap, newLength);
+        this.keys = Arrays.copyOf(this.keys, newLength);
+        this.positions = Arrays.copyOf(this.positions, newLength);
+        Arrays.fill(this.positions, oldLength, newLength, -1);
+    }
+}
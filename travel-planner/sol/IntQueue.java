@@ -0,0 +1,105 @@
+package sol;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+/**
+ * The IntQueue class is a first-in first-out queue of ints kept in a ring
+ * buffer whose capacity is a power of two. It grows to the largest number of
+ * ints it has held at once and keeps that capacity when cleared, so a search
+ * that reuses one IntQueue stops allocating once it has seen its widest
+ * frontier.
+ */
+
+public class IntQueue {
+
+    private static final int DEFAULT_CAPACITY = 16;
+
+    private int[] elements;
+    private int head;
+    private int size;
+
+    /**
+     * Constructor for the IntQueue class. Creates an empty queue with a small
+     * default capacity
+     */
+
+    public IntQueue() {
+        this.elements = new int[DEFAULT_CAPACITY];
+    }
+
+    /**
+     * Adds an int to the back of the queue, doubling the ring buffer if it
+     * is full
+     *
+     * @param value the int to add
+     */
+
+    public void add(int value) {
+        if (this.size == this.elements.length) {
+            this.grow();
+        }
+        this.elements[(this.head + this.size) & (this.elements.length - 1)] =
+                value;
+        this.size++;
+    }
+
+    /**
+     * Removes and returns the int at the front of the queue
+     *
+     * @return the int that was added longest ago
+     * @throws NoSuchElementException if the queue is empty
+     */
+
+    public int poll() {
+        if (this.size == 0) {
+            throw new NoSuchElementException("The queue is empty.");
+        }
+        int value = this.elements[this.head];
+        this.head = (this.head + 1) & (this.elements.length - 1);
+        this.size--;
+        return value;
+    }
+
+    /**
+     * Returns whether the queue holds no ints
+     *
+     * @return true if the queue is empty, false otherwise
+     */
+
+    public boolean isEmpty() {
+        return this.size == 0;
+    }
+
+    /**
+     * Returns the number of ints in the queue
+     *
+     * @return the size of the queue
+     */
+
+    public int size() {
+        return this.size;
+    }
+
+    /**
+     * Removes every int from the queue in O(1) time, keeping its capacity
+     */
+
+    public void clear() {
+        this.head = 0;
+        this.size = 0;
+    }
+
+    /**
+     * Doubles the ring buffer, moving the queued ints to its start in order
+     */
+
+    private void grow() {
+        int[] grown = Arrays.copyOfRange(this.elements, this.head,
+                this.head + this.elements.length * 2);
+        System.arraycopy(this.elements, 0, grown,
+                this.elements.length - this.head, this.head);
+        this.elements = grown;
+        this.head = 0;
+    }
+}
@@ -0,0 +1,331 @@
+package sol;
+
+import src.City;
+import src.ICountedSearch;
+import src.IGraph;
+import src.IPreprocessedDijkstra;
+import src.SearchWork;
+import src.Transport;
+
+import java.util.*;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * The LandmarkAStar class finds the least cost path between two cities of a
+ * FrozenTravelGraph with A* search, using the landmark lower bounds of a
+ * LandmarkTable (the ALT heuristic) to steer the search toward the
+ * destination. Cities are expanded in order of the weight of the path found
+ * to them plus the lower bound on the rest of the way, and cities the
+ * landmarks prove cannot reach the destination are never queued. A table is
+ * built for each edge weight (given by either a Function or a
+ * ToDoubleFunction) the first time it is used on a graph, or ahead of time
+ * through preprocess.
+ */
+
+public class LandmarkAStar implements IPreprocessedDijkstra<City, Transport>,
+        ICountedSearch {
+
+    private final int landmarkCount;
+    private final GraphTableCache<LandmarkTable> tables;
+    private final ThreadLocal<Buffers> buffers;
+
+    /**
+     * Constructor for the LandmarkAStar class. Uses the default number of
+     * landmarks
+     */
+
+    public LandmarkAStar() {
+        this(LandmarkTable.DEFAULT_LANDMARK_COUNT);
+    }
+
+    /**
+     * Constructor for the LandmarkAStar class. Landmark tables are kept
+     * between calls to getShortestPath and shared by all threads, and each
+     * thread gets its own search buffers, so a single LandmarkAStar object
+     * may be used by many threads at once
+     *
+     * @param landmarkCount the number of landmarks per table
+     */
+
+    public LandmarkAStar(int landmarkCount) {
+        this.landmarkCount = landmarkCount;
+        this.tables = new GraphTableCache<>();
+        this.buffers = ThreadLocal.withInitial(Buffers::new);
+    }
+
+    /**
+     * Returns the work of the last query the calling thread ran
+     *
+     * @return the settled, relaxed and heap operation counts of that query
+     */
+
+    @Override
+    public SearchWork getLastWork() {
+        return this.buffers.get().work;
+    }
+
+    /**
+     * Builds the landmark table for a graph and weight function if it does
+     * not exist yet
+     *
+     * @param graph      the FrozenTravelGraph to preprocess
+     * @param edgeWeight the weight function to preprocess for
+     * @throws IllegalArgumentException if the graph is not frozen
+     */
+
+    @Override
+    public void preprocess(IGraph<City, Transport> graph,
+                           Function<Transport, Double> edgeWeight) {
+        FrozenTravelGraph frozen = this.requireFrozen(graph);
+        this.getTable(frozen, edgeWeight, () -> frozen.toWeightColumn(edgeWeight));
+    }
+
+    /**
+     * Takes over the landmark tables another search built for a graph, for
+     * a changed version of that graph. A table is only kept if its weight
+     * is one of the TransportWeights functions and keep accepts it; the
+     * others are built again by the next preprocess or query
+     *
+     * @param previous the search that holds tables for the old graph
+     * @param from     the old graph
+     * @param to       the changed graph, with the same cities and ids
+     * @param keep     whether the old table of a weight function is still
+     *                 right for the changed graph
+     */
+
+    @SuppressWarnings("unchecked")
+    void carryOver(LandmarkAStar previous, FrozenTravelGraph from,
+                   FrozenTravelGraph to, Predicate<Object> keep) {
+        this.tables.carryOver(previous.tables, from, to, (weight, table) -> {
+            double[] weights = weight instanceof Function
+                    ? to.getWeightColumn((Function<Transport, Double>) weight)
+                    : null;
+            return weights != null && keep.test(weight)
+                    ? table.reuseFor(to, weights) : null;
+        });
+    }
+
+    /**
+     * Returns a list of Transports representing the path of the least weight
+     * (determined by edgeWeight parameter) from a start to end city
+     *
+     * @param graph       a FrozenTravelGraph including the cities
+     * @param source      the source city
+     * @param destination the destination city
+     * @param edgeWeight  a function that indicates how to weigh an edge for
+     *                    a particular run of the algorithm
+     * @return a list of Transports representing the path of the least weight
+     * from source to destination, or an empty list if there is none
+     * @throws IllegalArgumentException if the graph is not frozen
+     */
+
+    @Override
+    public List<Transport> getShortestPath(IGraph<City, Transport> graph,
+                                           City source, City destination,
+                                           Function<Transport, Double> edgeWeight) {
+        FrozenTravelGraph frozen = this.requireFrozen(graph);
+        return this.search(frozen, source, destination, this.getTable(frozen,
+                edgeWeight, () -> frozen.toWeightColumn(edgeWeight)));
+    }
+
+    /**
+     * Returns a list of Transports representing the path of the least weight
+     * (determined by edgeWeight parameter) from a start to end city
+     *
+     * @param graph       a FrozenTravelGraph including the cities
+     * @param source      the source city
+     * @param destination the destination city
+     * @param edgeWeight  the weight of an edge
+     * @return a list of Transports representing the path of the least weight
+     * from source to destination, or an empty list if there is none
+     * @throws IllegalArgumentException if the graph is not frozen
+     */
+
+    @Override
+    public List<Transport> getShortestPathDouble(IGraph<City, Transport> graph,
+                                                 City source, City destination,
+                                                 ToDoubleFunction<Transport> edgeWeight) {
+        FrozenTravelGraph frozen = this.requireFrozen(graph);
+        return this.search(frozen, source, destination, this.getTable(frozen,
+                edgeWeight, () -> frozen.computeWeightColumn(edgeWeight)));
+    }
+
+    /**
+     * Runs A* from the source to the destination, guided by the bounds of a
+     * landmark table and weighing edges with the table's weights
+     *
+     * @param frozen      the frozen graph to search
+     * @param source      the source city
+     * @param destination the destination city
+     * @param table       the landmark table for the weight being minimized
+     * @return a list of Transports representing the path of the least weight
+     * from source to destination, or an empty list if there is none
+     */
+
+    private List<Transport> search(FrozenTravelGraph frozen, City source,
+                                   City destination, LandmarkTable table) {
+        int sourceId = frozen.getVertexId(source);
+        int destId = frozen.getVertexId(destination);
+        Buffers buffers = this.buffers.get();
+        buffers.reset(frozen.getVertexCount());
+        if (sourceId == destId) {
+            return Collections.emptyList();
+        }
+        double[] weights = table.getWeights();
+        IndexedMinHeap queue = buffers.queue;
+        VisitedSet reached = buffers.reached;
+        double[] pathWeights = buffers.pathWeights;
+        double[] bounds = buffers.bounds;
+        int[] parentEdges = buffers.parentEdges;
+
+        reached.add(sourceId);
+        pathWeights[sourceId] = 0.0;
+        bounds[sourceId] = table.lowerBound(sourceId, destId);
+        if (bounds[sourceId] == Double.POSITIVE_INFINITY) {
+            return Collections.emptyList();
+        }
+        queue.insert(sourceId, bounds[sourceId]);
+        long relaxed = 0;
+
+        while (!queue.isEmpty()) {
+            int current = queue.poll();
+            if (current == destId) {
+                buffers.recordWork(relaxed);
+                return this.buildFinalPath(frozen, parentEdges, sourceId,
+                        destId);
+            }
+            int start = frozen.getFirstEdge(current);
+            int end = frozen.getEdgeEnd(current);
+            relaxed += end - start;
+            for (int edge = start; edge < end; edge++) {
+                int next = frozen.getTargetId(edge);
+                double newWeight = pathWeights[current] + weights[edge];
+                if (reached.add(next)) {
+                    bounds[next] = table.lowerBound(next, destId);
+                } else if (newWeight >= pathWeights[next]) {
+                    continue;
+                }
+                pathWeights[next] = newWeight;
+                parentEdges[next] = edge;
+                if (bounds[next] == Double.POSITIVE_INFINITY) {
+                    continue;
+                }
+                /* a closed city is reopened if a lighter path to it turns
+                   up, which keeps the result exact even if rounding makes
+                   the bounds slightly inconsistent */
+                double priority = newWeight + bounds[next];
+                if (queue.contains(next)) {
+                    queue.decreaseKey(next, priority);
+                } else {
+                    queue.insert(next, priority);
+                }
+            }
+        }
+        buffers.recordWork(relaxed);
+        return Collections.emptyList();
+    }
+
+    /**
+     * Returns the landmark table for a graph and weight function, building
+     * it the first time it is needed
+     *
+     * @param graph      a frozen graph
+     * @param edgeWeight an edge weight function
+     * @param weights    computes the weight of every edge under edgeWeight
+     * @return the matching landmark table
+     */
+
+    private LandmarkTable getTable(FrozenTravelGraph graph, Object edgeWeight,
+                                   Supplier<double[]> weights) {
+        return this.tables.get(graph, edgeWeight, weights, column ->
+                new LandmarkTable(graph, column, this.landmarkCount));
+    }
+
+    /**
+     * Returns a graph as a FrozenTravelGraph
+     *
+     * @param graph a graph
+     * @return the same graph
+     * @throws IllegalArgumentException if the graph is not frozen
+     */
+
+    private FrozenTravelGraph requireFrozen(IGraph<City, Transport> graph) {
+        if (!(graph instanceof FrozenTravelGraph)) {
+            throw new IllegalArgumentException("Landmark A* needs a "
+                    + "FrozenTravelGraph.");
+        }
+        return (FrozenTravelGraph) graph;
+    }
+
+    /**
+     * Reconstructs the final path of Transports by following the parent
+     * edge of each city back to the source
+     *
+     * @param graph       the frozen graph that was searched
+     * @param parentEdges the last edge of the path to every reached city
+     * @param sourceId    the id of the source city
+     * @param destId      the id of the destination city
+     * @return a list of Transports from source to destination
+     */
+
+    private List<Transport> buildFinalPath(FrozenTravelGraph graph,
+                                           int[] parentEdges, int sourceId,
+                                           int destId) {
+        LinkedList<Transport> path = new LinkedList<>();
+        int node = destId;
+        while (node != sourceId) {
+            int incomingEdge = parentEdges[node];
+            path.addFirst(graph.getEdge(incomingEdge));
+            node = graph.getSourceId(incomingEdge);
+        }
+        return path;
+    }
+
+    /**
+     * The search buffers of one thread. The per-city arrays are only grown,
+     * never cleared, since a city's entries are written when it is first
+     * reached
+     */
+
+    private static class Buffers {
+
+        private final IndexedMinHeap queue = new IndexedMinHeap();
+        private final VisitedSet reached = new VisitedSet();
+        private double[] pathWeights = new double[0];
+        private double[] bounds = new double[0];
+        private int[] parentEdges = new int[0];
+        private final SearchWork work = new SearchWork();
+
+        /**
+         * Empties the queue and the reached set, zeroes the recorded work
+         * and grows the per-city arrays to hold every city of a graph
+         *
+         * @param vertexCount the number of cities in the graph
+         */
+
+        void reset(int vertexCount) {
+            this.queue.clear();
+            this.reached.clear();
+            this.work.record(0, 0, 0);
+            if (this.pathWeights.length < vertexCount) {
+                this.pathWeights = new double[vertexCount];
+                this.bounds = new double[vertexCount];
+                this.parentEdges = new int[vertexCount];
+            }
+        }
+
+        /**
+         * Records the work of the query that just ended
+         *
+         * @param relaxed the number of edges it looked at
+         */
+
+        void recordWork(long relaxed) {
+            this.work.record(this.queue.getPollCount(), relaxed,
+                    this.queue.getOperationCount());
+        }
+    }
+}
@@ -0,0 +1,281 @@
+package sol;
+
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * The LandmarkTable class holds the exact distances from and to a small set
+ * of landmark cities of a FrozenTravelGraph under one edge weight. By the
+ * triangle inequality, for any landmark L and cities v and t,
+ * d(v, t) >= d(L, t) - d(L, v) and d(v, t) >= d(v, L) - d(t, L), so the
+ * table gives an admissible and consistent lower bound on the weight of the
+ * lightest path between any two cities (the ALT heuristic for A*).
+ * <p>
+ * Landmarks are picked greedily so that each one is as many hops as possible
+ * from the ones before it, and the one Dijkstra per landmark and direction
+ * is run in parallel. Distances are stored vertex-major, so the bounds for a
+ * city read one contiguous run of the arrays.
+ */
+
+public class LandmarkTable {
+
+    public static final int DEFAULT_LANDMARK_COUNT = 8;
+
+    private final FrozenTravelGraph graph;
+    private final double[] weights;
+    private final int[] landmarks;
+    private final double[] fromLandmarks;
+    private final double[] toLandmarks;
+
+    /**
+     * Constructor for the LandmarkTable class. Picks the landmarks and
+     * computes their distance tables in parallel on the common
+     * ForkJoinPool
+     *
+     * @param graph         the frozen graph to build the table for
+     * @param weights       the non-negative weight of every edge, indexed by
+     *                      edge id
+     * @param landmarkCount the number of landmarks to use (at most the number
+     *                      of cities)
+     */
+
+    public LandmarkTable(FrozenTravelGraph graph, double[] weights,
+                         int landmarkCount) {
+        this.graph = graph;
+        this.weights = weights;
+        this.landmarks = this.pickLandmarks(Math.min(landmarkCount,
+                graph.getVertexCount()));
+        int k = this.landmarks.length;
+        int vertexCount = graph.getVertexCount();
+        this.fromLandmarks = new double[vertexCount * k];
+        this.toLandmarks = new double[vertexCount * k];
+
+        /* task i < k fills the distances from landmark i, task k + i the
+           distances to landmark i; tasks write disjoint slots */
+        IntStream.range(0, 2 * k).parallel().forEach(task -> {
+            int i = task % k;
+            boolean forward = task < k;
+            double[] distances = this.dijkstra(this.landmarks[i], forward);
+            double[] table = forward ? this.fromLandmarks : this.toLandmarks;
+            for (int v = 0; v < vertexCount; v++) {
+                table[v * k + i] = distances[v];
+            }
+        });
+    }
+
+    /**
+     * Constructor for the LandmarkTable class that reuses the distances of
+     * another table
+     *
+     * @param graph   the graph the table is for
+     * @param weights the weight of every edge of that graph
+     * @param source  the table whose landmarks and distances are reused
+     */
+
+    private LandmarkTable(FrozenTravelGraph graph, double[] weights,
+                          LandmarkTable source) {
+        this.graph = graph;
+        this.weights = weights;
+        this.landmarks = source.landmarks;
+        this.fromLandmarks = source.fromLandmarks;
+        this.toLandmarks = source.toLandmarks;
+    }
+
+    /**
+     * Returns a table for a changed version of the graph that keeps this
+     * table's landmark distances. The bounds stay admissible and consistent
+     * as long as the change kept every city's id and could only make paths
+     * heavier (edges removed or made heavier), since the true distances can
+     * then only have grown
+     *
+     * @param changed the changed graph, with the same cities and ids
+     * @param weights the weight of every edge of the changed graph
+     * @return a table for the changed graph
+     */
+
+    LandmarkTable reuseFor(FrozenTravelGraph changed, double[] weights) {
+        return new LandmarkTable(changed, weights, this);
+    }
+
+    /**
+     * Returns the frozen graph this table was built for
+     *
+     * @return the graph
+     */
+
+    public FrozenTravelGraph getGraph() {
+        return this.graph;
+    }
+
+    /**
+     * Returns the edge weights this table was built for
+     *
+     * @return the weight of every edge, indexed by edge id
+     */
+
+    public double[] getWeights() {
+        return this.weights;
+    }
+
+    /**
+     * Returns the ids of the landmark cities
+     *
+     * @return a copy of the landmark ids
+     */
+
+    public int[] getLandmarks() {
+        return this.landmarks.clone();
+    }
+
+    /**
+     * Returns a lower bound on the weight of the lightest path between two
+     * cities. The bound is infinite when the landmarks prove that there is
+     * no path at all
+     *
+     * @param v the id of the city the path starts at
+     * @param t the id of the city the path ends at
+     * @return a lower bound on d(v, t)
+     */
+
+    public double lowerBound(int v, int t) {
+        int k = this.landmarks.length;
+        int vBase = v * k;
+        int tBase = t * k;
+        double bound = 0.0;
+        for (int i = 0; i < k; i++) {
+            double fromV = this.fromLandmarks[vBase + i];
+            double fromT = this.fromLandmarks[tBase + i];
+            if (fromV != Double.POSITIVE_INFINITY) {
+                if (fromT == Double.POSITIVE_INFINITY) {
+                    // L reaches v but not t, so v cannot reach t either
+                    return Double.POSITIVE_INFINITY;
+                }
+                bound = Math.max(bound, fromT - fromV);
+            }
+            double toV = this.toLandmarks[vBase + i];
+            double toT = this.toLandmarks[tBase + i];
+            if (toT != Double.POSITIVE_INFINITY) {
+                if (toV == Double.POSITIVE_INFINITY) {
+                    // t reaches L but v does not, so v cannot reach t either
+                    return Double.POSITIVE_INFINITY;
+                }
+                bound = Math.max(bound, toV - toT);
+            }
+        }
+        return bound;
+    }
+
+    /**
+     * Picks landmarks greedily: each new landmark is the city with the most
+     * hops (ignoring edge direction) to the closest landmark picked so far,
+     * with unreachable cities counting as farthest. The first landmark is
+     * the city farthest from city 0
+     *
+     * @param count the number of landmarks to pick
+     * @return the ids of the landmarks
+     */
+
+    private int[] pickLandmarks(int count) {
+        int vertexCount = this.graph.getVertexCount();
+        int[] picked = new int[count];
+        if (count == 0) {
+            return picked;
+        }
+        int[] hops = new int[vertexCount];
+        int[] queue = new int[vertexCount];
+        Arrays.fill(hops, Integer.MAX_VALUE);
+        int farthest = this.spreadHops(0, hops, queue);
+        Arrays.fill(hops, Integer.MAX_VALUE);
+        for (int i = 0; i < count; i++) {
+            picked[i] = farthest;
+            farthest = this.spreadHops(farthest, hops, queue);
+        }
+        return picked;
+    }
+
+    /**
+     * Lowers the hop counts of all cities to at most their hop distance from
+     * a new landmark (a BFS over outgoing and incoming edges), and returns
+     * the city whose hop count is then the largest
+     *
+     * @param landmark the id of the new landmark
+     * @param hops     the hop count of every city to its closest landmark
+     * @param queue    a scratch array with room for every city
+     * @return the id of the city farthest from all landmarks so far
+     */
+
+    private int spreadHops(int landmark, int[] hops, int[] queue) {
+        int head = 0;
+        int tail = 0;
+        hops[landmark] = 0;
+        queue[tail++] = landmark;
+        while (head < tail) {
+            int current = queue[head++];
+            int next = hops[current] + 1;
+            for (int e = this.graph.getFirstEdge(current);
+                 e < this.graph.getEdgeEnd(current); e++) {
+                int neighbor = this.graph.getTargetId(e);
+                if (next < hops[neighbor]) {
+                    hops[neighbor] = next;
+                    queue[tail++] = neighbor;
+                }
+            }
+            for (int p = this.graph.getFirstIncoming(current);
+                 p < this.graph.getIncomingEnd(current); p++) {
+                int neighbor = this.graph.getIncomingSource(p);
+                if (next < hops[neighbor]) {
+                    hops[neighbor] = next;
+                    queue[tail++] = neighbor;
+                }
+            }
+        }
+        int farthest = 0;
+        for (int v = 1; v < hops.length; v++) {
+            if (hops[v] > hops[farthest]) {
+                farthest = v;
+            }
+        }
+        return farthest;
+    }
+
+    /**
+     * Runs a full Dijkstra from a landmark, over outgoing edges for the
+     * distances from it or over incoming edges for the distances to it
+     *
+     * @param landmark the id of the landmark
+     * @param forward  whether to follow edges forward
+     * @return the distance of every city, or infinity if it is unreachable
+     */
+
+    private double[] dijkstra(int landmark, boolean forward) {
+        int vertexCount = this.graph.getVertexCount();
+        double[] distances = new double[vertexCount];
+        Arrays.fill(distances, Double.POSITIVE_INFINITY);
+        IndexedMinHeap queue = new IndexedMinHeap(vertexCount);
+        distances[landmark] = 0.0;
+        queue.insert(landmark, 0.0);
+        while (!queue.isEmpty()) {
+            double distance = queue.peekKey();
+            int current = queue.poll();
+            int first = forward ? this.graph.getFirstEdge(current)
+                    : this.graph.getFirstIncoming(current);
+            int last = forward ? this.graph.getEdgeEnd(current)
+                    : this.graph.getIncomingEnd(current);
+            for (int i = first; i < last; i++) {
+                int edge = forward ? i : this.graph.getIncomingEdge(i);
+                int neighbor = forward ? this.graph.getTargetId(edge)
+                        : this.graph.getIncomingSource(i);
+                double newDistance = distance + this.weights[edge];
+                if (newDistance < distances[neighbor]) {
+                    if (queue.contains(neighbor)) {
+                        queue.decreaseKey(neighbor, newDistance);
+                    } else {
+                        queue.insert(neighbor, newDistance);
+                    }
+                    distances[neighbor] = newDistance;
+                }
+            }
+        }
+        return distances;
+    }
+}
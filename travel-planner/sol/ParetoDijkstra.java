@@ -0,0 +1,474 @@
+package sol;
+
+import src.City;
+import src.ICountedSearch;
+import src.SearchWork;
+import src.Transport;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The ParetoDijkstra class finds, in one search, every Pareto-optimal route
+ * between two cities of a FrozenTravelGraph over price and minutes: every
+ * route that no other route beats on one of the two without losing on the
+ * other. The cheapest route, the fastest route and each trade-off between
+ * them are found together.
+ * <p>
+ * The search is a multi-label Dijkstra. A label is a partial route to a
+ * city, kept as a row of parallel primitive arrays (city, parent label,
+ * last edge, price and minutes), and labels leave the heap in order of
+ * price, then minutes. Every label a city settles after its first one
+ * costs at least as much, so the label is only worth keeping if it is
+ * faster than all of them, and the Pareto bag of a city shrinks to the
+ * fewest minutes it has settled. Before the main search, two backward
+ * Dijkstras from the destination give a lower bound on the price and on
+ * the minutes left from each city, and stop once they reach the source.
+ * Labels are ordered by price and minutes plus those bounds, and a label is
+ * dropped once the bounds show it cannot beat a route already found to the
+ * destination, cost more than a fastest route or take longer than a
+ * cheapest one. Buffers are kept between calls, so an object should not be
+ * shared between threads.
+ */
+
+public class ParetoDijkstra implements ICountedSearch {
+
+    private static final double SLACK = 1e-9;
+
+    private final Bound priceBound;
+    private final Bound minutesBound;
+    private final VisitedSet labelled;
+    private final SearchWork work;
+    private double[] bestMinutes;
+    private int[] labelCities;
+    private int[] labelParents;
+    private int[] labelEdges;
+    private double[] labelPrices;
+    private double[] labelMinutes;
+    private double[] keyPrices;
+    private double[] keyMinutes;
+    private int labelCount;
+    private int[] heap;
+    private int heapSize;
+    private int[] routeLabels;
+    private int routeCount;
+
+    /**
+     * Constructor for the ParetoDijkstra class. The label arrays start small
+     * and grow to the most labels a search has needed
+     */
+
+    public ParetoDijkstra() {
+        this.priceBound = new Bound(true);
+        this.minutesBound = new Bound(false);
+        this.labelled = new VisitedSet();
+        this.routeLabels = new int[8];
+        this.work = new SearchWork();
+        this.bestMinutes = new double[0];
+        this.labelCities = new int[64];
+        this.labelParents = new int[64];
+        this.labelEdges = new int[64];
+        this.labelPrices = new double[64];
+        this.labelMinutes = new double[64];
+        this.keyPrices = new double[64];
+        this.keyMinutes = new double[64];
+        this.heap = new int[64];
+    }
+
+    /**
+     * Returns the work of the last search, including its two backward
+     * searches. A label that is settled counts as settled, and a label that
+     * is dropped when it leaves the heap does not
+     *
+     * @return the settled, relaxed and heap operation counts of that search
+     */
+
+    @Override
+    public SearchWork getLastWork() {
+        return this.work;
+    }
+
+    /**
+     * Returns every Pareto-optimal route from start to end over price and
+     * minutes. Of routes with the same price, up to rounding, only the
+     * fastest is kept
+     *
+     * @param graph the frozen graph to search
+     * @param start the start city
+     * @param end   the end city
+     * @return an unmodifiable list of the routes, each an unmodifiable list
+     * of Transports, from the cheapest to the fastest; a single empty route
+     * if start is end, or no routes if end cannot be reached
+     * @throws IllegalArgumentException if a city is not in the graph
+     */
+
+    public List<List<Transport>> getRoutes(FrozenTravelGraph graph, City start,
+                                           City end) {
+        int source = graph.getVertexId(start);
+        int destination = graph.getVertexId(end);
+        if (source == destination) {
+            this.work.record(0, 0, 0);
+            return List.of(List.of());
+        }
+        if (!this.minutesBound.compute(graph, destination, source)) {
+            this.work.record(this.minutesBound.settled,
+                    this.minutesBound.relaxed, this.minutesBound.heapOperations);
+            return Collections.emptyList();
+        }
+        this.priceBound.compute(graph, destination, source);
+        // a fastest route costs at least as much as every Pareto route, and a
+        // cheapest route takes at least as long
+        double maxPrice = this.minutesBound.routeTotal(graph, source,
+                destination, true);
+        double maxMinutes = this.priceBound.routeTotal(graph, source,
+                destination, false);
+        maxPrice += SLACK * maxPrice;
+        maxMinutes += SLACK * maxMinutes;
+
+        this.ensureCapacity(graph.getVertexCount());
+        this.labelled.clear();
+        this.routeCount = 0;
+        this.labelCount = 0;
+        this.heapSize = 0;
+        this.push(this.addLabel(source, -1, -1, 0, 0,
+                this.priceBound.lowerBound(source),
+                this.minutesBound.lowerBound(source)));
+        long settled = 0;
+        long relaxed = 0;
+        long heapOperations = 1;
+        double destinationMinutes = Double.POSITIVE_INFINITY;
+
+        while (this.heapSize > 0) {
+            int label = this.poll();
+            heapOperations++;
+            int city = this.labelCities[label];
+            double minutes = this.labelMinutes[label];
+            if (this.keyMinutes[label] >= destinationMinutes
+                    || (this.labelled.contains(city)
+                    && minutes >= this.bestMinutes[city])) {
+                continue;
+            }
+            this.labelled.add(city);
+            this.bestMinutes[city] = minutes;
+            settled++;
+            double price = this.labelPrices[label];
+            if (city == destination) {
+                this.addRoute(label, price);
+                destinationMinutes = minutes;
+                continue;
+            }
+            int last = graph.getEdgeEnd(city);
+            for (int edge = graph.getFirstEdge(city); edge < last; edge++) {
+                relaxed++;
+                int next = graph.getTargetId(edge);
+                double nextMinutes = minutes + graph.getMinutes(edge);
+                if (this.labelled.contains(next)
+                        && nextMinutes >= this.bestMinutes[next]) {
+                    continue;
+                }
+                double nextKeyMinutes = nextMinutes
+                        + this.minutesBound.lowerBound(next);
+                if (nextKeyMinutes >= destinationMinutes
+                        || nextKeyMinutes > maxMinutes) {
+                    continue;
+                }
+                double nextPrice = price + graph.getPrice(edge);
+                double nextKeyPrice = nextPrice + this.priceBound.lowerBound(next);
+                if (nextKeyPrice > maxPrice) {
+                    continue;
+                }
+                this.push(this.addLabel(next, label, edge, nextPrice,
+                        nextMinutes, nextKeyPrice, nextKeyMinutes));
+                heapOperations++;
+            }
+        }
+        this.work.record(settled + this.minutesBound.settled
+                        + this.priceBound.settled,
+                relaxed + this.minutesBound.relaxed + this.priceBound.relaxed,
+                heapOperations + this.minutesBound.heapOperations
+                        + this.priceBound.heapOperations);
+        return this.buildRoutes(graph);
+    }
+
+    /**
+     * Keeps a label settled at the destination as a route. Labels are
+     * settled from the cheapest, so if the last route kept costs the same up
+     * to rounding, the new one is faster and takes its place
+     *
+     * @param label the id of the label
+     * @param price the price of its route
+     */
+
+    private void addRoute(int label, double price) {
+        if (this.routeCount > 0 && price - this.labelPrices[
+                this.routeLabels[this.routeCount - 1]] <= SLACK * price) {
+            this.routeCount--;
+        }
+        if (this.routeCount == this.routeLabels.length) {
+            this.routeLabels = Arrays.copyOf(this.routeLabels, this.routeCount * 2);
+        }
+        this.routeLabels[this.routeCount++] = label;
+    }
+
+    /**
+     * Builds the route of every label kept by addRoute, in the order they
+     * were settled
+     *
+     * @param graph the frozen graph that was searched
+     * @return an unmodifiable list of the routes
+     */
+
+    private List<List<Transport>> buildRoutes(FrozenTravelGraph graph) {
+        List<List<Transport>> routes = new ArrayList<>(this.routeCount);
+        for (int i = 0; i < this.routeCount; i++) {
+            int label = this.routeLabels[i];
+            int length = 0;
+            for (int l = label; this.labelParents[l] != -1; l = this.labelParents[l]) {
+                length++;
+            }
+            Transport[] route = new Transport[length];
+            for (int l = label; this.labelParents[l] != -1; l = this.labelParents[l]) {
+                route[--length] = graph.getEdge(this.labelEdges[l]);
+            }
+            routes.add(Collections.unmodifiableList(Arrays.asList(route)));
+        }
+        return Collections.unmodifiableList(routes);
+    }
+
+    /**
+     * Stores a new label, growing the label arrays if needed
+     *
+     * @param city       the id of the city the label reaches
+     * @param parent     the label it extends, or -1 for the first label
+     * @param edge       the edge from the parent's city, or -1
+     * @param price      the price of the partial route
+     * @param minutes    the minutes of the partial route
+     * @param keyPrice   the price plus the lower bound left from the city
+     * @param keyMinutes the minutes plus the lower bound left from the city
+     * @return the id of the label
+     */
+
+    private int addLabel(int city, int parent, int edge, double price,
+                         double minutes, double keyPrice, double keyMinutes) {
+        int label = this.labelCount++;
+        if (label == this.labelCities.length) {
+            int capacity = label * 2;
+            this.labelCities = Arrays.copyOf(this.labelCities, capacity);
+            this.labelParents = Arrays.copyOf(this.labelParents, capacity);
+            this.labelEdges = Arrays.copyOf(this.labelEdges, capacity);
+            this.labelPrices = Arrays.copyOf(this.labelPrices, capacity);
+            this.labelMinutes = Arrays.copyOf(this.labelMinutes, capacity);
+            this.keyPrices = Arrays.copyOf(this.keyPrices, capacity);
+            this.keyMinutes = Arrays.copyOf(this.keyMinutes, capacity);
+        }
+        this.labelCities[label] = city;
+        this.labelParents[label] = parent;
+        this.labelEdges[label] = edge;
+        this.labelPrices[label] = price;
+        this.labelMinutes[label] = minutes;
+        this.keyPrices[label] = keyPrice;
+        this.keyMinutes[label] = keyMinutes;
+        return label;
+    }
+
+    /**
+     * Adds a label to the heap
+     *
+     * @param label the id of the label
+     */
+
+    private void push(int label) {
+        if (this.heapSize == this.heap.length) {
+            this.heap = Arrays.copyOf(this.heap, this.heapSize * 2);
+        }
+        int slot = this.heapSize++;
+        while (slot > 0) {
+            int parent = (slot - 1) >>> 1;
+            if (!this.less(label, this.heap[parent])) {
+                break;
+            }
+            this.heap[slot] = this.heap[parent];
+            slot = parent;
+        }
+        this.heap[slot] = label;
+    }
+
+    /**
+     * Removes and returns the label with the lowest key price, breaking ties
+     * by key minutes
+     *
+     * @return the id of the label
+     */
+
+    private int poll() {
+        int top = this.heap[0];
+        int label = this.heap[--this.heapSize];
+        int slot = 0;
+        while (true) {
+            int child = 2 * slot + 1;
+            if (child >= this.heapSize) {
+                break;
+            }
+            if (child + 1 < this.heapSize
+                    && this.less(this.heap[child + 1], this.heap[child])) {
+                child++;
+            }
+            if (!this.less(this.heap[child], label)) {
+                break;
+            }
+            this.heap[slot] = this.heap[child];
+            slot = child;
+        }
+        this.heap[slot] = label;
+        return top;
+    }
+
+    /**
+     * Returns whether a label comes before another in the heap
+     *
+     * @param a the id of a label
+     * @param b the id of another label
+     * @return true if a has a lower key price, or the same key price and
+     * lower key minutes
+     */
+
+    private boolean less(int a, int b) {
+        return this.keyPrices[a] < this.keyPrices[b]
+                || (this.keyPrices[a] == this.keyPrices[b]
+                && this.keyMinutes[a] < this.keyMinutes[b]);
+    }
+
+    /**
+     * Grows the per-city array to fit a graph
+     *
+     * @param vertexCount the number of cities in the graph
+     */
+
+    private void ensureCapacity(int vertexCount) {
+        if (this.bestMinutes.length < vertexCount) {
+            this.bestMinutes = new double[vertexCount];
+        }
+    }
+
+    /**
+     * A backward Dijkstra from the destination over one criterion, which
+     * stops once it settles the source. Cities it settled know their exact
+     * cost to the destination; every other city costs at least as much as
+     * the source, which keeps the bound consistent along every edge
+     */
+
+    private static class Bound {
+
+        private final boolean price;
+        private final IndexedMinHeap queue = new IndexedMinHeap();
+        private final VisitedSet reached = new VisitedSet();
+        private final VisitedSet settledSet = new VisitedSet();
+        private double[] costs = new double[0];
+        private int[] nextEdges = new int[0];
+        private double radius;
+        private long settled;
+        private long relaxed;
+        private long heapOperations;
+
+        /**
+         * Constructor for a bound
+         *
+         * @param price true to bound the price, false to bound the minutes
+         */
+
+        Bound(boolean price) {
+            this.price = price;
+        }
+
+        /**
+         * Runs the backward search
+         *
+         * @param graph       the frozen graph to search
+         * @param destination the id of the city the search starts from
+         * @param source      the id of the city the search stops at
+         * @return true if the source can reach the destination
+         */
+
+        boolean compute(FrozenTravelGraph graph, int destination, int source) {
+            if (this.costs.length < graph.getVertexCount()) {
+                this.costs = new double[graph.getVertexCount()];
+                this.nextEdges = new int[graph.getVertexCount()];
+            }
+            this.queue.clear();
+            this.reached.clear();
+            this.settledSet.clear();
+            this.settled = 0;
+            this.relaxed = 0;
+            this.costs[destination] = 0;
+            this.reached.add(destination);
+            this.queue.insert(destination, 0);
+            while (!this.queue.isEmpty()) {
+                double cost = this.queue.peekKey();
+                int current = this.queue.poll();
+                this.settledSet.add(current);
+                this.settled++;
+                if (current == source) {
+                    this.radius = cost;
+                    this.heapOperations = this.queue.getOperationCount();
+                    return true;
+                }
+                int last = graph.getIncomingEnd(current);
+                for (int p = graph.getFirstIncoming(current); p < last; p++) {
+                    this.relaxed++;
+                    int edge = graph.getIncomingEdge(p);
+                    int from = graph.getIncomingSource(p);
+                    double newCost = cost + (this.price ? graph.getPrice(edge)
+                            : graph.getMinutes(edge));
+                    if (this.reached.add(from)) {
+                        this.queue.insert(from, newCost);
+                    } else if (newCost < this.costs[from]
+                            && !this.settledSet.contains(from)) {
+                        this.queue.decreaseKey(from, newCost);
+                    } else {
+                        continue;
+                    }
+                    this.costs[from] = newCost;
+                    this.nextEdges[from] = edge;
+                }
+            }
+            this.heapOperations = this.queue.getOperationCount();
+            return false;
+        }
+
+        /**
+         * Returns a lower bound on the cost from a city to the destination
+         *
+         * @param city the id of a city
+         * @return the exact cost if the search settled the city, or else the
+         * cost from the source
+         */
+
+        double lowerBound(int city) {
+            return this.settledSet.contains(city) ? this.costs[city] : this.radius;
+        }
+
+        /**
+         * Adds up the price or minutes of the route the search found from
+         * the source to the destination
+         *
+         * @param graph       the frozen graph that was searched
+         * @param source      the id of the source
+         * @param destination the id of the destination
+         * @param ofPrice     true to add up the price, false the minutes
+         * @return the total
+         */
+
+        double routeTotal(FrozenTravelGraph graph, int source, int destination,
+                          boolean ofPrice) {
+            double total = 0;
+            for (int city = source; city != destination;
+                 city = graph.getTargetId(this.nextEdges[city])) {
+                int edge = this.nextEdges[city];
+                total += ofPrice ? graph.getPrice(edge) : graph.getMinutes(edge);
+            }
+            return total;
+        }
+    }
+}
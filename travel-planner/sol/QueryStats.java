@@ -0,0 +1,320 @@
+package sol;
+
+import src.SearchWork;
+
+import java.lang.management.ManagementFactory;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * The QueryStats class collects how much work the route queries of a
+ * TravelController did, in one Histogram per kind of query (fastest,
+ * cheapest and most direct) and per measure: wall time, bytes allocated,
+ * vertices settled, edges relaxed and heap operations. Only queries that
+ * ran a search are counted; answers from the route cache are counted by
+ * the RouteCache instead.
+ * <p>
+ * Every thread records into its own set of histograms, so recording takes
+ * no lock and shares no memory with other threads. Reading adds up the
+ * histograms of every thread that is still running and of those that have
+ * ended: a thread is only held weakly, and once it has ended its counts are
+ * added to one shared set of histograms and its own are dropped, so threads
+ * that come and go do not each keep a set alive. A read made while queries
+ * are running may miss the queries being recorded at that moment.
+ */
+
+public class QueryStats {
+
+    private static final int SIGNIFICANT_DIGITS = 2;
+    private static final RouteMetric[] QUERIES = RouteMetric.values();
+    private static final Measure[] MEASURES = Measure.values();
+    private static final com.sun.management.ThreadMXBean THREADS =
+            allocationCounter();
+
+    private final ThreadLocal<Recorder> recorders;
+    private final List<Recorder> liveRecorders;
+    private final Histogram[][] endedTotals;
+
+    /**
+     * The measures kept for every query
+     */
+
+    public enum Measure {
+
+        /**
+         * The time from the start to the end of the search, in nanoseconds
+         */
+
+        WALL_NANOS("wall us", 1000, 3_600_000_000_000L),
+
+        /**
+         * The bytes the querying thread allocated during the search
+         */
+
+        ALLOCATED_BYTES("alloc B", 1, 1L << 40),
+
+        /**
+         * The vertices the search took off its queue
+         */
+
+        SETTLED("settled", 1, Integer.MAX_VALUE),
+
+        /**
+         * The edges the search looked at
+         */
+
+        RELAXED("relaxed", 1, Integer.MAX_VALUE),
+
+        /**
+         * The heap inserts, key decreases and polls of the search
+         */
+
+        HEAP_OPERATIONS("heap ops", 1, Integer.MAX_VALUE);
+
+        private final String label;
+        private final long unit;
+        private final long highestValue;
+
+        Measure(String label, long unit, long highestValue) {
+            this.label = label;
+            this.unit = unit;
+            this.highestValue = highestValue;
+        }
+    }
+
+    /**
+     * Constructor for the QueryStats class. Starts with no queries counted
+     */
+
+    public QueryStats() {
+        this.liveRecorders = new ArrayList<>();
+        this.endedTotals = newHistograms();
+        this.recorders = ThreadLocal.withInitial(this::register);
+    }
+
+    /**
+     * The histograms one thread records into, with a weak reference to that
+     * thread so they can be folded into the shared totals once it has ended
+     */
+
+    private static final class Recorder {
+
+        private final WeakReference<Thread> owner;
+        private final Histogram[][] histograms;
+
+        /**
+         * Constructor for a Recorder owned by the calling thread
+         */
+
+        Recorder() {
+            this.owner = new WeakReference<>(Thread.currentThread());
+            this.histograms = newHistograms();
+        }
+
+        /**
+         * Returns whether the owning thread has ended, after which nothing
+         * records into these histograms anymore
+         *
+         * @return true if the owner has ended or been collected
+         */
+
+        boolean hasEnded() {
+            Thread thread = this.owner.get();
+            return thread == null || !thread.isAlive();
+        }
+    }
+
+    /**
+     * Returns a new, empty histogram for every kind of query and measure
+     *
+     * @return the histograms, indexed by query and then by measure
+     */
+
+    private static Histogram[][] newHistograms() {
+        Histogram[][] histograms = new Histogram[QUERIES.length][MEASURES.length];
+        for (RouteMetric query : QUERIES) {
+            for (Measure measure : MEASURES) {
+                histograms[query.ordinal()][measure.ordinal()] =
+                        new Histogram(measure.highestValue, SIGNIFICANT_DIGITS);
+            }
+        }
+        return histograms;
+    }
+
+    /**
+     * Creates the recorder of the calling thread, first folding in the
+     * recorders of threads that have ended since the last time
+     *
+     * @return the new recorder
+     */
+
+    private synchronized Recorder register() {
+        this.foldEndedRecorders();
+        Recorder recorder = new Recorder();
+        this.liveRecorders.add(recorder);
+        return recorder;
+    }
+
+    /**
+     * Adds the counts of every recorder whose thread has ended to the shared
+     * totals and forgets the recorder. The caller must hold the lock on this
+     * object
+     */
+
+    private void foldEndedRecorders() {
+        Iterator<Recorder> iterator = this.liveRecorders.iterator();
+        while (iterator.hasNext()) {
+            Recorder recorder = iterator.next();
+            if (recorder.hasEnded()) {
+                for (RouteMetric query : QUERIES) {
+                    for (Measure measure : MEASURES) {
+                        this.endedTotals[query.ordinal()][measure.ordinal()].add(
+                                recorder.histograms[query.ordinal()][measure.ordinal()]);
+                    }
+                }
+                iterator.remove();
+            }
+        }
+    }
+
+    /**
+     * Returns the number of bytes the calling thread has allocated so far,
+     * if the JVM can tell
+     *
+     * @return the allocated byte count, or -1 if the JVM does not count
+     * allocations per thread
+     */
+
+    public static long currentThreadAllocatedBytes() {
+        return THREADS == null ? -1 : THREADS.getCurrentThreadAllocatedBytes();
+    }
+
+    /**
+     * Counts one query on the calling thread
+     *
+     * @param query          the kind of query
+     * @param work           the work of its search, or null if its engine
+     *                       does not count it
+     * @param wallNanos      how long the search took
+     * @param allocatedBytes how many bytes the search allocated, or a
+     *                       negative number if that is not known
+     */
+
+    void record(RouteMetric query, SearchWork work, long wallNanos,
+                long allocatedBytes) {
+        Histogram[] histograms = this.recorders.get().histograms[query.ordinal()];
+        histograms[Measure.WALL_NANOS.ordinal()].record(wallNanos);
+        if (allocatedBytes >= 0) {
+            histograms[Measure.ALLOCATED_BYTES.ordinal()].record(allocatedBytes);
+        }
+        if (work != null) {
+            histograms[Measure.SETTLED.ordinal()].record(work.getSettled());
+            histograms[Measure.RELAXED.ordinal()].record(work.getRelaxed());
+            histograms[Measure.HEAP_OPERATIONS.ordinal()].record(
+                    work.getHeapOperations());
+        }
+    }
+
+    /**
+     * Returns the histogram of one measure of one kind of query, added up
+     * over every thread, including those that have ended
+     *
+     * @param query   the kind of query
+     * @param measure the measure
+     * @return a copy of the histogram, which later queries do not change
+     */
+
+    public synchronized Histogram getHistogram(RouteMetric query, Measure measure) {
+        this.foldEndedRecorders();
+        Histogram total = this.endedTotals[query.ordinal()][measure.ordinal()].copy();
+        for (Recorder recorder : this.liveRecorders) {
+            total.add(recorder.histograms[query.ordinal()][measure.ordinal()]);
+        }
+        return total;
+    }
+
+    /**
+     * Returns the number of queries of one kind that were counted
+     *
+     * @param query the kind of query
+     * @return the query count
+     */
+
+    public long getCount(RouteMetric query) {
+        return this.getHistogram(query, Measure.WALL_NANOS).getTotalCount();
+    }
+
+    /**
+     * Returns the statistics as one table per kind of query, with the
+     * median, the 99th and 99.9th percentiles, the maximum and the mean of
+     * every measure. Wall time is in microseconds
+     *
+     * @return the tables
+     */
+
+    @Override
+    public String toString() {
+        StringBuilder out = new StringBuilder();
+        for (RouteMetric query : QUERIES) {
+            if (out.length() > 0) {
+                out.append(String.format("%n"));
+            }
+            out.append(String.format("%s: %d searches%n", label(query),
+                    this.getCount(query)));
+            out.append(String.format("  %-9s %11s %11s %11s %11s %11s%n",
+                    "", "p50", "p99", "p999", "max", "mean"));
+            for (Measure measure : MEASURES) {
+                Histogram histogram = this.getHistogram(query, measure);
+                double unit = measure.unit;
+                out.append(String.format("  %-9s %11.1f %11.1f %11.1f %11.1f %11.1f%n",
+                        measure.label,
+                        histogram.getValueAtPercentile(50) / unit,
+                        histogram.getValueAtPercentile(99) / unit,
+                        histogram.getValueAtPercentile(99.9) / unit,
+                        histogram.getMax() / unit,
+                        histogram.getMean() / unit));
+            }
+        }
+        return out.toString();
+    }
+
+    /**
+     * Returns the REPL command of a kind of query
+     *
+     * @param query the kind of query
+     * @return fast, cheap or direct
+     */
+
+    private static String label(RouteMetric query) {
+        return switch (query) {
+            case FASTEST -> "fast";
+            case CHEAPEST -> "cheap";
+            case MOST_DIRECT -> "direct";
+        };
+    }
+
+    /**
+     * Returns the JVM's per-thread allocation counter, turning it on if it
+     * is supported but off
+     *
+     * @return the counter, or null if the JVM does not have one
+     */
+
+    private static com.sun.management.ThreadMXBean allocationCounter() {
+        if (!(ManagementFactory.getThreadMXBean()
+                instanceof com.sun.management.ThreadMXBean)) {
+            return null;
+        }
+        com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        if (!threads.isThreadAllocatedMemorySupported()) {
+            return null;
+        }
+        if (!threads.isThreadAllocatedMemoryEnabled()) {
+            threads.setThreadAllocatedMemoryEnabled(true);
+        }
+        return threads;
+    }
+}
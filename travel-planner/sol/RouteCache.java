@@ -0,0 +1,303 @@
+package sol;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiFunction;
+
+/**
+ * The RouteCache class is a bounded cache that can be shared between
+ * threads. Keys are spread over a fixed number of segments by hash, and
+ * each segment is a least recently used map with its own lock and an equal
+ * share of the capacity, so threads working on different keys rarely wait
+ * on each other. Hits, misses and evictions are counted without locking.
+ * Invalidating the cache swaps in a fresh set of segments in one write,
+ * so no reader ever sees a mix of old and new entries. Each set of segments
+ * is a numbered generation, and a value computed before an invalidation
+ * can be put with the generation it was looked up in, so it lands in the
+ * dropped segments instead of outliving the data it came from.
+ *
+ * @param <K> the type of the keys
+ * @param <V> the type of the cached values
+ */
+
+public class RouteCache<K, V> {
+
+    private static final int SEGMENT_COUNT = 16;
+
+    private final int segmentCapacity;
+    private volatile Generation<K, V> generation;
+    private final LongAdder hits;
+    private final LongAdder misses;
+    private final LongAdder evictions;
+
+    /**
+     * Constructor for the RouteCache class
+     *
+     * @param capacity the most entries the cache holds; it is split evenly
+     *                 between the segments, so the real bound is rounded up
+     *                 to a multiple of the segment count
+     * @throws IllegalArgumentException if capacity is not positive
+     */
+
+    public RouteCache(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Cache capacity must be "
+                    + "positive.");
+        }
+        this.segmentCapacity = (capacity + SEGMENT_COUNT - 1) / SEGMENT_COUNT;
+        this.hits = new LongAdder();
+        this.misses = new LongAdder();
+        this.evictions = new LongAdder();
+        this.generation = new Generation<>(0, this.newSegments());
+    }
+
+    /**
+     * Returns the value cached for a key, and counts the lookup as a hit or
+     * a miss
+     *
+     * @param key the key to look up
+     * @return the cached value, or null if there is none
+     */
+
+    public V get(K key) {
+        Segment<K, V> segment = this.segmentFor(this.generation.segments, key);
+        V value;
+        synchronized (segment) {
+            value = segment.get(key);
+        }
+        if (value == null) {
+            this.misses.increment();
+        } else {
+            this.hits.increment();
+        }
+        return value;
+    }
+
+    /**
+     * Caches a value for a key, evicting the least recently used entry of
+     * the key's segment if the segment is full
+     *
+     * @param key   the key
+     * @param value the value, which must not be null
+     */
+
+    public void put(K key, V value) {
+        Segment<K, V> segment = this.segmentFor(this.generation.segments, key);
+        synchronized (segment) {
+            segment.put(key, value);
+        }
+    }
+
+    /**
+     * Caches a value for a key only if the cache has not been invalidated or
+     * migrated since a generation was read. A put that races with an
+     * invalidation goes into the segments being dropped, so it is never
+     * seen and is collected with them
+     *
+     * @param key        the key
+     * @param value      the value, which must not be null
+     * @param generation the generation read before the value was computed
+     */
+
+    public void put(K key, V value, long generation) {
+        Generation<K, V> current = this.generation;
+        if (current.number != generation) {
+            return;
+        }
+        Segment<K, V> segment = this.segmentFor(current.segments, key);
+        synchronized (segment) {
+            segment.put(key, value);
+        }
+    }
+
+    /**
+     * Returns the number of the current generation, which changes every time
+     * the cache is invalidated or migrated
+     *
+     * @return the current generation
+     */
+
+    public long getGeneration() {
+        return this.generation.number;
+    }
+
+    /**
+     * Drops every cached entry at once. The hit, miss and eviction counts
+     * are kept
+     */
+
+    public void invalidate() {
+        Generation<K, V> current = this.generation;
+        this.generation = new Generation<>(current.number + 1,
+                this.newSegments());
+    }
+
+    /**
+     * Moves the entries that are still good to new keys and drops the rest,
+     * swapping in the result in one write like invalidate. Entries are
+     * moved from least to most recently used, so they keep their order
+     *
+     * @param remap gives the new key of an entry from its old key and value,
+     *              or null to drop the entry
+     */
+
+    public void migrate(BiFunction<? super K, ? super V, ? extends K> remap) {
+        Generation<K, V> current = this.generation;
+        List<Segment<K, V>> fresh = this.newSegments();
+        for (Segment<K, V> segment : current.segments) {
+            synchronized (segment) {
+                for (Map.Entry<K, V> entry : segment.entries.entrySet()) {
+                    K key = remap.apply(entry.getKey(), entry.getValue());
+                    if (key != null) {
+                        this.segmentFor(fresh, key).put(key, entry.getValue());
+                    }
+                }
+            }
+        }
+        this.generation = new Generation<>(current.number + 1, fresh);
+    }
+
+    /**
+     * Returns the number of entries in the cache
+     *
+     * @return the number of cached entries
+     */
+
+    public int size() {
+        int size = 0;
+        for (Segment<K, V> segment : this.generation.segments) {
+            synchronized (segment) {
+                size += segment.size();
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Returns the number of lookups that found a cached value
+     *
+     * @return the hit count
+     */
+
+    public long getHitCount() {
+        return this.hits.sum();
+    }
+
+    /**
+     * Returns the number of lookups that found nothing
+     *
+     * @return the miss count
+     */
+
+    public long getMissCount() {
+        return this.misses.sum();
+    }
+
+    /**
+     * Returns the number of entries dropped to make room for new ones
+     *
+     * @return the eviction count
+     */
+
+    public long getEvictionCount() {
+        return this.evictions.sum();
+    }
+
+    /**
+     * Returns the share of lookups that were hits
+     *
+     * @return the hit rate, or 0 if there have been no lookups
+     */
+
+    public double getHitRate() {
+        long hitCount = this.getHitCount();
+        long total = hitCount + this.getMissCount();
+        return total == 0 ? 0.0 : (double) hitCount / total;
+    }
+
+    /**
+     * Returns the segment a key belongs to
+     *
+     * @param segments the current segments
+     * @param key      a key
+     * @return the segment holding that key
+     */
+
+    private Segment<K, V> segmentFor(List<Segment<K, V>> segments, K key) {
+        int hash = key.hashCode();
+        hash ^= hash >>> 16;
+        return segments.get(hash & (SEGMENT_COUNT - 1));
+    }
+
+    /**
+     * Builds a new, empty set of segments
+     *
+     * @return the segments
+     */
+
+    private List<Segment<K, V>> newSegments() {
+        List<Segment<K, V>> fresh = new ArrayList<>(SEGMENT_COUNT);
+        for (int i = 0; i < SEGMENT_COUNT; i++) {
+            fresh.add(new Segment<>(this.segmentCapacity, this.evictions));
+        }
+        return fresh;
+    }
+
+    /**
+     * One set of segments together with its number, swapped in as a whole
+     * so the number always matches the segments it is read with
+     */
+
+    private static class Generation<K, V> {
+
+        private final long number;
+        private final List<Segment<K, V>> segments;
+
+        Generation(long number, List<Segment<K, V>> segments) {
+            this.number = number;
+            this.segments = segments;
+        }
+    }
+
+    /**
+     * One least recently used segment of the cache. Its LinkedHashMap is in
+     * access order, which moves every entry it returns to the back, so the
+     * first entry is always the one used longest ago. Callers hold the
+     * segment's lock
+     */
+
+    private static class Segment<K, V> {
+
+        private final LinkedHashMap<K, V> entries;
+        private final int capacity;
+        private final LongAdder evictions;
+
+        Segment(int capacity, LongAdder evictions) {
+            this.entries = new LinkedHashMap<>(16, 0.75f, true);
+            this.capacity = capacity;
+            this.evictions = evictions;
+        }
+
+        V get(K key) {
+            return this.entries.get(key);
+        }
+
+        void put(K key, V value) {
+            this.entries.put(key, value);
+            if (this.entries.size() > this.capacity) {
+                Iterator<K> eldest = this.entries.keySet().iterator();
+                eldest.next();
+                eldest.remove();
+                this.evictions.increment();
+            }
+        }
+
+        int size() {
+            return this.entries.size();
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package sol;
+
+/**
+ * An enum representing what a route between two cities is chosen to
+ * minimize
+ */
+
+public enum RouteMetric {
+
+    /**
+     * The total travel time in minutes
+     */
+
+    FASTEST,
+
+    /**
+     * The total price
+     */
+
+    CHEAPEST,
+
+    /**
+     * The number of connections
+     */
+
+    MOST_DIRECT
+}
@@ -0,0 +1,139 @@
+package sol;
+
+import src.City;
+import src.Transport;
+
+import java.util.*;
+
+/**
+ * The RouteTable class holds the one-to-all shortest path trees of a set of
+ * source cities in a FrozenTravelGraph, as built by a RouteTableBuilder.
+ * Each source is a row, each city of the graph a column, and both the path
+ * weights and the last edge of every path are kept in flat row-major
+ * arrays, so a table for s sources over V cities takes s * V doubles and
+ * s * V ints no matter how many paths it holds. The builder refuses tables
+ * where s * V does not fit in an int, so a row and a city id always index
+ * the arrays with int arithmetic. Routes are only turned back into
+ * Transport lists when asked for.
+ */
+
+public class RouteTable {
+
+    private final FrozenTravelGraph graph;
+    private final int[] sources;
+    private final double[] distances;
+    private final int[] parentEdges;
+
+    /**
+     * Constructor for the RouteTable class
+     *
+     * @param graph       the frozen graph the table was built for
+     * @param sources     the vertex id of the source city of every row
+     * @param distances   the weight of the lightest path from the source of
+     *                    each row to each city, or infinity if there is none
+     * @param parentEdges the last edge of the lightest path from the source
+     *                    of each row to each city, or -1 if there is none
+     */
+
+    RouteTable(FrozenTravelGraph graph, int[] sources, double[] distances,
+               int[] parentEdges) {
+        this.graph = graph;
+        this.sources = sources;
+        this.distances = distances;
+        this.parentEdges = parentEdges;
+    }
+
+    /**
+     * Returns the frozen graph this table was built for
+     *
+     * @return the graph
+     */
+
+    public FrozenTravelGraph getGraph() {
+        return this.graph;
+    }
+
+    /**
+     * Returns the number of rows (source cities) in the table
+     *
+     * @return the number of rows
+     */
+
+    public int getSourceCount() {
+        return this.sources.length;
+    }
+
+    /**
+     * Returns the source city of a row
+     *
+     * @param row the index of the row
+     * @return the source city of that row
+     */
+
+    public City getSource(int row) {
+        return this.graph.getCity(this.sources[row]);
+    }
+
+    /**
+     * Returns the weight of the lightest path from the source of a row to a
+     * city
+     *
+     * @param row    the index of the row
+     * @param cityId the vertex id of the city
+     * @return the weight of the path, or infinity if the city cannot be
+     * reached
+     */
+
+    public double getDistance(int row, int cityId) {
+        return this.distances[row * this.graph.getVertexCount() + cityId];
+    }
+
+    /**
+     * Returns the weight of the lightest path from the source of a row to a
+     * city
+     *
+     * @param row  the index of the row
+     * @param city the city
+     * @return the weight of the path, or infinity if the city cannot be
+     * reached
+     */
+
+    public double getDistance(int row, City city) {
+        return this.getDistance(row, this.graph.getVertexId(city));
+    }
+
+    /**
+     * Returns the edge id of the last edge of the lightest path from the
+     * source of a row to a city
+     *
+     * @param row    the index of the row
+     * @param cityId the vertex id of the city
+     * @return the edge id, or -1 for the source itself and for cities that
+     * cannot be reached
+     */
+
+    public int getParentEdge(int row, int cityId) {
+        return this.parentEdges[row * this.graph.getVertexCount() + cityId];
+    }
+
+    /**
+     * Returns the lightest route from the source of a row to a city
+     *
+     * @param row  the index of the row
+     * @param city the destination city
+     * @return a list of Transports from the source to the city, or an empty
+     * list if there is none
+     */
+
+    public List<Transport> getPath(int row, City city) {
+        int base = row * this.graph.getVertexCount();
+        LinkedList<Transport> path = new LinkedList<>();
+        int node = this.graph.getVertexId(city);
+        while (this.parentEdges[base + node] != -1) {
+            int incomingEdge = this.parentEdges[base + node];
+            path.addFirst(this.graph.getEdge(incomingEdge));
+            node = this.graph.getSourceId(incomingEdge);
+        }
+        return path;
+    }
+}
@@ -0,0 +1,180 @@
+package sol;
+
+import src.City;
+import src.Transport;
+
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Function;
+
+/**
+ * The RouteTableBuilder class computes the one-to-all shortest path trees of
+ * many source cities at once and collects them into a RouteTable. The
+ * sources are split across the threads of a ForkJoinPool, one Dijkstra per
+ * source, and every search writes straight into its own row of the table,
+ * so the threads share nothing but the read-only graph. Each worker thread
+ * keeps one queue that it reuses for every source it handles, which means
+ * a search allocates nothing beyond its row of the table.
+ */
+
+public class RouteTableBuilder {
+
+    private final ForkJoinPool pool;
+    private final ThreadLocal<IndexedMinHeap> queues;
+
+    /**
+     * Constructor for the RouteTableBuilder class. Runs the searches on the
+     * common ForkJoinPool
+     */
+
+    public RouteTableBuilder() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Constructor for the RouteTableBuilder class. A builder may be shared
+     * between threads
+     *
+     * @param pool the pool to run the searches on
+     */
+
+    public RouteTableBuilder(ForkJoinPool pool) {
+        this.pool = pool;
+        this.queues = ThreadLocal.withInitial(IndexedMinHeap::new);
+    }
+
+    /**
+     * Computes the lightest paths (determined by edgeWeight parameter) from
+     * each of the given cities to every city of a graph
+     *
+     * @param graph      the frozen graph to search
+     * @param sources    the source cities, one row of the table each
+     * @param edgeWeight a function that indicates how to weigh an edge
+     * @return a table of the path weights and last edges from every source
+     * @throws IllegalArgumentException if a source is not in the graph, or
+     *                                  if the table would have more than
+     *                                  Integer.MAX_VALUE entries
+     */
+
+    public RouteTable build(FrozenTravelGraph graph, List<City> sources,
+                            Function<Transport, Double> edgeWeight) {
+        int vertexCount = graph.getVertexCount();
+        int entries;
+        try {
+            entries = Math.multiplyExact(sources.size(), vertexCount);
+        } catch (ArithmeticException e) {
+            throw new IllegalArgumentException("A route table of "
+                    + sources.size() + " sources over " + vertexCount
+                    + " cities would have more than " + Integer.MAX_VALUE
+                    + " entries.");
+        }
+        int[] sourceIds = new int[sources.size()];
+        for (int row = 0; row < sourceIds.length; row++) {
+            sourceIds[row] = graph.getVertexId(sources.get(row));
+        }
+        double[] distances = new double[entries];
+        int[] parentEdges = new int[entries];
+        double[] weights = graph.toWeightColumn(edgeWeight);
+        this.pool.invoke(new RowTask(graph, weights, sourceIds, distances,
+                parentEdges, 0, sourceIds.length));
+        return new RouteTable(graph, sourceIds, distances, parentEdges);
+    }
+
+    /**
+     * Fills one row of a table with a full Dijkstra from its source. The
+     * distance of a city is only written when it is settled, so a finite
+     * distance also marks the city as settled and no separate visited set
+     * is needed
+     *
+     * @param graph       the frozen graph to search
+     * @param weights     the weight of every edge, indexed by edge id
+     * @param source      the vertex id of the source city
+     * @param distances   the distances of the whole table
+     * @param parentEdges the parent edges of the whole table
+     * @param base        the index of the first slot of the row
+     * @param queue       the scratch queue of the calling thread
+     */
+
+    private static void fillRow(FrozenTravelGraph graph, double[] weights,
+                                int source, double[] distances,
+                                int[] parentEdges, int base,
+                                IndexedMinHeap queue) {
+        int vertexCount = graph.getVertexCount();
+        Arrays.fill(distances, base, base + vertexCount,
+                Double.POSITIVE_INFINITY);
+        Arrays.fill(parentEdges, base, base + vertexCount, -1);
+        queue.clear();
+        queue.insert(source, 0.0);
+        while (!queue.isEmpty()) {
+            double lightestWeight = queue.peekKey();
+            int lightest = queue.poll();
+            distances[base + lightest] = lightestWeight;
+
+            int end = graph.getEdgeEnd(lightest);
+            for (int edge = graph.getFirstEdge(lightest); edge < end; edge++) {
+                int neighbor = graph.getTargetId(edge);
+                if (distances[base + neighbor] != Double.POSITIVE_INFINITY)
+                    continue;
+                double newWeight = lightestWeight + weights[edge];
+                if (!queue.contains(neighbor)) {
+                    queue.insert(neighbor, newWeight);
+                    parentEdges[base + neighbor] = edge;
+                } else if (newWeight < queue.getKey(neighbor)) {
+                    queue.decreaseKey(neighbor, newWeight);
+                    parentEdges[base + neighbor] = edge;
+                }
+            }
+        }
+    }
+
+    /**
+     * A task that fills a range of rows, splitting it in half until each
+     * task has a single row so idle threads can steal work
+     */
+
+    private class RowTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final FrozenTravelGraph graph;
+        private final double[] weights;
+        private final int[] sources;
+        private final double[] distances;
+        private final int[] parentEdges;
+        private final int from;
+        private final int to;
+
+        RowTask(FrozenTravelGraph graph, double[] weights, int[] sources,
+                double[] distances, int[] parentEdges, int from, int to) {
+            this.graph = graph;
+            this.weights = weights;
+            this.sources = sources;
+            this.distances = distances;
+            this.parentEdges = parentEdges;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (this.to - this.from > 1) {
+                int middle = (this.from + this.to) >>> 1;
+                invokeAll(this.split(this.from, middle),
+                        this.split(middle, this.to));
+                return;
+            }
+            if (this.from < this.to) {
+                fillRow(this.graph, this.weights, this.sources[this.from],
+                        this.distances, this.parentEdges,
+                        this.from * this.graph.getVertexCount(),
+                        RouteTableBuilder.this.queues.get());
+            }
+        }
+
+        private RowTask split(int from, int to) {
+            return new RowTask(this.graph, this.weights, this.sources,
+                    this.distances, this.parentEdges, from, to);
+        }
+    }
+}
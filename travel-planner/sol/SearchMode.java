@@ -0,0 +1,36 @@
+package sol;
+
+/**
+ * An enum representing the algorithms a TravelController can use to answer
+ * fastest and cheapest route queries
+ */
+
+public enum SearchMode {
+
+    /**
+     * One-directional Dijkstra from the source (see Dijkstra)
+     */
+
+    DIJKSTRA,
+
+    /**
+     * Dijkstra from the source and the destination at the same time (see
+     * BidirectionalDijkstra)
+     */
+
+    BIDIRECTIONAL,
+
+    /**
+     * Bidirectional upward search over a contraction hierarchy built once
+     * per graph and weight (see ContractionHierarchyDijkstra)
+     */
+
+    CONTRACTION_HIERARCHIES,
+
+    /**
+     * A* search guided by landmark lower bounds computed once per graph and
+     * weight (see LandmarkAStar)
+     */
+
+    ALT
+}
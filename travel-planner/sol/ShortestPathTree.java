@@ -0,0 +1,134 @@
+package sol;
+
+import src.IGraph;
+import src.IShortestPathTree;
+
+import java.util.*;
+
+/**
+ * The ShortestPathTree class holds the result of a one-to-all run of
+ * Dijkstra's algorithm on any IGraph. Every vertex the search touched has a
+ * dense id from a VertexIndex, and its path weight and the last edge of its
+ * path are kept in arrays indexed by that id. Vertices that were queued but
+ * never settled, because they were over the search's weight limit, have an
+ * infinite weight. Paths are only rebuilt, by following the last edges
+ * back to the source, when getPath is called.
+ *
+ * @param <V> the type of vertex in the graph
+ * @param <E> the type of edge in the graph
+ */
+
+public class ShortestPathTree<V, E> implements IShortestPathTree<V, E> {
+
+    private final IGraph<V, E> graph;
+    private final VertexIndex<V> vertexIds;
+    private final double[] weights;
+    private final Object[] parentEdges;
+    private final int[] order;
+
+    /**
+     * Constructor for the ShortestPathTree class
+     *
+     * @param graph       the graph that was searched
+     * @param vertexIds   the ids of the touched vertices, with the source
+     *                    at id 0
+     * @param weights     the path weight of every settled vertex, by id, or
+     *                    infinity for the other ids
+     * @param parentEdges the last edge of the path to every settled vertex,
+     *                    by id
+     * @param order       the ids of the settled vertices in the order they
+     *                    were settled
+     */
+
+    ShortestPathTree(IGraph<V, E> graph, VertexIndex<V> vertexIds,
+                     double[] weights, Object[] parentEdges, int[] order) {
+        this.graph = graph;
+        this.vertexIds = vertexIds;
+        this.weights = weights;
+        this.parentEdges = parentEdges;
+        this.order = order;
+    }
+
+    /**
+     * Returns the vertex the tree is rooted at
+     *
+     * @return the source vertex
+     */
+
+    @Override
+    public V getSource() {
+        return this.vertexIds.vertexOf(0);
+    }
+
+    /**
+     * Returns the vertices the source can reach, in order of increasing path
+     * weight, starting with the source itself
+     *
+     * @return a read-only view of the reachable vertices
+     */
+
+    @Override
+    public List<V> getReachableVertices() {
+        return new AbstractList<V>() {
+            @Override
+            public V get(int index) {
+                return ShortestPathTree.this.vertexIds.vertexOf(
+                        ShortestPathTree.this.order[index]);
+            }
+
+            @Override
+            public int size() {
+                return ShortestPathTree.this.order.length;
+            }
+        };
+    }
+
+    /**
+     * Returns whether there is a path from the source to a vertex
+     *
+     * @param vertex a vertex in the graph
+     * @return true if the vertex can be reached, false otherwise
+     */
+
+    @Override
+    public boolean isReachable(V vertex) {
+        return this.getWeight(vertex) != Double.POSITIVE_INFINITY;
+    }
+
+    /**
+     * Returns the weight of the lightest path from the source to a vertex
+     *
+     * @param vertex a vertex in the graph
+     * @return the weight of the path, or infinity if there is none
+     */
+
+    @Override
+    public double getWeight(V vertex) {
+        int id = this.vertexIds.find(vertex);
+        return id == -1 ? Double.POSITIVE_INFINITY : this.weights[id];
+    }
+
+    /**
+     * Rebuilds the lightest path from the source to a vertex
+     *
+     * @param vertex a vertex in the graph
+     * @return a list of edges from the source to the vertex, or an empty list
+     * if there is none
+     */
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public List<E> getPath(V vertex) {
+        LinkedList<E> path = new LinkedList<>();
+        if (!this.isReachable(vertex)) {
+            return path;
+        }
+        int node = this.vertexIds.find(vertex);
+        while (node != 0) {
+            E incomingEdge = (E) this.parentEdges[node];
+            path.addFirst(incomingEdge);
+            node = this.vertexIds.find(this.graph.getEdgeSource(incomingEdge));
+        }
+        return path;
+    }
+}
@@ -0,0 +1,93 @@
+package sol;
+
+import src.ICountedSearch;
+import src.IDijkstra;
+import src.IGraph;
+import src.SearchWork;
+
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * The ThreadLocalDijkstra class makes a search that keeps reusable buffers
+ * safe to call from many threads at once, by giving every calling thread
+ * its own instance of the search and passing each query on to it.
+ *
+ * @param <V> the type of vertex in the graph
+ * @param <E> the type of edge in the graph
+ */
+
+public class ThreadLocalDijkstra<V, E> implements IDijkstra<V, E>,
+        ICountedSearch {
+
+    private static final SearchWork NO_WORK = new SearchWork();
+
+    private final ThreadLocal<IDijkstra<V, E>> searches;
+
+    /**
+     * Constructor for the ThreadLocalDijkstra class
+     *
+     * @param factory creates the search instance of a thread the first time
+     *                that thread runs a query
+     */
+
+    public ThreadLocalDijkstra(Supplier<? extends IDijkstra<V, E>> factory) {
+        this.searches = ThreadLocal.withInitial(factory);
+    }
+
+    /**
+     * Returns the path of the least weight from a start to end vertex, found
+     * by the calling thread's search
+     *
+     * @param graph       the graph including the vertices
+     * @param source      the source vertex
+     * @param destination the destination vertex
+     * @param edgeWeight  a function that indicates how to weigh an edge for
+     *                    a particular run of the algorithm
+     * @return a list of edges representing the path of the least weight from a
+     * start to end vertex
+     */
+
+    @Override
+    public List<E> getShortestPath(IGraph<V, E> graph, V source, V destination,
+                                   Function<E, Double> edgeWeight) {
+        return this.searches.get().getShortestPath(graph, source, destination,
+                edgeWeight);
+    }
+
+    /**
+     * Returns the path of the least weight from a start to end vertex, found
+     * by the calling thread's search without boxing edge weights
+     *
+     * @param graph       the graph including the vertices
+     * @param source      the source vertex
+     * @param destination the destination vertex
+     * @param edgeWeight  the weight of an edge
+     * @return a list of edges representing the path of the least weight from a
+     * start to end vertex
+     */
+
+    @Override
+    public List<E> getShortestPathDouble(IGraph<V, E> graph, V source,
+                                         V destination,
+                                         ToDoubleFunction<E> edgeWeight) {
+        return this.searches.get().getShortestPathDouble(graph, source,
+                destination, edgeWeight);
+    }
+
+    /**
+     * Returns the work of the last query of the calling thread's search
+     *
+     * @return the work of that query, or all zeros if the search does not
+     * count its work
+     */
+
+    @Override
+    public SearchWork getLastWork() {
+        IDijkstra<V, E> search = this.searches.get();
+        return search instanceof ICountedSearch
+                ? ((ICountedSearch) search).getLastWork() : NO_WORK;
+    }
+}
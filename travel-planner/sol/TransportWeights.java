@@ -0,0 +1,32 @@
+package sol;
+
+import src.Transport;
+
+import java.util.function.Function;
+
+/**
+ * The TransportWeights class holds the edge weight functions used by
+ * TravelController. Using these shared instances (rather than a new lambda
+ * per query) lets a FrozenTravelGraph recognize the weight and hand Dijkstra
+ * its primitive price or minutes column directly.
+ */
+
+public final class TransportWeights {
+
+    /**
+     * Weighs a Transport by its duration in minutes
+     */
+
+    public static final Function<Transport, Double> MINUTES =
+            transport -> transport.getMinutes();
+
+    /**
+     * Weighs a Transport by its price
+     */
+
+    public static final Function<Transport, Double> PRICE =
+            transport -> transport.getPrice();
+
+    private TransportWeights() {
+    }
+}
@@ -3,25 +3,91 @@ package sol;
 import src.*;
 
 import java.io.IOException;
+import java.nio.file.Paths;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
 import java.util.function.Function;
 
 /**
  * The TravelController class creates TravelController objects that handle
  * communication between the view and the model. TravelController objects
  * call methods in the model to compute the routes and then pass those
- * routes back to the view to display to the user
+ * routes back to the view to display to the user. A controller can answer
+ * queries from many threads at once, including while a load is running:
+ * load builds the new graph on the side and publishes it in one atomic
+ * swap, and queries never lock
  */
 
 public class TravelController implements ITravelController<City, Transport> {
 
+    public static final int DEFAULT_CACHE_CAPACITY = 4096;
+
+    private volatile Snapshot snapshot;
     private TravelGraph graph;
+    private final ThreadLocal<Dijkstra<City, Transport>> treeSearch;
+    private final ThreadLocal<BidirectionalBFS<City, Transport>> bfs;
+    private final ThreadLocal<DirectionOptimizingBFS> hopSearch;
+    private final ThreadLocal<ParetoDijkstra> paretoSearch;
+    private final RouteTableBuilder routeTables;
+    private final MappedTransportParser transportParser;
+    private final RouteCache<RouteKey, List<Transport>> routeCache;
+    private volatile QueryStats stats;
 
     /**
-     * Constructor for TravelController class
+     * Constructor for TravelController class. Fastest and cheapest routes
+     * are found with one-directional Dijkstra
      */
 
     public TravelController() {
+        this(SearchMode.DIJKSTRA);
+    }
+
+    /**
+     * Constructor for TravelController class. Starts out with an empty graph.
+     * Every thread gets its own Dijkstra and BFS objects, created the first
+     * time it runs a query, so their visited sets are reused by every query
+     * of that thread, and fastest, cheapest and most direct routes are kept
+     * in a RouteCache of DEFAULT_CACHE_CAPACITY entries until the next load
+     *
+     * @param searchMode the algorithm used for fastest and cheapest routes
+     */
+
+    public TravelController(SearchMode searchMode) {
+        this.treeSearch = ThreadLocal.withInitial(Dijkstra::new);
+        this.bfs = ThreadLocal.withInitial(BidirectionalBFS::new);
+        this.hopSearch = ThreadLocal.withInitial(DirectionOptimizingBFS::new);
+        this.paretoSearch = ThreadLocal.withInitial(ParetoDijkstra::new);
+        this.routeTables = new RouteTableBuilder();
+        this.transportParser = new MappedTransportParser();
+        this.routeCache = new RouteCache<>(DEFAULT_CACHE_CAPACITY);
+        this.graph = new TravelGraph();
+        this.snapshot = new Snapshot(this.graph.freeze(), searchMode,
+                createSearch(searchMode));
+    }
+
+    /**
+     * Changes the algorithm used for fastest and cheapest routes. The new
+     * search is prepared for the loaded graph before it replaces the old one,
+     * so queries running meanwhile keep using the old one
+     *
+     * @param searchMode the algorithm to use from now on
+     */
+
+    public synchronized void setSearchMode(SearchMode searchMode) {
+        FrozenTravelGraph frozen = this.snapshot.graph;
+        IDijkstra<City, Transport> dijkstra = createSearch(searchMode);
+        preprocess(dijkstra, frozen);
+        this.snapshot = new Snapshot(frozen, searchMode, dijkstra);
+    }
+
+    /**
+     * Returns the algorithm used for fastest and cheapest routes
+     *
+     * @return the current search mode
+     */
+
+    public SearchMode getSearchMode() {
+        return this.snapshot.searchMode;
     }
 
     /**
@@ -35,45 +101,205 @@ public class TravelController implements ITravelController<City, Transport> {
      */
 
     @Override
-    public String load(String citiesFile, String transportFile) {
-        this.graph = new TravelGraph();
+    public synchronized String load(String citiesFile, String transportFile) {
+        TravelGraph graph = new TravelGraph();
         TravelCSVParser parser = new TravelCSVParser();
-        Function<Map<String, String>, Void> addVertex = map -> {
-            this.graph.addVertex(new City(map.get("name")));
-            return null;
-        };
         try {
-            /* pass in string for CSV and function to create City (vertex)
-               using the city name. This line converts CSV to a hash map that
-               is passed into addVertex */
-            parser.parseLocations(citiesFile, addVertex);
+            /* stream every city name in the CSV into a new City (vertex) */
+            parser.streamLocations(citiesFile,
+                    name -> graph.addVertex(new City(name)));
         } catch (IOException e) {
             return "Error parsing file: " + citiesFile;
         }
 
-        Function<Map<String, String>, Void> addEdge = map -> {
-            City origin = this.graph.getCityByName(map.get("origin"));
-            City destination = this.graph.getCityByName(map.get(
-                    "destination"));
-            String transportString = map.get("type");
-            TransportType transport = TransportType.fromString(transportString);
-            double price = Double.parseDouble(map.get("price"));
-            double duration = Double.parseDouble(map.get("duration"));
-            this.graph.addEdge(origin, new Transport(origin, destination,
-                    transport, price, duration));
-            return null;
+        /* a large transport file is parsed in parallel chunks (a small one
+           is streamed), which look the city names up in the graph's name
+           table straight from their buffers, so each row reaches this
+           callback with two city ids and goes into a new edge in file order
+           without a String being made */
+        ITransportIdRowHandler addEdge = (originId, destinationId, type,
+                                          price, duration) -> {
+            City origin = graph.getCity(originId);
+            City destination = graph.getCity(destinationId);
+            graph.addEdge(origin, new Transport(origin, destination, type,
+                    price, duration));
         };
-
-        /* Pass in string for CSV and function to create add edges to cities.
-           Applies the input Function to each city in the hash map */
         try {
-            parser.parseTransportation(transportFile, addEdge);
+            this.transportParser.parseTransportation(transportFile,
+                    graph.getNames(), addEdge);
         } catch (IOException e) {
             return "Error parsing file: " + transportFile;
         }
+
+        this.publish(graph.freeze());
+        this.graph = graph;
         return "Successfully loaded cities and transportation files.";
     }
 
+    /**
+     * Saves the loaded graph to a binary graph file, which loadGraph can
+     * read back much faster than load parses the CSVs
+     *
+     * @param graphFile the filename of the graph file to write
+     * @return a string indicating whether the graph has been saved
+     */
+
+    @Override
+    public String saveGraph(String graphFile) {
+        try {
+            GraphFile.write(this.snapshot.graph, Paths.get(graphFile));
+        } catch (IOException e) {
+            return "Error writing file: " + graphFile;
+        }
+        return "Successfully saved graph file.";
+    }
+
+    /**
+     * Replaces the loaded graph with one saved by saveGraph
+     *
+     * @param graphFile the filename of the graph file to read
+     * @return a string indicating whether the graph file has been loaded. If
+     * not, an error message is returned
+     */
+
+    @Override
+    public synchronized String loadGraph(String graphFile) {
+        FrozenTravelGraph frozen;
+        try {
+            frozen = GraphFile.read(Paths.get(graphFile));
+        } catch (IOException e) {
+            return "Error reading file: " + graphFile;
+        }
+        this.publish(frozen);
+        // thawed by the first update, so a load creates no City or Transport
+        this.graph = null;
+        return "Successfully loaded graph file.";
+    }
+
+    /**
+     * Applies the changes in a delta CSV file to the loaded graph
+     *
+     * @param deltaFile the filename of the delta csv
+     * @return a string indicating whether the changes have been applied. If
+     * not, an error message is returned and the graph is left as it was
+     */
+
+    @Override
+    public String update(String deltaFile) {
+        GraphDelta delta;
+        try {
+            delta = GraphDelta.parse(deltaFile);
+        } catch (IOException e) {
+            return "Error parsing file: " + deltaFile;
+        }
+        try {
+            this.applyUpdates(delta);
+        } catch (IllegalArgumentException e) {
+            return e.getMessage();
+        }
+        return "Successfully applied " + delta.size() + " changes.";
+    }
+
+    /**
+     * Applies a batch of changes to the loaded graph without reloading it.
+     * The changes are made to the graph in time proportional to the size of
+     * the batch. When no city is added or removed, the frozen graph queries
+     * run on shares the edge arrays of the old one and only lays the
+     * changed cities' edges over them, and contraction hierarchies keep
+     * their city order and are only customized to the new weights. What
+     * else was derived from the old graph is kept where the batch cannot
+     * have made it wrong: when the batch only removes
+     * Transports or makes them slower or dearer, no route gets shorter, so
+     * cached routes that avoid the removed Transports and, with the same
+     * cities, ALT landmark tables stay valid for the metrics that did not
+     * improve. Everything else is dropped and rebuilt as for a load. Queries
+     * keep running on the old graph until the new one is published
+     *
+     * @param delta the changes to make
+     * @throws IllegalArgumentException if a change does not fit the graph,
+     *                                  in which case nothing is changed
+     */
+
+    public synchronized void applyUpdates(GraphDelta delta) {
+        Snapshot current = this.snapshot;
+        if (this.graph == null) {
+            this.graph = current.graph.thaw();
+        }
+        GraphDelta.Applied changes = delta.applyTo(this.graph);
+        FrozenTravelGraph patched = current.graph.patch(changes.removedEdges,
+                changes.addedEdges, changes.removedCities, changes.addedCities);
+
+        IDijkstra<City, Transport> dijkstra = createSearch(current.searchMode);
+        if (dijkstra instanceof LandmarkAStar
+                && current.dijkstra instanceof LandmarkAStar
+                && !changes.changesCities()) {
+            ((LandmarkAStar) dijkstra).carryOver(
+                    (LandmarkAStar) current.dijkstra, current.graph, patched,
+                    weight -> weight == TransportWeights.MINUTES
+                            ? !changes.canShorten(RouteMetric.FASTEST)
+                            : weight == TransportWeights.PRICE
+                            && !changes.canShorten(RouteMetric.CHEAPEST));
+        } else if (dijkstra instanceof ContractionHierarchyDijkstra
+                && current.dijkstra instanceof ContractionHierarchyDijkstra
+                && !changes.changesCities()) {
+            ((ContractionHierarchyDijkstra) dijkstra).carryOver(
+                    (ContractionHierarchyDijkstra) current.dijkstra,
+                    current.graph, patched);
+        }
+        preprocess(dijkstra, patched);
+        this.snapshot = new Snapshot(patched, current.searchMode, dijkstra);
+
+        Set<String> removedNames = new HashSet<>();
+        for (City city : changes.removedCities) {
+            removedNames.add(city.toString());
+        }
+        this.routeCache.migrate((key, path) -> {
+            if (key.graph != current.graph || changes.canShorten(key.metric)
+                    || removedNames.contains(key.source)
+                    || removedNames.contains(key.destination)) {
+                return null;
+            }
+            for (Transport transport : path) {
+                if (changes.removedEdges.contains(transport)) {
+                    return null;
+                }
+            }
+            return new RouteKey(patched, key.source, key.destination,
+                    key.metric);
+        });
+    }
+
+    /**
+     * Makes a graph the one queries are answered from. Everything for the
+     * new graph is built before it is published, so queries keep running on
+     * the old snapshot until the swap
+     *
+     * @param frozen the graph to publish
+     */
+
+    private void publish(FrozenTravelGraph frozen) {
+        SearchMode searchMode = this.snapshot.searchMode;
+        IDijkstra<City, Transport> dijkstra = createSearch(searchMode);
+        preprocess(dijkstra, frozen);
+        this.snapshot = new Snapshot(frozen, searchMode, dijkstra);
+        this.routeCache.invalidate();
+    }
+
+    /**
+     * Loads CSVs on another thread. Queries keep being answered from the
+     * graph loaded before until the new one is ready
+     *
+     * @param citiesFile    the filename of the cities csv
+     * @param transportFile the filename of the transportations csv
+     * @return a future of the message load returns
+     */
+
+    public CompletableFuture<String> loadInBackground(String citiesFile,
+                                                      String transportFile) {
+        return CompletableFuture.supplyAsync(() -> this.load(citiesFile,
+                transportFile));
+    }
+
     /**
      * Returns a list of Transport objects representing the fastest route to
      * take from the input source city to the input destination city for a
@@ -87,13 +313,7 @@ public class TravelController implements ITravelController<City, Transport> {
 
     @Override
     public List<Transport> fastestRoute(String source, String destination) {
-        Dijkstra<City, Transport> dijkstra = new Dijkstra<>();
-        Function<Transport, Double> edgeTime = transport ->
-                transport.getMinutes();
-        City sourceCity = this.graph.getCityByName(source);
-        City destCity = this.graph.getCityByName(destination);
-        return dijkstra.getShortestPath(this.graph, sourceCity, destCity,
-                edgeTime);
+        return this.findRoute(source, destination, RouteMetric.FASTEST);
     }
 
     /**
@@ -109,19 +329,13 @@ public class TravelController implements ITravelController<City, Transport> {
 
     @Override
     public List<Transport> cheapestRoute(String source, String destination) {
-        Dijkstra<City, Transport> dijkstra = new Dijkstra<>();
-        Function<Transport, Double> edgeCost = transport ->
-                transport.getPrice();
-        City sourceCity = this.graph.getCityByName(source);
-        City destCity = this.graph.getCityByName(destination);
-        return dijkstra.getShortestPath(this.graph, sourceCity, destCity,
-                edgeCost);
+        return this.findRoute(source, destination, RouteMetric.CHEAPEST);
     }
 
     /**
      * Returns a list of Transport objects representing the most direct route
      * to take from the input source city to the input destination city for a
-     * particular graph
+     * particular graph, found with a bidirectional BFS
      *
      * @param source      the name of the source city
      * @param destination the name of the destination city
@@ -131,9 +345,437 @@ public class TravelController implements ITravelController<City, Transport> {
 
     @Override
     public List<Transport> mostDirectRoute(String source, String destination) {
-        City sourceCity = this.graph.getCityByName(source);
-        City destCity = this.graph.getCityByName(destination);
-        BFS<City, Transport> bfs = new BFS<>();
-        return bfs.getPath(this.graph, sourceCity, destCity);
+        return this.findRoute(source, destination, RouteMetric.MOST_DIRECT);
+    }
+
+    /**
+     * Returns the route between two cities that minimizes a metric, from the
+     * route cache if it was asked for before on the same graph
+     *
+     * @param source      the name of the source city
+     * @param destination the name of the destination city
+     * @param metric      what the route minimizes
+     * @return an unmodifiable list of the Transports of the route
+     */
+
+    private List<Transport> findRoute(String source, String destination,
+                                      RouteMetric metric) {
+        // the generation is read before the snapshot: a new snapshot is
+        // published before the cache moves on, so a route searched on an
+        // old graph is never put into the new generation
+        long generation = this.routeCache.getGeneration();
+        Snapshot current = this.snapshot;
+        FrozenTravelGraph frozen = current.graph;
+        RouteKey key = new RouteKey(frozen, source, destination, metric);
+        List<Transport> path = this.routeCache.get(key);
+        if (path == null) {
+            QueryStats stats = this.stats;
+            path = stats == null
+                    ? this.search(current, source, destination, metric)
+                    : this.measuredSearch(stats, current, source, destination,
+                    metric);
+            this.routeCache.put(key, path, generation);
+        }
+        return path;
+    }
+
+    /**
+     * Runs the search for the route between two cities that minimizes a
+     * metric
+     *
+     * @param current     the snapshot to search
+     * @param source      the name of the source city
+     * @param destination the name of the destination city
+     * @param metric      what the route minimizes
+     * @return an unmodifiable list of the Transports of the route
+     */
+
+    private List<Transport> search(Snapshot current, String source,
+                                   String destination, RouteMetric metric) {
+        FrozenTravelGraph frozen = current.graph;
+        City sourceCity = frozen.getCityByName(source);
+        City destCity = frozen.getCityByName(destination);
+        // BFS already returns unmodifiable paths, so a most direct route
+        // search allocates nothing but its path
+        return switch (metric) {
+            case FASTEST -> Collections.unmodifiableList(current.dijkstra
+                    .getShortestPath(frozen, sourceCity, destCity,
+                            TransportWeights.MINUTES));
+            case CHEAPEST -> Collections.unmodifiableList(current.dijkstra
+                    .getShortestPath(frozen, sourceCity, destCity,
+                            TransportWeights.PRICE));
+            case MOST_DIRECT -> this.bfs.get().getPath(frozen, sourceCity,
+                    destCity);
+        };
+    }
+
+    /**
+     * Runs a search as search does and records its wall time, the bytes it
+     * allocated and the work its engine counted in the query statistics
+     *
+     * @param stats       the statistics to record in
+     * @param current     the snapshot to search
+     * @param source      the name of the source city
+     * @param destination the name of the destination city
+     * @param metric      what the route minimizes
+     * @return an unmodifiable list of the Transports of the route
+     */
+
+    private List<Transport> measuredSearch(QueryStats stats, Snapshot current,
+                                           String source, String destination,
+                                           RouteMetric metric) {
+        long allocatedBefore = QueryStats.currentThreadAllocatedBytes();
+        long start = System.nanoTime();
+        List<Transport> path = this.search(current, source, destination,
+                metric);
+        long wallNanos = System.nanoTime() - start;
+        long allocated = allocatedBefore < 0 ? -1
+                : QueryStats.currentThreadAllocatedBytes() - allocatedBefore;
+        Object engine = metric == RouteMetric.MOST_DIRECT ? this.bfs.get()
+                : current.dijkstra;
+        stats.record(metric, engine instanceof ICountedSearch
+                ? ((ICountedSearch) engine).getLastWork() : null, wallNanos,
+                allocated);
+        return path;
+    }
+
+    /**
+     * Returns every route between the input cities that no other route
+     * beats on both price and duration, found with a single multi-label
+     * Dijkstra. These routes are not cached
+     *
+     * @param source      the name of the source city
+     * @param destination the name of the destination city
+     * @return the routes from the cheapest to the fastest, or an empty list
+     * if there is none
+     */
+
+    @Override
+    public List<List<Transport>> paretoRoutes(String source, String destination) {
+        FrozenTravelGraph frozen = this.snapshot.graph;
+        return this.paretoSearch.get().getRoutes(frozen,
+                frozen.getCityByName(source), frozen.getCityByName(destination));
+    }
+
+    /**
+     * Returns the fastest routes from the input source city to every city
+     * it can reach, found with a single run of Dijkstra's algorithm
+     *
+     * @param source the name of the source city
+     * @return the tree of fastest routes from the source
+     */
+
+    @Override
+    public IShortestPathTree<City, Transport> fastestRoutesFrom(String source) {
+        FrozenTravelGraph frozen = this.snapshot.graph;
+        return this.treeSearch.get().getShortestPathTree(frozen,
+                frozen.getCityByName(source), TransportWeights.MINUTES);
+    }
+
+    /**
+     * Returns the cheapest routes from the input source city to every city
+     * it can reach, found with a single run of Dijkstra's algorithm
+     *
+     * @param source the name of the source city
+     * @return the tree of cheapest routes from the source
+     */
+
+    @Override
+    public IShortestPathTree<City, Transport> cheapestRoutesFrom(String source) {
+        FrozenTravelGraph frozen = this.snapshot.graph;
+        return this.treeSearch.get().getShortestPathTree(frozen,
+                frozen.getCityByName(source), TransportWeights.PRICE);
+    }
+
+    /**
+     * Returns the fastest routes from the input source city to every city
+     * it can reach within a number of minutes. The search stops once every
+     * route left in its queue takes longer than that
+     *
+     * @param source  the name of the source city
+     * @param minutes the longest travel time to include
+     * @return the tree of fastest routes that take at most minutes
+     * @throws IllegalArgumentException if minutes is negative
+     */
+
+    @Override
+    public IShortestPathTree<City, Transport> fastestRoutesWithin(String source,
+                                                                  double minutes) {
+        checkLimit(minutes);
+        FrozenTravelGraph frozen = this.snapshot.graph;
+        return this.treeSearch.get().getShortestPathTree(frozen,
+                frozen.getCityByName(source), TransportWeights.MINUTES, minutes);
+    }
+
+    /**
+     * Returns the cheapest routes from the input source city to every city
+     * it can reach within a price. The search stops once every route left
+     * in its queue costs more than that
+     *
+     * @param source the name of the source city
+     * @param price  the highest total price to include
+     * @return the tree of cheapest routes that cost at most price
+     * @throws IllegalArgumentException if price is negative
+     */
+
+    @Override
+    public IShortestPathTree<City, Transport> cheapestRoutesWithin(String source,
+                                                                   double price) {
+        checkLimit(price);
+        FrozenTravelGraph frozen = this.snapshot.graph;
+        return this.treeSearch.get().getShortestPathTree(frozen,
+                frozen.getCityByName(source), TransportWeights.PRICE, price);
+    }
+
+    /**
+     * Returns the most direct routes from the input source city to every
+     * city it can reach with at most a number of connections, found with a
+     * single direction-optimizing BFS
+     *
+     * @param source      the name of the source city
+     * @param connections the largest number of connections to include
+     * @return the tree of most direct routes, weighted by their number of
+     * connections
+     * @throws IllegalArgumentException if connections is negative
+     */
+
+    @Override
+    public IShortestPathTree<City, Transport> mostDirectRoutesWithin(String source,
+                                                                     int connections) {
+        checkLimit(connections);
+        FrozenTravelGraph frozen = this.snapshot.graph;
+        return this.hopSearch.get().getHopTree(frozen, frozen.getCityByName(source),
+                connections);
+    }
+
+    /**
+     * Returns a table of the fastest routes from each of the given cities to
+     * every city, computed for all sources in parallel
+     *
+     * @param sources the names of the source cities, one row each
+     * @return the table of fastest routes from every source
+     */
+
+    public RouteTable fastestRouteTable(List<String> sources) {
+        return this.buildRouteTable(sources, TransportWeights.MINUTES);
+    }
+
+    /**
+     * Returns a table of the cheapest routes from each of the given cities
+     * to every city, computed for all sources in parallel
+     *
+     * @param sources the names of the source cities, one row each
+     * @return the table of cheapest routes from every source
+     */
+
+    public RouteTable cheapestRouteTable(List<String> sources) {
+        return this.buildRouteTable(sources, TransportWeights.PRICE);
+    }
+
+    /**
+     * Looks up the source cities by name and builds their route table
+     *
+     * @param sources    the names of the source cities
+     * @param edgeWeight the weight to minimize
+     * @return the route table of the sources
+     */
+
+    private RouteTable buildRouteTable(List<String> sources,
+                                       Function<Transport, Double> edgeWeight) {
+        FrozenTravelGraph frozen = this.snapshot.graph;
+        List<City> sourceCities = new ArrayList<>();
+        for (String name : sources) {
+            sourceCities.add(frozen.getCityByName(name));
+        }
+        return this.routeTables.build(frozen, sourceCities, edgeWeight);
+    }
+
+    /**
+     * Returns the work done by the searches of fastest, cheapest and most
+     * direct route queries since statistics were turned on or last reset.
+     * Queries answered from the route cache run no search and are not
+     * counted here; the route cache counts them
+     *
+     * @return a table per kind of query, or a string saying statistics are
+     * off
+     */
+
+    @Override
+    public String getStats() {
+        QueryStats current = this.stats;
+        if (current == null) {
+            return "Statistics are off. Turn them on with: stats on";
+        }
+        return current.toString() + String.format("%nroute cache: %d hits, "
+                + "%d misses", this.routeCache.getHitCount(),
+                this.routeCache.getMissCount());
+    }
+
+    /**
+     * Turns the collection of query statistics on or off. While they are off
+     * queries do not measure anything. Turning them on starts from zero
+     *
+     * @param enabled whether to collect statistics
+     * @return a string indicating whether statistics are now on or off
+     */
+
+    @Override
+    public synchronized String setStatsEnabled(boolean enabled) {
+        if (enabled && this.stats == null) {
+            this.stats = new QueryStats();
+        } else if (!enabled) {
+            this.stats = null;
+        }
+        return "Statistics are " + (enabled ? "on." : "off.");
+    }
+
+    /**
+     * Forgets the query statistics collected so far, if they are on
+     *
+     * @return a string indicating whether the statistics have been reset
+     */
+
+    @Override
+    public synchronized String resetStats() {
+        if (this.stats == null) {
+            return "Statistics are off.";
+        }
+        this.stats = new QueryStats();
+        return "Statistics have been reset.";
+    }
+
+    /**
+     * Returns the query statistics, for exporting their histograms
+     *
+     * @return the statistics collected since they were turned on or last
+     * reset, or null if they are off
+     */
+
+    public QueryStats getQueryStats() {
+        return this.stats;
+    }
+
+    /**
+     * Returns the cache of fastest, cheapest and most direct routes, whose
+     * counters tell how often queries were answered from it
+     *
+     * @return the route cache
+     */
+
+    public RouteCache<RouteKey, List<Transport>> getRouteCache() {
+        return this.routeCache;
+    }
+
+    /**
+     * Rejects a negative or NaN limit for the routes-within searches, which
+     * would otherwise return a tree without even the source in it
+     *
+     * @param limit the largest path weight or number of connections
+     * @throws IllegalArgumentException if limit is negative or NaN
+     */
+
+    private static void checkLimit(double limit) {
+        if (!(limit >= 0)) {
+            throw new IllegalArgumentException("Limit must not be negative, "
+                    + "got " + limit + ".");
+        }
+    }
+
+    /**
+     * Creates the search used for fastest and cheapest routes in a search
+     * mode, in a form that can be called from many threads at once
+     *
+     * @param searchMode the search mode
+     * @return a thread-safe search
+     */
+
+    private static IDijkstra<City, Transport> createSearch(SearchMode searchMode) {
+        return switch (searchMode) {
+            case DIJKSTRA -> new ThreadLocalDijkstra<>(Dijkstra::new);
+            case BIDIRECTIONAL -> new ThreadLocalDijkstra<>(
+                    BidirectionalDijkstra::new);
+            case CONTRACTION_HIERARCHIES -> new ContractionHierarchyDijkstra();
+            case ALT -> new LandmarkAStar();
+        };
+    }
+
+    /**
+     * Builds the per-graph tables of a search for both weights, if it needs
+     * any, so the first queries on a graph do not pay for them
+     *
+     * @param dijkstra the search
+     * @param frozen   the graph it will run on
+     */
+
+    private static void preprocess(IDijkstra<City, Transport> dijkstra,
+                                   FrozenTravelGraph frozen) {
+        if (dijkstra instanceof IPreprocessedDijkstra) {
+            IPreprocessedDijkstra<City, Transport> engine =
+                    (IPreprocessedDijkstra<City, Transport>) dijkstra;
+            engine.preprocess(frozen, TransportWeights.MINUTES);
+            engine.preprocess(frozen, TransportWeights.PRICE);
+        }
+    }
+
+    /**
+     * Everything a query needs about the loaded graph, published together
+     * by a single write of the snapshot field. Queries read the field once
+     * and then work only on what they read, so they never see a graph from
+     * one load with the search prepared for another, and never take a lock
+     */
+
+    private static final class Snapshot {
+
+        private final FrozenTravelGraph graph;
+        private final SearchMode searchMode;
+        private final IDijkstra<City, Transport> dijkstra;
+
+        Snapshot(FrozenTravelGraph graph, SearchMode searchMode,
+                 IDijkstra<City, Transport> dijkstra) {
+            this.graph = graph;
+            this.searchMode = searchMode;
+            this.dijkstra = dijkstra;
+        }
+    }
+
+    /**
+     * The key of a cached route: the graph it was found on, the names of its
+     * end cities and what it minimizes. Keeping the graph in the key means a
+     * route found on a graph that has since been replaced can never be
+     * returned for the new one
+     */
+
+    public static final class RouteKey {
+
+        private final FrozenTravelGraph graph;
+        private final String source;
+        private final String destination;
+        private final RouteMetric metric;
+
+        RouteKey(FrozenTravelGraph graph, String source, String destination,
+                 RouteMetric metric) {
+            this.graph = graph;
+            this.source = source;
+            this.destination = destination;
+            this.metric = metric;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof RouteKey)) {
+                return false;
+            }
+            RouteKey other = (RouteKey) o;
+            return this.graph == other.graph
+                    && this.metric == other.metric
+                    && this.source.equals(other.source)
+                    && this.destination.equals(other.destination);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(System.identityHashCode(this.graph),
+                    this.source, this.destination, this.metric);
+        }
     }
-}
\ No newline at end of file
+}
@@ -2,43 +2,62 @@ package sol;
 
 import src.City;
 import src.IGraph;
+import src.NameTable;
 import src.Transport;
 
 import java.util.*;
+import java.util.function.Consumer;
 
 /**
  * The TravelGraph class is part of the model in this program and uses City
  * objects to represent vertices of the graph and Transport objects to
  * represent edges in the graph through TravelGraph objects. It contains
  * methods to create the graph as well as access certain fields of a graph.
+ * <p>
+ * Every city name added to the graph gets a dense id from a NameTable, and
+ * the cities are kept in an array indexed by that id. A name keeps its id
+ * when its city is removed, so ids stay stable while the graph changes, and
+ * a city added to its first graph takes the id of its name there as its own.
  */
 
 public class TravelGraph implements IGraph<City, Transport> {
 
-    private HashMap<String, City> citiesMap;
+    private final NameTable names;
+    private City[] cities;
+    private int vertexCount;
 
     /**
-     * Constructor for the TravelGraph class. Initializes the citiesMap field
+     * Constructor for the TravelGraph class. Starts with no cities
      */
 
     public TravelGraph() {
-        this.citiesMap = new HashMap<>();
+        this.names = new NameTable();
+        this.cities = new City[16];
     }
 
     /**
-     * Adds a mapping of a string representing a city name to the actual City
-     * object to the hash map field
+     * Adds a city to the graph under the id of its name, replacing any city
+     * with the same name
      *
      * @param vertex a City object representing a vertex in the graph
      */
 
     @Override
     public void addVertex(City vertex) {
-        this.citiesMap.put(vertex.toString(), vertex);
+        int id = this.names.add(vertex.toString());
+        if (id >= this.cities.length) {
+            this.cities = Arrays.copyOf(this.cities, this.cities.length * 2);
+        }
+        if (this.cities[id] == null) {
+            this.vertexCount++;
+        }
+        this.cities[id] = vertex;
+        vertex.assignId(id);
     }
 
     /**
-     * Adds an edge to the set of outgoing edges for a City object
+     * Adds an edge to the set of outgoing edges for a City object, and to the
+     * set of incoming edges of the City it leads to
      *
      * @param origin the origin of the edge (AKA the source city)
      * @param edge   the Transport edge coming out of a city that contains a
@@ -48,6 +67,57 @@ public class TravelGraph implements IGraph<City, Transport> {
     @Override
     public void addEdge(City origin, Transport edge) {
         origin.addOut(edge);
+        edge.getTarget().addIn(edge);
+    }
+
+    /**
+     * Removes an edge from the set of outgoing edges of its origin and from
+     * the set of incoming edges of the City it leads to, in constant time
+     *
+     * @param origin the origin of the edge (AKA the source city)
+     * @param edge   the Transport edge to remove
+     */
+
+    @Override
+    public void removeEdge(City origin, Transport edge) {
+        origin.removeOut(edge);
+        edge.getTarget().removeIn(edge);
+    }
+
+    /**
+     * Removes a city and every Transport leaving or arriving at it, in time
+     * proportional to the number of those Transports
+     *
+     * @param vertex the City to remove
+     * @throws IllegalArgumentException if the City is not in the graph
+     */
+
+    @Override
+    public void removeVertex(City vertex) {
+        int id = this.names.find(vertex.toString());
+        if (id == -1 || this.cities[id] != vertex) {
+            throw new IllegalArgumentException("City is not in the graph.");
+        }
+        for (Transport transport : new ArrayList<>(vertex.getOutgoing())) {
+            this.removeEdge(vertex, transport);
+        }
+        for (Transport transport : new ArrayList<>(vertex.getIncoming())) {
+            this.removeEdge(transport.getSource(), transport);
+        }
+        this.cities[id] = null;
+        this.vertexCount--;
+    }
+
+    /**
+     * Returns whether the graph has a city with a name
+     *
+     * @param name the name of a city
+     * @return true if a city in the graph has that name, false otherwise
+     */
+
+    public boolean containsCity(String name) {
+        int id = this.names.find(name);
+        return id != -1 && this.cities[id] != null;
     }
 
     /**
@@ -60,7 +130,36 @@ public class TravelGraph implements IGraph<City, Transport> {
 
     @Override
     public Set<City> getVertices() {
-        return new HashSet<>(this.citiesMap.values());
+        Set<City> vertices = new HashSet<>();
+        this.forEachVertex(vertices::add);
+        return vertices;
+    }
+
+    /**
+     * Returns the number of cities in the graph without copying them
+     *
+     * @return the number of cities in the graph
+     */
+
+    @Override
+    public int getVertexCount() {
+        return this.vertexCount;
+    }
+
+    /**
+     * Calls an action on every city in the graph without copying them, in
+     * id order
+     *
+     * @param action the action to call on each city
+     */
+
+    @Override
+    public void forEachVertex(Consumer<? super City> action) {
+        for (int id = 0; id < this.names.size(); id++) {
+            if (this.cities[id] != null) {
+                action.accept(this.cities[id]);
+            }
+        }
     }
 
     /**
@@ -100,20 +199,72 @@ public class TravelGraph implements IGraph<City, Transport> {
         return fromVertex.getOutgoing();
     }
 
+    /**
+     * Returns a set of Transport objects that represents all the incoming
+     * edges to a particular City object
+     *
+     * @param toVertex the vertex/city that all the edges point to
+     * @return a set of Transport objects containing all incoming edges
+     */
+
+    @Override
+    public Set<Transport> getIncomingEdges(City toVertex) {
+        return toVertex.getIncoming();
+    }
+
     /**
      * Returns a City object corresponding to the input name
      *
      * @param name a String representing the name of a particular city in the
      *             graph
-     * @return a City object in the hash map that has the input name
-     * @throws IllegalArgumentException if the string representing the City
-     *                                  is not in the hash map
+     * @return the City object in the graph that has the input name
+     * @throws IllegalArgumentException if no City in the graph has that name
      */
 
     public City getCityByName(String name) {
-        if (!this.citiesMap.containsKey(name)) {
+        return this.getCity(this.names.find(name));
+    }
+
+    /**
+     * Returns the city whose name has an id in this graph, without hashing
+     * anything
+     *
+     * @param id the id of a name in getNames
+     * @return the City in the graph with that name
+     * @throws IllegalArgumentException if no City in the graph has that name
+     */
+
+    public City getCity(int id) {
+        if (id < 0 || id >= this.names.size() || this.cities[id] == null) {
             throw new IllegalArgumentException("City is not in the graph.");
         }
-        return this.citiesMap.get(name);
+        return this.cities[id];
+    }
+
+    /**
+     * Returns the table that gives the city names of this graph their ids.
+     * Parsers may look names up in it, but must not add to it
+     *
+     * @return the name table
+     */
+
+    NameTable getNames() {
+        return this.names;
+    }
+
+    /**
+     * Compiles the current cities and Transports into an immutable
+     * FrozenTravelGraph with a compressed sparse row layout. Later changes
+     * to this graph are not reflected in the snapshot. Cities are numbered
+     * in id order, so in a graph that no city has been removed from, every
+     * city's vertex id is its own id
+     *
+     * @return a CSR snapshot of this graph
+     */
+
+    public FrozenTravelGraph freeze() {
+        List<City> vertices = new ArrayList<>(this.vertexCount);
+        this.forEachVertex(vertices::add);
+        return new FrozenTravelGraph(vertices);
     }
 }
\ No newline at end of file
@@ -0,0 +1,80 @@
+package sol;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+
+/**
+ * The VertexIndex class hands out dense integer ids (0, 1, 2, ...) to
+ * vertices in the order they are first seen during a search, so the search
+ * can keep its bookkeeping in arrays indexed by id instead of in maps keyed
+ * by vertex.
+ *
+ * @param <V> the type of vertex in the graph
+ */
+
+public class VertexIndex<V> {
+
+    private HashMap<V, Integer> ids;
+    private ArrayList<V> vertices;
+
+    /**
+     * Constructor for the VertexIndex class. Creates an index with no ids
+     * handed out yet
+     */
+
+    public VertexIndex() {
+        this.ids = new HashMap<>();
+        this.vertices = new ArrayList<>();
+    }
+
+    /**
+     * Returns the id of a vertex, handing out the next free id if the vertex
+     * has not been seen before
+     *
+     * @param vertex a vertex in the graph
+     * @return the dense id of that vertex
+     */
+
+    public int idOf(V vertex) {
+        Integer id = this.ids.get(vertex);
+        if (id == null) {
+            id = this.vertices.size();
+            this.ids.put(vertex, id);
+            this.vertices.add(vertex);
+        }
+        return id;
+    }
+
+    /**
+     * Returns the id of a vertex without handing out a new one
+     *
+     * @param vertex a vertex in the graph
+     * @return the dense id of that vertex, or -1 if it has not been seen
+     */
+
+    public int find(V vertex) {
+        Integer id = this.ids.get(vertex);
+        return id == null ? -1 : id;
+    }
+
+    /**
+     * Returns the vertex that was given an id
+     *
+     * @param id an id previously returned by idOf
+     * @return the vertex with that id
+     */
+
+    public V vertexOf(int id) {
+        return this.vertices.get(id);
+    }
+
+    /**
+     * Returns the number of ids handed out so far
+     *
+     * @return the number of vertices in the index
+     */
+
+    public int size() {
+        return this.vertices.size();
+    }
+}
@@ -0,0 +1,85 @@
+package sol;
+
+import java.util.Arrays;
+
+/**
+ * The VisitedSet class records which dense vertex ids a search has visited
+ * (or settled). Each id has an int stamp, and an id counts as visited when
+ * its stamp equals the current epoch. Clearing the set just starts a new
+ * epoch, so one VisitedSet can be reused by many searches without paying
+ * O(V) to reset it between them.
+ */
+
+public class VisitedSet {
+
+    private static final int DEFAULT_CAPACITY = 16;
+
+    private int[] stamps;
+    private int epoch;
+
+    /**
+     * Constructor for the VisitedSet class. Creates an empty set with a small
+     * default capacity
+     */
+
+    public VisitedSet() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Constructor for the VisitedSet class. Creates an empty set that can
+     * hold ids in the range [0, capacity) without growing
+     *
+     * @param capacity the number of ids to size the set for
+     */
+
+    public VisitedSet(int capacity) {
+        this.stamps = new int[Math.max(capacity, 1)];
+        this.epoch = 1;
+    }
+
+    /**
+     * Returns whether an id has been visited since the last clear
+     *
+     * @param id a non-negative id
+     * @return true if the id is visited, false otherwise
+     */
+
+    public boolean contains(int id) {
+        return id < this.stamps.length && this.stamps[id] == this.epoch;
+    }
+
+    /**
+     * Marks an id as visited
+     *
+     * @param id a non-negative id
+     * @return true if the id was not visited before this call, false
+     * otherwise
+     */
+
+    public boolean add(int id) {
+        if (id >= this.stamps.length) {
+            this.stamps = Arrays.copyOf(this.stamps,
+                    Math.max(id + 1, this.stamps.length * 2));
+        }
+        if (this.stamps[id] == this.epoch) {
+            return false;
+        }
+        this.stamps[id] = this.epoch;
+        return true;
+    }
+
+    /**
+     * Forgets every visited id in O(1) time by starting a new epoch. The
+     * stamps only need to be wiped once every 2^31 clears, when the epoch
+     * counter wraps around
+     */
+
+    public void clear() {
+        if (this.epoch == Integer.MAX_VALUE) {
+            Arrays.fill(this.stamps, 0);
+            this.epoch = 0;
+        }
+        this.epoch++;
+    }
+}
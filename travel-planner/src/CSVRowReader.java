@@ -0,0 +1,423 @@
+package src;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Arrays;
+
+/**
+ * Streams the rows of an RFC 4180 CSV file one at a time through a single
+ * reusable row view. The input is read in large blocks, and the fields of
+ * the current row are kept as ranges of one char array that is overwritten
+ * by the next row, so reading a row allocates nothing. Fields can be parsed
+ * as numbers straight from that array, and names can be interned so every
+ * row that repeats a name gets back the same String, or looked up in a
+ * NameTable without making a String at all.
+ */
+public class CSVRowReader {
+
+    private static final int BLOCK_SIZE = 1 << 16;
+    private static final double[] POWERS_OF_TEN = {
+        1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11, 1e12,
+        1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22};
+
+    private final Reader reader;
+    private final char[] block;
+    private int blockPos;
+    private int blockEnd;
+
+    private char[] row;
+    private int[] fieldStarts;
+    private int[] fieldEnds;
+    private int fieldCount;
+    private long rowNumber;
+
+    private String[] names;
+    private int[] nameHashes;
+    private int nameCount;
+
+    /**
+     * Creates a reader over a character stream
+     *
+     * @param reader the stream to read rows from
+     */
+    public CSVRowReader(Reader reader) {
+        this.reader = reader;
+        this.block = new char[BLOCK_SIZE];
+        this.row = new char[256];
+        this.fieldStarts = new int[8];
+        this.fieldEnds = new int[8];
+        this.names = new String[64];
+        this.nameHashes = new int[64];
+    }
+
+    /**
+     * Reads the next row into the row view, skipping empty lines
+     *
+     * @return true if a row was read, false at the end of the input
+     * @throws IOException if the input cannot be read or a quoted field is
+     *                     never closed
+     */
+    public boolean next() throws IOException {
+        while (true) {
+            int c = this.read();
+            if (c == -1) {
+                return false;
+            }
+            if (c == '\r' || c == '\n') {
+                continue;
+            }
+            this.readRow(c);
+            this.rowNumber++;
+            return true;
+        }
+    }
+
+    /**
+     * Returns the number of rows read so far, counting the header
+     *
+     * @return the row number of the current row, starting at 1
+     */
+    public long getRowNumber() {
+        return this.rowNumber;
+    }
+
+    /**
+     * Returns the number of fields in the current row
+     *
+     * @return the field count
+     */
+    public int getFieldCount() {
+        return this.fieldCount;
+    }
+
+    /**
+     * Returns a field of the current row as a new String
+     *
+     * @param field the index of the field
+     * @return the text of the field
+     */
+    public String getString(int field) {
+        this.checkField(field);
+        return new String(this.row, this.fieldStarts[field],
+            this.fieldEnds[field] - this.fieldStarts[field]);
+    }
+
+    /**
+     * Returns a field of the current row as a String that is shared with
+     * every earlier field of this reader that had the same text, so a name
+     * that appears on many rows is only allocated once
+     *
+     * @param field the index of the field
+     * @return the interned text of the field
+     */
+    public String getName(int field) {
+        this.checkField(field);
+        int start = this.fieldStarts[field];
+        int end = this.fieldEnds[field];
+        int hash = 0;
+        for (int i = start; i < end; i++) {
+            hash = 31 * hash + this.row[i];
+        }
+        int mask = this.names.length - 1;
+        int slot = (hash ^ (hash >>> 16)) & mask;
+        while (this.names[slot] != null) {
+            if (this.nameHashes[slot] == hash
+                && this.rangeEquals(start, end, this.names[slot])) {
+                return this.names[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+        String name = new String(this.row, start, end - start);
+        this.names[slot] = name;
+        this.nameHashes[slot] = hash;
+        if (++this.nameCount * 2 > this.names.length) {
+            this.growNames();
+        }
+        return name;
+    }
+
+    /**
+     * Returns the id a name table gives the text of a field of the current
+     * row, hashing the field where it lies in the row buffer instead of
+     * making a String of it
+     *
+     * @param field the index of the field
+     * @param names the table to look the text up in
+     * @return the id of the text, or -1 if the table does not have it
+     */
+    public int getNameId(int field, NameTable names) {
+        this.checkField(field);
+        return names.find(this.row, this.fieldStarts[field], this.fieldEnds[field]);
+    }
+
+    /**
+     * Returns whether a field of the current row has exactly the given text
+     *
+     * @param field the index of the field
+     * @param text  the text to compare with
+     * @return true if the field matches the text, false otherwise
+     */
+    public boolean fieldEquals(int field, String text) {
+        this.checkField(field);
+        return this.rangeEquals(this.fieldStarts[field], this.fieldEnds[field],
+            text);
+    }
+
+    /**
+     * Parses a field of the current row as a transport type, ignoring case
+     *
+     * @param field the index of the field
+     * @return the TransportType the field names
+     * @throws IllegalArgumentException if the field is not a transport type
+     */
+    public TransportType getTransportType(int field) {
+        this.checkField(field);
+        int start = this.fieldStarts[field];
+        int end = this.fieldEnds[field];
+        for (TransportType type : TransportType.values()) {
+            if (this.rangeEqualsIgnoreCase(start, end, type.getLabel())) {
+                return type;
+            }
+        }
+        return TransportType.fromString(this.getString(field));
+    }
+
+    /**
+     * Parses a field of the current row as a double without copying it. Plain
+     * decimals with at most 15 significant digits are converted with one
+     * exact multiplication or division, which rounds the same way as
+     * Double.parseDouble; anything else is handed to Double.parseDouble
+     *
+     * @param field the index of the field
+     * @return the value of the field
+     * @throws NumberFormatException if the field is not a number
+     */
+    public double getDouble(int field) {
+        this.checkField(field);
+        int i = this.fieldStarts[field];
+        int end = this.fieldEnds[field];
+        while (i < end && this.row[i] == ' ') {
+            i++;
+        }
+        while (end > i && this.row[end - 1] == ' ') {
+            end--;
+        }
+        boolean negative = false;
+        if (i < end && (this.row[i] == '-' || this.row[i] == '+')) {
+            negative = this.row[i] == '-';
+            i++;
+        }
+        long mantissa = 0;
+        int digits = 0;
+        int scale = 0;
+        boolean seenDigit = false;
+        boolean seenPoint = false;
+        for (; i < end; i++) {
+            char c = this.row[i];
+            if (c >= '0' && c <= '9') {
+                seenDigit = true;
+                if (mantissa != 0 || c != '0') {
+                    digits++;
+                }
+                if (digits > 15) {
+                    return this.parseSlow(field);
+                }
+                mantissa = mantissa * 10 + (c - '0');
+                if (seenPoint) {
+                    scale++;
+                }
+            } else if (c == '.' && !seenPoint) {
+                seenPoint = true;
+            } else {
+                return this.parseSlow(field);
+            }
+        }
+        if (!seenDigit || scale >= POWERS_OF_TEN.length) {
+            return this.parseSlow(field);
+        }
+        double value = scale == 0 ? mantissa : mantissa / POWERS_OF_TEN[scale];
+        return negative ? -value : value;
+    }
+
+    /**
+     * Parses a field with Double.parseDouble
+     *
+     * @param field the index of the field
+     * @return the value of the field
+     */
+    private double parseSlow(int field) {
+        return Double.parseDouble(this.getString(field).trim());
+    }
+
+    /**
+     * Reads one row, starting with its first character, into the row buffer
+     *
+     * @param first the first character of the row
+     * @throws IOException if the input cannot be read
+     */
+    private void readRow(int first) throws IOException {
+        int length = 0;
+        this.fieldCount = 0;
+        int c = first;
+        while (true) {
+            this.startField(length);
+            if (c == '"') {
+                // quoted field: doubled quotes are one quote, and commas and
+                // line breaks are part of the field
+                while (true) {
+                    c = this.read();
+                    if (c == -1) {
+                        throw new IOException("Unclosed quote on row "
+                            + (this.rowNumber + 1));
+                    }
+                    if (c == '"') {
+                        c = this.read();
+                        if (c != '"') {
+                            break;
+                        }
+                    }
+                    length = this.append(length, (char) c);
+                }
+                while (c != ',' && c != '\n' && c != '\r' && c != -1) {
+                    c = this.read();
+                }
+            } else {
+                while (c != ',' && c != '\n' && c != '\r' && c != -1) {
+                    length = this.append(length, (char) c);
+                    c = this.read();
+                }
+            }
+            this.fieldEnds[this.fieldCount - 1] = length;
+            if (c != ',') {
+                return;
+            }
+            c = this.read();
+        }
+    }
+
+    /**
+     * Opens a new field at a position of the row buffer
+     *
+     * @param start the position the field starts at
+     */
+    private void startField(int start) {
+        if (this.fieldCount == this.fieldStarts.length) {
+            this.fieldStarts = Arrays.copyOf(this.fieldStarts,
+                this.fieldCount * 2);
+            this.fieldEnds = Arrays.copyOf(this.fieldEnds, this.fieldCount * 2);
+        }
+        this.fieldStarts[this.fieldCount] = start;
+        this.fieldEnds[this.fieldCount] = start;
+        this.fieldCount++;
+    }
+
+    /**
+     * Appends a character to the row buffer, growing it if needed
+     *
+     * @param length the number of characters in the buffer
+     * @param c      the character
+     * @return the new number of characters in the buffer
+     */
+    private int append(int length, char c) {
+        if (length == this.row.length) {
+            this.row = Arrays.copyOf(this.row, length * 2);
+        }
+        this.row[length] = c;
+        return length + 1;
+    }
+
+    /**
+     * Returns the next character of the input, refilling the block if needed
+     *
+     * @return the character, or -1 at the end of the input
+     * @throws IOException if the input cannot be read
+     */
+    private int read() throws IOException {
+        if (this.blockPos == this.blockEnd) {
+            int count = this.reader.read(this.block, 0, this.block.length);
+            if (count <= 0) {
+                return -1;
+            }
+            this.blockPos = 0;
+            this.blockEnd = count;
+        }
+        return this.block[this.blockPos++];
+    }
+
+    /**
+     * Returns whether a range of the row buffer has the same text as a string
+     *
+     * @param start the start of the range
+     * @param end   the end of the range
+     * @param text  the string
+     * @return true if they match, false otherwise
+     */
+    private boolean rangeEquals(int start, int end, String text) {
+        if (end - start != text.length()) {
+            return false;
+        }
+        for (int i = start; i < end; i++) {
+            if (this.row[i] != text.charAt(i - start)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns whether a range of the row buffer has the same text as a
+     * string, ignoring case
+     *
+     * @param start the start of the range
+     * @param end   the end of the range
+     * @param text  the string
+     * @return true if they match, false otherwise
+     */
+    private boolean rangeEqualsIgnoreCase(int start, int end, String text) {
+        if (end - start != text.length()) {
+            return false;
+        }
+        for (int i = start; i < end; i++) {
+            char a = this.row[i];
+            char b = text.charAt(i - start);
+            if (a != b && Character.toLowerCase(a) != Character.toLowerCase(b)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Doubles the size of the name table
+     */
+    private void growNames() {
+        String[] oldNames = this.names;
+        int[] oldHashes = this.nameHashes;
+        this.names = new String[oldNames.length * 2];
+        this.nameHashes = new int[oldNames.length * 2];
+        int mask = this.names.length - 1;
+        for (int i = 0; i < oldNames.length; i++) {
+            if (oldNames[i] != null) {
+                int slot = (oldHashes[i] ^ (oldHashes[i] >>> 16)) & mask;
+                while (this.names[slot] != null) {
+                    slot = (slot + 1) & mask;
+                }
+                this.names[slot] = oldNames[i];
+                this.nameHashes[slot] = oldHashes[i];
+            }
+        }
+    }
+
+    /**
+     * Checks that the current row has a field
+     *
+     * @param field the index of the field
+     * @throws IllegalArgumentException if the row has no such field
+     */
+    private void checkField(int field) {
+        if (field >= this.fieldCount) {
+            throw new IllegalArgumentException("Row " + this.rowNumber
+                + " has no field " + field);
+        }
+    }
+}
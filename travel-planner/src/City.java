@@ -8,17 +8,46 @@ import java.util.Set;
  */
 public class City {
     private Set<Transport> outgoing;
+    private Set<Transport> incoming;
     private String name;
+    private int id;
 
     public City(String name) {
         this.name = name;
+        this.id = -1; //set by the first TravelGraph the City is added to
         this.outgoing = new HashSet<>(); //stores all outgoing Transports (edges) for given City (vertex)
+        this.incoming = new HashSet<>(); //stores all incoming Transports (edges) for given City (vertex)
+    }
+
+    /**
+     * Returns the dense id of the City, which is the id its name got in the
+     * first TravelGraph it was added to and never changes afterwards
+     *
+     * @return the id, or -1 if the City has never been added to a graph
+     */
+    public int getId() {
+        return this.id;
+    }
+
+    /**
+     * Gives the City its id, unless it already has one
+     *
+     * @param id a non-negative id
+     */
+    public void assignId(int id) {
+        if (this.id == -1) {
+            this.id = id;
+        }
     }
 
     public Set<Transport> getOutgoing() {
         return this.outgoing;
     }
 
+    public Set<Transport> getIncoming() {
+        return this.incoming;
+    }
+
     /**
      * Adds outgoing edge (Transport) to vertex (City)
      *
@@ -28,6 +57,33 @@ public class City {
         this.outgoing.add(transport);
     }
 
+    /**
+     * Adds incoming edge (Transport) to vertex (City)
+     *
+     * @param transport
+     */
+    public void addIn(Transport transport) {
+        this.incoming.add(transport);
+    }
+
+    /**
+     * Removes outgoing edge (Transport) from vertex (City)
+     *
+     * @param transport
+     */
+    public void removeOut(Transport transport) {
+        this.outgoing.remove(transport);
+    }
+
+    /**
+     * Removes incoming edge (Transport) from vertex (City)
+     *
+     * @param transport
+     */
+    public void removeIn(Transport transport) {
+        this.incoming.remove(transport);
+    }
+
     @Override
     public String toString() {
         return this.name;
@@ -0,0 +1,20 @@
+package src;
+
+/**
+ * An interface for searches that count the work of their queries. Counting
+ * is a few additions per settled vertex, so it is always on, even while
+ * query statistics are off; checking a flag in the inner loop would cost
+ * about as much as the additions it skips. Reading the counts is what
+ * costs, and only callers that want them do it.
+ */
+public interface ICountedSearch {
+
+    /**
+     * Returns the work of the last query the calling thread ran on this
+     * search
+     *
+     * @return the work of that query, or all zeros if the thread has not
+     * run one
+     */
+    public SearchWork getLastWork();
+}
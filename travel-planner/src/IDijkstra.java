@@ -2,6 +2,7 @@ package src;
 
 import java.util.List;
 import java.util.function.Function;
+import java.util.function.ToDoubleFunction;
 
 /**
  * A class the implements Dijkstra's algorithm.
@@ -22,4 +23,22 @@ public interface IDijkstra<V, E> {
     public List<E> getShortestPath(IGraph<V, E> graph, V source, V destination,
                                    Function<E, Double> edgeWeight);
 
+    /**
+     * Finds the lowest cost path from source to destination, weighing edges
+     * with a function that returns a primitive double so that no Double is
+     * boxed per edge. The default implementation adapts edgeWeight to the
+     * Function form and so still boxes; implementations should override it.
+     *
+     * @param graph       the graph including the vertices
+     * @param source      the source vertex
+     * @param destination the destination vertex
+     * @param edgeWeight  the weight of an edge
+     * @return a list of edges from source to destination
+     */
+    public default List<E> getShortestPathDouble(IGraph<V, E> graph, V source,
+                                                 V destination,
+                                                 ToDoubleFunction<E> edgeWeight) {
+        return this.getShortestPath(graph, source, destination,
+                edge -> edgeWeight.applyAsDouble(edge));
+    }
 }
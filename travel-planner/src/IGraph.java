@@ -1,6 +1,8 @@
 package src;
 
+import java.util.HashSet;
 import java.util.Set;
+import java.util.function.Consumer;
 
 /**
  * An interface to represent a graph.
@@ -25,6 +27,31 @@ public interface IGraph<V, E> {
      */
     public void addEdge(V origin, E edge);
 
+    /**
+     * Removes an edge from the graph. The default implementation throws, for
+     * graphs that cannot change once built.
+     *
+     * @param origin the origin of the edge
+     * @param edge   the edge
+     * @throws UnsupportedOperationException if the graph cannot remove edges
+     */
+    public default void removeEdge(V origin, E edge) {
+        throw new UnsupportedOperationException("This graph cannot remove edges.");
+    }
+
+    /**
+     * Removes a vertex and every edge leaving or arriving at it from the
+     * graph. The default implementation throws, for graphs that cannot change
+     * once built.
+     *
+     * @param vertex the vertex
+     * @throws UnsupportedOperationException if the graph cannot remove
+     *                                       vertices
+     */
+    public default void removeVertex(V vertex) {
+        throw new UnsupportedOperationException("This graph cannot remove vertices.");
+    }
+
     /**
      * Gets a set of vertices in the graph.
      *
@@ -32,6 +59,28 @@ public interface IGraph<V, E> {
      */
     public Set<V> getVertices();
 
+    /**
+     * Gets the number of vertices in the graph. The default implementation
+     * goes through getVertices, which may copy the vertex set; graphs should
+     * override it when they can answer without copying.
+     *
+     * @return the number of vertices
+     */
+    public default int getVertexCount() {
+        return this.getVertices().size();
+    }
+
+    /**
+     * Calls an action on every vertex in the graph. The default
+     * implementation goes through getVertices, which may copy the vertex
+     * set; graphs should override it when they can iterate without copying.
+     *
+     * @param action the action to call on each vertex
+     */
+    public default void forEachVertex(Consumer<? super V> action) {
+        this.getVertices().forEach(action);
+    }
+
     /**
      * Gets the source of an edge.
      *
@@ -55,4 +104,24 @@ public interface IGraph<V, E> {
      * @return the outgoing edges from that vertex
      */
     public Set<E> getOutgoingEdges(V fromVertex);
+
+    /**
+     * Gets the incoming edges of a vertex. The default implementation scans
+     * the outgoing edges of every vertex, which takes O(V + E) time; graphs
+     * that are searched backwards should override it.
+     *
+     * @param toVertex the vertex
+     * @return the edges whose target is that vertex
+     */
+    public default Set<E> getIncomingEdges(V toVertex) {
+        Set<E> incoming = new HashSet<>();
+        this.forEachVertex(vertex -> {
+            for (E edge : this.getOutgoingEdges(vertex)) {
+                if (this.getEdgeTarget(edge).equals(toVertex)) {
+                    incoming.add(edge);
+                }
+            }
+        });
+        return incoming;
+    }
 }
@@ -0,0 +1,23 @@
+package src;
+
+import java.util.function.Function;
+
+/**
+ * An interface for lowest cost path algorithms that build an index for a
+ * graph and an edge weight before they answer queries.
+ *
+ * @param <V> the type of the vertices
+ * @param <E> the type of the edges
+ */
+public interface IPreprocessedDijkstra<V, E> extends IDijkstra<V, E> {
+
+    /**
+     * Builds the index for a graph and edge weight, if it does not exist
+     * yet, so that later calls to getShortestPath with the same graph and
+     * edge weight do not have to.
+     *
+     * @param graph      the graph including the vertices
+     * @param edgeWeight the edge weight function that will be queried
+     */
+    public void preprocess(IGraph<V, E> graph, Function<E, Double> edgeWeight);
+}
@@ -0,0 +1,59 @@
+package src;
+
+import java.util.List;
+
+/**
+ * The lightest paths from one source vertex to every vertex it can reach,
+ * as found by a single run of Dijkstra's algorithm.
+ *
+ * @param <V> the type of the vertices
+ * @param <E> the type of the edges
+ */
+
+public interface IShortestPathTree<V, E> {
+
+    /**
+     * Returns the vertex the tree is rooted at.
+     *
+     * @return the source vertex
+     */
+
+    public V getSource();
+
+    /**
+     * Returns the vertices the source can reach, in order of increasing
+     * path weight, starting with the source itself.
+     *
+     * @return the reachable vertices
+     */
+
+    public List<V> getReachableVertices();
+
+    /**
+     * Returns whether there is a path from the source to a vertex.
+     *
+     * @param vertex a vertex in the graph
+     * @return true if the vertex can be reached, false otherwise
+     */
+
+    public boolean isReachable(V vertex);
+
+    /**
+     * Returns the weight of the lightest path from the source to a vertex.
+     *
+     * @param vertex a vertex in the graph
+     * @return the weight of the path, or infinity if there is none
+     */
+
+    public double getWeight(V vertex);
+
+    /**
+     * Returns the lightest path from the source to a vertex.
+     *
+     * @param vertex a vertex in the graph
+     * @return a list of edges from the source to the vertex, or empty if
+     * there is none
+     */
+
+    public List<E> getPath(V vertex);
+}
@@ -0,0 +1,24 @@
+package src;
+
+/**
+ * A callback that receives the typed fields of one row of a transportation
+ * CSV file, with the city names replaced by their ids in a NameTable, as read
+ * by MappedTransportParser
+ */
+@FunctionalInterface
+public interface ITransportIdRowHandler {
+
+    /**
+     * Handles one row of a transportation file
+     *
+     * @param origin      the id of the name of the origin city, or -1 if the
+     *                    table does not have it
+     * @param destination the id of the name of the destination city, or -1 if
+     *                    the table does not have it
+     * @param type        the type of transport
+     * @param price       the price of the trip
+     * @param minutes     the duration of the trip in minutes
+     */
+    void handle(int origin, int destination, TransportType type, double price,
+                double minutes);
+}
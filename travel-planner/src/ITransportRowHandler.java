@@ -0,0 +1,22 @@
+package src;
+
+/**
+ * A callback that receives the typed fields of one row of a transportation
+ * CSV file, as read by TravelCSVParser.streamTransportation
+ */
+@FunctionalInterface
+public interface ITransportRowHandler {
+
+    /**
+     * Handles one row of a transportation file. Names that appear on several
+     * rows are passed as the same String object
+     *
+     * @param origin      the name of the origin city
+     * @param destination the name of the destination city
+     * @param type        the type of transport
+     * @param price       the price of the trip
+     * @param minutes     the duration of the trip in minutes
+     */
+    void handle(String origin, String destination, TransportType type,
+                double price, double minutes);
+}
@@ -51,4 +51,129 @@ public interface ITravelController<V, E> {
      */
 
     public List<E> mostDirectRoute(String source, String destination);
+
+    /**
+     * Finds every route in between two cities that no other route beats on
+     * both price and duration
+     *
+     * @param source      the name of the source city
+     * @param destination the name of the destination city
+     * @return the routes from the cheapest to the fastest, each starting from
+     * the source, or empty if there is none
+     */
+
+    public List<List<E>> paretoRoutes(String source, String destination);
+
+    /**
+     * Finds the fastest route from a city to every city it can reach
+     *
+     * @param source the name of the source city
+     * @return the tree of fastest routes starting from the source
+     */
+
+    public IShortestPathTree<V, E> fastestRoutesFrom(String source);
+
+    /**
+     * Finds the cheapest route from a city to every city it can reach
+     *
+     * @param source the name of the source city
+     * @return the tree of cheapest routes starting from the source
+     */
+
+    public IShortestPathTree<V, E> cheapestRoutesFrom(String source);
+
+    /**
+     * Finds the fastest route from a city to every city it can reach
+     * within a number of minutes
+     *
+     * @param source  the name of the source city
+     * @param minutes the longest travel time to include
+     * @return the tree of fastest routes that take at most minutes
+     * @throws IllegalArgumentException if minutes is negative
+     */
+
+    public IShortestPathTree<V, E> fastestRoutesWithin(String source,
+                                                       double minutes);
+
+    /**
+     * Finds the cheapest route from a city to every city it can reach
+     * within a price
+     *
+     * @param source the name of the source city
+     * @param price  the highest total price to include
+     * @return the tree of cheapest routes that cost at most price
+     * @throws IllegalArgumentException if price is negative
+     */
+
+    public IShortestPathTree<V, E> cheapestRoutesWithin(String source,
+                                                        double price);
+
+    /**
+     * Finds the most direct route from a city to every city it can reach
+     * with at most a number of connections
+     *
+     * @param source      the name of the source city
+     * @param connections the largest number of connections to include
+     * @return the tree of most direct routes, weighted by their number of
+     * connections
+     * @throws IllegalArgumentException if connections is negative
+     */
+
+    public IShortestPathTree<V, E> mostDirectRoutesWithin(String source,
+                                                          int connections);
+
+    /**
+     * Saves the loaded graph to a binary file that loadGraph can read back
+     *
+     * @param graphFile the filename of the graph file to write
+     * @return a string indicating whether the graph has been saved
+     */
+
+    public String saveGraph(String graphFile);
+
+    /**
+     * Replaces the loaded graph with one saved by saveGraph
+     *
+     * @param graphFile the filename of the graph file to read
+     * @return a string indicating whether the graph file has been loaded
+     */
+
+    public String loadGraph(String graphFile);
+
+    /**
+     * Applies the changes in a delta CSV file to the loaded graph without
+     * reloading it
+     *
+     * @param deltaFile the filename of the delta csv
+     * @return a string indicating whether the changes have been applied
+     */
+
+    public String update(String deltaFile);
+
+    /**
+     * Returns the work done by the searches of fastest, cheapest and most
+     * direct route queries since statistics were turned on or last reset
+     *
+     * @return a table per kind of query, or a string saying statistics are
+     * off
+     */
+
+    public String getStats();
+
+    /**
+     * Turns the collection of query statistics on or off
+     *
+     * @param enabled whether to collect statistics
+     * @return a string indicating whether statistics are now on or off
+     */
+
+    public String setStatsEnabled(boolean enabled);
+
+    /**
+     * Forgets the query statistics collected so far
+     *
+     * @return a string indicating whether the statistics have been reset
+     */
+
+    public String resetStats();
 }
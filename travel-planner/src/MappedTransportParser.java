@@ -0,0 +1,426 @@
+package src;
+
+import java.io.CharArrayReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.Consumer;
+
+/**
+ * Parses a transportation CSV file on many threads. The file is memory-mapped
+ * rather than read through a stream, and the rows after the header are split
+ * into chunks of about the same size whose edges are moved forward to the next
+ * line break, so every row belongs to exactly one chunk. Each chunk is parsed
+ * by its own CSVRowReader on a ForkJoinPool into primitive columns, and the
+ * chunks are then handed to the callback one after another in file order, so
+ * the callback sees the rows in the same order as TravelCSVParser gives them
+ * and never has to be thread safe.
+ * <p>
+ * Mapping and merging only pay off when the chunks really run side by side,
+ * so a file no bigger than one chunk, or a pool with a parallelism of 1, is
+ * streamed on the calling thread as TravelCSVParser.streamTransportation
+ * does. Splitting on line breaks also assumes no quoted field spans several
+ * lines. Every chunk checks that each of its lines has an even number of
+ * quotes, and if one does not, the whole file is streamed instead, since the
+ * streaming reader follows quoted fields across line breaks.
+ */
+public class MappedTransportParser {
+
+    public static final int DEFAULT_MIN_CHUNK_SIZE = 1 << 20;
+    private static final int MAX_CHUNK_SIZE = 1 << 26;
+
+    private final ForkJoinPool pool;
+    private final long minChunkSize;
+
+    /**
+     * Creates a parser that runs on the common ForkJoinPool
+     */
+    public MappedTransportParser() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Creates a parser with chunks of at least DEFAULT_MIN_CHUNK_SIZE bytes
+     *
+     * @param pool the pool to parse the chunks on
+     */
+    public MappedTransportParser(ForkJoinPool pool) {
+        this(pool, DEFAULT_MIN_CHUNK_SIZE);
+    }
+
+    /**
+     * Creates a parser. A parser may be shared between threads
+     *
+     * @param pool         the pool to parse the chunks on
+     * @param minChunkSize the fewest bytes worth a chunk of their own; files smaller than
+     *                     this are parsed as one chunk
+     * @throws IllegalArgumentException if minChunkSize is not positive
+     */
+    public MappedTransportParser(ForkJoinPool pool, long minChunkSize) {
+        if (minChunkSize <= 0) {
+            throw new IllegalArgumentException("Chunk size must be positive.");
+        }
+        this.pool = pool;
+        this.minChunkSize = minChunkSize;
+    }
+
+    /**
+     * parses a transportation file in parallel and passes the typed fields of every row to a
+     * callback, in file order, on the calling thread
+     *
+     * @param transportationFile path to csv file containing transportation information (ex: data/transport1.csv)
+     * @param handleTransport    callback that receives the typed fields of every row
+     * @throws IOException if the file cannot be read or is missing one of the columns "origin",
+     *                     "destination", "type", "price" and "duration"
+     */
+    public void parseTransportation(String transportationFile, ITransportRowHandler handleTransport)
+        throws IOException {
+        this.parse(transportationFile, (reader, columns) -> {
+            Chunk chunk = new Chunk();
+            TravelCSVParser.readTransportRows(reader, columns, chunk);
+            return chunk;
+        }, chunk -> chunk.replay(handleTransport), (reader, columns) -> {
+            TravelCSVParser.readTransportRows(reader, columns, handleTransport);
+            return null;
+        });
+    }
+
+    /**
+     * parses a transportation file in parallel and passes the typed fields of every row to a
+     * callback, in file order, on the calling thread, with the origin and destination given as
+     * their ids in a name table. The chunk threads look the names up straight from their
+     * buffers, so no String is made for any name and the callback never hashes one
+     *
+     * @param transportationFile path to csv file containing transportation information (ex: data/transport1.csv)
+     * @param cities             the ids of the city names; it is read from several threads, so
+     *                           no name may be added to it until this returns
+     * @param handleTransport    callback that receives the typed fields of every row
+     * @throws IOException if the file cannot be read or is missing one of the columns "origin",
+     *                     "destination", "type", "price" and "duration"
+     */
+    public void parseTransportation(String transportationFile, NameTable cities,
+                                    ITransportIdRowHandler handleTransport) throws IOException {
+        this.parse(transportationFile, (reader, columns) -> {
+            IdChunk chunk = new IdChunk();
+            TravelCSVParser.readTransportRows(reader, columns, cities, chunk);
+            return chunk;
+        }, chunk -> chunk.replay(handleTransport), (reader, columns) -> {
+            TravelCSVParser.readTransportRows(reader, columns, cities, handleTransport);
+            return null;
+        });
+    }
+
+    /**
+     * splits a transportation file into chunks, reads them on the pool and hands the results
+     * to a callback in file order, on the calling thread. A file that is not worth splitting,
+     * or that has a quoted field spanning lines, is streamed to readRows instead
+     *
+     * @param transportationFile path to csv file containing transportation information
+     * @param readChunk          reads the rows of one chunk into a result
+     * @param handleChunk        callback that receives the result of every chunk
+     * @param readRows           reads every row of the file straight to the caller's callback
+     * @param <C>                the type of the result of a chunk
+     * @throws IOException if the file cannot be read or is missing one of the columns "origin",
+     *                     "destination", "type", "price" and "duration"
+     */
+    private <C> void parse(String transportationFile, ChunkReader<C> readChunk,
+                           Consumer<C> handleChunk, ChunkReader<Void> readRows)
+        throws IOException {
+        if (this.pool.getParallelism() <= 1
+            || Files.size(Paths.get(transportationFile)) <= this.minChunkSize) {
+            stream(transportationFile, readRows);
+            return;
+        }
+        List<C> chunks;
+        try (FileChannel channel = FileChannel.open(Paths.get(transportationFile),
+            StandardOpenOption.READ)) {
+            long size = channel.size();
+
+            // the header is read on this thread so every chunk can share its columns
+            MappedByteBuffer start = map(channel, 0);
+            long dataStart = nextLineStart(start, 0, 0, size);
+            CSVRowReader header = new CSVRowReader(decode(start, 0, dataStart));
+            int[] columns = TravelCSVParser.findColumns(header, transportationFile,
+                TravelCSVParser.TRANSPORT_COLUMNS);
+
+            long dataSize = size - dataStart;
+            int parallelism = Math.max(1, this.pool.getParallelism());
+            long chunkSize = Math.max(this.minChunkSize, Math.min(MAX_CHUNK_SIZE,
+                (dataSize + parallelism - 1) / parallelism));
+            int chunkCount = (int) Math.max(1, (dataSize + chunkSize - 1) / chunkSize);
+
+            List<ForkJoinTask<C>> tasks = new ArrayList<>(chunkCount);
+            for (int i = 0; i < chunkCount; i++) {
+                long from = dataStart + i * chunkSize;
+                long to = Math.min(size, from + chunkSize);
+                tasks.add(this.pool.submit(() -> parseChunk(channel, size, from, to, columns,
+                    readChunk)));
+            }
+
+            chunks = new ArrayList<>(chunkCount);
+            for (ForkJoinTask<C> task : tasks) {
+                try {
+                    chunks.add(task.join());
+                } catch (UncheckedIOException e) {
+                    throw e.getCause();
+                }
+            }
+        }
+        // nothing is handed over until every chunk is known to be whole, so a fallback never
+        // repeats a row
+        if (chunks.contains(null)) {
+            stream(transportationFile, readRows);
+            return;
+        }
+        // merge in file order, so the result does not depend on which chunk finished first
+        for (C chunk : chunks) {
+            handleChunk.accept(chunk);
+        }
+    }
+
+    /**
+     * reads a whole transportation file on the calling thread through one streaming reader
+     *
+     * @param transportationFile path to csv file containing transportation information
+     * @param readRows           reads every row after the header
+     * @throws IOException if the file cannot be read or is missing one of the columns "origin",
+     *                     "destination", "type", "price" and "duration"
+     */
+    private static void stream(String transportationFile, ChunkReader<Void> readRows)
+        throws IOException {
+        try (FileReader in = new FileReader(transportationFile, StandardCharsets.UTF_8)) {
+            CSVRowReader reader = new CSVRowReader(in);
+            int[] columns = TravelCSVParser.findColumns(reader, transportationFile,
+                TravelCSVParser.TRANSPORT_COLUMNS);
+            readRows.read(reader, columns);
+        }
+    }
+
+    /**
+     * Parses the rows that start in a range of the file. A range that does not begin at a
+     * line start skips ahead to the next one, and the row that is open at the end of the
+     * range is read to its end, so neighbouring ranges split the rows between them exactly
+     *
+     * @param channel   the open file
+     * @param size      the size of the file
+     * @param from      the start of the range
+     * @param to        the end of the range
+     * @param columns   the indexes of the TRANSPORT_COLUMNS
+     * @param readChunk reads the rows of the range into a result
+     * @param <C>       the type of the result
+     * @return the parsed rows, or null if a quoted field may span lines, in which case the
+     * range cannot be read on its own
+     */
+    private static <C> C parseChunk(FileChannel channel, long size, long from, long to,
+                                    int[] columns, ChunkReader<C> readChunk) {
+        try {
+            // mapping one byte early tells whether from is already a line start
+            long base = from - 1;
+            MappedByteBuffer buffer = map(channel, base);
+            long first = nextLineStart(buffer, base, base, size);
+            long last = to == size ? size : nextLineStart(buffer, base, to - 1, size);
+            if (hasOpenQuote(buffer, first - base, last - base)) {
+                return null;
+            }
+            // a range that no row starts in decodes to no rows
+            CSVRowReader reader = new CSVRowReader(decode(buffer, first - base, last - base));
+            return readChunk.read(reader, columns);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Maps as much of a file as one buffer can hold, starting at a position. Mapping is
+     * lazy, so pages past the rows a chunk reads are never touched
+     *
+     * @param channel  the open file
+     * @param position the first byte to map
+     * @return the mapped bytes
+     * @throws IOException if the file cannot be mapped
+     */
+    private static MappedByteBuffer map(FileChannel channel, long position) throws IOException {
+        long length = Math.min(channel.size() - position, Integer.MAX_VALUE);
+        return channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+    }
+
+    /**
+     * Returns the position just after the first line break at or after a position
+     *
+     * @param buffer the mapped bytes
+     * @param base   the file position of the first mapped byte
+     * @param from   the file position to search from
+     * @param size   the size of the file
+     * @return the start of the next line, or the end of the file
+     */
+    private static long nextLineStart(MappedByteBuffer buffer, long base, long from,
+                                      long size) {
+        long end = Math.min(size, base + buffer.limit());
+        for (long position = from; position < end; position++) {
+            if (buffer.get((int) (position - base)) == '\n') {
+                return position + 1;
+            }
+        }
+        return end;
+    }
+
+    /**
+     * Returns whether a line in a range of mapped bytes has an odd number of quotes. A quoted
+     * field that spans lines leaves the line it starts on with an odd count, and doubled
+     * quotes inside a field never change it, so a range where every line is even can be split
+     * from its neighbours safely
+     *
+     * @param buffer the mapped bytes
+     * @param from   the index of the first byte, at a line start
+     * @param to     the index after the last byte, at a line start or the end of the file
+     * @return true if some line has an odd number of quotes, false otherwise
+     */
+    private static boolean hasOpenQuote(MappedByteBuffer buffer, long from, long to) {
+        boolean open = false;
+        for (int i = (int) from; i < (int) to; i++) {
+            byte b = buffer.get(i);
+            if (b == '"') {
+                open = !open;
+            } else if (b == '\n' && open) {
+                return true;
+            }
+        }
+        return open;
+    }
+
+    /**
+     * Decodes a range of mapped bytes as UTF-8. A line break byte never appears inside a
+     * multi-byte character, so ranges that start and end at line breaks decode cleanly
+     *
+     * @param buffer the mapped bytes
+     * @param from   the index of the first byte
+     * @param to     the index after the last byte
+     * @return a reader over the decoded characters
+     */
+    private static CharArrayReader decode(MappedByteBuffer buffer, long from, long to) {
+        CharBuffer chars = StandardCharsets.UTF_8.decode(
+            buffer.duplicate().position((int) from).limit((int) to));
+        return new CharArrayReader(chars.array(), chars.arrayOffset() + chars.position(),
+            chars.remaining());
+    }
+
+    /**
+     * The rows of one chunk, kept in primitive columns until they are merged
+     */
+    private static class Chunk implements ITransportRowHandler {
+
+        private String[] origins = new String[256];
+        private String[] destinations = new String[256];
+        private TransportType[] types = new TransportType[256];
+        private double[] prices = new double[256];
+        private double[] minutes = new double[256];
+        private int size;
+
+        @Override
+        public void handle(String origin, String destination, TransportType type,
+                           double price, double minutes) {
+            if (this.size == this.origins.length) {
+                int capacity = this.size * 2;
+                this.origins = Arrays.copyOf(this.origins, capacity);
+                this.destinations = Arrays.copyOf(this.destinations, capacity);
+                this.types = Arrays.copyOf(this.types, capacity);
+                this.prices = Arrays.copyOf(this.prices, capacity);
+                this.minutes = Arrays.copyOf(this.minutes, capacity);
+            }
+            this.origins[this.size] = origin;
+            this.destinations[this.size] = destination;
+            this.types[this.size] = type;
+            this.prices[this.size] = price;
+            this.minutes[this.size] = minutes;
+            this.size++;
+        }
+
+        /**
+         * Passes every row of the chunk to a callback, in order
+         *
+         * @param handleTransport the callback
+         */
+        void replay(ITransportRowHandler handleTransport) {
+            for (int i = 0; i < this.size; i++) {
+                handleTransport.handle(this.origins[i], this.destinations[i], this.types[i],
+                    this.prices[i], this.minutes[i]);
+            }
+        }
+    }
+
+    /**
+     * Reads the rows of one chunk into a result
+     *
+     * @param <C> the type of the result
+     */
+    @FunctionalInterface
+    private interface ChunkReader<C> {
+
+        /**
+         * Reads every row of a chunk
+         *
+         * @param reader  a reader over the rows of the chunk
+         * @param columns the indexes of the TRANSPORT_COLUMNS
+         * @return the parsed rows
+         * @throws IOException if the rows cannot be read
+         */
+        C read(CSVRowReader reader, int[] columns) throws IOException;
+    }
+
+    /**
+     * The rows of one chunk with the city names as ids, kept in primitive columns until they
+     * are merged
+     */
+    private static class IdChunk implements ITransportIdRowHandler {
+
+        private int[] origins = new int[256];
+        private int[] destinations = new int[256];
+        private TransportType[] types = new TransportType[256];
+        private double[] prices = new double[256];
+        private double[] minutes = new double[256];
+        private int size;
+
+        @Override
+        public void handle(int origin, int destination, TransportType type, double price,
+                           double minutes) {
+            if (this.size == this.origins.length) {
+                int capacity = this.size * 2;
+                this.origins = Arrays.copyOf(this.origins, capacity);
+                this.destinations = Arrays.copyOf(this.destinations, capacity);
+                this.types = Arrays.copyOf(this.types, capacity);
+                this.prices = Arrays.copyOf(this.prices, capacity);
+                this.minutes = Arrays.copyOf(this.minutes, capacity);
+            }
+            this.origins[this.size] = origin;
+            this.destinations[this.size] = destination;
+            this.types[this.size] = type;
+            this.prices[this.size] = price;
+            this.minutes[this.size] = minutes;
+            this.size++;
+        }
+
+        /**
+         * Passes every row of the chunk to a callback, in order
+         *
+         * @param handleTransport the callback
+         */
+        void replay(ITransportIdRowHandler handleTransport) {
+            for (int i = 0; i < this.size; i++) {
+                handleTransport.handle(this.origins[i], this.destinations[i], this.types[i],
+                    this.prices[i], this.minutes[i]);
+            }
+        }
+    }
+}
@@ -0,0 +1,215 @@
+package src;
+
+import java.util.Arrays;
+
+/**
+ * Interns names and gives every distinct name a dense int id, in the order
+ * the names were first added. The characters of all the names are kept back
+ * to back in one char array, and an open-addressing hash table of ids finds
+ * the id of a name from its characters, so a name can be looked up straight
+ * from a range of a parser's buffer without building a String. Names are
+ * hashed the same way as String.hashCode, so looking up a String reuses the
+ * hash it caches. Names are never removed, so an id stays the same for the
+ * life of the table.
+ * <p>
+ * A table may be read by several threads at once as long as no name is
+ * added meanwhile.
+ */
+public class NameTable {
+
+    private static final int MIN_CAPACITY = 16;
+
+    private char[] chars;
+    private int[] starts;
+    private int[] hashes;
+    private int[] slots;
+    private int size;
+
+    /**
+     * Creates an empty table
+     */
+    public NameTable() {
+        this(MIN_CAPACITY);
+    }
+
+    /**
+     * Creates an empty table sized for a number of names
+     *
+     * @param expectedNames the number of names expected, so the table does not
+     *                      have to grow until there are more
+     */
+    public NameTable(int expectedNames) {
+        int capacity = Math.max(MIN_CAPACITY, expectedNames);
+        this.chars = new char[capacity * 8];
+        this.starts = new int[capacity + 1];
+        this.hashes = new int[capacity];
+        this.slots = new int[Integer.highestOneBit(capacity * 2 - 1) * 2];
+        Arrays.fill(this.slots, -1);
+    }
+
+    /**
+     * Returns the id of a name, adding the name if it is not in the table yet
+     *
+     * @param name the name
+     * @return the id of the name, in the range [0, size())
+     */
+    public int add(String name) {
+        int hash = name.hashCode();
+        int slot = this.findSlot(hash, name);
+        if (this.slots[slot] != -1) {
+            return this.slots[slot];
+        }
+        int id = this.size;
+        if (id == this.hashes.length) {
+            int capacity = Math.max(MIN_CAPACITY, id * 2);
+            this.starts = Arrays.copyOf(this.starts, capacity + 1);
+            this.hashes = Arrays.copyOf(this.hashes, capacity);
+        }
+        int start = this.starts[id];
+        int end = start + name.length();
+        if (end > this.chars.length) {
+            this.chars = Arrays.copyOf(this.chars, Math.max(end, this.chars.length * 2));
+        }
+        name.getChars(0, name.length(), this.chars, start);
+        this.starts[id + 1] = end;
+        this.hashes[id] = hash;
+        this.slots[slot] = id;
+        this.size++;
+        if (this.size * 2 > this.slots.length) {
+            this.growSlots();
+        }
+        return id;
+    }
+
+    /**
+     * Returns the id of a name
+     *
+     * @param name the name
+     * @return the id of the name, or -1 if it is not in the table
+     */
+    public int find(String name) {
+        return this.slots[this.findSlot(name.hashCode(), name)];
+    }
+
+    /**
+     * Returns the id of the name held by a range of a char array, without
+     * copying it
+     *
+     * @param text  the array holding the name
+     * @param start the index of the first character of the name
+     * @param end   the index after the last character of the name
+     * @return the id of the name, or -1 if it is not in the table
+     */
+    public int find(char[] text, int start, int end) {
+        int hash = 0;
+        for (int i = start; i < end; i++) {
+            hash = 31 * hash + text[i];
+        }
+        int mask = this.slots.length - 1;
+        int slot = (hash ^ (hash >>> 16)) & mask;
+        while (this.slots[slot] != -1) {
+            int id = this.slots[slot];
+            if (this.hashes[id] == hash && Arrays.equals(this.chars, this.starts[id],
+                this.starts[id + 1], text, start, end)) {
+                return id;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the name with an id as a new String
+     *
+     * @param id an id in the range [0, size())
+     * @return the name
+     * @throws IndexOutOfBoundsException if no name has that id
+     */
+    public String getName(int id) {
+        if (id < 0 || id >= this.size) {
+            throw new IndexOutOfBoundsException("No name has id " + id);
+        }
+        return new String(this.chars, this.starts[id], this.starts[id + 1] - this.starts[id]);
+    }
+
+    /**
+     * Returns the number of names in the table
+     *
+     * @return the name count, which is also the next id to be handed out
+     */
+    public int size() {
+        return this.size;
+    }
+
+    /**
+     * Returns a table with the same names and ids, which can be added to
+     * without changing this one
+     *
+     * @return the copy
+     */
+    public NameTable copy() {
+        NameTable copy = new NameTable(0);
+        copy.chars = Arrays.copyOf(this.chars, this.starts[this.size]);
+        copy.starts = Arrays.copyOf(this.starts, this.size + 1);
+        copy.hashes = Arrays.copyOf(this.hashes, this.size);
+        copy.slots = this.slots.clone();
+        copy.size = this.size;
+        return copy;
+    }
+
+    /**
+     * Returns the slot that holds a name, or the empty slot where it belongs
+     *
+     * @param hash the hash of the name
+     * @param name the name
+     * @return the index of the slot
+     */
+    private int findSlot(int hash, String name) {
+        int mask = this.slots.length - 1;
+        int slot = (hash ^ (hash >>> 16)) & mask;
+        while (this.slots[slot] != -1) {
+            int id = this.slots[slot];
+            if (this.hashes[id] == hash && this.nameEquals(id, name)) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    /**
+     * Returns whether the name with an id has the same text as a string
+     *
+     * @param id   the id of a name
+     * @param text the string
+     * @return true if they match, false otherwise
+     */
+    private boolean nameEquals(int id, String text) {
+        int start = this.starts[id];
+        if (this.starts[id + 1] - start != text.length()) {
+            return false;
+        }
+        for (int i = 0; i < text.length(); i++) {
+            if (this.chars[start + i] != text.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Doubles the number of hash slots and puts every id back in its slot
+     */
+    private void growSlots() {
+        this.slots = new int[this.slots.length * 2];
+        Arrays.fill(this.slots, -1);
+        int mask = this.slots.length - 1;
+        for (int id = 0; id < this.size; id++) {
+            int slot = (this.hashes[id] ^ (this.hashes[id] >>> 16)) & mask;
+            while (this.slots[slot] != -1) {
+                slot = (slot + 1) & mask;
+            }
+            this.slots[slot] = id;
+        }
+    }
+}
@@ -73,6 +73,39 @@ public class REPL<V, E> {
                             response = "Usage: load [cities_file] [transport_file]";
                         }
                         break;
+                    case "save":
+                        if (args.length == 2) {
+                            try {
+                                response = this.controller.saveGraph(args[1]);
+                            } catch (Exception e) {
+                                response = e.getMessage();
+                            }
+                        } else {
+                            response = "Usage: save [graph_file]";
+                        }
+                        break;
+                    case "loadbin":
+                        if (args.length == 2) {
+                            try {
+                                response = this.controller.loadGraph(args[1]);
+                            } catch (Exception e) {
+                                response = e.getMessage();
+                            }
+                        } else {
+                            response = "Usage: loadbin [graph_file]";
+                        }
+                        break;
+                    case "update":
+                        if (args.length == 2) {
+                            try {
+                                response = this.controller.update(args[1]);
+                            } catch (Exception e) {
+                                response = e.getMessage();
+                            }
+                        } else {
+                            response = "Usage: update [delta_file]";
+                        }
+                        break;
                     case "fast":
                         if (args.length == 3) {
                             String origin = args[1];
@@ -115,8 +148,59 @@ public class REPL<V, E> {
                             response = "Usage: direct [origin] [destination]";
                         }
                         break;
+                    case "pareto":
+                        if (args.length == 3) {
+                            String origin = args[1];
+                            String destination = args[2];
+                            try {
+                                List<List<E>> routes = this.controller.paretoRoutes(origin,
+                                        destination);
+                                response = this.getRoutesString(origin, destination, routes);
+                            } catch (Exception e) {
+                                response = e.getMessage();
+                            }
+                        } else {
+                            response = "Usage: pareto [origin] [destination]";
+                        }
+                        break;
+                    case "reach":
+                        if (args.length == 4 && (args[2].equals("fast")
+                                || args[2].equals("cheap") || args[2].equals("direct"))) {
+                            String origin = args[1];
+                            try {
+                                IShortestPathTree<V, E> tree;
+                                if (args[2].equals("direct")) {
+                                    tree = this.controller.mostDirectRoutesWithin(origin,
+                                            Integer.parseInt(args[3]));
+                                } else {
+                                    double limit = Double.parseDouble(args[3]);
+                                    tree = args[2].equals("fast")
+                                            ? this.controller.fastestRoutesWithin(origin, limit)
+                                            : this.controller.cheapestRoutesWithin(origin, limit);
+                                }
+                                response = this.getReachableString(origin, tree);
+                            } catch (Exception e) {
+                                response = e.getMessage();
+                            }
+                        } else {
+                            response = "Usage: reach [origin] [fast|cheap|direct] [limit]";
+                        }
+                        break;
+                    case "stats":
+                        if (args.length == 1) {
+                            response = this.controller.getStats();
+                        } else if (args.length == 2 && args[1].equals("on")) {
+                            response = this.controller.setStatsEnabled(true);
+                        } else if (args.length == 2 && args[1].equals("off")) {
+                            response = this.controller.setStatsEnabled(false);
+                        } else if (args.length == 2 && args[1].equals("reset")) {
+                            response = this.controller.resetStats();
+                        } else {
+                            response = "Usage: stats [on|off|reset]";
+                        }
+                        break;
                     default:
-                        response = "Invalid command. Available commands: load, cheap, fast, direct";
+                        response = "Invalid command. Available commands: load, save, loadbin, update, cheap, fast, direct, pareto, reach, stats";
                 }
                 System.out.println(response);
                 System.out.print(">>> ");
@@ -167,4 +251,69 @@ public class REPL<V, E> {
         sb.append(this.line("="));
         return sb.toString();
     }
+
+    /**
+     * Formats the routes returned by paretoRoutes to be printed in the REPL, as numbered options
+     * from the cheapest to the fastest
+     *
+     * @param origin      the routes' origin location
+     * @param destination the routes' ending destination location
+     * @param routes      the routes, each a list of the transports that connect the origin to
+     *                    the destination
+     * @return the string to be printed in the REPL
+     */
+    private String getRoutesString(String origin, String destination, List<List<E>> routes) {
+        StringBuilder sb = new StringBuilder();
+        sb.append(this.line("=")).append("\n");
+
+        if (routes.isEmpty()) {
+            sb.append("No route found").append("\n");
+        } else {
+            sb.append("Origin: ").append(origin);
+            sb.append("\nDestination: ").append(destination).append("\n");
+            for (int i = 0; i < routes.size(); i++) {
+                sb.append(this.line("-")).append("\n");
+                sb.append("Option ").append(i + 1).append(" of ").append(routes.size());
+                if (routes.size() == 1) {
+                    sb.append(" (cheapest and fastest)");
+                } else if (i == 0) {
+                    sb.append(" (cheapest)");
+                } else if (i == routes.size() - 1) {
+                    sb.append(" (fastest)");
+                }
+                sb.append("\n");
+                for (E leg : routes.get(i)) {
+                    sb.append(" -- ").append(leg.toString()).append("\n");
+                }
+            }
+        }
+        sb.append(this.line("="));
+        return sb.toString();
+    }
+
+    /**
+     * Formats the cities reachable within a limit, as returned by the ITravelController methods, to be printed
+     * in the REPL
+     *
+     * @param origin the origin location
+     * @param tree   the routes from the origin to every city within the limit
+     * @return the string to be printed in the REPL
+     */
+    private String getReachableString(String origin, IShortestPathTree<V, E> tree) {
+        StringBuilder sb = new StringBuilder();
+        sb.append(this.line("=")).append("\n");
+        sb.append("Origin: ").append(origin).append("\n");
+        sb.append(this.line("-")).append("\n");
+
+        List<V> reachable = tree.getReachableVertices();
+        for (V city : reachable.subList(Math.min(1, reachable.size()), reachable.size())) {
+            sb.append(" -- ").append(city.toString()).append(": ")
+                .append(tree.getWeight(city)).append("\n");
+        }
+        if (reachable.size() <= 1) {
+            sb.append("No cities within the limit").append("\n");
+        }
+        sb.append(this.line("="));
+        return sb.toString();
+    }
 }
\ No newline at end of file
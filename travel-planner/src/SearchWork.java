@@ -0,0 +1,56 @@
+package src;
+
+/**
+ * The work one route query did: how many vertices it settled, how many edges
+ * it relaxed and how many heap operations it made. A search keeps one of
+ * these per thread and overwrites it at the end of every query, so reading
+ * it right after a query on the same thread gives that query's work.
+ */
+public final class SearchWork {
+
+    private long settled;
+    private long relaxed;
+    private long heapOperations;
+
+    /**
+     * Records the work of a query, replacing the previous one
+     *
+     * @param settled        the number of vertices taken off the queue
+     * @param relaxed        the number of edges looked at
+     * @param heapOperations the number of heap inserts, key decreases and
+     *                       polls
+     */
+    public void record(long settled, long relaxed, long heapOperations) {
+        this.settled = settled;
+        this.relaxed = relaxed;
+        this.heapOperations = heapOperations;
+    }
+
+    /**
+     * Returns the number of vertices the query took off its queue
+     *
+     * @return the settled count
+     */
+    public long getSettled() {
+        return this.settled;
+    }
+
+    /**
+     * Returns the number of edges the query looked at
+     *
+     * @return the relaxed count
+     */
+    public long getRelaxed() {
+        return this.relaxed;
+    }
+
+    /**
+     * Returns the number of heap inserts, key decreases and polls the query
+     * made
+     *
+     * @return the heap operation count
+     */
+    public long getHeapOperations() {
+        return this.heapOperations;
+    }
+}
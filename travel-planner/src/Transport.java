@@ -27,6 +27,10 @@ public class Transport {
         return this.target;
     }
 
+    public TransportType getType() {
+        return this.type;
+    }
+
     public double getPrice() {
         return this.price;
     }
@@ -7,6 +7,7 @@ import org.apache.commons.csv.CSVRecord;
 import java.io.FileReader;
 import java.io.IOException;
 import java.util.Map;
+import java.util.function.Consumer;
 import java.util.function.Function;
 
 /**
@@ -18,6 +19,7 @@ import java.util.function.Function;
 public class TravelCSVParser {
 
     private static final CSVFormat FORMAT = CSVFormat.RFC4180.withDelimiter(',').withHeader();
+    static final String[] TRANSPORT_COLUMNS = {"origin", "destination", "type", "price", "duration"};
 
     public TravelCSVParser() {
     }
@@ -61,4 +63,112 @@ public class TravelCSVParser {
             handleTransport.apply(record.toMap());
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * streams the city names of a location file to a callback without building a Map for
+     * every row. The columns are found by their header names, so they can be in any order
+     *
+     * @param locationFile path to csv file containing location (ex: data/cities1.csv)
+     * @param handleName   callback that receives the name of every city
+     * @throws IOException if the file cannot be read or has no "name" column
+     */
+    public void streamLocations(String locationFile, Consumer<String> handleName)
+        throws IOException {
+        try (FileReader in = new FileReader(locationFile)) {
+            CSVRowReader reader = new CSVRowReader(in);
+            int name = findColumns(reader, locationFile, "name")[0];
+            while (reader.next()) {
+                handleName.accept(reader.getName(name));
+            }
+        }
+    }
+
+    /**
+     * streams the rows of a transportation file to a callback without building a Map for
+     * every row. Each row is read into one reusable buffer, the price and duration are parsed
+     * straight from that buffer, and city names are shared between rows, so a row only
+     * allocates when it names a city for the first time. The columns are found by their
+     * header names, so they can be in any order
+     *
+     * @param transportationFile path to csv file containing transportation information (ex: data/transport1.csv)
+     * @param handleTransport    callback that receives the typed fields of every row
+     * @throws IOException if the file cannot be read or is missing one of the columns "origin",
+     *                     "destination", "type", "price" and "duration"
+     */
+    public void streamTransportation(String transportationFile, ITransportRowHandler handleTransport)
+        throws IOException {
+        try (FileReader in = new FileReader(transportationFile)) {
+            CSVRowReader reader = new CSVRowReader(in);
+            int[] columns = findColumns(reader, transportationFile, TRANSPORT_COLUMNS);
+            readTransportRows(reader, columns, handleTransport);
+        }
+    }
+
+    /**
+     * reads the remaining rows of a transportation file and passes their typed fields to a
+     * callback
+     *
+     * @param reader          a reader positioned after the header row
+     * @param columns         the indexes of the TRANSPORT_COLUMNS, as found by findColumns
+     * @param handleTransport callback that receives the typed fields of every row
+     * @throws IOException if the file cannot be read
+     */
+    static void readTransportRows(CSVRowReader reader, int[] columns,
+                                  ITransportRowHandler handleTransport) throws IOException {
+        while (reader.next()) {
+            handleTransport.handle(reader.getName(columns[0]), reader.getName(columns[1]),
+                reader.getTransportType(columns[2]), reader.getDouble(columns[3]),
+                reader.getDouble(columns[4]));
+        }
+    }
+
+    /**
+     * reads the remaining rows of a transportation file and passes their typed fields to a
+     * callback, with each city name replaced by its id in a name table. Names are looked up
+     * where they lie in the reader's buffer, so no row allocates
+     *
+     * @param reader          a reader positioned after the header row
+     * @param columns         the indexes of the TRANSPORT_COLUMNS, as found by findColumns
+     * @param cities          the table to look city names up in, which is only read
+     * @param handleTransport callback that receives the typed fields of every row
+     * @throws IOException if the file cannot be read
+     */
+    static void readTransportRows(CSVRowReader reader, int[] columns, NameTable cities,
+                                  ITransportIdRowHandler handleTransport) throws IOException {
+        while (reader.next()) {
+            handleTransport.handle(reader.getNameId(columns[0], cities),
+                reader.getNameId(columns[1], cities), reader.getTransportType(columns[2]),
+                reader.getDouble(columns[3]), reader.getDouble(columns[4]));
+        }
+    }
+
+    /**
+     * reads the header row of a file and finds the index of each named column
+     *
+     * @param reader a reader positioned at the start of the file
+     * @param file   the path of the file, for error messages
+     * @param names  the header names to look for
+     * @return the index of each named column, in the order of names
+     * @throws IOException if the file is empty or a column is missing
+     */
+    public static int[] findColumns(CSVRowReader reader, String file, String... names)
+        throws IOException {
+        if (!reader.next()) {
+            throw new IOException("Empty file: " + file);
+        }
+        int[] columns = new int[names.length];
+        for (int i = 0; i < names.length; i++) {
+            columns[i] = -1;
+            for (int field = 0; field < reader.getFieldCount(); field++) {
+                if (reader.fieldEquals(field, names[i])) {
+                    columns[i] = field;
+                    break;
+                }
+            }
+            if (columns[i] == -1) {
+                throw new IOException("Missing column '" + names[i] + "' in " + file);
+            }
+        }
+        return columns;
+    }
+}
@@ -2,9 +2,13 @@ package test;
 
 import org.junit.Test;
 import sol.BFS;
+import sol.BidirectionalBFS;
+import sol.DirectionOptimizingBFS;
+import sol.FrozenTravelGraph;
 import sol.TravelController;
 import sol.TravelGraph;
 import src.City;
+import src.IShortestPathTree;
 import src.Transport;
 import src.TransportType;
 import test.simple.SimpleEdge;
@@ -12,8 +16,10 @@ import test.simple.SimpleGraph;
 import test.simple.SimpleVertex;
 
 import java.util.List;
+import java.util.Random;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 
 /**
  * Your BFS tests should all go in this class!
@@ -208,4 +214,197 @@ public class BFSTest {
         List<Transport> path = controller.mostDirectRoute("Reading", "Philadelphia");
         assertEquals(2, path.size());
     }
-}
\ No newline at end of file
+
+    // Reusing one BFS object for several searches on a graph with a cycle
+    // (the visited set is reset between calls)
+    @Test
+    public void testBFSReuse() {
+        this.makeSimpleGraph();
+        this.graph.addEdge(this.e, new SimpleEdge(1, this.e, this.a));
+        BFS<SimpleVertex, SimpleEdge> bfs = new BFS<>();
+        assertEquals(2, bfs.getPath(this.graph, this.a, this.e).size());
+        assertEquals(1, bfs.getPath(this.graph, this.e, this.a).size());
+        assertEquals(3, bfs.getPath(this.graph, this.b, this.a).size());
+        assertEquals(2, bfs.getPath(this.graph, this.a, this.e).size());
+    }
+
+    // On a dense graph where every vertex has many incoming edges, each
+    // vertex is queued and expanded once, even after the queue has grown
+    // (edge case)
+    @Test
+    public void testBFSDenseGraph() {
+        SimpleGraph dense = new SimpleGraph();
+        SimpleVertex[] vertices = new SimpleVertex[40];
+        for (int i = 0; i < vertices.length; i++) {
+            vertices[i] = new SimpleVertex("v" + i);
+            dense.addVertex(vertices[i]);
+        }
+        for (SimpleVertex from : vertices) {
+            for (SimpleVertex to : vertices) {
+                if (from != to) {
+                    dense.addEdge(from, new SimpleEdge(1, from, to));
+                }
+            }
+        }
+        SimpleVertex target = new SimpleVertex("target");
+        dense.addVertex(target);
+        dense.addEdge(vertices[39], new SimpleEdge(1, vertices[39], target));
+        SimpleVertex unreachable = new SimpleVertex("unreachable");
+        dense.addVertex(unreachable);
+
+        BFS<SimpleVertex, SimpleEdge> bfs = new BFS<>();
+        assertTrue(bfs.getPath(dense, vertices[0], unreachable).isEmpty());
+        assertEquals(41, bfs.getLastWork().getSettled());
+        assertEquals(40 * 39 + 1, bfs.getLastWork().getRelaxed());
+
+        List<SimpleEdge> path = bfs.getPath(dense, vertices[0], target);
+        assertEquals(2, path.size());
+        assertEquals(vertices[39], path.get(0).target);
+        assertEquals(target, path.get(1).target);
+    }
+
+    // Direction-optimizing BFS finds routes with as many connections as BFS
+    // on a network with a hub, where it expands levels bottom-up (general
+    // case)
+    @Test
+    public void testDirectionOptimizingBFS() {
+        City[] cities = new City[500];
+        FrozenTravelGraph frozen = this.makeHubNetwork(cities).freeze();
+        Random random = new Random(7);
+
+        BFS<City, Transport> bfs = new BFS<>();
+        DirectionOptimizingBFS directionOptimizing = new DirectionOptimizingBFS();
+        boolean wentBottomUp = false;
+        for (int i = 0; i < 200; i++) {
+            // a search from the hub has half the network in its second level
+            City from = i % 4 == 0 ? cities[0]
+                    : cities[random.nextInt(cities.length)];
+            City to = cities[random.nextInt(cities.length)];
+            List<Transport> path = directionOptimizing.getPath(frozen, from, to);
+            wentBottomUp |= directionOptimizing.getBottomUpLevels() > 0;
+            assertEquals(bfs.getPath(frozen, from, to).size(), path.size());
+            City at = from;
+            for (Transport transport : path) {
+                assertEquals(at, transport.getSource());
+                at = transport.getTarget();
+            }
+        }
+        assertTrue(wentBottomUp);
+
+        IShortestPathTree<City, Transport> tree =
+                directionOptimizing.getHopTree(frozen, cities[0], 3);
+        for (City city : cities) {
+            int hops = bfs.getPath(frozen, cities[0], city).size();
+            if (city == cities[0] || hops == 0 || hops > 3) {
+                assertEquals(city == cities[0], tree.isReachable(city));
+            } else {
+                assertEquals(hops, tree.getWeight(city), DELTA);
+                assertEquals(hops, tree.getPath(city).size());
+            }
+        }
+    }
+
+    // Cities reachable within a number of connections, counted from 0 for
+    // the origin itself (general case)
+    @Test
+    public void testMostDirectRoutesWithin() {
+        TravelController controller = new TravelController();
+        controller.load("data/cities1.csv", "data/transport1.csv");
+
+        IShortestPathTree<City, Transport> tree =
+                controller.mostDirectRoutesWithin("Providence", 0);
+        assertEquals(1, tree.getReachableVertices().size());
+
+        tree = controller.mostDirectRoutesWithin("Providence", 1);
+        List<City> reachable = tree.getReachableVertices();
+        assertEquals(2, reachable.size());
+        assertEquals("Boston", reachable.get(1).toString());
+        assertEquals(1, tree.getWeight(reachable.get(1)), DELTA);
+
+        tree = controller.mostDirectRoutesWithin("Providence", 5);
+        reachable = tree.getReachableVertices();
+        assertEquals(3, reachable.size());
+        City nyc = reachable.get(2);
+        assertEquals("New York City", nyc.toString());
+        assertEquals(2, tree.getWeight(nyc), DELTA);
+        assertEquals(2, tree.getPath(nyc).size());
+    }
+
+    // Bidirectional BFS finds routes with as many connections as BFS, both
+    // on a frozen graph and on the TravelGraph it was frozen from, while
+    // visiting fewer cities (general case)
+    @Test
+    public void testBidirectionalBFS() {
+        City[] cities = new City[500];
+        TravelGraph travelGraph = this.makeHubNetwork(cities);
+        FrozenTravelGraph frozen = travelGraph.freeze();
+        Random random = new Random(11);
+
+        BFS<City, Transport> bfs = new BFS<>();
+        BidirectionalBFS<City, Transport> bidirectional = new BidirectionalBFS<>();
+        long bfsSettled = 0;
+        long bidirectionalSettled = 0;
+        for (int i = 0; i < 200; i++) {
+            City from = cities[random.nextInt(cities.length)];
+            City to = cities[random.nextInt(cities.length)];
+            int hops = bfs.getPath(frozen, from, to).size();
+            bfsSettled += bfs.getLastWork().getSettled();
+            List<Transport> path = bidirectional.getPath(frozen, from, to);
+            bidirectionalSettled += bidirectional.getLastWork().getSettled();
+            assertEquals(hops, path.size());
+            assertEquals(hops, bidirectional.getPath(travelGraph, from, to).size());
+            City at = from;
+            for (Transport transport : path) {
+                assertEquals(at, transport.getSource());
+                at = transport.getTarget();
+            }
+            if (hops > 0) {
+                assertEquals(to, at);
+            }
+        }
+        assertTrue(bidirectionalSettled < bfsSettled);
+    }
+
+    // Bidirectional BFS on the simple graph, which only has the default
+    // incoming edge scan (edge case)
+    @Test
+    public void testBidirectionalBFSSimple() {
+        this.makeSimpleGraph();
+        BidirectionalBFS<SimpleVertex, SimpleEdge> bidirectional =
+                new BidirectionalBFS<>();
+        List<SimpleEdge> path = bidirectional.getPath(this.graph, this.a, this.e);
+        assertEquals(2, path.size());
+        assertEquals(this.a, path.get(0).source);
+        assertEquals(this.e, path.get(1).target);
+        assertEquals(2, bidirectional.getPath(this.graph, this.a, this.c).size());
+        assertTrue(bidirectional.getPath(this.graph, this.e, this.a).isEmpty());
+        assertTrue(bidirectional.getPath(this.graph, this.a, this.a).isEmpty());
+    }
+
+    /**
+     * Creates a network of random bus routes between cities, plus planes
+     * from the first city to every other one, for comparing BFS variants
+     *
+     * @param cities an array to fill with the cities of the network
+     * @return the network
+     */
+    private TravelGraph makeHubNetwork(City[] cities) {
+        TravelGraph travelGraph = new TravelGraph();
+        for (int i = 0; i < cities.length; i++) {
+            cities[i] = new City("City " + i);
+            travelGraph.addVertex(cities[i]);
+        }
+        Random random = new Random(7);
+        for (int i = 0; i < cities.length * 2; i++) {
+            City from = cities[random.nextInt(cities.length)];
+            City to = cities[random.nextInt(cities.length)];
+            travelGraph.addEdge(from, new Transport(from, to, TransportType.BUS,
+                    1, 1));
+        }
+        for (int i = 1; i < cities.length; i += 2) {
+            travelGraph.addEdge(cities[0], new Transport(cities[0], cities[i],
+                    TransportType.PLANE, 1, 1));
+        }
+        return travelGraph;
+    }
+}
@@ -1,20 +1,58 @@
 package test;
 
 import org.junit.Test;
+import sol.BidirectionalDijkstra;
+import sol.ContractionHierarchy;
+import sol.ContractionHierarchyDijkstra;
 import sol.Dijkstra;
+import sol.FrozenTravelGraph;
+import sol.GraphDelta;
+import sol.Histogram;
+import sol.LandmarkAStar;
+import sol.ParetoDijkstra;
+import sol.QueryStats;
+import sol.RouteCache;
+import sol.RouteMetric;
+import sol.RouteTable;
+import sol.RouteTableBuilder;
+import sol.SearchMode;
+import sol.TransportWeights;
 import sol.TravelController;
+import sol.TravelGraph;
 import src.City;
 import src.IDijkstra;
+import src.IShortestPathTree;
 import src.Transport;
+import src.TransportType;
+import src.TravelCSVParser;
 import test.simple.SimpleEdge;
 import test.simple.SimpleGraph;
 import test.simple.SimpleVertex;
 
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.Function;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 /**
  * Your Dijkstra's tests should all go in this class!
@@ -296,6 +334,1134 @@ public class DijkstraTest {
         assertEquals(1, path.size());
     }
 
+    // The weight of b is lowered twice while it is still queued (a -> b,
+    // then a -> c -> b, then a -> c -> d -> b), which exercises decrease-key
+    @Test
+    public void testDecreaseKey() {
+        this.createSimpleGraph();
+        Dijkstra<SimpleVertex, SimpleEdge> dijkstra = new Dijkstra<>();
+        List<SimpleEdge> path = dijkstra.getShortestPath(this.graph, this.a,
+                this.b, edge -> edge.getWeight());
+        assertEquals(3, path.size());
+        assertEquals(this.c, path.get(0).target);
+        assertEquals(this.d, path.get(1).target);
+        assertEquals(6, SimpleGraph.getTotalEdgeWeight(path), DELTA);
+    }
+
+    // Bidirectional search on a SimpleGraph, which finds incoming edges
+    // through the default IGraph implementation (general case)
+    @Test
+    public void testBidirectionalSimple() {
+        this.createSimpleGraph();
+        IDijkstra<SimpleVertex, SimpleEdge> dijkstra =
+                new BidirectionalDijkstra<>();
+        List<SimpleEdge> path = dijkstra.getShortestPath(this.graph, this.a,
+                this.b, edge -> edge.getWeight());
+        assertEquals(3, path.size());
+        assertEquals(6, SimpleGraph.getTotalEdgeWeight(path), DELTA);
+        assertEquals(0, dijkstra.getShortestPath(this.graph, this.b, this.a,
+                edge -> edge.getWeight()).size());
+    }
+
+    // Bidirectional search finds routes of the same cost as Dijkstra for
+    // every pair of cities in every data set (general case)
+    @Test
+    public void testBidirectionalMatchesDijkstra() throws IOException {
+        for (int i = 1; i <= 7; i++) {
+            this.assertSameCosts(SearchMode.BIDIRECTIONAL, "data/cities" + i
+                    + ".csv", "data/transport" + i + ".csv");
+        }
+    }
+
+    // Contraction hierarchies unpack shortcuts into routes of the same cost
+    // as Dijkstra for every pair of cities in every data set (general case)
+    @Test
+    public void testContractionHierarchiesMatchDijkstra() throws IOException {
+        for (int i = 1; i <= 7; i++) {
+            this.assertSameCosts(SearchMode.CONTRACTION_HIERARCHIES,
+                    "data/cities" + i + ".csv", "data/transport" + i + ".csv");
+        }
+    }
+
+    // On a generated network of clustered cities with some long flights, the
+    // contraction hierarchy adds at most one shortcut per edge and settles
+    // fewer cities than Dijkstra, while finding equally light routes
+    // (general case)
+    @Test
+    public void testContractionHierarchyOnGeneratedNetwork() {
+        City[] cities = new City[1000];
+        TravelGraph travelGraph = new TravelGraph();
+        Random random = new Random(7);
+        double[] xs = new double[cities.length];
+        double[] ys = new double[cities.length];
+        for (int i = 0; i < cities.length; i++) {
+            cities[i] = new City("City " + i);
+            travelGraph.addVertex(cities[i]);
+            xs[i] = (i % 4) * 100 + random.nextDouble() * 40;
+            ys[i] = (i % 4 / 2) * 100 + random.nextDouble() * 40;
+        }
+        for (int i = 0; i < cities.length * 5; i++) {
+            int from = random.nextInt(cities.length);
+            boolean plane = random.nextInt(100) < 15;
+            int to = plane ? random.nextInt(cities.length)
+                    : from + 4 * (random.nextInt(21) - 10);
+            if (to < 0 || to >= cities.length) {
+                continue;
+            }
+            double distance = Math.hypot(xs[from] - xs[to], ys[from] - ys[to]);
+            travelGraph.addEdge(cities[from], new Transport(cities[from],
+                    cities[to], plane ? TransportType.PLANE : TransportType.BUS,
+                    (plane ? 50 : 1) + distance, (plane ? 60 : 10) + distance * 2));
+        }
+        FrozenTravelGraph frozen = travelGraph.freeze();
+
+        ContractionHierarchy hierarchy = new ContractionHierarchy(frozen,
+                frozen.toWeightColumn(Transport::getPrice));
+        assertTrue(hierarchy.getShortcutCount() <= frozen.getEdgeCount());
+
+        Dijkstra<City, Transport> dijkstra = new Dijkstra<>();
+        ContractionHierarchyDijkstra contracted = new ContractionHierarchyDijkstra();
+        long dijkstraSettled = 0;
+        long contractedSettled = 0;
+        for (int i = 0; i < 200; i++) {
+            City from = cities[random.nextInt(cities.length)];
+            City to = cities[random.nextInt(cities.length)];
+            List<Transport> expected = dijkstra.getShortestPath(frozen, from, to,
+                    Transport::getPrice);
+            dijkstraSettled += dijkstra.getLastWork().getSettled();
+            List<Transport> path = contracted.getShortestPath(frozen, from, to,
+                    Transport::getPrice);
+            contractedSettled += contracted.getLastWork().getSettled();
+            assertEquals(getTotalEdgePrice(expected), getTotalEdgePrice(path),
+                    DELTA);
+            assertEquals(expected.isEmpty(), path.isEmpty());
+        }
+        assertTrue(contractedSettled < dijkstraSettled);
+    }
+
+    // One contraction hierarchy search used on a small graph and then on a
+    // larger one grows its query buffers to fit (edge case)
+    @Test
+    public void testContractionHierarchyQueryGrows() {
+        ContractionHierarchyDijkstra contracted = new ContractionHierarchyDijkstra();
+        for (int size : new int[]{2, 50}) {
+            TravelGraph travelGraph = new TravelGraph();
+            City[] cities = new City[size];
+            for (int i = 0; i < size; i++) {
+                cities[i] = new City("City " + i);
+                travelGraph.addVertex(cities[i]);
+            }
+            for (int i = 1; i < size; i++) {
+                travelGraph.addEdge(cities[i - 1], new Transport(cities[i - 1],
+                        cities[i], TransportType.BUS, 2, 10));
+            }
+            List<Transport> path = contracted.getShortestPath(
+                    travelGraph.freeze(), cities[0], cities[size - 1],
+                    TransportWeights.PRICE);
+            assertEquals(size - 1, path.size());
+            assertEquals(2 * (size - 1), getTotalEdgePrice(path), DELTA);
+        }
+    }
+
+    // A* with landmark lower bounds finds routes of the same cost as Dijkstra
+    // for every pair of cities in every data set (general case)
+    @Test
+    public void testAltMatchesDijkstra() throws IOException {
+        for (int i = 1; i <= 7; i++) {
+            this.assertSameCosts(SearchMode.ALT, "data/cities" + i + ".csv",
+                    "data/transport" + i + ".csv");
+        }
+    }
+
+    // A route table built in parallel has the same costs as one Dijkstra
+    // per pair of cities, and its paths have those costs (general case)
+    @Test
+    public void testRouteTableMatchesDijkstra() throws IOException {
+        for (int i = 1; i <= 7; i++) {
+            String citiesFile = "data/cities" + i + ".csv";
+            TravelController controller = new TravelController();
+            controller.load(citiesFile, "data/transport" + i + ".csv");
+            List<String> names = new ArrayList<>();
+            new TravelCSVParser().parseLocations(citiesFile, map -> {
+                names.add(map.get("name"));
+                return null;
+            });
+            RouteTable fastest = controller.fastestRouteTable(names);
+            RouteTable cheapest = controller.cheapestRouteTable(names);
+            assertEquals(names.size(), fastest.getSourceCount());
+            for (int row = 0; row < names.size(); row++) {
+                assertEquals(names.get(row), fastest.getSource(row).toString());
+                for (String to : names) {
+                    City city = fastest.getGraph().getCityByName(to);
+                    List<Transport> expected = controller.fastestRoute(
+                            names.get(row), to);
+                    List<Transport> path = fastest.getPath(row, city);
+                    assertEquals(getTotalEdgeTime(expected),
+                            getTotalEdgeTime(path), DELTA);
+                    assertEquals(expected.isEmpty(), path.isEmpty());
+                    if (!path.isEmpty()) {
+                        assertEquals(getTotalEdgeTime(path),
+                                fastest.getDistance(row, city), DELTA);
+                    }
+                    assertEquals(getTotalEdgePrice(controller.cheapestRoute(
+                            names.get(row), to)), getTotalEdgePrice(
+                            cheapest.getPath(row, city)), DELTA);
+                }
+            }
+        }
+    }
+
+    // A route table whose sources times cities overflows an int is refused
+    // before anything is allocated (edge case)
+    @Test(expected = IllegalArgumentException.class)
+    public void testRouteTableTooLarge() {
+        List<City> cities = new ArrayList<>();
+        for (int i = 0; i < 46341; i++) {
+            cities.add(new City("City " + i));
+        }
+        FrozenTravelGraph frozen = new FrozenTravelGraph(cities);
+        new RouteTableBuilder().build(frozen,
+                Collections.nCopies(46341, cities.get(0)), Transport::getMinutes);
+    }
+
+    // A graph saved to a binary graph file and loaded back answers every
+    // fastest, cheapest and most direct query like the CSV load (general
+    // case)
+    @Test
+    public void testLoadGraphMatchesCsvLoad() throws IOException {
+        File file = File.createTempFile("graph", ".bin");
+        file.deleteOnExit();
+        for (int i = 1; i <= 8; i++) {
+            String citiesFile = "data/cities" + i + ".csv";
+            TravelController expected = new TravelController();
+            expected.load(citiesFile, "data/transport" + i + ".csv");
+            assertEquals("Successfully saved graph file.",
+                    expected.saveGraph(file.getPath()));
+            TravelController actual = new TravelController();
+            assertEquals("Successfully loaded graph file.",
+                    actual.loadGraph(file.getPath()));
+            List<String> names = new ArrayList<>();
+            new TravelCSVParser().streamLocations(citiesFile, names::add);
+            for (String from : names) {
+                for (String to : names) {
+                    assertEquals(getTotalEdgeTime(expected.fastestRoute(from, to)),
+                            getTotalEdgeTime(actual.fastestRoute(from, to)), DELTA);
+                    assertEquals(getTotalEdgePrice(expected.cheapestRoute(from, to)),
+                            getTotalEdgePrice(actual.cheapestRoute(from, to)), DELTA);
+                    assertEquals(expected.mostDirectRoute(from, to).size(),
+                            actual.mostDirectRoute(from, to).size());
+                }
+            }
+        }
+        assertEquals("Error reading file: data/cities1.csv",
+                new TravelController().loadGraph("data/cities1.csv"));
+    }
+
+    // A graph loaded from a binary graph file, whose cities are only given
+    // their Transports on the first update, takes batches of changes like a
+    // graph loaded from CSV (general case)
+    @Test
+    public void testUpdatesAfterLoadGraph() throws IOException {
+        String citiesFile = "data/cities4.csv";
+        String transportFile = "data/transport4.csv";
+        File file = File.createTempFile("graph", ".bin");
+        file.deleteOnExit();
+        TravelController saved = new TravelController();
+        saved.load(citiesFile, transportFile);
+        saved.saveGraph(file.getPath());
+        TravelController controller = new TravelController();
+        controller.loadGraph(file.getPath());
+        List<String> cities = new ArrayList<>();
+        List<String[]> rows = new ArrayList<>();
+        TravelCSVParser parser = new TravelCSVParser();
+        parser.streamLocations(citiesFile, cities::add);
+        parser.parseTransportation(transportFile, map -> {
+            rows.add(new String[]{map.get("origin"), map.get("destination"),
+                    map.get("type"), map.get("price"), map.get("duration")});
+            return null;
+        });
+        Random random = new Random(17);
+        for (int batch = 0; batch < 4; batch++) {
+            GraphDelta delta = new GraphDelta();
+            for (int change = 0; change < 3; change++) {
+                randomChange(random, batch % 2 == 0, cities, rows, delta);
+            }
+            controller.applyUpdates(delta);
+            this.assertSameRoutes(controller, cities, rows);
+        }
+    }
+
+    // Batches of changes applied in place give the same routes as loading
+    // the changed CSVs from scratch, in every search mode, both for batches
+    // that only make routes longer (which keep cached routes and landmark
+    // tables) and for batches that may make them shorter (general case)
+    @Test
+    public void testUpdatesMatchReload() throws IOException {
+        for (SearchMode mode : SearchMode.values()) {
+            for (int i : new int[]{4, 6}) {
+                String citiesFile = "data/cities" + i + ".csv";
+                String transportFile = "data/transport" + i + ".csv";
+                TravelController controller = new TravelController(mode);
+                controller.load(citiesFile, transportFile);
+                List<String> cities = new ArrayList<>();
+                List<String[]> rows = new ArrayList<>();
+                TravelCSVParser parser = new TravelCSVParser();
+                parser.streamLocations(citiesFile, cities::add);
+                parser.parseTransportation(transportFile, map -> {
+                    rows.add(new String[]{map.get("origin"),
+                            map.get("destination"), map.get("type"),
+                            map.get("price"), map.get("duration")});
+                    return null;
+                });
+                Random random = new Random(i * 31L + mode.ordinal());
+                for (int batch = 0; batch < 8; batch++) {
+                    this.assertSameRoutes(controller, cities, rows);
+                    GraphDelta delta = new GraphDelta();
+                    for (int change = 0; change < 3; change++) {
+                        randomChange(random, batch % 2 == 0, cities, rows, delta);
+                    }
+                    controller.applyUpdates(delta);
+                }
+                this.assertSameRoutes(controller, cities, rows);
+            }
+        }
+    }
+
+    // On a generated network large enough to have cities outside the core,
+    // batches that keep the cities customize the contraction hierarchies
+    // instead of contracting again, and still give the same routes as
+    // loading the changed CSVs, whether transports get dearer, cheaper,
+    // removed or added (general case)
+    @Test
+    public void testCustomizedHierarchyMatchesReload() throws IOException {
+        List<String> cities = new ArrayList<>();
+        List<String[]> rows = new ArrayList<>();
+        Random random = new Random(11);
+        for (int i = 0; i < 150; i++) {
+            cities.add("City " + i);
+        }
+        for (int i = 0; i < cities.size() * 4; i++) {
+            int from = random.nextInt(cities.size());
+            int to = random.nextInt(10) == 0 ? random.nextInt(cities.size())
+                    : Math.floorMod(from + random.nextInt(7) - 3, cities.size());
+            rows.add(new String[]{cities.get(from), cities.get(to),
+                    TransportType.values()[random.nextInt(3)].getLabel(),
+                    Integer.toString(1 + random.nextInt(100)),
+                    Integer.toString(1 + random.nextInt(100))});
+        }
+        File citiesFile = File.createTempFile("cities", ".csv");
+        File transportFile = File.createTempFile("transport", ".csv");
+        citiesFile.deleteOnExit();
+        transportFile.deleteOnExit();
+        Files.writeString(citiesFile.toPath(), "name\n" + String.join("\n", cities)
+                + "\n");
+        StringBuilder transports = new StringBuilder(
+                "origin,destination,type,price,duration\n");
+        for (String[] row : rows) {
+            transports.append(String.join(",", row)).append("\n");
+        }
+        Files.writeString(transportFile.toPath(), transports);
+
+        TravelController controller = new TravelController(
+                SearchMode.CONTRACTION_HIERARCHIES);
+        controller.load(citiesFile.getPath(), transportFile.getPath());
+        for (int batch = 0; batch < 12; batch++) {
+            GraphDelta delta = new GraphDelta();
+            for (int change = 0; change < 4; change++) {
+                randomChange(random, new int[]{0, 1, 1, 4}[random.nextInt(4)],
+                        batch % 3 == 0, cities, rows, delta);
+            }
+            controller.applyUpdates(delta);
+            if (batch % 4 == 3) {
+                this.assertSameRoutes(controller, cities, rows);
+            }
+        }
+    }
+
+    // Hundreds of small batches, laid over the graph one after another until
+    // its unused edge slots are compacted away, give the same routes as
+    // loading the changed CSVs, also after saving the graph to a file and
+    // loading it back (edge case)
+    @Test
+    public void testManyUpdatesMatchReload() throws IOException {
+        String citiesFile = "data/cities6.csv";
+        String transportFile = "data/transport6.csv";
+        TravelController controller = new TravelController();
+        controller.load(citiesFile, transportFile);
+        List<String> cities = new ArrayList<>();
+        List<String[]> rows = new ArrayList<>();
+        TravelCSVParser parser = new TravelCSVParser();
+        parser.streamLocations(citiesFile, cities::add);
+        parser.parseTransportation(transportFile, map -> {
+            rows.add(new String[]{map.get("origin"), map.get("destination"),
+                    map.get("type"), map.get("price"), map.get("duration")});
+            return null;
+        });
+        Random random = new Random(5);
+        for (int batch = 0; batch < 600; batch++) {
+            String[] row = rows.get(random.nextInt(rows.size()));
+            row[3] = Integer.toString(random.nextInt(300));
+            row[4] = Integer.toString(random.nextInt(300));
+            controller.applyUpdates(new GraphDelta().reprice(row[0], row[1],
+                    TransportType.fromString(row[2]),
+                    Double.parseDouble(row[3]), Double.parseDouble(row[4])));
+        }
+        this.assertSameRoutes(controller, cities, rows);
+
+        File file = File.createTempFile("graph", ".bin");
+        file.deleteOnExit();
+        controller.saveGraph(file.getPath());
+        TravelController loaded = new TravelController();
+        loaded.loadGraph(file.getPath());
+        this.assertSameRoutes(loaded, cities, rows);
+    }
+
+    // A batch with an invalid change is rejected as a whole, and a delta
+    // file is applied through update (edge case)
+    @Test
+    public void testUpdateIsAtomic() throws IOException {
+        TravelController controller = new TravelController();
+        controller.load("data/cities3.csv", "data/transport3.csv");
+        List<Transport> before = controller.fastestRoute("Philadelphia",
+                "Boston");
+        GraphDelta delta = new GraphDelta()
+                .removeCity("Providence")
+                .addCity("Hartford")
+                .removeTransport("Boston", "Providence", TransportType.BUS);
+        try {
+            controller.applyUpdates(delta);
+            fail("Expected the batch to be rejected");
+        } catch (IllegalArgumentException e) {
+            assertEquals(before, controller.fastestRoute("Philadelphia",
+                    "Boston"));
+        }
+        controller.applyUpdates(new GraphDelta().addCity("Hartford"));
+
+        File file = File.createTempFile("delta", ".csv");
+        file.deleteOnExit();
+        Files.writeString(file.toPath(), "op,origin,destination,type,price,duration\n"
+                + "reprice,New Haven,Providence,train,20,60\n"
+                + "add,Philadelphia,Hartford,bus,5,1\n"
+                + "remove,Providence,Boston,bus,,\n");
+        assertEquals("Successfully applied 3 changes.",
+                controller.update(file.getPath()));
+        assertEquals(1, controller.fastestRoute("Philadelphia", "Hartford").size());
+        assertEquals(8, getTotalEdgeTime(controller.fastestRoute("Providence",
+                "Boston")), DELTA);
+        assertEquals(60, getTotalEdgeTime(controller.fastestRoute("New Haven",
+                "Providence")), DELTA);
+        Files.writeString(file.toPath(), "op,origin,destination,type,price,duration\n"
+                + "teleport,Philadelphia,Hartford,bus,5,1\n");
+        assertEquals("Error parsing file: " + file.getPath(),
+                controller.update(file.getPath()));
+    }
+
+    /**
+     * Adds a random change to a batch and makes the same change to a list of
+     * cities and transport rows
+     *
+     * @param random     the random source
+     * @param onlyLonger whether the change may only make routes longer
+     * @param cities     the city names, changed in place
+     * @param rows       the transport rows, changed in place
+     * @param delta      the batch to add the change to
+     */
+
+    private static void randomChange(Random random, boolean onlyLonger,
+                                     List<String> cities, List<String[]> rows,
+                                     GraphDelta delta) {
+        randomChange(random, random.nextInt(onlyLonger ? 3 : 5), onlyLonger,
+                cities, rows, delta);
+    }
+
+    /**
+     * Adds a change of the given kind to a delta and makes the same change
+     * to lists of city names and transport rows: 0 removes a transport, 1
+     * reprices one, 2 removes a city, 3 adds one and 4 adds a transport
+     *
+     * @param random     the source of randomness
+     * @param kind       the kind of change
+     * @param onlyLonger whether a reprice may only make a transport dearer
+     *                   and slower
+     * @param cities     the city names
+     * @param rows       the transport rows
+     * @param delta      the delta to add the change to
+     */
+
+    private static void randomChange(Random random, int kind, boolean onlyLonger,
+                                     List<String> cities, List<String[]> rows,
+                                     GraphDelta delta) {
+        if (rows.isEmpty() && kind < 2) {
+            kind = 2;
+        }
+        if (kind < 2) {
+            String[] picked = rows.get(random.nextInt(rows.size()));
+            String origin = picked[0];
+            String destination = picked[1];
+            TransportType type = TransportType.fromString(picked[2]);
+            if (kind == 0) {
+                delta.removeTransport(origin, destination, type);
+                rows.removeIf(row -> row[0].equals(origin)
+                        && row[1].equals(destination) && row[2].equals(picked[2]));
+            } else {
+                double oldPrice = Double.parseDouble(picked[3]);
+                double oldMinutes = Double.parseDouble(picked[4]);
+                double price = onlyLonger ? oldPrice + random.nextInt(50)
+                        : random.nextInt(300);
+                double minutes = onlyLonger ? oldMinutes + random.nextInt(50)
+                        : random.nextInt(300);
+                delta.reprice(origin, destination, type, price, minutes);
+                for (String[] row : rows) {
+                    if (row[0].equals(origin) && row[1].equals(destination)
+                            && row[2].equals(picked[2])) {
+                        row[3] = Double.toString(price);
+                        row[4] = Double.toString(minutes);
+                    }
+                }
+            }
+        } else if (kind == 2 && cities.size() > 2) {
+            String city = cities.remove(random.nextInt(cities.size()));
+            delta.removeCity(city);
+            rows.removeIf(row -> row[0].equals(city) || row[1].equals(city));
+        } else if (kind == 3) {
+            String city = "Town " + random.nextInt(1000000);
+            delta.addCity(city);
+            cities.add(city);
+        } else if (cities.size() > 1) {
+            String origin = cities.get(random.nextInt(cities.size()));
+            String destination = cities.get(random.nextInt(cities.size()));
+            TransportType type = TransportType.values()[random.nextInt(3)];
+            double price = random.nextInt(300);
+            double minutes = random.nextInt(300);
+            delta.addTransport(origin, destination, type, price, minutes);
+            rows.add(new String[]{origin, destination, type.getLabel(),
+                    Double.toString(price), Double.toString(minutes)});
+        }
+    }
+
+    /**
+     * Checks that a controller gives routes with the same costs and hop
+     * counts as a new controller loaded from CSVs of the given cities and
+     * rows, for every pair of cities, asking each question twice so cached
+     * routes are checked as well
+     *
+     * @param controller the controller being checked
+     * @param cities     the city names
+     * @param rows       the transport rows
+     */
+
+    private void assertSameRoutes(TravelController controller,
+                                  List<String> cities, List<String[]> rows)
+            throws IOException {
+        File citiesFile = File.createTempFile("cities", ".csv");
+        File transportFile = File.createTempFile("transport", ".csv");
+        citiesFile.deleteOnExit();
+        transportFile.deleteOnExit();
+        Files.writeString(citiesFile.toPath(), "name\n" + String.join("\n", cities)
+                + "\n");
+        StringBuilder transports = new StringBuilder(
+                "origin,destination,type,price,duration\n");
+        for (String[] row : rows) {
+            transports.append(String.join(",", row)).append("\n");
+        }
+        Files.writeString(transportFile.toPath(), transports);
+        TravelController expected = new TravelController();
+        expected.load(citiesFile.getPath(), transportFile.getPath());
+        for (int round = 0; round < 2; round++) {
+            for (String from : cities) {
+                for (String to : cities) {
+                    assertEquals(getTotalEdgeTime(expected.fastestRoute(from, to)),
+                            getTotalEdgeTime(controller.fastestRoute(from, to)),
+                            DELTA);
+                    assertEquals(getTotalEdgePrice(expected.cheapestRoute(from, to)),
+                            getTotalEdgePrice(controller.cheapestRoute(from, to)),
+                            DELTA);
+                    assertEquals(expected.mostDirectRoute(from, to).size(),
+                            controller.mostDirectRoute(from, to).size());
+                }
+            }
+        }
+    }
+
+    // Primitive double weights give the same paths as boxed ones, on the
+    // simple graph and on a frozen graph with every engine (general case)
+    @Test
+    public void testShortestPathDouble() {
+        this.createSimpleGraph();
+        List<IDijkstra<SimpleVertex, SimpleEdge>> simpleEngines = List.of(
+                new Dijkstra<>(), new BidirectionalDijkstra<>());
+        for (IDijkstra<SimpleVertex, SimpleEdge> dijkstra : simpleEngines) {
+            List<SimpleEdge> path = dijkstra.getShortestPathDouble(this.graph,
+                    this.a, this.b, e -> e.weight);
+            assertEquals(6, SimpleGraph.getTotalEdgeWeight(path), DELTA);
+            assertEquals(3, path.size());
+        }
+
+        TravelGraph travelGraph = new TravelGraph();
+        City boston = new City("Boston");
+        City nyc = new City("New York City");
+        City providence = new City("Providence");
+        for (City city : List.of(boston, nyc, providence)) {
+            travelGraph.addVertex(city);
+        }
+        travelGraph.addEdge(boston, new Transport(boston, nyc,
+                TransportType.BUS, 20, 300));
+        travelGraph.addEdge(boston, new Transport(boston, providence,
+                TransportType.TRAIN, 5, 40));
+        travelGraph.addEdge(providence, new Transport(providence, nyc,
+                TransportType.PLANE, 90, 60));
+        FrozenTravelGraph frozen = travelGraph.freeze();
+        List<IDijkstra<City, Transport>> engines = List.of(new Dijkstra<>(),
+                new BidirectionalDijkstra<>(),
+                new ContractionHierarchyDijkstra(), new LandmarkAStar());
+        for (IDijkstra<City, Transport> dijkstra : engines) {
+            List<Transport> cheapest = dijkstra.getShortestPathDouble(frozen,
+                    boston, nyc, Transport::getPrice);
+            assertEquals(20, getTotalEdgePrice(cheapest), DELTA);
+            List<Transport> fastest = dijkstra.getShortestPathDouble(frozen,
+                    boston, nyc, Transport::getMinutes);
+            assertEquals(100, getTotalEdgeTime(fastest), DELTA);
+            assertEquals(fastest, dijkstra.getShortestPath(frozen, boston,
+                    nyc, Transport::getMinutes));
+        }
+    }
+
+    // Repeated route queries are answered from the cache until the next load,
+    // which drops every cached route (general case)
+    @Test
+    public void testRouteCache() {
+        TravelController controller = new TravelController();
+        controller.load("data/cities1.csv", "data/transport1.csv");
+        RouteCache<?, ?> cache = controller.getRouteCache();
+        List<Transport> first = controller.cheapestRoute("New York City",
+                "Boston");
+        assertEquals(0, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+        assertSame(first, controller.cheapestRoute("New York City", "Boston"));
+        assertEquals(1, cache.getHitCount());
+
+        // the metric is part of the key
+        controller.fastestRoute("New York City", "Boston");
+        controller.mostDirectRoute("New York City", "Boston");
+        assertEquals(3, cache.getMissCount());
+        assertEquals(3, cache.size());
+
+        controller.load("data/cities1.csv", "data/transport1.csv");
+        assertEquals(0, cache.size());
+        List<Transport> reloaded = controller.cheapestRoute("New York City",
+                "Boston");
+        assertNotSame(first, reloaded);
+        assertEquals(47, getTotalEdgePrice(reloaded), DELTA);
+        assertEquals(4, cache.getMissCount());
+        assertEquals(0.2, cache.getHitRate(), DELTA);
+    }
+
+    // Queries from many threads all see a consistent graph while it is
+    // reloaded, with every search mode (general case)
+    @Test
+    public void testConcurrentQueriesDuringReload() throws Exception {
+        for (SearchMode mode : SearchMode.values()) {
+            TravelController controller = new TravelController(mode);
+            controller.load("data/cities1.csv", "data/transport1.csv");
+            AtomicBoolean reloading = new AtomicBoolean(true);
+            ExecutorService pool = Executors.newFixedThreadPool(4);
+            List<Future<Integer>> workers = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                workers.add(pool.submit(() -> {
+                    int queries = 0;
+                    while (reloading.get() || queries == 0) {
+                        assertEquals(47, getTotalEdgePrice(controller
+                                .cheapestRoute("New York City", "Boston")),
+                                DELTA);
+                        assertEquals(50, getTotalEdgeTime(controller
+                                .fastestRoute("New York City", "Boston")),
+                                DELTA);
+                        assertEquals(1, controller.mostDirectRoute(
+                                "New York City", "Boston").size());
+                        queries++;
+                    }
+                    return queries;
+                }));
+            }
+            for (int i = 0; i < 5; i++) {
+                assertEquals("Successfully loaded cities and transportation "
+                        + "files.", controller.loadInBackground(
+                        "data/cities1.csv", "data/transport1.csv").get());
+            }
+            reloading.set(false);
+            for (Future<Integer> worker : workers) {
+                assertTrue(worker.get() > 0);
+            }
+            pool.shutdown();
+        }
+    }
+
+    // A full cache drops its least recently used entries (edge case)
+    @Test
+    public void testRouteCacheEviction() {
+        // a capacity of 16 gives each of the 16 segments room for one entry
+        RouteCache<Integer, String> cache = new RouteCache<>(16);
+        cache.put(0, "zero");
+        cache.put(16, "sixteen");
+        assertNull(cache.get(0));
+        assertEquals("sixteen", cache.get(16));
+        assertEquals(1, cache.getEvictionCount());
+        assertEquals(1, cache.size());
+        cache.invalidate();
+        assertNull(cache.get(16));
+    }
+
+    // A value computed before an invalidation is not cached after it, so it
+    // cannot hold on to the data it was computed from (edge case)
+    @Test
+    public void testRouteCacheStalePut() {
+        RouteCache<Integer, String> cache = new RouteCache<>(16);
+        long generation = cache.getGeneration();
+        cache.put(1, "one", generation);
+        assertEquals("one", cache.get(1));
+        cache.invalidate();
+        cache.put(2, "two", generation);
+        assertNull(cache.get(2));
+        assertEquals(0, cache.size());
+        cache.put(2, "two", cache.getGeneration());
+        cache.migrate((key, value) -> key);
+        cache.put(3, "three", generation + 1);
+        assertEquals("two", cache.get(2));
+        assertNull(cache.get(3));
+        assertEquals(1, cache.size());
+    }
+
+    // Query statistics count the searches of every engine, but not the
+    // queries answered from the route cache (general case)
+    @Test
+    public void testQueryStats() {
+        for (SearchMode mode : SearchMode.values()) {
+            TravelController controller = new TravelController(mode);
+            controller.load("data/cities1.csv", "data/transport1.csv");
+            assertNull(controller.getQueryStats());
+            controller.setStatsEnabled(true);
+            controller.cheapestRoute("New York City", "Boston");
+            controller.cheapestRoute("New York City", "Boston");
+            controller.mostDirectRoute("Providence", "Boston");
+
+            QueryStats stats = controller.getQueryStats();
+            assertEquals(1, stats.getCount(RouteMetric.CHEAPEST));
+            assertEquals(1, stats.getCount(RouteMetric.MOST_DIRECT));
+            assertEquals(0, stats.getCount(RouteMetric.FASTEST));
+            for (RouteMetric metric : List.of(RouteMetric.CHEAPEST,
+                    RouteMetric.MOST_DIRECT)) {
+                assertTrue(stats.getHistogram(metric,
+                        QueryStats.Measure.SETTLED).getMax() > 0);
+                assertTrue(stats.getHistogram(metric,
+                        QueryStats.Measure.RELAXED).getMax() > 0);
+            }
+            assertTrue(stats.getHistogram(RouteMetric.CHEAPEST,
+                    QueryStats.Measure.HEAP_OPERATIONS).getMax() > 0);
+
+            controller.resetStats();
+            assertEquals(0, controller.getQueryStats().getCount(
+                    RouteMetric.CHEAPEST));
+            controller.setStatsEnabled(false);
+            assertNull(controller.getQueryStats());
+        }
+    }
+
+    // Searches counted on threads that have since ended are still counted
+    // once their counts are folded into the shared totals, on every read
+    // (edge case)
+    @Test
+    public void testQueryStatsKeepEndedThreads() throws InterruptedException {
+        TravelController controller = new TravelController();
+        controller.load("data/cities1.csv", "data/transport1.csv");
+        controller.setStatsEnabled(true);
+        for (int i = 0; i < 20; i++) {
+            controller.getRouteCache().invalidate();
+            Thread thread = new Thread(() -> controller.cheapestRoute(
+                    "New York City", "Boston"));
+            thread.start();
+            thread.join();
+            assertEquals(i + 1, controller.getQueryStats().getCount(
+                    RouteMetric.CHEAPEST));
+        }
+        controller.cheapestRoute("Providence", "Boston");
+        assertEquals(21, controller.getQueryStats().getCount(RouteMetric.CHEAPEST));
+        assertEquals(21, controller.getQueryStats().getCount(RouteMetric.CHEAPEST));
+    }
+
+    // Percentiles of a histogram are exact for small values and within its
+    // precision for large ones, also after adding histograms (general case)
+    @Test
+    public void testHistogramPercentiles() {
+        Histogram small = new Histogram(1_000_000, 3);
+        for (int i = 1; i <= 100; i++) {
+            small.record(i);
+        }
+        assertEquals(50, small.getValueAtPercentile(50));
+        assertEquals(99, small.getValueAtPercentile(99));
+        assertEquals(100, small.getValueAtPercentile(100));
+        assertEquals(50.5, small.getMean(), DELTA);
+
+        Histogram large = small.emptyCopy();
+        for (int i = 1; i <= 1000; i++) {
+            large.record(i * 1000L);
+        }
+        assertEquals(500_000, large.getValueAtPercentile(50), 500);
+        assertEquals(1_000_000, large.getMax());
+
+        large.add(small);
+        assertEquals(1100, large.getTotalCount());
+        assertEquals(1, large.getMin());
+        assertEquals(100, large.getValueAtPercentile(100.0 * 100 / 1100));
+    }
+
+    // The shortest path tree from a holds the lightest path to every vertex
+    // of the simple graph, settled in order of weight (general case)
+    @Test
+    public void testShortestPathTreeSimple() {
+        this.createSimpleGraph();
+        Dijkstra<SimpleVertex, SimpleEdge> dijkstra = new Dijkstra<>();
+        IShortestPathTree<SimpleVertex, SimpleEdge> tree =
+                dijkstra.getShortestPathTree(this.graph, this.a, e -> e.weight);
+        assertEquals(this.a, tree.getSource());
+        assertEquals(List.of(this.a, this.e, this.c, this.d, this.b),
+                tree.getReachableVertices());
+        assertEquals(0, tree.getWeight(this.a), DELTA);
+        assertEquals(6, tree.getWeight(this.b), DELTA);
+        assertEquals(3, tree.getPath(this.b).size());
+        assertTrue(tree.getPath(this.a).isEmpty());
+
+        // nothing is reachable from b, which has no outgoing edges
+        tree = dijkstra.getShortestPathTree(this.graph, this.b, e -> e.weight);
+        assertEquals(List.of(this.b), tree.getReachableVertices());
+        assertFalse(tree.isReachable(this.a));
+        assertEquals(Double.POSITIVE_INFINITY, tree.getWeight(this.a), DELTA);
+        assertTrue(tree.getPath(this.a).isEmpty());
+    }
+
+    // A tree with a weight limit stops at the vertices whose lightest path
+    // is over the limit (edge case)
+    @Test
+    public void testShortestPathTreeWithinLimit() {
+        this.createSimpleGraph();
+        Dijkstra<SimpleVertex, SimpleEdge> dijkstra = new Dijkstra<>();
+        IShortestPathTree<SimpleVertex, SimpleEdge> tree =
+                dijkstra.getShortestPathTree(this.graph, this.a, e -> e.weight,
+                        3);
+        assertEquals(List.of(this.a, this.e, this.c),
+                tree.getReachableVertices());
+        assertEquals(3, tree.getWeight(this.c), DELTA);
+        // d was queued with weight 5 but never settled
+        assertFalse(tree.isReachable(this.d));
+        assertEquals(Double.POSITIVE_INFINITY, tree.getWeight(this.d), DELTA);
+        assertTrue(tree.getPath(this.d).isEmpty());
+        assertFalse(tree.isReachable(this.b));
+    }
+
+    // Routes within a limit are exactly the routes of the full tree whose
+    // cost is at most the limit, with the same costs (general case)
+    @Test
+    public void testRoutesWithinMatchFullTree() throws IOException {
+        for (int i = 1; i <= 7; i++) {
+            String citiesFile = "data/cities" + i + ".csv";
+            TravelController controller = new TravelController();
+            controller.load(citiesFile, "data/transport" + i + ".csv");
+            List<String> names = new ArrayList<>();
+            new TravelCSVParser().parseLocations(citiesFile, map -> {
+                names.add(map.get("name"));
+                return null;
+            });
+            for (String from : names) {
+                for (double limit : new double[]{0, 50, 100, 250}) {
+                    this.assertWithin(controller.fastestRoutesFrom(from),
+                            controller.fastestRoutesWithin(from, limit), limit);
+                    this.assertWithin(controller.cheapestRoutesFrom(from),
+                            controller.cheapestRoutesWithin(from, limit), limit);
+                }
+            }
+        }
+    }
+
+    // Negative limits are rejected by the controller, and a tree that
+    // settled nothing still knows its source (edge case)
+    @Test
+    public void testRoutesWithinNegativeLimit() {
+        TravelController controller = new TravelController();
+        controller.load("data/cities1.csv", "data/transport1.csv");
+        List<Runnable> queries = List.of(
+                () -> controller.fastestRoutesWithin("Boston", -5),
+                () -> controller.cheapestRoutesWithin("Boston", -5),
+                () -> controller.mostDirectRoutesWithin("Boston", -5),
+                () -> controller.fastestRoutesWithin("Boston", Double.NaN));
+        for (Runnable query : queries) {
+            try {
+                query.run();
+                fail("Expected the limit to be rejected");
+            } catch (IllegalArgumentException e) {
+                assertTrue(e.getMessage().contains("negative"));
+            }
+        }
+
+        TravelGraph travelGraph = new TravelGraph();
+        City boston = new City("Boston");
+        City providence = new City("Providence");
+        travelGraph.addVertex(boston);
+        travelGraph.addVertex(providence);
+        travelGraph.addEdge(boston, new Transport(boston, providence,
+                TransportType.TRAIN, 5, 40));
+        IShortestPathTree<City, Transport> tree = new Dijkstra<City, Transport>()
+                .getShortestPathTree(travelGraph.freeze(), boston,
+                        Transport::getMinutes, -5);
+        assertEquals(boston, tree.getSource());
+        assertTrue(tree.getReachableVertices().isEmpty());
+        assertFalse(tree.isReachable(providence));
+    }
+
+    // The trees of fastest and cheapest routes from each city match one
+    // Dijkstra per destination (general case)
+    @Test
+    public void testShortestPathTreeMatchesDijkstra() throws IOException {
+        for (int i = 1; i <= 7; i++) {
+            String citiesFile = "data/cities" + i + ".csv";
+            TravelController controller = new TravelController();
+            controller.load(citiesFile, "data/transport" + i + ".csv");
+            List<String> names = new ArrayList<>();
+            new TravelCSVParser().parseLocations(citiesFile, map -> {
+                names.add(map.get("name"));
+                return null;
+            });
+            for (String from : names) {
+                IShortestPathTree<City, Transport> fastest =
+                        controller.fastestRoutesFrom(from);
+                IShortestPathTree<City, Transport> cheapest =
+                        controller.cheapestRoutesFrom(from);
+                assertEquals(from, fastest.getSource().toString());
+                Map<String, City> reached = new HashMap<>();
+                for (City city : fastest.getReachableVertices()) {
+                    assertTrue(fastest.isReachable(city));
+                    reached.put(city.toString(), city);
+                }
+                for (String to : names) {
+                    List<Transport> expected = controller.fastestRoute(from, to);
+                    City city = reached.get(to);
+                    if (city == null) {
+                        assertTrue(expected.isEmpty());
+                        continue;
+                    }
+                    assertEquals(getTotalEdgeTime(expected),
+                            fastest.getWeight(city), DELTA);
+                    assertEquals(getTotalEdgeTime(expected),
+                            getTotalEdgeTime(fastest.getPath(city)), DELTA);
+                    assertEquals(getTotalEdgePrice(controller.cheapestRoute(
+                            from, to)), cheapest.getWeight(city), DELTA);
+                }
+            }
+        }
+    }
+
+    // The Pareto routes between every pair of cities run from the cheapest
+    // route to the fastest one, each cheaper option being slower (general
+    // case)
+    @Test
+    public void testParetoRoutes() throws IOException {
+        for (int i = 1; i <= 7; i++) {
+            String citiesFile = "data/cities" + i + ".csv";
+            TravelController controller = new TravelController();
+            controller.load(citiesFile, "data/transport" + i + ".csv");
+            List<String> names = new ArrayList<>();
+            new TravelCSVParser().parseLocations(citiesFile, map -> {
+                names.add(map.get("name"));
+                return null;
+            });
+            for (String from : names) {
+                for (String to : names) {
+                    if (from.equals(to)) {
+                        continue;
+                    }
+                    List<List<Transport>> routes = controller.paretoRoutes(from, to);
+                    List<Transport> cheapest = controller.cheapestRoute(from, to);
+                    List<Transport> fastest = controller.fastestRoute(from, to);
+                    assertEquals(fastest.isEmpty(), routes.isEmpty());
+                    if (routes.isEmpty()) {
+                        continue;
+                    }
+                    assertEquals(getTotalEdgePrice(cheapest),
+                            getTotalEdgePrice(routes.get(0)), DELTA);
+                    assertEquals(getTotalEdgeTime(fastest),
+                            getTotalEdgeTime(routes.get(routes.size() - 1)), DELTA);
+                    for (int r = 0; r < routes.size(); r++) {
+                        List<Transport> route = routes.get(r);
+                        assertEquals(from, route.get(0).getSource().toString());
+                        assertEquals(to, route.get(route.size() - 1).getTarget()
+                                .toString());
+                        if (r > 0) {
+                            assertTrue(getTotalEdgePrice(route)
+                                    > getTotalEdgePrice(routes.get(r - 1)));
+                            assertTrue(getTotalEdgeTime(route)
+                                    < getTotalEdgeTime(routes.get(r - 1)));
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    // On small random graphs, the Pareto routes have exactly the price and
+    // duration pairs that no other simple path beats (general case)
+    @Test
+    public void testParetoRoutesMatchEnumeration() {
+        Random random = new Random(5);
+        ParetoDijkstra pareto = new ParetoDijkstra();
+        for (int trial = 0; trial < 500; trial++) {
+            int vertexCount = 2 + random.nextInt(7);
+            TravelGraph graph = new TravelGraph();
+            City[] cities = new City[vertexCount];
+            for (int v = 0; v < vertexCount; v++) {
+                cities[v] = new City("City " + v);
+                graph.addVertex(cities[v]);
+            }
+            for (int e = random.nextInt(vertexCount * 4); e > 0; e--) {
+                City from = cities[random.nextInt(vertexCount)];
+                City to = cities[random.nextInt(vertexCount)];
+                graph.addEdge(from, new Transport(from, to, TransportType.BUS,
+                        random.nextInt(6), random.nextInt(6)));
+            }
+            City source = cities[0];
+            City destination = cities[vertexCount - 1];
+            List<double[]> costs = new ArrayList<>();
+            Set<City> onPath = new HashSet<>(List.of(source));
+            enumeratePaths(source, destination, onPath, 0, 0, costs);
+            Set<String> expected = new HashSet<>();
+            for (double[] cost : costs) {
+                boolean dominated = false;
+                for (double[] other : costs) {
+                    dominated |= other[0] <= cost[0] && other[1] <= cost[1]
+                            && (other[0] < cost[0] || other[1] < cost[1]);
+                }
+                if (!dominated) {
+                    expected.add(cost[0] + "/" + cost[1]);
+                }
+            }
+            List<List<Transport>> routes = pareto.getRoutes(graph.freeze(),
+                    source, destination);
+            Set<String> actual = new HashSet<>();
+            for (List<Transport> route : routes) {
+                actual.add(getTotalEdgePrice(route) + "/" + getTotalEdgeTime(route));
+            }
+            assertEquals(expected.size(), routes.size());
+            assertEquals(expected, actual);
+        }
+    }
+
+    // The only Pareto route from a city to itself is the empty one, and
+    // there is none to a city that cannot be reached (edge case)
+    @Test
+    public void testParetoRoutesEdges() {
+        TravelController controller = new TravelController();
+        controller.load("data/cities1.csv", "data/transport1.csv");
+        assertEquals(List.of(List.of()),
+                controller.paretoRoutes("Boston", "Boston"));
+
+        TravelGraph graph = new TravelGraph();
+        City boston = new City("Boston");
+        City providence = new City("Providence");
+        graph.addVertex(boston);
+        graph.addVertex(providence);
+        graph.addEdge(providence, new Transport(providence, boston,
+                TransportType.BUS, 5, 60));
+        ParetoDijkstra pareto = new ParetoDijkstra();
+        FrozenTravelGraph frozen = graph.freeze();
+        assertTrue(pareto.getRoutes(frozen, boston, providence).isEmpty());
+        assertEquals(1, pareto.getRoutes(frozen, providence, boston).size());
+    }
+
+    /**
+     * Adds the price and duration of every simple path from a city to a
+     * destination to a list (only used for testing)
+     *
+     * @param city        the city the paths continue from
+     * @param destination the city the paths end at
+     * @param onPath      the cities already on the path
+     * @param price       the price of the path so far
+     * @param minutes     the duration of the path so far
+     * @param costs       the list to add the price and duration pairs to
+     */
+
+    private static void enumeratePaths(City city, City destination,
+                                       Set<City> onPath, double price,
+                                       double minutes, List<double[]> costs) {
+        if (city == destination) {
+            costs.add(new double[]{price, minutes});
+            return;
+        }
+        for (Transport transport : city.getOutgoing()) {
+            if (onPath.add(transport.getTarget())) {
+                enumeratePaths(transport.getTarget(), destination, onPath,
+                        price + transport.getPrice(),
+                        minutes + transport.getMinutes(), costs);
+                onPath.remove(transport.getTarget());
+            }
+        }
+    }
+
+    /**
+     * Checks that a tree with a weight limit holds exactly the vertices of the
+     * full tree within the limit, with the same weights
+     *
+     * @param full    the tree without a limit
+     * @param bounded the tree with the limit
+     * @param limit   the limit of the bounded tree
+     */
+
+    private void assertWithin(IShortestPathTree<City, Transport> full,
+                              IShortestPathTree<City, Transport> bounded,
+                              double limit) {
+        int count = 0;
+        for (City city : full.getReachableVertices()) {
+            double weight = full.getWeight(city);
+            assertEquals(weight <= limit, bounded.isReachable(city));
+            if (weight <= limit) {
+                count++;
+                assertEquals(weight, bounded.getWeight(city), DELTA);
+                assertEquals(full.getPath(city).size(),
+                        bounded.getPath(city).size());
+            }
+        }
+        assertEquals(count, bounded.getReachableVertices().size());
+    }
+
+    /**
+     * Checks that a controller using the given search mode finds fastest and
+     * cheapest routes of the same cost as one using plain Dijkstra, for every
+     * pair of cities in a data set
+     *
+     * @param mode          the search mode being checked
+     * @param citiesFile    the cities csv of the data set
+     * @param transportFile the transport csv of the data set
+     */
+
+    private void assertSameCosts(SearchMode mode, String citiesFile,
+                                 String transportFile) throws IOException {
+        TravelController expected = new TravelController();
+        TravelController actual = new TravelController(mode);
+        expected.load(citiesFile, transportFile);
+        actual.load(citiesFile, transportFile);
+        List<String> names = new ArrayList<>();
+        new TravelCSVParser().parseLocations(citiesFile, map -> {
+            names.add(map.get("name"));
+            return null;
+        });
+        for (String from : names) {
+            for (String to : names) {
+                assertEquals(getTotalEdgeTime(expected.fastestRoute(from, to)),
+                        getTotalEdgeTime(actual.fastestRoute(from, to)), DELTA);
+                assertEquals(getTotalEdgePrice(expected.cheapestRoute(from, to)),
+                        getTotalEdgePrice(actual.cheapestRoute(from, to)), DELTA);
+                assertEquals(expected.fastestRoute(from, to).isEmpty(),
+                        actual.fastestRoute(from, to).isEmpty());
+            }
+        }
+    }
+
     /**
      * Returns the total edge price for a given path (only used for testing)
      *
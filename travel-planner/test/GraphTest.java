@@ -1,17 +1,32 @@
 package test;
 
 import org.junit.Test;
+import sol.FrozenTravelGraph;
+import sol.GraphFile;
 import sol.TravelGraph;
 import src.City;
 import src.Transport;
+import src.MappedTransportParser;
+import src.NameTable;
 import src.TransportType;
+import src.TravelCSVParser;
 import test.simple.SimpleEdge;
 import test.simple.SimpleGraph;
 import test.simple.SimpleVertex;
 
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
 /**
@@ -428,4 +443,476 @@ public class GraphTest {
         graph.addVertex(c1);
         graph.getCityByName("Boise");
     }
+
+    // Freezing a graph keeps every city and lays each city's Transports out
+    // in one contiguous CSR range with matching primitive columns
+    @Test
+    public void testFreeze() {
+        TravelGraph graph = new TravelGraph();
+        City c1 = new City("Ithaca");
+        City c2 = new City("Syracuse");
+        City c3 = new City("Albany");
+        Transport edge1 = new Transport(c1, c2, TransportType.BUS, 10, 5);
+        Transport edge2 = new Transport(c1, c3, TransportType.PLANE, 144, 12);
+        Transport edge3 = new Transport(c3, c2, TransportType.TRAIN, 30, 50);
+        graph.addVertex(c1);
+        graph.addVertex(c2);
+        graph.addVertex(c3);
+        graph.addEdge(c1, edge1);
+        graph.addEdge(c1, edge2);
+        graph.addEdge(c3, edge3);
+
+        FrozenTravelGraph frozen = graph.freeze();
+        assertEquals(3, frozen.getVertexCount());
+        assertEquals(3, frozen.getEdgeCount());
+        assertEquals(graph.getVertices(), frozen.getVertices());
+        assertEquals(c3, frozen.getCityByName("Albany"));
+        assertEquals(graph.getOutgoingEdges(c1), frozen.getOutgoingEdges(c1));
+        assertEquals(0, frozen.getOutgoingEdges(c2).size());
+
+        int albany = frozen.getVertexId(c3);
+        int edge = frozen.getFirstEdge(albany);
+        assertEquals(edge + 1, frozen.getEdgeEnd(albany));
+        assertEquals(edge3, frozen.getEdge(edge));
+        assertEquals(albany, frozen.getSourceId(edge));
+        assertEquals(frozen.getVertexId(c2), frozen.getTargetId(edge));
+        assertEquals(30, frozen.getPrice(edge), 0.001);
+        assertEquals(50, frozen.getMinutes(edge), 0.001);
+        assertEquals(TransportType.TRAIN, frozen.getType(edge));
+    }
+
+    // A frozen graph cannot be modified (edge case)
+    @Test(expected = UnsupportedOperationException.class)
+    public void testFreezeImmutable() {
+        TravelGraph graph = new TravelGraph();
+        graph.addVertex(new City("Reno"));
+        graph.freeze().addVertex(new City("Boise"));
+    }
+
+    // Incoming edges are tracked by the graph and by its frozen snapshot
+    @Test
+    public void testGetIncomingEdges() {
+        TravelGraph graph = new TravelGraph();
+        City c1 = new City("Flushing");
+        City c2 = new City("Corning");
+        City c3 = new City("Manhattan");
+        Transport edge1 = new Transport(c1, c3, TransportType.BUS, 10, 5);
+        Transport edge2 = new Transport(c2, c3, TransportType.PLANE, 12, 5);
+        Transport edge3 = new Transport(c3, c1, TransportType.TRAIN, 144, 6);
+        graph.addVertex(c1);
+        graph.addVertex(c2);
+        graph.addVertex(c3);
+        graph.addEdge(c1, edge1);
+        graph.addEdge(c2, edge2);
+        graph.addEdge(c3, edge3);
+        assertEquals(Set.of(edge1, edge2), graph.getIncomingEdges(c3));
+        assertEquals(0, graph.getIncomingEdges(c2).size());
+
+        FrozenTravelGraph frozen = graph.freeze();
+        assertEquals(Set.of(edge1, edge2), frozen.getIncomingEdges(c3));
+        assertEquals(Set.of(edge3), frozen.getIncomingEdges(c1));
+        assertEquals(0, frozen.getIncomingEdges(c2).size());
+    }
+
+    // The vertex count and vertex iteration see the same cities as
+    // getVertices, for the graph and its frozen snapshot (general case)
+    @Test
+    public void testVertexCountAndForEach() {
+        TravelGraph graph = new TravelGraph();
+        graph.addVertex(new City("Lima"));
+        graph.addVertex(new City("Quito"));
+        graph.addVertex(new City("Bogota"));
+        assertEquals(3, graph.getVertexCount());
+        Set<City> seen = new HashSet<>();
+        graph.forEachVertex(seen::add);
+        assertEquals(graph.getVertices(), seen);
+
+        FrozenTravelGraph frozen = graph.freeze();
+        assertEquals(3, frozen.getVertexCount());
+        List<City> ordered = new ArrayList<>();
+        frozen.forEachVertex(ordered::add);
+        for (int id = 0; id < ordered.size(); id++) {
+            assertEquals(frozen.getCity(id), ordered.get(id));
+        }
+
+        // the defaults on IGraph go through getVertices
+        SimpleGraph simple = new SimpleGraph();
+        simple.addVertex(new SimpleVertex("a"));
+        assertEquals(1, simple.getVertexCount());
+    }
+
+    // The streaming parser reads the same rows as the Map-based parser on
+    // every data file (general case)
+    @Test
+    public void testStreamingParserMatchesMapParser() throws IOException {
+        TravelCSVParser parser = new TravelCSVParser();
+        for (int i = 1; i <= 8; i++) {
+            List<String> expected = new ArrayList<>();
+            parser.parseLocations("data/cities" + i + ".csv", map -> {
+                expected.add(map.get("name"));
+                return null;
+            });
+            List<String> actual = new ArrayList<>();
+            parser.streamLocations("data/cities" + i + ".csv", actual::add);
+            assertEquals(expected, actual);
+
+            List<String> expectedRows = new ArrayList<>();
+            parser.parseTransportation("data/transport" + i + ".csv", map -> {
+                expectedRows.add(map.get("origin") + "|" + map.get("destination")
+                        + "|" + TransportType.fromString(map.get("type")) + "|"
+                        + Double.parseDouble(map.get("price")) + "|"
+                        + Double.parseDouble(map.get("duration")));
+                return null;
+            });
+            List<String> actualRows = new ArrayList<>();
+            parser.streamTransportation("data/transport" + i + ".csv",
+                    (origin, destination, type, price, minutes) ->
+                            actualRows.add(origin + "|" + destination + "|"
+                                    + type + "|" + price + "|" + minutes));
+            assertEquals(expectedRows, actualRows);
+        }
+    }
+
+    // The streaming parser finds columns by header name, handles quoted
+    // fields, CRLF line ends and decimals, and shares repeated names (edge
+    // case)
+    @Test
+    public void testStreamingParserFormats() throws IOException {
+        File file = File.createTempFile("transport", ".csv");
+        file.deleteOnExit();
+        Files.writeString(file.toPath(), "price,type,duration,destination,origin\r\n"
+                + "12.5,Plane,0.1,\"Washington, D.C.\",Boston\r\n"
+                + "\r\n"
+                + "1e2,bus,-3,\"Say \"\"Hi\"\"\",\"Washington, D.C.\"");
+        List<Object[]> rows = new ArrayList<>();
+        new TravelCSVParser().streamTransportation(file.getPath(),
+                (origin, destination, type, price, minutes) ->
+                        rows.add(new Object[]{origin, destination, type, price,
+                                minutes}));
+        assertEquals(2, rows.size());
+        assertEquals("Boston", rows.get(0)[0]);
+        assertEquals("Washington, D.C.", rows.get(0)[1]);
+        assertEquals(TransportType.PLANE, rows.get(0)[2]);
+        assertEquals(12.5, rows.get(0)[3]);
+        assertEquals(0.1, rows.get(0)[4]);
+        assertTrue(rows.get(0)[1] == rows.get(1)[0]);
+        assertEquals("Say \"Hi\"", rows.get(1)[1]);
+        assertEquals(TransportType.BUS, rows.get(1)[2]);
+        assertEquals(100.0, rows.get(1)[3]);
+        assertEquals(-3.0, rows.get(1)[4]);
+    }
+
+    // A file without one of the needed columns is rejected (edge case)
+    @Test(expected = IOException.class)
+    public void testStreamingParserMissingColumn() throws IOException {
+        File file = File.createTempFile("transport", ".csv");
+        file.deleteOnExit();
+        Files.writeString(file.toPath(), "origin,destination,type,price\n"
+                + "Boston,Providence,bus,7\n");
+        new TravelCSVParser().streamTransportation(file.getPath(),
+                (origin, destination, type, price, minutes) -> { });
+    }
+
+    // The memory-mapped parser gives the same rows in the same order as the
+    // streaming parser, however small its chunks are (general case)
+    @Test
+    public void testMappedParserMatchesStreamingParser() throws IOException {
+        TravelCSVParser parser = new TravelCSVParser();
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            for (int i = 1; i <= 8; i++) {
+                String file = "data/transport" + i + ".csv";
+                List<String> expected = new ArrayList<>();
+                parser.streamTransportation(file,
+                        (origin, destination, type, price, minutes) ->
+                                expected.add(origin + "|" + destination + "|"
+                                        + type + "|" + price + "|" + minutes));
+                for (long chunkSize : new long[]{1, 7, 64, 1 << 20}) {
+                    List<String> actual = new ArrayList<>();
+                    new MappedTransportParser(pool, chunkSize).parseTransportation(
+                            file, (origin, destination, type, price, minutes) ->
+                                    actual.add(origin + "|" + destination + "|"
+                                            + type + "|" + price + "|" + minutes));
+                    assertEquals(expected, actual);
+                }
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    // The memory-mapped parser handles a file with only a header, CRLF line
+    // ends and a last row without a line break (edge case)
+    @Test
+    public void testMappedParserEdges() throws IOException {
+        ForkJoinPool pool = new ForkJoinPool(2);
+        try {
+            MappedTransportParser parser = new MappedTransportParser(pool, 3);
+            File file = File.createTempFile("transport", ".csv");
+            file.deleteOnExit();
+            Files.writeString(file.toPath(), "origin,destination,type,price,duration");
+            List<String> rows = new ArrayList<>();
+            parser.parseTransportation(file.getPath(),
+                    (origin, destination, type, price, minutes) -> rows.add(origin));
+            assertEquals(0, rows.size());
+
+            Files.writeString(file.toPath(), "origin,destination,type,price,duration\r\n"
+                    + "A,B,bus,1,2\r\nB,C,train,3,4\r\nC,A,plane,5.5,6");
+            parser.parseTransportation(file.getPath(),
+                    (origin, destination, type, price, minutes) ->
+                            rows.add(origin + destination + type + price + minutes));
+            assertEquals(List.of("ABBUS1.02.0", "BCTRAIN3.04.0", "CAPLANE5.56.0"),
+                    rows);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    // A quoted field that spans lines is read whole however the file is
+    // split, and a pool of one thread streams the file (edge case)
+    @Test
+    public void testMappedParserQuotedLineBreak() throws IOException {
+        File file = File.createTempFile("transport", ".csv");
+        file.deleteOnExit();
+        Files.writeString(file.toPath(), "origin,destination,type,price,duration\n"
+                + "A,\"B\nC\",bus,1,2\n\"D \"\"E\"\"\",F,train,3,4\nG,H,plane,5,6\n");
+        List<String> expected = List.of("A|B\nC|BUS", "D \"E\"|F|TRAIN", "G|H|PLANE");
+        for (int parallelism : new int[]{1, 4}) {
+            ForkJoinPool pool = new ForkJoinPool(parallelism);
+            try {
+                for (long chunkSize : new long[]{1, 7, 1 << 20}) {
+                    List<String> rows = new ArrayList<>();
+                    new MappedTransportParser(pool, chunkSize).parseTransportation(
+                            file.getPath(), (origin, destination, type, price, minutes) ->
+                                    rows.add(origin + "|" + destination + "|" + type));
+                    assertEquals(expected, rows);
+                }
+            } finally {
+                pool.shutdown();
+            }
+        }
+    }
+
+    // The id parser gives the same rows as the String parser, with every
+    // name replaced by its id and unknown names by -1 (general case)
+    @Test
+    public void testMappedParserIds() throws IOException {
+        TravelCSVParser parser = new TravelCSVParser();
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            for (int i = 1; i <= 8; i++) {
+                String file = "data/transport" + i + ".csv";
+                NameTable cities = new NameTable();
+                parser.streamLocations("data/cities" + i + ".csv", cities::add);
+                List<String> expected = new ArrayList<>();
+                parser.streamTransportation(file,
+                        (origin, destination, type, price, minutes) ->
+                                expected.add(cities.find(origin) + "|"
+                                        + cities.find(destination) + "|" + type
+                                        + "|" + price + "|" + minutes));
+                for (long chunkSize : new long[]{1, 64, 1 << 20}) {
+                    List<String> actual = new ArrayList<>();
+                    new MappedTransportParser(pool, chunkSize).parseTransportation(
+                            file, cities, (origin, destination, type, price, minutes) ->
+                                    actual.add(origin + "|" + destination + "|"
+                                            + type + "|" + price + "|" + minutes));
+                    assertEquals(expected, actual);
+                }
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    // A name table gives every distinct name the next id, finds names from
+    // Strings and from ranges of a char array, and keeps its ids as it
+    // grows and when copied (general case)
+    @Test
+    public void testNameTable() {
+        NameTable names = new NameTable();
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(i, names.add("City " + i));
+        }
+        assertEquals(1000, names.size());
+        assertEquals(7, names.add("City 7"));
+        assertEquals(1000, names.size());
+        char[] text = "xxCity 42,City 999".toCharArray();
+        assertEquals(42, names.find(text, 2, 9));
+        assertEquals(999, names.find(text, 10, text.length));
+        assertEquals(-1, names.find(text, 2, 7));
+        assertEquals(-1, names.find("City 1000"));
+        assertEquals("City 500", names.getName(500));
+
+        NameTable copy = names.copy();
+        assertEquals(1000, copy.add("Boston"));
+        assertEquals(-1, names.find("Boston"));
+        assertEquals(123, copy.find("City 123"));
+    }
+
+    // The empty name and names whose hashes collide each get their own id
+    // (edge case)
+    @Test
+    public void testNameTableEdges() {
+        NameTable names = new NameTable(0);
+        assertEquals(0, names.add(""));
+        assertEquals(1, names.add("Aa"));
+        assertEquals(2, names.add("BB"));
+        assertEquals("Aa".hashCode(), "BB".hashCode());
+        assertEquals(0, names.find(new char[0], 0, 0));
+        assertEquals(1, names.find("Aa"));
+        assertEquals(2, names.find("BBB".toCharArray(), 1, 3));
+        assertEquals("", names.getName(0));
+    }
+
+    // Cities get dense ids in the order they are added, keep them when
+    // removed and added back, and a frozen graph numbers them by those ids
+    // (general case)
+    @Test
+    public void testCityIds() {
+        TravelGraph graph = new TravelGraph();
+        City[] cities = new City[5];
+        for (int i = 0; i < cities.length; i++) {
+            cities[i] = new City("City " + i);
+            assertEquals(-1, cities[i].getId());
+            graph.addVertex(cities[i]);
+            assertEquals(i, cities[i].getId());
+        }
+        graph.addEdge(cities[0], new Transport(cities[0], cities[4],
+                TransportType.BUS, 1, 1));
+        graph.removeVertex(cities[2]);
+        assertFalse(graph.containsCity("City 2"));
+        assertEquals(4, graph.getVertexCount());
+        assertEquals(cities[3], graph.getCity(3));
+        graph.addVertex(cities[2]);
+        assertEquals(2, cities[2].getId());
+        assertEquals(cities[2], graph.getCityByName("City 2"));
+
+        FrozenTravelGraph frozen = graph.freeze();
+        for (City city : cities) {
+            assertEquals(city.getId(), frozen.getVertexId(city));
+        }
+        assertEquals(4, frozen.getTargetId(frozen.getFirstEdge(0)));
+    }
+
+    // A frozen graph still finds cities that have no id or share one with
+    // another city, and rejects a different city with a known name (edge
+    // case)
+    @Test(expected = IllegalArgumentException.class)
+    public void testCityIdsEdges() {
+        TravelGraph graph = new TravelGraph();
+        City boston = new City("Boston");
+        graph.addVertex(boston);
+        City other = new City("Providence");
+        new TravelGraph().addVertex(other);
+        City fresh = new City("Hartford");
+        assertEquals(0, other.getId());
+
+        FrozenTravelGraph frozen = new FrozenTravelGraph(List.of(fresh, other,
+                boston));
+        assertEquals(0, frozen.getVertexId(fresh));
+        assertEquals(1, frozen.getVertexId(other));
+        assertEquals(2, frozen.getVertexId(boston));
+        assertEquals(boston, frozen.getCityByName("Boston"));
+        frozen.getVertexId(new City("Boston"));
+    }
+
+    // A graph written to a binary graph file reads back with the same
+    // cities, edges and reverse CSR as the graph loaded from CSV (general
+    // case)
+    @Test
+    public void testGraphFileRoundTrip() throws IOException {
+        TravelCSVParser parser = new TravelCSVParser();
+        File file = File.createTempFile("graph", ".bin");
+        file.deleteOnExit();
+        for (int i = 1; i <= 8; i++) {
+            TravelGraph graph = new TravelGraph();
+            parser.streamLocations("data/cities" + i + ".csv",
+                    name -> graph.addVertex(new City(name)));
+            parser.streamTransportation("data/transport" + i + ".csv",
+                    (origin, destination, type, price, minutes) -> {
+                        City from = graph.getCityByName(origin);
+                        graph.addEdge(from, new Transport(from,
+                                graph.getCityByName(destination), type, price,
+                                minutes));
+                    });
+            FrozenTravelGraph expected = graph.freeze();
+            GraphFile.write(expected, file.toPath());
+            FrozenTravelGraph actual = GraphFile.read(file.toPath());
+
+            assertEquals(expected.getVertexCount(), actual.getVertexCount());
+            assertEquals(expected.getEdgeCount(), actual.getEdgeCount());
+            for (int v = 0; v <= expected.getVertexCount(); v++) {
+                assertEquals(expected.getFirstEdge(v), actual.getFirstEdge(v));
+                assertEquals(expected.getFirstIncoming(v),
+                        actual.getFirstIncoming(v));
+            }
+            for (int v = 0; v < expected.getVertexCount(); v++) {
+                City city = actual.getCity(v);
+                assertEquals(expected.getCity(v).toString(), city.toString());
+                assertEquals(city, actual.getCityByName(city.toString()));
+                assertEquals(v, actual.getVertexId(city));
+                assertSame(city, actual.getCity(v));
+                assertEquals(expected.getOutgoingEdges(expected.getCity(v)).size(),
+                        actual.getOutgoingEdges(city).size());
+                assertEquals(expected.getIncomingEdges(expected.getCity(v)).size(),
+                        actual.getIncomingEdges(city).size());
+            }
+            for (int e = 0; e < expected.getEdgeCount(); e++) {
+                assertEquals(expected.getTargetId(e), actual.getTargetId(e));
+                assertEquals(expected.getPrice(e), actual.getPrice(e), 0);
+                assertEquals(expected.getMinutes(e), actual.getMinutes(e), 0);
+                assertEquals(expected.getType(e), actual.getType(e));
+                assertEquals(expected.getIncomingEdge(e), actual.getIncomingEdge(e));
+                assertEquals(expected.getIncomingSource(e),
+                        actual.getIncomingSource(e));
+                assertEquals(expected.getEdge(e).toString(),
+                        actual.getEdge(e).toString());
+                assertSame(actual.getEdge(e), actual.getEdge(e));
+            }
+        }
+    }
+
+    // Graph files that are not graph files, were written by another version
+    // or are cut short are rejected (edge case)
+    @Test
+    public void testGraphFileRejectsBadFiles() throws IOException {
+        File file = File.createTempFile("graph", ".bin");
+        file.deleteOnExit();
+        Files.writeString(file.toPath(), "origin,destination,type,price,duration\n");
+        assertGraphFileRejected(file);
+
+        TravelGraph graph = new TravelGraph();
+        City boston = new City("Boston");
+        City providence = new City("Providence");
+        graph.addVertex(boston);
+        graph.addVertex(providence);
+        graph.addEdge(boston, new Transport(boston, providence,
+                TransportType.TRAIN, 13, 80));
+        GraphFile.write(graph.freeze(), file.toPath());
+        byte[] bytes = Files.readAllBytes(file.toPath());
+        assertEquals(2, GraphFile.read(file.toPath()).getVertexCount());
+
+        byte[] otherVersion = bytes.clone();
+        otherVersion[4] = (byte) (GraphFile.VERSION + 1);
+        Files.write(file.toPath(), otherVersion);
+        assertGraphFileRejected(file);
+
+        Files.write(file.toPath(), Arrays.copyOf(bytes, bytes.length - 1));
+        assertGraphFileRejected(file);
+    }
+
+    /**
+     * Checks that reading a file as a graph file throws an IOException
+     *
+     * @param file the file to read
+     */
+
+    private static void assertGraphFileRejected(File file) {
+        try {
+            GraphFile.read(file.toPath());
+        } catch (IOException e) {
+            return;
+        }
+        throw new AssertionError("Expected " + file + " to be rejected");
+    }
 }